@@ -36,6 +36,13 @@ import java.util.regex.Pattern;
 public class Math2 {
 	public static final Pattern INT_PATTERN = Pattern.compile("-?\\d+");
 	
+	/** The maximum number of significant decimal digits that can always be represented exactly by a {@code double}. */
+	private static final int MAX_EXACT_DIGIT_COUNT = 15;
+	
+	/** All powers of ten that can be represented exactly by a {@code double}. */
+	private static final double[] EXACT_POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	
 	
   public static double log(double a, double base) {
   	return Math.log(a) / Math.log(base);
@@ -860,6 +867,187 @@ public class Math2 {
   }
   
   
+  /**
+   * Parses a double value from a character sequence which can have either "," or "." as its decimal separator. 
+   * The sequence must not contain thousand separators.
+   * <p>
+   * In contrast to {@link #parseDouble(String)}, no string is created for values in plain decimal notation
+   * (optionally followed by an exponent) with up to 15 significant digits and a resulting decimal exponent between 
+   * -22 and 22. Such values are calculated with a single floating point operation on exactly representable operands 
+   * and are therefore correctly rounded. All other values are delegated to {@link #parseDouble(String)}. This method 
+   * is intended to parse tokens returned as views by {@link info.bioinfweb.commons.io.PeekReader}.
+   * 
+   * @param sequence the character sequence to parse
+   * @return the parsed double value
+   * @throws NumberFormatException if the specified sequence does not represent a valid decimal value
+   * @since 3.4.0 
+   */
+  public static double parseDouble(CharSequence sequence) {
+  	int length = sequence.length();
+  	int pos = 0;
+  	boolean negative = false;
+  	if ((length > 0) && ((sequence.charAt(0) == '-') || (sequence.charAt(0) == '+'))) {
+  		negative = (sequence.charAt(0) == '-');
+  		pos++;
+  	}
+  	
+  	// Read mantissa:
+  	long mantissa = 0;
+  	int digitCount = 0;
+  	int significantDigitCount = 0;
+  	int exponent = 0;
+  	boolean separatorFound = false;
+  	while (pos < length) {
+  		char c = sequence.charAt(pos);
+  		if ((c >= '0') && (c <= '9')) {
+  			digitCount++;
+  			if ((mantissa > 0) || (c != '0')) {
+  				significantDigitCount++;
+  				if (significantDigitCount > MAX_EXACT_DIGIT_COUNT) {
+  					return parseDouble(sequence.toString());
+  				}
+  			}
+  			mantissa = 10 * mantissa + (c - '0');
+  			if (separatorFound) {
+  				exponent--;
+  			}
+  		}
+  		else if (((c == '.') || (c == ',')) && !separatorFound) {
+  			separatorFound = true;
+  		}
+  		else {
+  			break;
+  		}
+  		pos++;
+  	}
+  	
+  	// Read exponent:
+  	if ((digitCount > 0) && (pos < length) && ((sequence.charAt(pos) == 'e') || (sequence.charAt(pos) == 'E'))) {
+  		pos++;
+  		boolean negativeExponent = false;
+  		if ((pos < length) && ((sequence.charAt(pos) == '-') || (sequence.charAt(pos) == '+'))) {
+  			negativeExponent = (sequence.charAt(pos) == '-');
+  			pos++;
+  		}
+  		int exponentStart = pos;
+  		int explicitExponent = 0;
+  		while ((pos < length) && (pos - exponentStart < 5) && (sequence.charAt(pos) >= '0') && (sequence.charAt(pos) <= '9')) {
+  			explicitExponent = 10 * explicitExponent + (sequence.charAt(pos) - '0');
+  			pos++;
+  		}
+  		if (pos == exponentStart) {
+  			pos = -1;  // Invalid exponent. (Will be handled by the fallback.)
+  		}
+  		else if (negativeExponent) {
+  			exponent -= explicitExponent;
+  		}
+  		else {
+  			exponent += explicitExponent;
+  		}
+  	}
+  	
+  	if ((digitCount == 0) || (pos != length)) {  // Special values (e.g. "NaN"), suffixes, invalid sequences or very long exponents
+  		return parseDouble(sequence.toString());
+  	}
+  	else {
+  		double result;
+  		if (mantissa == 0) {
+  			result = 0.0;
+  		}
+  		else if ((exponent >= 0) && (exponent < EXACT_POWERS_OF_TEN.length)) {
+  			result = mantissa * EXACT_POWERS_OF_TEN[exponent];
+  		}
+  		else if ((exponent < 0) && (-exponent < EXACT_POWERS_OF_TEN.length)) {
+  			result = mantissa / EXACT_POWERS_OF_TEN[-exponent];
+  		}
+  		else {
+  			return parseDouble(sequence.toString());
+  		}
+  		
+  		if (negative) {
+  			return -result;
+  		}
+  		else {
+  			return result;
+  		}
+  	}
+  }
+  
+  
+  private static NumberFormatException createNumberFormatException(CharSequence sequence) {
+  	return new NumberFormatException("For input string: \"" + sequence + "\"");
+  }
+  
+  
+  /**
+   * Parses a decimal {@code long} value from a character sequence. The accepted format is the same as for
+   * {@link Long#parseLong(String)}, but no string is created from the sequence.
+   * 
+   * @param sequence the character sequence to parse
+   * @return the parsed value
+   * @throws NumberFormatException if the specified sequence does not represent a valid {@code long} value
+   * @since 3.4.0 
+   */
+  public static long parseLong(CharSequence sequence) {
+  	int length = sequence.length();
+  	int pos = 0;
+  	boolean negative = false;
+  	long limit = -Long.MAX_VALUE;  // The result is accumulated negatively, since Long.MIN_VALUE has no positive counterpart.
+  	if ((length > 0) && ((sequence.charAt(0) == '-') || (sequence.charAt(0) == '+'))) {
+  		if (sequence.charAt(0) == '-') {
+  			negative = true;
+  			limit = Long.MIN_VALUE;
+  		}
+  		pos++;
+  	}
+  	if (pos == length) {
+  		throw createNumberFormatException(sequence);
+  	}
+  	
+  	long multiplicationLimit = limit / 10;
+  	long result = 0;
+  	while (pos < length) {
+  		int digit = Character.digit(sequence.charAt(pos), 10);
+  		if ((digit < 0) || (result < multiplicationLimit)) {
+  			throw createNumberFormatException(sequence);
+  		}
+  		result *= 10;
+  		if (result < limit + digit) {
+  			throw createNumberFormatException(sequence);
+  		}
+  		result -= digit;
+  		pos++;
+  	}
+  	
+  	if (negative) {
+  		return result;
+  	}
+  	else {
+  		return -result;
+  	}
+  }
+  
+  
+  /**
+   * Parses a decimal {@code int} value from a character sequence. The accepted format is the same as for
+   * {@link Integer#parseInt(String)}, but no string is created from the sequence.
+   * 
+   * @param sequence the character sequence to parse
+   * @return the parsed value
+   * @throws NumberFormatException if the specified sequence does not represent a valid {@code int} value
+   * @since 3.4.0 
+   */
+  public static int parseInt(CharSequence sequence) {
+  	long result = parseLong(sequence);
+  	if ((result < Integer.MIN_VALUE) || (result > Integer.MAX_VALUE)) {
+  		throw createNumberFormatException(sequence);
+  	}
+  	else {
+  		return (int)result;
+  	}
+  }
+  
+  
   public static String decimalToString(double decimal, int decimalPlaceCount) {
     if (decimalPlaceCount > 0) {
 	  	decimal *= Math.pow(10, decimalPlaceCount);
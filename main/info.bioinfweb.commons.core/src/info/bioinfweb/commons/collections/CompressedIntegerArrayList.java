@@ -0,0 +1,969 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+
+
+/**
+ * Implements a list of {@code long} values that are compressed in blocks of {@link #BLOCK_LENGTH} values.
+ * <p>
+ * In contrast to {@link PackedIntegerArrayList}, which uses the same minimum value and number of bits for all 
+ * elements, each block of this list has its own base value and bit width. A block is either stored 
+ * <i>frame of reference</i> encoded (each value is stored as its difference to the minimum of the block) or 
+ * <i>delta</i> encoded (each value is stored as its difference to the previous value, reduced by the minimum 
+ * difference in the block). The encoding that needs fewer bits is chosen for each block, so that monotone sequences
+ * (e.g. sorted positions or offsets) only need a few bits per value. Values of the whole {@code long} range can be 
+ * stored.
+ * <p>
+ * The compressed blocks are stored one after another in a single {@code long} array. Since a block of 
+ * {@link #BLOCK_LENGTH} values with a width of <i>b</i> bits occupies exactly 2<i>b</i> {@code long}s, the position of
+ * each block is stored and blocks can be accessed in constant time. Accessing a single value of a delta encoded 
+ * block requires decoding the values before it in the block. Sequential access using {@link #iterator()}, 
+ * {@link #longStream()} or {@link #get(long, long[], int, int)} decodes whole blocks at once.
+ * <p>
+ * Elements behind the last full block are stored uncompressed until the block is complete, so that appending 
+ * values is cheap. Replacing a value re-encodes its block. Ranges of values can be replaced using 
+ * {@link #set(long, long[], int, int)} and {@link #fill(long, long, long)}. Inserting or removing values re-encodes all blocks 
+ * behind the modified position and temporarily needs a second array of the size of the compressed data.
+ * Iterators and spliterators do not detect concurrent modifications of the list.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * @see PackedIntegerArrayList
+ */
+public class CompressedIntegerArrayList {
+	/** The number of values in a compressed block. */
+	public static final int BLOCK_LENGTH = 128;
+	
+	/** The binary logarithm of {@link #BLOCK_LENGTH}. */
+	public static final int BLOCK_LENGTH_BITS = 7;
+	
+	private static final int INDEX_IN_BLOCK_MASK = BLOCK_LENGTH - 1;
+	private static final int DELTA_FLAG = 0x80;
+	private static final int WIDTH_MASK = 0x7F;
+	private static final int INITIAL_DATA_LENGTH = 16;
+	
+	
+	/**
+	 * Iterates over the elements of the enclosing list by decoding one block at a time.
+	 */
+	private class CompressedIterator implements PrimitiveIterator.OfLong {
+		private long index;
+		private long[] buffer = new long[BLOCK_LENGTH];
+		private long bufferedBlock = -1;
+		
+		public CompressedIterator(long index) {
+			super();
+			this.index = index;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < size();
+		}
+
+		@Override
+		public long nextLong() {
+			if (hasNext()) {
+				long block = index >>> BLOCK_LENGTH_BITS;
+				if (block != bufferedBlock) {
+					decodeBlock((int)block, buffer, 0);
+					bufferedBlock = block;
+				}
+				long result = buffer[(int)index & INDEX_IN_BLOCK_MASK];
+				index++;
+				return result;
+			}
+			else {
+				throw new NoSuchElementException("The end of the list was already reached.");
+			}
+		}
+	}
+	
+	
+	/**
+	 * A spliterator over a range of the enclosing list. Ranges are only split at the borders of blocks.
+	 */
+	private class CompressedSpliterator implements Spliterator.OfLong {
+		private long index;
+		private long end;
+		private long[] buffer = null;
+		private long bufferedBlock = -1;
+		
+		public CompressedSpliterator(long index, long end) {
+			super();
+			this.index = index;
+			this.end = end;
+		}
+		
+		private long[] getBuffer() {
+			if (buffer == null) {
+				buffer = new long[BLOCK_LENGTH];
+			}
+			return buffer;
+		}
+
+		private void decode(long block) {
+			if (block != bufferedBlock) {
+				decodeBlock((int)block, getBuffer(), 0);
+				bufferedBlock = block;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (index < end) {
+				decode(index >>> BLOCK_LENGTH_BITS);
+				action.accept(buffer[(int)index & INDEX_IN_BLOCK_MASK]);
+				index++;
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			while (index < end) {
+				decode(index >>> BLOCK_LENGTH_BITS);
+				int last = (int)Math.min(BLOCK_LENGTH, end - (index & ~INDEX_IN_BLOCK_MASK));
+				for (int i = (int)index & INDEX_IN_BLOCK_MASK; i < last; i++) {
+					action.accept(buffer[i]);
+				}
+				index += last - ((int)index & INDEX_IN_BLOCK_MASK);
+			}
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long middle = (index + (end - index) / 2) & ~INDEX_IN_BLOCK_MASK;
+			if (middle <= index) {
+				return null;
+			}
+			else {
+				CompressedSpliterator result = new CompressedSpliterator(index, middle);
+				index = middle;
+				return result;
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+	}
+	
+	
+	/** The compressed values of all full blocks. */
+	private long[] data;
+	
+	/** The number of elements of {@link #data} that are used by blocks. */
+	private int dataLength = 0;
+	
+	/** The index of the first element in {@link #data} used by each block. */
+	private int[] offsets;
+	
+	/** The minimum value of each frame of reference encoded block or the first value of each delta encoded block. */
+	private long[] bases;
+	
+	/** The minimum difference between two consecutive values of each delta encoded block. */
+	private long[] deltaMins;
+	
+	/** The bit width of each block combined with {@link #DELTA_FLAG}. */
+	private byte[] formats;
+	
+	/** The number of full (compressed) blocks. */
+	private int blockCount = 0;
+	
+	/** The uncompressed values behind the last full block. */
+	private long[] tail = new long[BLOCK_LENGTH];
+	
+	/** The number of values in {@link #tail}. */
+	private int tailLength = 0;
+	
+	/** Buffer used to modify a block. */
+	private long[] blockBuffer = new long[BLOCK_LENGTH];
+	
+	
+	/**
+	 * Creates a new empty instance of this class.
+	 */
+	public CompressedIntegerArrayList() {
+		this(0);
+	}
+	
+	
+	/**
+	 * Creates a new empty instance of this class.
+	 * 
+	 * @param initialCapacity the number of values this list can take up before the arrays storing block 
+	 *        information need to be enlarged
+	 * @throws IllegalArgumentException if {@code initialCapacity} is lower than 0
+	 */
+	public CompressedIntegerArrayList(long initialCapacity) {
+		super();
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("The initial capacity must not be lower than 0, but was " + initialCapacity + ".");
+		}
+		else {
+			data = new long[INITIAL_DATA_LENGTH];
+			int blockCapacity = calculateBlockCount(initialCapacity);
+			offsets = new int[blockCapacity];
+			bases = new long[blockCapacity];
+			deltaMins = new long[blockCapacity];
+			formats = new byte[blockCapacity];
+		}
+	}
+	
+	
+	/**
+	 * Creates a shallow copy of the specified list that shares all arrays with it.
+	 */
+	private CompressedIntegerArrayList(CompressedIntegerArrayList other) {
+		super();
+		data = other.data;
+		dataLength = other.dataLength;
+		offsets = other.offsets;
+		bases = other.bases;
+		deltaMins = other.deltaMins;
+		formats = other.formats;
+		blockCount = other.blockCount;
+		tail = other.tail;
+		tailLength = other.tailLength;
+	}
+	
+	
+	private static int calculateBlockCount(long capacity) {
+		long result = capacity >>> BLOCK_LENGTH_BITS;
+		if (result > PackedIntegerArrayList.MAX_ARRAY_LENGTH) {
+			throw new IllegalArgumentException("The value count of " + capacity + " is to high.");
+		}
+		return (int)result;
+	}
+	
+	
+	/**
+	 * Makes sure that the arrays storing block information can take up the specified number of elements. If they are
+	 * too small, they are enlarged to at least 1.5 times of their current size.
+	 * 
+	 * @param newCapacity the number of elements that need to be stored
+	 * @throws IllegalArgumentException if this list cannot take up {@code newCapacity} elements
+	 */
+	public void ensureCapacity(long newCapacity) {
+		int newBlockCount = calculateBlockCount(newCapacity);
+		if (newBlockCount > offsets.length) {
+			newBlockCount = (int)Math.max(newBlockCount, Math.min(PackedIntegerArrayList.MAX_ARRAY_LENGTH, 
+					offsets.length * 3L / 2 + 1));
+			offsets = Arrays.copyOf(offsets, newBlockCount);
+			bases = Arrays.copyOf(bases, newBlockCount);
+			deltaMins = Arrays.copyOf(deltaMins, newBlockCount);
+			formats = Arrays.copyOf(formats, newBlockCount);
+		}
+	}
+	
+	
+	private void ensureDataCapacity(long newLength) {
+		if (newLength > data.length) {
+			if (newLength > PackedIntegerArrayList.MAX_ARRAY_LENGTH) {
+				throw new IllegalStateException("The compressed values of this list cannot take up more than " + 
+						PackedIntegerArrayList.MAX_ARRAY_LENGTH + " long values.");
+			}
+			data = Arrays.copyOf(data, (int)Math.max(newLength, 
+					Math.min(PackedIntegerArrayList.MAX_ARRAY_LENGTH, data.length * 3L / 2 + 1)));
+		}
+	}
+	
+	
+	/**
+	 * Reduces the arrays used by this list to the sizes needed to store the current elements.
+	 */
+	public void trimToSize() {
+		data = Arrays.copyOf(data, dataLength);
+		offsets = Arrays.copyOf(offsets, blockCount);
+		bases = Arrays.copyOf(bases, blockCount);
+		deltaMins = Arrays.copyOf(deltaMins, blockCount);
+		formats = Arrays.copyOf(formats, blockCount);
+	}
+	
+	
+	/**
+	 * Returns the number of bits necessary to store all unsigned values up to the specified one.
+	 */
+	private static int width(long unsignedMax) {
+		return Long.SIZE - Long.numberOfLeadingZeros(unsignedMax);
+	}
+	
+	
+	private int getWidth(int block) {
+		return formats[block] & WIDTH_MASK;
+	}
+	
+	
+	private boolean isDeltaEncoded(int block) {
+		return (formats[block] & DELTA_FLAG) != 0;
+	}
+	
+	
+	/**
+	 * Returns the number of elements of {@link #data} used by the specified block.
+	 */
+	private int getDataLength(int block) {
+		return 2 * getWidth(block);  // BLOCK_LENGTH * width / Long.SIZE
+	}
+	
+	
+	/**
+	 * Chooses the encoding for the specified values and stores it as the format of the specified block. The 
+	 * differences are calculated with overflow, which results in the correct unsigned difference in all cases.
+	 */
+	private void setBlockFormat(int block, long[] values, int offset) {
+		long min = values[offset];
+		long max = min;
+		long deltaMin = Long.MAX_VALUE;
+		long deltaMax = Long.MIN_VALUE;
+		for (int i = offset + 1; i < offset + BLOCK_LENGTH; i++) {
+			long value = values[i];
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+			long delta = value - values[i - 1];
+			deltaMin = Math.min(deltaMin, delta);
+			deltaMax = Math.max(deltaMax, delta);
+		}
+		
+		int forWidth = width(max - min);
+		int deltaWidth = width(deltaMax - deltaMin);
+		if (deltaWidth < forWidth) {
+			formats[block] = (byte)(DELTA_FLAG | deltaWidth);
+			bases[block] = values[offset];
+			deltaMins[block] = deltaMin;
+		}
+		else {
+			formats[block] = (byte)forWidth;
+			bases[block] = min;
+			deltaMins[block] = 0;
+		}
+	}
+	
+	
+	/**
+	 * Writes the specified values to the position of the specified block in {@link #data} using the format 
+	 * previously determined by {@link #setBlockFormat(int, long[], int)}.
+	 */
+	private void writeBlock(int block, long[] values, int offset) {
+		final int width = getWidth(block);
+		final int position = offsets[block];
+		Arrays.fill(data, position, position + getDataLength(block), 0);
+		if (width > 0) {
+			final boolean delta = isDeltaEncoded(block);
+			final long base = delta ? deltaMins[block] : bases[block];
+			long bitPos = 0;
+			for (int i = 0; i < BLOCK_LENGTH; i++) {
+				long value;
+				if (delta) {
+					value = (i == 0) ? 0 : values[offset + i] - values[offset + i - 1] - base;
+				}
+				else {
+					value = values[offset + i] - base;
+				}
+				
+				int word = position + (int)(bitPos >>> 6);
+				int shift = (int)bitPos & 63;
+				data[word] |= value << shift;
+				if (shift + width > Long.SIZE) {
+					data[word + 1] |= value >>> (Long.SIZE - shift);
+				}
+				bitPos += width;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Reads the stored (encoded) value with the specified index in its block.
+	 */
+	private long readStored(int position, int width, int index) {
+		if (width == 0) {
+			return 0;
+		}
+		else {
+			long bitPos = (long)index * width;
+			int word = position + (int)(bitPos >>> 6);
+			int shift = (int)bitPos & 63;
+			long result = data[word] >>> shift;
+			if (shift + width > Long.SIZE) {
+				result |= data[word + 1] << (Long.SIZE - shift);
+			}
+			return (width == Long.SIZE) ? result : result & ((1L << width) - 1);
+		}
+	}
+	
+	
+	/**
+	 * Decodes all values of the specified block. If the block is the incomplete last block, only its current values 
+	 * are copied.
+	 */
+	private void decodeBlock(int block, long[] dest, int offset) {
+		if (block == blockCount) {
+			System.arraycopy(tail, 0, dest, offset, tailLength);
+		}
+		else {
+			final int width = getWidth(block);
+			final int position = offsets[block];
+			final long mask = (width == Long.SIZE) ? -1L : (1L << width) - 1;
+			final long base = bases[block];
+			if (isDeltaEncoded(block)) {
+				final long deltaMin = deltaMins[block];
+				long value = base;
+				dest[offset] = value;
+				long bitPos = width;
+				for (int i = 1; i < BLOCK_LENGTH; i++) {
+					long stored = 0;
+					if (width > 0) {
+						int word = position + (int)(bitPos >>> 6);
+						int shift = (int)bitPos & 63;
+						stored = data[word] >>> shift;
+						if (shift + width > Long.SIZE) {
+							stored |= data[word + 1] << (Long.SIZE - shift);
+						}
+						bitPos += width;
+					}
+					value += (stored & mask) + deltaMin;
+					dest[offset + i] = value;
+				}
+			}
+			else if (width == 0) {
+				Arrays.fill(dest, offset, offset + BLOCK_LENGTH, base);
+			}
+			else {
+				long bitPos = 0;
+				for (int i = 0; i < BLOCK_LENGTH; i++) {
+					int word = position + (int)(bitPos >>> 6);
+					int shift = (int)bitPos & 63;
+					long stored = data[word] >>> shift;
+					if (shift + width > Long.SIZE) {
+						stored |= data[word + 1] << (Long.SIZE - shift);
+					}
+					dest[offset + i] = (stored & mask) + base;
+					bitPos += width;
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Compresses the specified values as a new block behind the current last full block.
+	 */
+	private void appendBlock(long[] values, int offset) {
+		ensureCapacity(((long)blockCount + 1) << BLOCK_LENGTH_BITS);
+		int block = blockCount;
+		offsets[block] = dataLength;
+		setBlockFormat(block, values, offset);
+		int length = getDataLength(block);
+		ensureDataCapacity((long)dataLength + length);
+		writeBlock(block, values, offset);
+		dataLength += length;
+		blockCount++;
+	}
+	
+	
+	/**
+	 * Compresses the specified values and replaces the specified full block by them. The compressed data of all 
+	 * following blocks is moved, if the width of the block changes.
+	 */
+	private void replaceBlock(int block, long[] values, int offset) {
+		int oldLength = getDataLength(block);
+		setBlockFormat(block, values, offset);
+		int difference = getDataLength(block) - oldLength;
+		if (difference != 0) {
+			ensureDataCapacity((long)dataLength + difference);
+			int followingStart = offsets[block] + oldLength;
+			System.arraycopy(data, followingStart, data, followingStart + difference, dataLength - followingStart);
+			dataLength += difference;
+			for (int i = block + 1; i < blockCount; i++) {
+				offsets[i] += difference;
+			}
+		}
+		writeBlock(block, values, offset);
+	}
+	
+	
+	/**
+	 * Removes all elements starting with the first element of the specified block, so that they can be encoded 
+	 * again. The arrays of this list that still contain the removed blocks are replaced by copies.
+	 * 
+	 * @param firstBlock the index of the first block to be removed
+	 * @return a shallow copy of the previous state of this list, from which the removed elements can still be read
+	 */
+	private CompressedIntegerArrayList truncate(int firstBlock) {
+		CompressedIntegerArrayList result = new CompressedIntegerArrayList(this);
+		if (firstBlock < blockCount) {  // Compressed blocks will be overwritten while they still need to be read.
+			long[] newData = new long[data.length];
+			System.arraycopy(data, 0, newData, 0, offsets[firstBlock]);
+			data = newData;
+			dataLength = offsets[firstBlock];
+			offsets = offsets.clone();
+			bases = bases.clone();
+			deltaMins = deltaMins.clone();
+			formats = formats.clone();
+			blockCount = firstBlock;
+		}
+		tail = new long[BLOCK_LENGTH];
+		tailLength = 0;
+		return result;
+	}
+	
+	
+	/**
+	 * Appends the elements in the specified range of another list to this list.
+	 */
+	private void addRange(CompressedIntegerArrayList source, long from, long to) {
+		if (from < to) {
+			PrimitiveIterator.OfLong iterator = source.iterator(from);
+			for (long i = from; i < to; i++) {
+				add(iterator.nextLong());
+			}
+		}
+	}
+	
+	
+	/**
+	 * Replaces a range of elements of this list by the specified values. All blocks starting with the block 
+	 * containing {@code index} are encoded again.
+	 * 
+	 * @param index the index of the first element to be replaced
+	 * @param removeLength the number of elements to be removed
+	 * @param values the array containing the values to be inserted
+	 * @param offset the index of the first value to be inserted
+	 * @param length the number of values to be inserted
+	 */
+	private void replaceRange(long index, long removeLength, long[] values, int offset, int length) {
+		int firstBlock = (int)(index >>> BLOCK_LENGTH_BITS);
+		long end = size();
+		CompressedIntegerArrayList old = truncate(firstBlock);
+		addRange(old, (long)firstBlock << BLOCK_LENGTH_BITS, index);
+		addAll(values, offset, length);
+		addRange(old, index + removeLength, end);
+	}
+	
+	
+	/**
+	 * Determines whether a modification of the specified range affects more than two blocks. In that case, encoding 
+	 * all following blocks again in one pass is cheaper than moving their compressed data each time the width of a 
+	 * modified block changes.
+	 */
+	private static boolean spansSeveralBlocks(long from, long to) {
+		return ((to - 1) >>> BLOCK_LENGTH_BITS) - (from >>> BLOCK_LENGTH_BITS) > 1;
+	}
+	
+	
+	private void checkIndex(long index, long additionalSpace) {
+		if ((index < 0) || (index > size() + additionalSpace - 1)) {
+			throw new IndexOutOfBoundsException("The index " + index + " is out of bounds (" + 0 + ", " + 
+		      (size() + additionalSpace - 1) + ").");
+		}
+	}
+	
+	
+	private void checkRange(long from, long length) {
+		if ((from < 0) || (length < 0) || (from + length > size())) {
+			throw new IndexOutOfBoundsException("The range starting at " + from + " with the length " + length + 
+					" is not contained in the list with the size " + size() + ".");
+		}
+	}
+	
+	
+	private static void checkArrayRange(long[] array, int offset, int length) {
+		if ((offset < 0) || (length < 0) || (offset > array.length - length)) {
+			throw new IndexOutOfBoundsException("The range starting at " + offset + " with the length " + length + 
+					" is not contained in the array with the length " + array.length + ".");
+		}
+	}
+	
+	
+	/**
+	 * Adds the specified element to the end of this list. The last block is compressed as soon as it is complete.
+	 * 
+	 * @param value the value to be appended
+	 */
+	public void add(long value) {
+		tail[tailLength] = value;
+		tailLength++;
+		if (tailLength == BLOCK_LENGTH) {
+			appendBlock(tail, 0);
+			tailLength = 0;
+		}
+	}
+	
+	
+	/**
+	 * Adds the specified element to this list and moves other elements to the right. All blocks behind 
+	 * {@code index} are encoded again.
+	 * 
+	 * @param index the index where the new element shall be inserted
+	 * @param value the value to be inserted
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or greater than the current size of 
+	 *         the list
+	 */
+	public void add(long index, long value) {
+		checkIndex(index, 1);
+		if (index == size()) {
+			add(value);
+		}
+		else {
+			replaceRange(index, 0, new long[]{value}, 0, 1);
+		}
+	}
+	
+	
+	/**
+	 * Appends all values of the specified array to the end of this list.
+	 * 
+	 * @param values the values to be added
+	 */
+	public void addAll(long[] values) {
+		addAll(values, 0, values.length);
+	}
+	
+	
+	/**
+	 * Appends a range of values from the specified array to the end of this list. Complete blocks are compressed 
+	 * directly from {@code values}.
+	 * 
+	 * @param values the array containing the values to be added
+	 * @param offset the index of the first value in {@code values} to be added
+	 * @param length the number of values to be added
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in {@code values}
+	 */
+	public void addAll(long[] values, int offset, int length) {
+		checkArrayRange(values, offset, length);
+		int end = offset + length;
+		while ((offset < end) && (tailLength > 0)) {
+			add(values[offset++]);
+		}
+		while (end - offset >= BLOCK_LENGTH) {
+			appendBlock(values, offset);
+			offset += BLOCK_LENGTH;
+		}
+		while (offset < end) {
+			add(values[offset++]);
+		}
+	}
+	
+	
+	/**
+	 * Returns the element stored at the specified index. Elements of frame of reference encoded blocks are read 
+	 * directly, while the values of a delta encoded block need to be summed up to the specified index.
+	 * 
+	 * @param index the index of the element to be read
+	 * @return the value stored at this position
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or greater or equal to the current size 
+	 *         of the list
+	 */
+	public long get(long index) {
+		checkIndex(index, 0);
+		int block = (int)(index >>> BLOCK_LENGTH_BITS);
+		int indexInBlock = (int)index & INDEX_IN_BLOCK_MASK;
+		if (block == blockCount) {
+			return tail[indexInBlock];
+		}
+		else {
+			int width = getWidth(block);
+			int position = offsets[block];
+			if (isDeltaEncoded(block)) {
+				long result = bases[block] + indexInBlock * deltaMins[block];
+				for (int i = 1; i <= indexInBlock; i++) {
+					result += readStored(position, width, i);
+				}
+				return result;
+			}
+			else {
+				return bases[block] + readStored(position, width, indexInBlock);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Copies a range of values of this list into the specified array. Whole blocks are decoded directly into 
+	 * {@code dest}.
+	 * 
+	 * @param from the index of the first element to be copied
+	 * @param dest the array to copy the values to
+	 * @param offset the index in {@code dest} where the first value shall be stored
+	 * @param length the number of values to be copied
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in this list or in {@code dest}
+	 */
+	public void get(long from, long[] dest, int offset, int length) {
+		checkRange(from, length);
+		checkArrayRange(dest, offset, length);
+		
+		long index = from;
+		final long end = from + length;
+		long[] buffer = null;
+		while (index < end) {
+			int block = (int)(index >>> BLOCK_LENGTH_BITS);
+			int indexInBlock = (int)index & INDEX_IN_BLOCK_MASK;
+			int count = (int)Math.min(BLOCK_LENGTH - indexInBlock, end - index);
+			if ((count == BLOCK_LENGTH) && (block < blockCount)) {
+				decodeBlock(block, dest, offset);
+			}
+			else {
+				if (buffer == null) {
+					buffer = new long[BLOCK_LENGTH];
+				}
+				decodeBlock(block, buffer, 0);
+				System.arraycopy(buffer, indexInBlock, dest, offset, count);
+			}
+			index += count;
+			offset += count;
+		}
+	}
+	
+	
+	/**
+	 * Removes the element at the specified position from this list. All blocks behind {@code index} are encoded 
+	 * again.
+	 * 
+	 * @param index the index of the element to be removed
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or greater or equal to the current size 
+	 *         of the list
+	 */
+	public void remove(long index) {
+		checkIndex(index, 0);
+		removeRange(index, 1);
+	}
+	
+	
+	/**
+	 * Removes the specified elements from this list. All elements to the right of the removed sequence are moved to 
+	 * the left accordingly and all blocks behind {@code index} are encoded again.
+	 * 
+	 * @param index the index of the first element to be removed
+	 * @param length the number of elements to be removed
+	 * @throws IllegalArgumentException if the specified range is outside the current size of the list
+	 */
+	protected void removeRange(long index, long length) {
+		if ((index < 0) || (length < 0) || (index + length > size())) {
+			throw new IllegalArgumentException("The specified range starting at " + index + " with the length " + 
+		      length + " cannot be removed because it is not completly contained in the current list.");
+		}
+		else if (length > 0) {
+			replaceRange(index, length, new long[0], 0, 0);
+		}
+	}
+	
+	
+	/**
+	 * Replaces the value at the specified position with the new value. The block containing the value is encoded 
+	 * again.
+	 * 
+	 * @param index the index of the value to be replaced
+	 * @param value the new value for the specified position
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or greater or equal to the current size 
+	 *         of the list
+	 */
+	public void set(long index, long value) {
+		checkIndex(index, 0);
+		int block = (int)(index >>> BLOCK_LENGTH_BITS);
+		int indexInBlock = (int)index & INDEX_IN_BLOCK_MASK;
+		if (block == blockCount) {
+			tail[indexInBlock] = value;
+		}
+		else {
+			decodeBlock(block, blockBuffer, 0);
+			if (blockBuffer[indexInBlock] != value) {
+				blockBuffer[indexInBlock] = value;
+				replaceBlock(block, blockBuffer, 0);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Replaces a range of values of this list by the values from the specified array. If the range affects at most 
+	 * two blocks, only these blocks are encoded again. Otherwise all blocks starting with the block containing 
+	 * {@code from} are encoded again in a single pass.
+	 * 
+	 * @param from the index of the first element to be replaced
+	 * @param src the array containing the new values
+	 * @param offset the index of the first value in {@code src} to be copied
+	 * @param length the number of values to be copied
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in this list or in {@code src}
+	 */
+	public void set(long from, long[] src, int offset, int length) {
+		checkRange(from, length);
+		checkArrayRange(src, offset, length);
+		if (length > 0) {
+			if (spansSeveralBlocks(from, from + length)) {
+				replaceRange(from, length, src, offset, length);
+			}
+			else {
+				long index = from;
+				final long end = from + length;
+				while (index < end) {
+					int block = (int)(index >>> BLOCK_LENGTH_BITS);
+					int indexInBlock = (int)index & INDEX_IN_BLOCK_MASK;
+					int count = (int)Math.min(BLOCK_LENGTH - indexInBlock, end - index);
+					if (block == blockCount) {
+						System.arraycopy(src, offset, tail, indexInBlock, count);
+					}
+					else if (count == BLOCK_LENGTH) {
+						replaceBlock(block, src, offset);
+					}
+					else {
+						decodeBlock(block, blockBuffer, 0);
+						System.arraycopy(src, offset, blockBuffer, indexInBlock, count);
+						replaceBlock(block, blockBuffer, 0);
+					}
+					index += count;
+					offset += count;
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Sets all elements in the specified range to the specified value. Blocks that are completely contained in the 
+	 * range are stored with a width of 0 bits afterwards. If the range affects more than two blocks, all blocks 
+	 * starting with the block containing {@code from} are encoded again in a single pass.
+	 * 
+	 * @param from the index of the first element to be replaced
+	 * @param to the index after the last element to be replaced
+	 * @param value the new value of all elements in the range
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in this list or {@code to} is lower
+	 *         than {@code from}
+	 */
+	public void fill(long from, long to, long value) {
+		checkRange(from, to - from);
+		if (to > from) {
+			if (spansSeveralBlocks(from, to)) {
+				int firstBlock = (int)(from >>> BLOCK_LENGTH_BITS);
+				long end = size();
+				CompressedIntegerArrayList old = truncate(firstBlock);
+				addRange(old, (long)firstBlock << BLOCK_LENGTH_BITS, from);
+				for (long i = from; i < to; i++) {
+					add(value);
+				}
+				addRange(old, to, end);
+			}
+			else {
+				long index = from;
+				while (index < to) {
+					int block = (int)(index >>> BLOCK_LENGTH_BITS);
+					int indexInBlock = (int)index & INDEX_IN_BLOCK_MASK;
+					int count = (int)Math.min(BLOCK_LENGTH - indexInBlock, to - index);
+					if (block == blockCount) {
+						Arrays.fill(tail, indexInBlock, indexInBlock + count, value);
+					}
+					else {
+						decodeBlock(block, blockBuffer, 0);
+						Arrays.fill(blockBuffer, indexInBlock, indexInBlock + count, value);
+						replaceBlock(block, blockBuffer, 0);
+					}
+					index += count;
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns an iterator over all elements of this list.
+	 * 
+	 * @return a new iterator starting at the first element
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		return iterator(0);
+	}
+	
+	
+	/**
+	 * Returns an iterator over the elements of this list starting at the specified index. The iterator decodes one 
+	 * block at a time.
+	 * 
+	 * @param index the index of the first element to be returned by the iterator
+	 * @return a new iterator
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or greater than the current size of the list
+	 */
+	public PrimitiveIterator.OfLong iterator(long index) {
+		checkIndex(index, 1);
+		return new CompressedIterator(index);
+	}
+	
+	
+	/**
+	 * Returns a spliterator over all elements currently contained in this list. The spliterator is bound to the 
+	 * current size of the list. Splits are performed at the borders of blocks.
+	 * 
+	 * @return a new spliterator
+	 */
+	public Spliterator.OfLong spliterator() {
+		return new CompressedSpliterator(0, size());
+	}
+	
+	
+	/**
+	 * Returns a sequential stream of all elements of this list. A parallel stream can be obtained by calling
+	 * {@link LongStream#parallel()} on the result.
+	 * 
+	 * @return a new stream using {@link #spliterator()}
+	 */
+	public LongStream longStream() {
+		return StreamSupport.longStream(spliterator(), false);
+	}
+	
+	
+	/**
+	 * Returns the number of elements currently contained in this list.
+	 * 
+	 * @return the current size of the list
+	 */
+	public long size() {
+		return ((long)blockCount << BLOCK_LENGTH_BITS) + tailLength;
+	}
+	
+	
+	/**
+	 * Returns the number of {@code long} values used to store the compressed blocks of this list. (Additional memory
+	 * is used to store the base value, the encoding and the position of each block and the uncompressed values
+	 * behind the last full block.)
+	 * 
+	 * @return the length of the compressed data
+	 */
+	public long getCompressedLength() {
+		return dataLength;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+
+
+/**
+ * Stores the blocks of a {@link PackedIntegerArrayList} in direct buffers outside the Java heap. The blocks are 
+ * therefore neither moved nor scanned by the garbage collector and the list may contain more than 
+ * {@link Integer#MAX_VALUE} blocks. The native byte order of the platform is used.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class DirectBlockStore extends SegmentedBlockStore {
+	/**
+	 * Creates a new instance of this class using {@link #DEFAULT_SEGMENT_BITS}.
+	 * 
+	 * @param blockCount the initial number of blocks
+	 * @throws IllegalArgumentException if {@code blockCount} is greater than {@link #getMaxBlockCount()}
+	 */
+	public DirectBlockStore(long blockCount) {
+		this(blockCount, DEFAULT_SEGMENT_BITS);
+	}
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param blockCount the initial number of blocks
+	 * @param segmentBits the binary logarithm of the number of blocks per segment
+	 * @throws IllegalArgumentException if {@code segmentBits} is invalid or {@code blockCount} is greater than 
+	 *         {@link #getMaxBlockCount()}
+	 */
+	public DirectBlockStore(long blockCount, int segmentBits) {
+		super(segmentBits);
+		ensureCapacity(blockCount);
+	}
+
+
+	@Override
+	protected LongBuffer createSegment(int segmentIndex, int blockCount, LongBuffer oldSegment) {
+		LongBuffer result = ByteBuffer.allocateDirect(blockCount * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+		if (oldSegment != null) {
+			LongBuffer source = oldSegment.duplicate();
+			source.clear();
+			result.put(source);
+			result.clear();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.util.Arrays;
+
+
+
+/**
+ * Stores the blocks of a {@link PackedIntegerArrayList} in a {@code long} array on the Java heap. This is the 
+ * default store used by {@link PackedIntegerArrayList#PackedIntegerArrayList(int, long, long)}.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class HeapBlockStore implements PackedBlockStore {
+	private long[] array;
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param blockCount the initial number of blocks
+	 * @throws IllegalArgumentException if {@code blockCount} is lower than 0 or greater than 
+	 *         {@link PackedIntegerArrayList#MAX_ARRAY_LENGTH}
+	 */
+	public HeapBlockStore(long blockCount) {
+		super();
+		checkBlockCount(blockCount);
+		array = new long[(int)blockCount];
+	}
+	
+	
+	private void checkBlockCount(long blockCount) {
+		if ((blockCount < 0) || (blockCount > getMaxBlockCount())) {
+			throw new IllegalArgumentException("A heap block store cannot contain " + blockCount + " blocks.");
+		}
+	}
+	
+	
+	@Override
+	public long getBlockCount() {
+		return array.length;
+	}
+
+
+	@Override
+	public long getMaxBlockCount() {
+		return PackedIntegerArrayList.MAX_ARRAY_LENGTH;
+	}
+
+
+	@Override
+	public long getBlock(long index) {
+		return array[(int)index];
+	}
+
+
+	@Override
+	public void setBlock(long index, long block) {
+		array[(int)index] = block;
+	}
+
+
+	@Override
+	public void ensureCapacity(long blockCount) {
+		if (blockCount > array.length) {
+			checkBlockCount(blockCount);
+			array = Arrays.copyOf(array, (int)blockCount);
+		}
+	}
+
+
+	@Override
+	public void trimToSize(long blockCount) {
+		if (blockCount < array.length) {
+			array = Arrays.copyOf(array, (int)blockCount);
+		}
+	}
+
+
+	@Override
+	public void fill(long from, long to, long block) {
+		Arrays.fill(array, (int)from, (int)to, block);
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/**
+ * Stores the blocks of a {@link PackedIntegerArrayList} in a memory mapped file. Lists using this store can be 
+ * larger than the Java heap, are persistent and can be reopened without reading their contents, since the operating
+ * system loads the pages of the file on demand.
+ * <p>
+ * The file starts with a header of {@link #HEADER_LENGTH} {@code long} values that can be used by the owner of the
+ * store (e.g. to save the size of a list) using {@link #getHeader(int)} and {@link #setHeader(int, long)}. The 
+ * blocks follow directly behind the header. All values are stored in big endian byte order, so that files can be
+ * exchanged between platforms. The file is enlarged automatically if the store is enlarged.
+ * <p>
+ * Note that Java does not allow to unmap files explicitly. Mapped segments are therefore only released when they
+ * are garbage collected, even if {@link #close()} has been called.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class MappedFileBlockStore extends SegmentedBlockStore {
+	/** The number of {@code long} values in the header of the file. */
+	public static final int HEADER_LENGTH = 8;
+	
+	/** The number of bytes in the header of the file. */
+	public static final int HEADER_BYTES = HEADER_LENGTH * Long.BYTES;
+	
+	
+	private File file;
+	private FileChannel channel;
+	private MappedByteBuffer headerBuffer;
+	private List<MappedByteBuffer> mappedSegments = new ArrayList<MappedByteBuffer>();
+	
+	
+	/**
+	 * Creates a new instance of this class using {@link #DEFAULT_SEGMENT_BITS}.
+	 * 
+	 * @param file the file to store the blocks in (It is created if it does not exist.)
+	 * @param truncate Specify {@code true} here, if the current contents of the file shall be discarded or 
+	 *        {@code false} if the blocks already stored in the file shall be available.
+	 * @throws IOException if the file cannot be opened or mapped
+	 */
+	public MappedFileBlockStore(File file, boolean truncate) throws IOException {
+		this(file, truncate, DEFAULT_SEGMENT_BITS);
+	}
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param file the file to store the blocks in (It is created if it does not exist.)
+	 * @param truncate Specify {@code true} here, if the current contents of the file shall be discarded or 
+	 *        {@code false} if the blocks already stored in the file shall be available.
+	 * @param segmentBits the binary logarithm of the number of blocks per mapped segment
+	 * @throws IOException if the file cannot be opened or mapped or an existing file is shorter than the header
+	 * @throws IllegalArgumentException if {@code segmentBits} is invalid
+	 */
+	public MappedFileBlockStore(File file, boolean truncate, int segmentBits) throws IOException {
+		super(segmentBits);
+		this.file = file;
+		if (truncate) {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, 
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		else {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, 
+					StandardOpenOption.CREATE);
+		}
+		
+		try {
+			long fileSize = channel.size();
+			if ((fileSize > 0) && (fileSize < HEADER_BYTES)) {
+				throw new IOException("The file \"" + file.getAbsolutePath() + "\" is too short to contain a block store.");
+			}
+			headerBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);  // Creates the header if the file is empty.
+			ensureCapacity(Math.max(0, fileSize - HEADER_BYTES) / Long.BYTES);
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Returns the file containing the blocks of this store.
+	 * 
+	 * @return the file specified in the constructor
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	
+	private static void checkHeaderIndex(int index) {
+		if ((index < 0) || (index >= HEADER_LENGTH)) {
+			throw new IndexOutOfBoundsException("There is no header value with the index " + index + ".");
+		}
+	}
+	
+	
+	/**
+	 * Returns a value from the header of the file.
+	 * 
+	 * @param index the index of the value between 0 and {@link #HEADER_LENGTH} - 1
+	 * @return the header value (0 if it was never set)
+	 * @throws IndexOutOfBoundsException if {@code index} is outside the header
+	 */
+	public long getHeader(int index) {
+		checkHeaderIndex(index);
+		return headerBuffer.getLong(index * Long.BYTES);
+	}
+	
+	
+	/**
+	 * Replaces a value in the header of the file.
+	 * 
+	 * @param index the index of the value between 0 and {@link #HEADER_LENGTH} - 1
+	 * @param value the new value
+	 * @throws IndexOutOfBoundsException if {@code index} is outside the header
+	 */
+	public void setHeader(int index, long value) {
+		checkHeaderIndex(index);
+		headerBuffer.putLong(index * Long.BYTES, value);
+	}
+
+
+	@Override
+	protected LongBuffer createSegment(int segmentIndex, int blockCount, LongBuffer oldSegment) {
+		try {
+			MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 
+					HEADER_BYTES + ((long)segmentIndex << getSegmentBits()) * Long.BYTES, (long)blockCount * Long.BYTES);  // Enlarges the file if necessary.
+			if (segmentIndex < mappedSegments.size()) {
+				mappedSegments.set(segmentIndex, segment);
+			}
+			else {
+				mappedSegments.add(segment);
+			}
+			return segment.asLongBuffer();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Releases the mappings of all segments that are not needed anymore to store the specified number of blocks. The
+	 * length of the file is not changed.
+	 * 
+	 * @param blockCount the number of blocks that must remain accessible
+	 */
+	@Override
+	public void trimToSize(long blockCount) {
+		super.trimToSize(blockCount);
+		while (mappedSegments.size() > getSegmentCount()) {
+			mappedSegments.remove(mappedSegments.size() - 1);
+		}
+	}
+
+
+	/**
+	 * Writes all changes of the header and the blocks to the file.
+	 * 
+	 * @throws IOException if an I/O error occurs while writing
+	 */
+	@Override
+	public void flush() throws IOException {
+		headerBuffer.force();
+		for (MappedByteBuffer segment : mappedSegments) {
+			segment.force();
+		}
+	}
+
+
+	/**
+	 * Writes all changes to the file and closes it. This store cannot be used anymore afterwards.
+	 * 
+	 * @throws IOException if an I/O error occurs while writing or closing the file
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel.isOpen()) {
+			try {
+				flush();
+			}
+			finally {
+				channel.close();
+				mappedSegments.clear();
+				super.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+
+
+
+/**
+ * Stores the {@code long} blocks holding the bits of a {@link PackedIntegerArrayList}.
+ * <p>
+ * Implementations may keep the blocks on the Java heap ({@link HeapBlockStore}), in direct memory outside the heap 
+ * ({@link DirectBlockStore}) or in a memory mapped file ({@link MappedFileBlockStore}). Blocks are addressed by 
+ * {@code long} indices, so that stores other than {@link HeapBlockStore} may contain more than 
+ * {@link Integer#MAX_VALUE} blocks.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public interface PackedBlockStore extends Closeable {
+	/**
+	 * Returns the number of blocks this store can currently take up.
+	 * 
+	 * @return the number of accessible blocks
+	 */
+	public long getBlockCount();
+	
+	
+	/**
+	 * Returns the maximum number of blocks this store can take up.
+	 * 
+	 * @return the maximum value that may be passed to {@link #ensureCapacity(long)}
+	 */
+	public long getMaxBlockCount();
+	
+	
+	/**
+	 * Returns the block at the specified index. Indices are not checked by all implementations.
+	 * 
+	 * @param index the index of the block
+	 * @return the bits of the block
+	 */
+	public long getBlock(long index);
+	
+	
+	/**
+	 * Replaces the block at the specified index. Indices are not checked by all implementations.
+	 * 
+	 * @param index the index of the block
+	 * @param block the new bits of the block
+	 */
+	public void setBlock(long index, long block);
+	
+	
+	/**
+	 * Makes sure that this store can take up at least the specified number of blocks. The contents of all current
+	 * blocks are preserved, while the contents of new blocks are unspecified. (They may e.g. contain data of blocks
+	 * previously removed by {@link #trimToSize(long)}, so callers must not rely on them being 0. 
+	 * {@link PackedIntegerArrayList} overwrites all bits of an element whenever it is set.) Implementations do not 
+	 * enlarge the store beyond the requested number of blocks, so callers are responsible for a sensible growth 
+	 * strategy.
+	 * 
+	 * @param blockCount the number of blocks that must be accessible
+	 * @throws IllegalArgumentException if {@code blockCount} is greater than {@link #getMaxBlockCount()}
+	 * @throws java.io.UncheckedIOException if an I/O error occurs while enlarging an underlying file
+	 */
+	public void ensureCapacity(long blockCount);
+	
+	
+	/**
+	 * Reduces the number of blocks of this store to the specified value and releases the memory of the removed 
+	 * blocks, if the implementation supports this. This default implementation does nothing.
+	 * 
+	 * @param blockCount the number of blocks that must remain accessible
+	 */
+	public default void trimToSize(long blockCount) {}
+	
+	
+	/**
+	 * Sets all blocks in the specified range to the specified value.
+	 * 
+	 * @param from the index of the first block to be replaced
+	 * @param to the index after the last block to be replaced
+	 * @param block the new bits of all blocks in the range
+	 */
+	public default void fill(long from, long to, long block) {
+		for (long index = from; index < to; index++) {
+			setBlock(index, block);
+		}
+	}
+	
+	
+	/**
+	 * Writes all changes to an underlying storage device. This default implementation does nothing.
+	 * 
+	 * @throws IOException if an I/O error occurs while writing
+	 */
+	public default void flush() throws IOException {}
+	
+	
+	/**
+	 * Releases all resources associated with this store. This default implementation does nothing.
+	 * 
+	 * @throws IOException if an I/O error occurs while releasing the resources
+	 */
+	@Override
+	public default void close() throws IOException {}
+}
@@ -40,7 +40,15 @@ package info.bioinfweb.commons.collections;
 
 import info.bioinfweb.commons.Math2;
 
-import java.util.Arrays;
+import java.io.File;
+import java.io.IOException;
+import java.util.LongSummaryStatistics;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 
 
@@ -49,13 +57,37 @@ import java.util.Arrays;
  * depending on the specified constructor parameter. The number space represented by these integers may
  * but does not have to include negative values, depending on the constructor parameter {@code minValue}.
  * <p>
- * All elements are stored in an array of long values. If the number of bits in this array is not sufficient
- * anymore to take up the values of this list, a new array is created automatically. The initial number of 
- * elements (not equal to the number of longs in the underlying array object) the list can take up before
- * creating a new array object can be specified in the constructor.
+ * All elements are stored in blocks of long values. If the number of blocks is not sufficient anymore to take up 
+ * the values of this list, the block store is enlarged automatically. The initial number of elements (not equal 
+ * to the number of blocks) the list can take up before the store needs to be enlarged can be specified in the 
+ * constructor.
  * <p>
  * This class can be used to store large lists of integer values in a specific range in a memory efficient 
  * way.
+ * <p>
+ * Ranges of values can be read and written using {@link #get(long, long[], int, int)}, 
+ * {@link #set(long, long[], int, int)}, {@link #fill(long, long, long)} and {@link #addAll(long[])}. These methods
+ * check the range and the values only once and process whole blocks of the underlying array at once, if the number
+ * of bits per value is a divisor of {@link #BLOCK_SIZE}.
+ * <p>
+ * All elements can be iterated using {@link #iterator()} or {@link #longStream()}, which also supports parallel 
+ * processing. Iterators and spliterators do not detect concurrent modifications of the list.
+ * <p>
+ * The blocks of long values are stored in a {@link PackedBlockStore}, which keeps them in a Java array by default.
+ * Using a {@link DirectBlockStore} or a {@link MappedFileBlockStore}, lists can contain more than 
+ * {@link Integer#MAX_VALUE} blocks and are not subject to garbage collection. Lists stored in files are created and 
+ * opened using {@link #createMapped(File, int, long)} and {@link #openMapped(File)}.
+ * <p>
+ * Note for subclasses: Since version 3.4.0 the blocks are accessed using the field {@link #blocks} instead of the 
+ * former {@code long[]} field {@code array}, which has been removed. {@link #calculateBlockCount(long)} replaces 
+ * {@link #calculateArrayLength(long)}, which is only kept for source compatibility.
+ * <p>
+ * By default values outside the range specified in the constructor are rejected. If the list is set to be 
+ * {@link #setAdaptive(boolean) adaptive}, the number of bits per value (and if necessary the minimum value) are 
+ * increased automatically instead. All elements are then re-packed to the new width in one linear pass, which works
+ * in place in the current block store. Since each widening increases the number of bits per value by at least one, 
+ * at most 63 such passes can occur, so that adding <i>n</i> elements to an adaptive list that starts with a single 
+ * bit per value takes amortized constant time per element. The width can be reduced again using {@link #shrink()}.
  * 
  * @author Ben St&ouml;ver
  */
@@ -64,12 +96,140 @@ public class PackedIntegerArrayList {
 	public static final int BLOCK_SIZE = 64; // 32 = int, 64 = long
 	public static final int BLOCK_BITS = 6; // The #bits representing BLOCK_SIZE
 	public static final int MOD_MASK = BLOCK_SIZE - 1; // x % BLOCK_SIZE
+	
+	/** The first header value of files created by {@link #createMapped(File, int, long)} ("PackInts"). */
+	private static final long MAGIC_NUMBER = 0x5061636B496E7473L;
+	private static final int HEADER_MAGIC_NUMBER = 0;
+	private static final int HEADER_BITS_PER_VALUE = 1;
+	private static final int HEADER_MIN_VALUE = 2;
+	private static final int HEADER_SIZE = 3;
+	
+	/** The number of values decoded at once while re-packing the list to a different number of bits per value. */
+	private static final int REPACK_CHUNK_SIZE = 4096;
+	
+	
+	/**
+	 * Iterates over the elements of the enclosing list. The bit position of the next element is carried from one call
+	 * to the next.
+	 */
+	private class PackedIterator implements PrimitiveIterator.OfLong {
+		private long index;
+		private long bitPos;
+		
+		public PackedIterator(long index) {
+			super();
+			this.index = index;
+			this.bitPos = index * bitsPerValue;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < size;
+		}
+
+		@Override
+		public long nextLong() {
+			if (hasNext()) {
+				long result = decode(bitPos);
+				bitPos += bitsPerValue;
+				index++;
+				return result;
+			}
+			else {
+				throw new NoSuchElementException("The end of the list was already reached.");
+			}
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			final long end = size;
+			long pos = bitPos;
+			for (long i = index; i < end; i++) {
+				action.accept(decode(pos));
+				pos += bitsPerValue;
+			}
+			bitPos = pos;
+			index = end;
+		}
+	}
+	
+	
+	/**
+	 * A spliterator over a range of the enclosing list. Ranges are only split at indices where an element starts at the 
+	 * beginning of a block, so that no block is shared between the resulting spliterators.
+	 */
+	private class PackedSpliterator implements Spliterator.OfLong {
+		private long index;
+		private long end;
+		private long bitPos;
+		
+		public PackedSpliterator(long index, long end) {
+			super();
+			this.index = index;
+			this.end = end;
+			this.bitPos = index * bitsPerValue;
+		}
 
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (index < end) {
+				action.accept(decode(bitPos));
+				bitPos += bitsPerValue;
+				index++;
+				return true;
+			}
+			else {
+				return false;
+			}
+		}
 
-  /** The array containing the bits used to store values contained in this list. */
-  protected long[] array;
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			long pos = bitPos;
+			for (long i = index; i < end; i++) {
+				action.accept(decode(pos));
+				pos += bitsPerValue;
+			}
+			bitPos = pos;
+			index = end;
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long alignment = BLOCK_SIZE >>> Long.numberOfTrailingZeros(bitsPerValue);  // The number of elements filling a sequence of whole blocks (BLOCK_SIZE / gcd(BLOCK_SIZE, bitsPerValue))
+			long middle = (index + (end - index) / 2) / alignment * alignment;
+			if (middle <= index) {
+				return null;
+			}
+			else {
+				PackedSpliterator result = new PackedSpliterator(index, middle);
+				index = middle;
+				bitPos = middle * bitsPerValue;
+				return result;
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+	}
+
+
+  /** 
+   * The store containing the blocks of bits used to store values contained in this list. (Replaces the field 
+   * {@code array} of previous versions.) 
+   * 
+   * @since 3.4.0 
+   */
+  protected PackedBlockStore blocks;
   
-  /** The number of bits one value uses in {@link #array}. */
+  /** The number of bits one value uses in {@link #blocks}. */
 	private long bitsPerValue;
 	
 	/** The minimum value that can be represented by an element of this list. */
@@ -79,13 +239,22 @@ public class PackedIntegerArrayList {
 	private long maxValue;
 	
   /** A right-aligned mask of width BitsPerValue used by {@link #get(long)}. */
-  private final long maskRight;
+  private long maskRight;
   
   /** Optimization: Saves one lookup in {@link #get(long)}. */
-  private final int bpvMinusBlockSize;
+  private int bpvMinusBlockSize;
   
-  /** The current size of the list. (Can be lower than the number of values {@link #array} can currently take up. */
+  /** The current size of the list. (Can be lower than the number of values {@link #blocks} can currently take up. */
 	private long size;
+	
+	/** Determines whether the number of bits per value is increased automatically if necessary. */
+	private boolean adaptive = false;
+	
+	/** 
+	 * Determines whether the header of {@link #blocks} belongs to this list. This is only the case for lists created
+	 * by {@link #createMapped(File, int, long)} or {@link #openMapped(File)}.
+	 */
+	private boolean ownsHeader = false;
 
 	
   /**
@@ -97,26 +266,116 @@ public class PackedIntegerArrayList {
    * @see #calculateBitsPerValue(int)
    */
   public PackedIntegerArrayList(int bitsPerValue, long minValue, long initialCapacity) {
+  	this(bitsPerValue, minValue, initialCapacity, new HeapBlockStore(0));
+  }
+  
+  
+  /**
+   * Creates a new instance of this class that stores its values in the specified block store. Blocks already 
+   * contained in the store are overwritten when values are added to the list.
+   * 
+   * @param bitsPerValue the number of bit each value will consume in memory
+   * @param minValue the minimum value to be stored in the list
+   * @param initialCapacity the number of values the block store shall be able to take up initially
+   * @param blocks the store for the blocks of this list (e.g. a {@link DirectBlockStore} or a 
+   *        {@link MappedFileBlockStore})
+   * @see #createMapped(File, int, long)
+   * @since 3.4.0
+   */
+  public PackedIntegerArrayList(int bitsPerValue, long minValue, long initialCapacity, PackedBlockStore blocks) {
     this.size = 0;
     if ((bitsPerValue <= 0) || (bitsPerValue >= 64)) {  // Unsigned 64 bits cannot be stored. 
     	throw new IllegalArgumentException("At least 1 and at most 63 bits per value are allowed to be used.");
     }
     else {
-	    this.bitsPerValue = bitsPerValue;
-	    this.minValue = minValue;
-	    maxValue = minValue + Math2.longPow(2, bitsPerValue) - 1;
-	    if (maxValue < this.minValue) {  // overflow, maxValue was higher than Long.MAX_VALUE
+	    if (minValue + Math2.longPow(2, bitsPerValue) - 1 < minValue) {  // overflow, maxValue was higher than Long.MAX_VALUE
 	    	throw new IllegalArgumentException("The specified combination of bitsPerValue (" + bitsPerValue + 
 	    			") and minValue (" + minValue + ") cannot be represented by a long value.");
 	    }
 	    
-	    this.array = new long[calculateArrayLength(initialCapacity)];
-	    maskRight = ~0L << (BLOCK_SIZE - bitsPerValue) >>> (BLOCK_SIZE - bitsPerValue);
-	    bpvMinusBlockSize = bitsPerValue - BLOCK_SIZE;
+	    this.blocks = blocks;
+	    setFormat(bitsPerValue, minValue);
+	    ensureCapacity(initialCapacity);
     }
   }
   
   
+  /**
+   * Sets the number of bits per value and the minimum value and updates all fields depending on them. No elements are 
+   * converted by this method.
+   */
+  private void setFormat(int bitsPerValue, long minValue) {
+    this.bitsPerValue = bitsPerValue;
+    this.minValue = minValue;
+    maxValue = minValue + Math2.longPow(2, bitsPerValue) - 1;
+    maskRight = ~0L << (BLOCK_SIZE - bitsPerValue) >>> (BLOCK_SIZE - bitsPerValue);
+    bpvMinusBlockSize = bitsPerValue - BLOCK_SIZE;
+  }
+  
+  
+  /**
+   * Creates a new empty list stored in a memory mapped file. The values of the list are persistent and the list can 
+   * be reopened using {@link #openMapped(File)} after {@link #flush()} or {@link #close()} have been called.
+   * 
+   * @param file the file to store the list in (Existing contents are discarded.)
+   * @param bitsPerValue the number of bit each value will consume
+   * @param minValue the minimum value to be stored in the list
+   * @return the new list
+   * @throws IOException if the file cannot be created or mapped
+   * @see MappedFileBlockStore
+   * @since 3.4.0
+   */
+  public static PackedIntegerArrayList createMapped(File file, int bitsPerValue, long minValue) throws IOException {
+  	MappedFileBlockStore store = new MappedFileBlockStore(file, true);
+  	try {
+	  	PackedIntegerArrayList result = new PackedIntegerArrayList(bitsPerValue, minValue, 0, store);
+	  	store.setHeader(HEADER_MAGIC_NUMBER, MAGIC_NUMBER);
+	  	store.setHeader(HEADER_BITS_PER_VALUE, bitsPerValue);
+	  	store.setHeader(HEADER_MIN_VALUE, minValue);
+	  	store.setHeader(HEADER_SIZE, 0);
+	  	result.ownsHeader = true;
+	  	return result;
+  	}
+  	catch (RuntimeException e) {
+  		store.close();
+  		throw e;
+  	}
+  }
+  
+  
+  /**
+   * Opens a list that has previously been created using {@link #createMapped(File, int, long)}. Only the file is 
+   * mapped by this method, while the values are loaded by the operating system when they are accessed.
+   * 
+   * @param file the file containing the list
+   * @return the list stored in the file
+   * @throws IOException if the file cannot be opened or mapped or does not contain a valid list
+   * @since 3.4.0
+   */
+  public static PackedIntegerArrayList openMapped(File file) throws IOException {
+  	MappedFileBlockStore store = new MappedFileBlockStore(file, false);
+  	try {
+  		if (store.getHeader(HEADER_MAGIC_NUMBER) != MAGIC_NUMBER) {
+  			throw new IOException("The file \"" + file.getAbsolutePath() + "\" does not contain a packed integer list.");
+  		}
+  		PackedIntegerArrayList result = new PackedIntegerArrayList((int)store.getHeader(HEADER_BITS_PER_VALUE), 
+  				store.getHeader(HEADER_MIN_VALUE), 0, store);
+  		long size = store.getHeader(HEADER_SIZE);
+  		if ((size < 0) || (result.calculateBlockCount(size) > store.getBlockCount())) {
+  			throw new IOException("The size " + size + " stored in the file \"" + file.getAbsolutePath() + 
+  					"\" exceeds its length.");
+  		}
+  		result.size = size;
+  		result.ownsHeader = true;
+  		return result;
+  	}
+  	catch (IOException | RuntimeException e) {
+  		store.close();
+  		throw e;
+  	}
+  }
+  
+  
 	/**
 	 * Calculates how many bits are necessary to represent the specified number of different values.
 	 * 
@@ -156,49 +415,236 @@ public class PackedIntegerArrayList {
 
 
 	/**
-	 * Returns the length in bits of an entry in this list.
+	 * Returns the length in bits of an entry in this list. (For {@link #isAdaptive() adaptive} lists this value may
+	 * change, when elements are added or replaced.)
 	 * 
 	 * @return the number of bits each element in this list uses
 	 */
 	public long getBitsPerValue() {
 		return bitsPerValue;
 	}
+	
+	
+	/**
+	 * Determines whether the number of bits per value of this list is increased automatically, if a value outside
+	 * the current range is added.
+	 * 
+	 * @return {@code true} if this list is adaptive or {@code false} if out of range values are rejected
+	 * @since 3.4.0
+	 */
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+	
+	
+	/**
+	 * Specifies whether the number of bits per value of this list shall be increased automatically, if a value 
+	 * outside the current range is added or set. If a value greater than {@link #getMaxValue()} is added, the 
+	 * minimum value remains unchanged. If a value lower than {@link #getMinValue()} is added, the minimum value is
+	 * decreased and the number of bits per value is increased by at least one.
+	 * <p>
+	 * An adaptive list that shall use as few bits as possible can be created using a width of a single bit per value
+	 * and the lowest expected value as the minimum value. 
+	 * 
+	 * @param adaptive {@code true} if this list shall be adaptive or {@code false} if out of range values shall be 
+	 *        rejected
+	 * @since 3.4.0
+	 */
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+	}
+	
+	
+	/**
+	 * Returns the number of bits necessary to store all values from {@code min} to {@code max}.
+	 * 
+	 * @return the number of bits between 1 and 64 (where 64 bits cannot be used by this class)
+	 */
+	private static int requiredBitsPerValue(long min, long max) {
+		long range = max - min;
+		if (range < 0) {  // overflow
+			return BLOCK_SIZE;
+		}
+		else {
+			return Math.max(1, BLOCK_SIZE - Long.numberOfLeadingZeros(range));
+		}
+	}
+	
+	
+	/**
+	 * Increases the number of bits per value (and decreases the minimum value if necessary), so that all values 
+	 * between the specified bounds can be stored, and re-packs all elements. If this list is empty, the format is
+	 * chosen only from the specified bounds.
+	 * 
+	 * @param min the lowest value that needs to be stored
+	 * @param max the highest value that needs to be stored
+	 * @throws IllegalArgumentException if the range would require more than 63 bits per value
+	 */
+	private void widen(long min, long max) {
+		int newBitsPerValue;
+		long newMinValue;
+		if (size == 0) {  // The current range does not need to be preserved.
+			newBitsPerValue = requiredBitsPerValue(min, max);
+			newMinValue = min;
+		}
+		else if (min < minValue) {
+			long top = Math.max(max, maxValue);
+			newBitsPerValue = Math.max((int)bitsPerValue + 1, requiredBitsPerValue(min, top));  // Increasing the width guarantees that at most 63 re-packs are necessary.
+			newMinValue = top - (Math2.longPow(2, Math.min(newBitsPerValue, BLOCK_SIZE - 1)) - 1);  // Extend the range downwards as far as possible.
+			if (newMinValue > top) {  // underflow
+				newMinValue = Long.MIN_VALUE;
+			}
+		}
+		else {
+			newBitsPerValue = requiredBitsPerValue(minValue, max);
+			newMinValue = minValue;
+		}
+		
+		if (newBitsPerValue >= BLOCK_SIZE) {
+			throw new IllegalArgumentException("The range from " + min + " to " + max + 
+					" cannot be represented together with the current elements of this list.");
+		}
+		repack(newBitsPerValue, newMinValue);
+	}
+	
+	
+	/**
+	 * Converts all elements of this list to the specified format. The conversion is performed in place in one linear 
+	 * pass. If the number of bits per value increases, the elements are processed from right to left, otherwise from
+	 * left to right, so that no element is overwritten before it was read.
+	 * 
+	 * @param newBitsPerValue the new number of bits per value
+	 * @param newMinValue the new minimum value (All current elements must be representable in the new format.)
+	 */
+	private void repack(int newBitsPerValue, long newMinValue) {
+		final int oldBitsPerValue = (int)bitsPerValue;
+		final long oldMinValue = minValue;
+		long[] buffer = new long[(int)Math.min(size, REPACK_CHUNK_SIZE)];
+		if (newBitsPerValue > oldBitsPerValue) {
+			setFormat(newBitsPerValue, newMinValue);
+			ensureCapacity(size);
+			setFormat(oldBitsPerValue, oldMinValue);
+			
+			long from = size;
+			int length = (int)(size % REPACK_CHUNK_SIZE);  // Following chunks start at multiples of the chunk size.
+			if (length == 0) {
+				length = buffer.length;
+			}
+			while (from > 0) {
+				from -= length;
+				get(from, buffer, 0, length);
+				setFormat(newBitsPerValue, newMinValue);
+				setRangeUnchecked(from, buffer, 0, length);
+				setFormat(oldBitsPerValue, oldMinValue);
+				length = buffer.length;
+			}
+		}
+		else {
+			for (long from = 0; from < size; from += buffer.length) {
+				int length = (int)Math.min(buffer.length, size - from);
+				get(from, buffer, 0, length);
+				setFormat(newBitsPerValue, newMinValue);
+				setRangeUnchecked(from, buffer, 0, length);
+				setFormat(oldBitsPerValue, oldMinValue);
+			}
+		}
+		setFormat(newBitsPerValue, newMinValue);
+	}
+	
+	
+	/**
+	 * Reduces the number of bits per value to the minimum necessary to store the current elements of this list and
+	 * releases unused blocks using {@link #trimToSize()}. The minimum value is set to the lowest current element. 
+	 * Elements outside the new range can only be added afterwards, if this list is {@link #isAdaptive() adaptive}.
+	 * <p>
+	 * All elements are read once to determine their range and re-packed in place in a second linear pass.
+	 * 
+	 * @since 3.4.0
+	 */
+	public void shrink() {
+		if (size > 0) {
+			LongSummaryStatistics statistics = longStream().summaryStatistics();
+			int newBitsPerValue = requiredBitsPerValue(statistics.getMin(), statistics.getMax());
+			if (newBitsPerValue < bitsPerValue) {
+				repack(newBitsPerValue, statistics.getMin());
+			}
+		}
+		trimToSize();
+	}
+	
+	
+	/**
+	 * Releases all blocks of the underlying block store that are not needed to store the current elements, if the 
+	 * store supports this.
+	 * 
+	 * @see PackedBlockStore#trimToSize(long)
+	 * @since 3.4.0
+	 */
+	public void trimToSize() {
+		blocks.trimToSize(calculateBlockCount(size));
+	}
 
 
+	/**
+	 * Calculates the number of {@code long} blocks necessary to store the specified
+	 * number of elements.
+	 * 
+	 * @param capacity the number of list elements to be stored
+	 * @return the needed number of blocks
+	 * @throws IllegalArgumentException if the underlying block store cannot take up the needed number of blocks
+	 * @since 3.4.0
+	 */
+	protected long calculateBlockCount(long capacity) {
+		if (capacity <= Long.MAX_VALUE / bitsPerValue) {
+	    long bitLength = capacity * bitsPerValue;
+	    long result = bitLength / BLOCK_SIZE;
+	    if (bitLength % BLOCK_SIZE > 0) {
+	    	result++;
+	    }
+	    if (result <= blocks.getMaxBlockCount()) {
+	    	return result;
+	    }
+		}
+  	throw new IllegalArgumentException("The value count of " + capacity + " is to high for " + 
+        bitsPerValue + " bits per value.");
+  }
+	
+	
 	/**
 	 * Calculates the number of {@code long} array elements necessary to store the specified
 	 * number of elements.
 	 * 
 	 * @param capacity the number of list elements to be stored
 	 * @return the needed array size
+	 * @throws IllegalArgumentException if the needed number of blocks is higher than {@link #MAX_ARRAY_LENGTH} or 
+	 *         than the underlying block store can take up
+	 * @deprecated Since 3.4.0 the number of blocks may exceed the length of a Java array and the list does not call 
+	 *         this method anymore. Use {@link #calculateBlockCount(long)} instead.
 	 */
+	@Deprecated
 	protected int calculateArrayLength(long capacity) {
-    long bitLength = capacity * bitsPerValue;
-    long result = bitLength / BLOCK_SIZE;
-    if (bitLength % BLOCK_SIZE > 0) {
-    	result++;
-    }
-    if (result > MAX_ARRAY_LENGTH) {
-    	throw new IllegalArgumentException("The value count of " + capacity + " is to high for " + 
-          bitsPerValue + " bits per value.");
-    }
-    return (int)result;
-  }
+		long result = calculateBlockCount(capacity);
+		if (result > MAX_ARRAY_LENGTH) {
+	  	throw new IllegalArgumentException("The value count of " + capacity + " is to high for " + 
+	        bitsPerValue + " bits per value to be stored in an array.");
+		}
+		return (int)result;
+	}
   
   
   /**
-   * Makes sure that the underlying array can take up at least the specified number of elements.
-   * If the current array is too small a new array which is at least 1.5 times as large as the 
-   * current one (or larger if the requested capacity requires it) is created and the current 
-   * contents are copied there.
+   * Makes sure that the underlying block store can take up at least the specified number of elements.
+   * If the current store is too small, it is enlarged to at least 1.5 times its current number of 
+   * blocks (or more if the requested capacity requires it).
    * 
-   * @param newCapacity the number of elements that need to be stored in the array
+   * @param newCapacity the number of elements that need to be stored in the block store
    */
   public void ensureCapacity(long newCapacity) {
-  	int newArrayLength = calculateArrayLength(newCapacity);
-  	if (newArrayLength > array.length) {
-      array = Arrays.copyOf(array, Math.max(newArrayLength, 
-      		Math.min(MAX_ARRAY_LENGTH, (array.length * 3) / 2 + 1)));
+  	long newArrayLength = calculateBlockCount(newCapacity);
+  	long arrayLength = blocks.getBlockCount();
+  	if (newArrayLength > arrayLength) {
+      blocks.ensureCapacity(Math.max(newArrayLength, 
+      		Math.min(blocks.getMaxBlockCount(), arrayLength + arrayLength / 2 + 1)));
     }
   }
   
@@ -206,40 +652,29 @@ public class PackedIntegerArrayList {
 	/**
 	 * Reserves space for the specified number of elements at the specified position. Elements right of
 	 * the specified position are moved accordingly. The new elements are not initialized. The underlying
-	 * array is resized if necessary.
+	 * block store is enlarged if necessary.
 	 * 
 	 * @param index the index of the first element to be inserted
 	 * @param length the number of elements to be inserted
 	 */
 	protected void insertRange(long index, long length) {
 		if (length > 0) {
-			ensureCapacity(size + length);  // Throws an IllegalArgumentException if the array will become longer than 2 GB
+			ensureCapacity(size + length);  // Throws an IllegalArgumentException if the block store would become too large.
 			
-			long lengthInBits = length * bitsPerValue;
-			long indexInBits = index * bitsPerValue;
-			long bitShiftInRightBlock = lengthInBits % BLOCK_SIZE;
-			long bitShiftInLeftBlock = BLOCK_SIZE - bitShiftInRightBlock;
-			int blockShift = (int)(lengthInBits / BLOCK_SIZE);  // If integer conversion would not be possible, ensureCapacity() would already have thrown an exception.
-			int minBlockIndex = (int)(index * bitsPerValue / BLOCK_SIZE) + blockShift;
-	    int maxBlockIndex = Math.min(array.length - 1, (int)((size + length) * bitsPerValue / BLOCK_SIZE));
-			
-	    long initialBitShift = BLOCK_SIZE - indexInBits % BLOCK_SIZE;
-			long initialBits = array[minBlockIndex] >>> initialBitShift << initialBitShift;
-
-      if (bitShiftInRightBlock == 0) {
-      	for (int blockIndex = maxBlockIndex; blockIndex > minBlockIndex; blockIndex--) {  // System.arraycopy() does not work here.
-					array[blockIndex] = array[blockIndex - blockShift];
-				}
-      }
-      else { 
-				for (int blockIndex = maxBlockIndex; blockIndex > minBlockIndex; blockIndex--) {
-					array[blockIndex] = (array[blockIndex - blockShift] >>> bitShiftInRightBlock) |
-							(array[blockIndex - blockShift - 1] << bitShiftInLeftBlock);
+			if (index < size) {
+				long sourceBit = index * bitsPerValue;
+				long shift = length * bitsPerValue;
+				long firstBlock = (sourceBit + shift) >>> BLOCK_BITS;
+				int firstOffset = (int)((sourceBit + shift) & MOD_MASK);
+				
+				// Copy whole blocks from right to left, so that no bits are overwritten before they were read:
+				for (long blockIndex = ((size + length) * bitsPerValue - 1) >>> BLOCK_BITS; blockIndex > firstBlock; blockIndex--) {
+					blocks.setBlock(blockIndex, readBlock((blockIndex << BLOCK_BITS) - shift));
 				}
-      }
-			array[minBlockIndex] = array[minBlockIndex - blockShift] >>> bitShiftInRightBlock;
-			if ((blockShift == 0) && (initialBitShift < BLOCK_SIZE)) {  // array[minBlockIndex] also contains initial bits
-				array[minBlockIndex] = array[minBlockIndex] & (-1l >>> (BLOCK_SIZE - initialBitShift)) | initialBits;
+				
+				// Keep the initial bits of the first target block, which belong to elements left of index:
+				long initialBits = (firstOffset == 0) ? 0 : blocks.getBlock(firstBlock) & ~(-1L >>> firstOffset);
+				blocks.setBlock(firstBlock, initialBits | (readBlock(sourceBit) >>> firstOffset));
 			}
 			size += length;
 		}
@@ -259,51 +694,51 @@ public class PackedIntegerArrayList {
 			throw new IllegalArgumentException("The specified range starting at " + index + " with the length " + 
 		      length + " cannot be removed because it is not completly contained in the current list.");
 		}
-		else if (length == size) {
-			size = 0;
+		else if (index + length == size) {  // No elements need to be moved. (This also avoids modifying the remaining last block.)
+			size -= length;
 		}
 		else if (length > 0) {
-			long lengthInBits = length * bitsPerValue;
-			int firstBlockIndex = calculateArrayLength(index + 1) - 1;
-			int lastBlockIndex = calculateArrayLength(size - length) - 1;
-			int blockShift = (int)lengthInBits / BLOCK_SIZE;
+			long sourceBit = (index + length) * bitsPerValue;
+			long endBit = size * bitsPerValue;
+			long targetBlock = index * bitsPerValue >>> BLOCK_BITS;
+			int targetOffset = (int)(index * bitsPerValue & MOD_MASK);
 			
-			long initialBitShift = BLOCK_SIZE - index * bitsPerValue % BLOCK_SIZE;
-			boolean remainingFirstBlock = firstBlockIndex >= 0;
-			long initialBits = 0;
-			if (remainingFirstBlock) {
-				initialBits = array[firstBlockIndex] >>> initialBitShift << initialBitShift;  // If blockMinusInitialBitLength is 64 no shift is performed.
-			}
-
-			long bitShiftInLeftBlock = lengthInBits % BLOCK_SIZE;
-			long bitShiftInRightBlock = BLOCK_SIZE - bitShiftInLeftBlock;
-
-    	int start = Math.max(0, firstBlockIndex);
-      if (bitShiftInLeftBlock == 0) {
-				for (int blockIndex = start; blockIndex <= lastBlockIndex; blockIndex++) {  // System.arraycopy() would make a copy to a temporary array.
-					array[blockIndex] = array[blockIndex + blockShift];
-				}
-      }
-      else { 
-				for (int blockIndex = start; blockIndex < lastBlockIndex; blockIndex++) {
-					array[blockIndex] = array[blockIndex + blockShift] << bitShiftInLeftBlock | 
-							array[blockIndex + blockShift + 1] >>> bitShiftInRightBlock;
-				}
-				array[lastBlockIndex] = array[lastBlockIndex + blockShift] << bitShiftInLeftBlock;
-				if (array.length > lastBlockIndex + blockShift + 1) {
-					array[lastBlockIndex] |= array[lastBlockIndex + blockShift + 1] >>> bitShiftInRightBlock;
-				}
-      }
+			// Copy the first bits behind the removed range into the block containing the first removed bit:
+			long initialBits = (targetOffset == 0) ? 0 : blocks.getBlock(targetBlock) & ~(-1L >>> targetOffset);
+			blocks.setBlock(targetBlock, initialBits | (readBlock(sourceBit) >>> targetOffset));
+			sourceBit += BLOCK_SIZE - targetOffset;
+			targetBlock++;
 			
-      if (remainingFirstBlock && (initialBitShift < BLOCK_SIZE)) {
-      	array[firstBlockIndex] = array[firstBlockIndex] & (-1l >>> (BLOCK_SIZE - initialBitShift)) | initialBits;
-      }
+			// Copy all further bits as whole blocks:
+			while (sourceBit < endBit) {
+				blocks.setBlock(targetBlock, readBlock(sourceBit));
+				sourceBit += BLOCK_SIZE;
+				targetBlock++;
+			}
 			
 			size -= length;
 		}
 	}
 	
 	
+	/**
+	 * Returns the 64 bits starting at the specified bit position of the underlying block store. Bits behind the end 
+	 * of the store are 0.
+	 * 
+	 * @param bitPos the position of the first bit to be returned
+	 * @return the bits starting with the most significant bit 
+	 */
+	private long readBlock(long bitPos) {
+		long blockIndex = bitPos >>> BLOCK_BITS;
+		int offset = (int)(bitPos & MOD_MASK);
+		long result = blocks.getBlock(blockIndex) << offset;
+		if ((offset > 0) && (blockIndex + 1 < blocks.getBlockCount())) {
+			result |= blocks.getBlock(blockIndex + 1) >>> (BLOCK_SIZE - offset);
+		}
+		return result;
+	}
+	
+	
 	private void checkIndex(long index, long additionalSpace) {
 		if (!Math2.isBetween(index, 0, size + additionalSpace - 1)) {
 			throw new IndexOutOfBoundsException("The index " + index + " is out of bounds (" + 0 + ", " + 
@@ -313,11 +748,62 @@ public class PackedIntegerArrayList {
 	
 	
 	private void checkValue(long value) {
-		if (!Math2.isBetween(value, minValue, maxValue)) {
+		if (adaptive && !Math2.isBetween(value, minValue, maxValue)) {
+			widen(value, value);
+		}
+		else if (!Math2.isBetween(value, minValue, maxValue)) {
 			throw new IllegalArgumentException("The specified value " + value + " is not in the element range of this list (" + 
 		      minValue + ", " + maxValue + ").");
 		}
 	}
+	
+	
+	private void checkValues(long[] values, int offset, int length) {
+		if (adaptive) {
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (int i = offset; i < offset + length; i++) {
+				min = Math.min(min, values[i]);
+				max = Math.max(max, values[i]);
+			}
+			if ((length > 0) && ((min < minValue) || (max > maxValue))) {
+				widen(min, max);  // The list is only re-packed once.
+			}
+		}
+		else {
+			for (int i = offset; i < offset + length; i++) {
+				if ((values[i] < minValue) || (values[i] > maxValue)) {
+					checkValue(values[i]);  // Throws the exception.
+				}
+			}
+		}
+	}
+	
+	
+	private void checkRange(long from, long length) {
+		if ((from < 0) || (length < 0) || (from + length > size)) {
+			throw new IndexOutOfBoundsException("The range starting at " + from + " with the length " + length + 
+					" is not contained in the list with the size " + size + ".");
+		}
+	}
+	
+	
+	private static void checkArrayRange(long[] array, int offset, int length) {
+		if ((offset < 0) || (length < 0) || (offset > array.length - length)) {
+			throw new IndexOutOfBoundsException("The range starting at " + offset + " with the length " + length + 
+					" is not contained in the array with the length " + array.length + ".");
+		}
+	}
+	
+	
+	/**
+	 * Determines whether no value of this list spans two blocks of the underlying array.
+	 * 
+	 * @return {@code true} if {@link #BLOCK_SIZE} is a multiple of the number of bits per value
+	 */
+	private boolean isBlockAligned() {
+		return BLOCK_SIZE % bitsPerValue == 0;
+	}
 
 	
 	/**
@@ -364,18 +850,32 @@ public class PackedIntegerArrayList {
 	 */
 	public long get(long index) {
 		checkIndex(index, 0);
-		
-    final long majorBitPos = index * bitsPerValue;  // The abstract index in a contiguous bit stream
-    final int elementPos = (int)(majorBitPos >>> BLOCK_BITS);  // divide by BLOCK_SIZE  // The index in the backing long-array
+		return getUnchecked(index);
+	}
+	
+	
+	private long getUnchecked(long index) {
+		return decode(index * bitsPerValue);
+	}
+	
+	
+	/**
+	 * Decodes the value starting at the specified bit position.
+	 * 
+	 * @param majorBitPos the index of the first bit of the value in the contiguous bit stream
+	 * @return the decoded value
+	 */
+	private long decode(final long majorBitPos) {
+    final long elementPos = majorBitPos >>> BLOCK_BITS;  // divide by BLOCK_SIZE  // The index of the block in the store
     final long endBits = (majorBitPos & MOD_MASK) + bpvMinusBlockSize;  // The number of value-bits in the second long
 
     long result;
     if (endBits <= 0) { // Single block
-      result = (array[elementPos] >>> -endBits) & maskRight;
+      result = (blocks.getBlock(elementPos) >>> -endBits) & maskRight;
     }
     else {  // Two blocks
-    	result = ((array[elementPos] << endBits)
-          | (array[elementPos+1] >>> (BLOCK_SIZE - endBits)))
+    	result = ((blocks.getBlock(elementPos) << endBits)
+          | (blocks.getBlock(elementPos+1) >>> (BLOCK_SIZE - endBits)))
           & maskRight;
     }
     return result + minValue;
@@ -407,22 +907,318 @@ public class PackedIntegerArrayList {
 	public void set(long index, long value) {
 		checkIndex(index, 0);
 		checkValue(value);
-		value = value - minValue;
-		
+		setUnchecked(index, value - minValue);
+	}
+	
+	
+	/**
+	 * Stores a value without checking the index or the value.
+	 * 
+	 * @param index the index of the value to be replaced
+	 * @param value the new value already reduced by {@link #minValue}
+	 */
+	private void setUnchecked(long index, long value) {
     final long majorBitPos = index * bitsPerValue;  // The abstract index in a contiguous bit stream
-    final int elementPos = (int)(majorBitPos >>> BLOCK_BITS);  // divide by BLOCK_SIZE  // The index in the backing long-array
+    final long elementPos = majorBitPos >>> BLOCK_BITS;  // divide by BLOCK_SIZE  // The index of the block in the store
     final long endBits = (majorBitPos & MOD_MASK) + bpvMinusBlockSize;  // The number of value-bits in the second long
 
-    if (endBits <= 0) {  // Single array element
-      array[elementPos] = array[elementPos] & ~(maskRight << -endBits) | (value << -endBits);
+    if (endBits <= 0) {  // Single block
+      blocks.setBlock(elementPos, blocks.getBlock(elementPos) & ~(maskRight << -endBits) | (value << -endBits));
     }
-    else {  // Two array elements
-	    array[elementPos] = array[elementPos] & ~(maskRight >>> endBits) | (value >>> endBits);
-	    array[elementPos+1] = array[elementPos+1] & (~0L >>> endBits) | (value << (BLOCK_SIZE - endBits));
+    else {  // Two blocks
+	    blocks.setBlock(elementPos, blocks.getBlock(elementPos) & ~(maskRight >>> endBits) | (value >>> endBits));
+	    blocks.setBlock(elementPos+1, blocks.getBlock(elementPos+1) & (~0L >>> endBits) | (value << (BLOCK_SIZE - endBits)));
     }
 	}
 
 	
+	/**
+	 * Decodes all values stored in the specified block. The number of bits per value must be a divisor of 
+	 * {@link #BLOCK_SIZE}. The common cases of 8 and 16 bits are unrolled explicitly, while the loops for lower numbers
+	 * of bits have constant bounds and can be unrolled by the compiler.
+	 */
+	private void decodeBlock(long block, long[] dest, int offset) {
+		final long min = minValue;
+		switch ((int)bitsPerValue) {
+			case 1:
+				for (int shift = BLOCK_SIZE - 1; shift >= 0; shift--) {
+					dest[offset++] = ((block >>> shift) & 1L) + min;
+				}
+				break;
+			case 2:
+				for (int shift = BLOCK_SIZE - 2; shift >= 0; shift -= 2) {
+					dest[offset++] = ((block >>> shift) & 3L) + min;
+				}
+				break;
+			case 4:
+				for (int shift = BLOCK_SIZE - 4; shift >= 0; shift -= 4) {
+					dest[offset++] = ((block >>> shift) & 0xFL) + min;
+				}
+				break;
+			case 8:
+				dest[offset] = (block >>> 56) + min;
+				dest[offset + 1] = ((block >>> 48) & 0xFFL) + min;
+				dest[offset + 2] = ((block >>> 40) & 0xFFL) + min;
+				dest[offset + 3] = ((block >>> 32) & 0xFFL) + min;
+				dest[offset + 4] = ((block >>> 24) & 0xFFL) + min;
+				dest[offset + 5] = ((block >>> 16) & 0xFFL) + min;
+				dest[offset + 6] = ((block >>> 8) & 0xFFL) + min;
+				dest[offset + 7] = (block & 0xFFL) + min;
+				break;
+			case 16:
+				dest[offset] = (block >>> 48) + min;
+				dest[offset + 1] = ((block >>> 32) & 0xFFFFL) + min;
+				dest[offset + 2] = ((block >>> 16) & 0xFFFFL) + min;
+				dest[offset + 3] = (block & 0xFFFFL) + min;
+				break;
+			default:  // 32
+				for (int shift = BLOCK_SIZE - (int)bitsPerValue; shift >= 0; shift -= bitsPerValue) {
+					dest[offset++] = ((block >>> shift) & maskRight) + min;
+				}
+		}
+	}
+	
+	
+	/**
+	 * Encodes values to a whole block. The number of bits per value must be a divisor of {@link #BLOCK_SIZE} and all
+	 * values must already have been checked.
+	 */
+	private long encodeBlock(long[] src, int offset) {
+		final long min = minValue;
+		long result = 0;
+		switch ((int)bitsPerValue) {
+			case 1:
+				for (int shift = BLOCK_SIZE - 1; shift >= 0; shift--) {
+					result |= (src[offset++] - min) << shift;
+				}
+				return result;
+			case 2:
+				for (int shift = BLOCK_SIZE - 2; shift >= 0; shift -= 2) {
+					result |= (src[offset++] - min) << shift;
+				}
+				return result;
+			case 4:
+				for (int shift = BLOCK_SIZE - 4; shift >= 0; shift -= 4) {
+					result |= (src[offset++] - min) << shift;
+				}
+				return result;
+			case 8:
+				return ((src[offset] - min) << 56) | ((src[offset + 1] - min) << 48) | ((src[offset + 2] - min) << 40) |
+						((src[offset + 3] - min) << 32) | ((src[offset + 4] - min) << 24) | ((src[offset + 5] - min) << 16) |
+						((src[offset + 6] - min) << 8) | (src[offset + 7] - min);
+			case 16:
+				return ((src[offset] - min) << 48) | ((src[offset + 1] - min) << 32) | ((src[offset + 2] - min) << 16) | 
+						(src[offset + 3] - min);
+			default:  // 32
+				for (int shift = BLOCK_SIZE - (int)bitsPerValue; shift >= 0; shift -= bitsPerValue) {
+					result |= (src[offset++] - min) << shift;
+				}
+				return result;
+		}
+	}
+	
+	
+	/**
+	 * Copies a range of values of this list into the specified array. The range and the array bounds are only checked
+	 * once and whole blocks of the underlying array are decoded at once, if possible.
+	 * 
+	 * @param from the index of the first element to be copied
+	 * @param dest the array to copy the values to
+	 * @param offset the index in {@code dest} where the first value shall be stored
+	 * @param length the number of values to be copied
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in this list or in {@code dest}
+	 * @since 3.4.0
+	 */
+	public void get(long from, long[] dest, int offset, int length) {
+		checkRange(from, length);
+		checkArrayRange(dest, offset, length);
+		
+		long index = from;
+		final long end = from + length;
+		if (isBlockAligned()) {
+			final int valuesPerBlock = (int)(BLOCK_SIZE / bitsPerValue);
+			while ((index < end) && (index % valuesPerBlock != 0)) {
+				dest[offset++] = getUnchecked(index++);
+			}
+			long blockIndex = index / valuesPerBlock;
+			while (end - index >= valuesPerBlock) {
+				decodeBlock(blocks.getBlock(blockIndex++), dest, offset);
+				offset += valuesPerBlock;
+				index += valuesPerBlock;
+			}
+		}
+		while (index < end) {
+			dest[offset++] = getUnchecked(index++);
+		}
+	}
+	
+	
+	/**
+	 * Replaces a range of values of this list by the values from the specified array. All values are checked before 
+	 * this list is modified and whole blocks of the underlying array are encoded at once, if possible.
+	 * 
+	 * @param from the index of the first element to be replaced
+	 * @param src the array containing the new values
+	 * @param offset the index of the first value in {@code src} to be copied
+	 * @param length the number of values to be copied
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in this list or in {@code src}
+	 * @throws IllegalArgumentException if one of the values does not fit into the range specified by the constructor
+	 *         parameters {@code bitsPerValue} and {@code minValue} (This list is not modified in this case.)
+	 * @since 3.4.0
+	 */
+	public void set(long from, long[] src, int offset, int length) {
+		checkRange(from, length);
+		checkArrayRange(src, offset, length);
+		checkValues(src, offset, length);
+		setRangeUnchecked(from, src, offset, length);
+	}
+	
+	
+	private void setRangeUnchecked(long from, long[] src, int offset, int length) {
+		long index = from;
+		final long end = from + length;
+		if (isBlockAligned()) {
+			final int valuesPerBlock = (int)(BLOCK_SIZE / bitsPerValue);
+			while ((index < end) && (index % valuesPerBlock != 0)) {
+				setUnchecked(index++, src[offset++] - minValue);
+			}
+			long blockIndex = index / valuesPerBlock;
+			while (end - index >= valuesPerBlock) {
+				blocks.setBlock(blockIndex++, encodeBlock(src, offset));
+				offset += valuesPerBlock;
+				index += valuesPerBlock;
+			}
+		}
+		while (index < end) {
+			setUnchecked(index++, src[offset++] - minValue);
+		}
+	}
+	
+	
+	/**
+	 * Sets all elements in the specified range to the specified value. Whole blocks of the underlying array are filled 
+	 * with a precomputed pattern, if possible.
+	 * 
+	 * @param from the index of the first element to be replaced
+	 * @param to the index after the last element to be replaced
+	 * @param value the new value of all elements in the range
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in this list or {@code to} is lower
+	 *         than {@code from}
+	 * @throws IllegalArgumentException if {@code value} does not fit into the range specified by the constructor
+	 *         parameters {@code bitsPerValue} and {@code minValue}
+	 * @since 3.4.0
+	 */
+	public void fill(long from, long to, long value) {
+		checkRange(from, to - from);
+		checkValue(value);
+		value -= minValue;
+		
+		long index = from;
+		if (isBlockAligned()) {
+			final int valuesPerBlock = (int)(BLOCK_SIZE / bitsPerValue);
+			while ((index < to) && (index % valuesPerBlock != 0)) {
+				setUnchecked(index++, value);
+			}
+			if (to - index >= valuesPerBlock) {
+				long pattern = 0;
+				for (int shift = BLOCK_SIZE - (int)bitsPerValue; shift >= 0; shift -= bitsPerValue) {
+					pattern |= value << shift;
+				}
+				long fromBlock = index / valuesPerBlock;
+				long blockCount = (to - index) / valuesPerBlock;
+				blocks.fill(fromBlock, fromBlock + blockCount, pattern);
+				index += blockCount * valuesPerBlock;
+			}
+		}
+		while (index < to) {
+			setUnchecked(index++, value);
+		}
+	}
+	
+	
+	/**
+	 * Appends all values of the specified array to the end of this list.
+	 * 
+	 * @param values the values to be added
+	 * @throws IllegalArgumentException if one of the values does not fit into the range specified by the constructor
+	 *         parameters {@code bitsPerValue} and {@code minValue} (This list is not modified in this case.)
+	 * @since 3.4.0
+	 */
+	public void addAll(long[] values) {
+		addAll(values, 0, values.length);
+	}
+	
+	
+	/**
+	 * Appends a range of values from the specified array to the end of this list.
+	 * 
+	 * @param values the array containing the values to be added
+	 * @param offset the index of the first value in {@code values} to be added
+	 * @param length the number of values to be added
+	 * @throws IndexOutOfBoundsException if the specified range is not contained in {@code values}
+	 * @throws IllegalArgumentException if one of the values does not fit into the range specified by the constructor
+	 *         parameters {@code bitsPerValue} and {@code minValue} (This list is not modified in this case.)
+	 * @since 3.4.0
+	 */
+	public void addAll(long[] values, int offset, int length) {
+		checkArrayRange(values, offset, length);
+		checkValues(values, offset, length);
+		ensureCapacity(size + length);
+		long from = size;
+		size += length;
+		setRangeUnchecked(from, values, offset, length);
+	}
+	
+	
+	/**
+	 * Returns an iterator over all elements of this list.
+	 * 
+	 * @return a new iterator starting at the first element
+	 * @since 3.4.0
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		return iterator(0);
+	}
+	
+	
+	/**
+	 * Returns an iterator over the elements of this list starting at the specified index.
+	 * 
+	 * @param index the index of the first element to be returned by the iterator
+	 * @return a new iterator
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or greater than the current size of the list
+	 * @since 3.4.0
+	 */
+	public PrimitiveIterator.OfLong iterator(long index) {
+		checkIndex(index, 1);
+		return new PackedIterator(index);
+	}
+	
+	
+	/**
+	 * Returns a spliterator over all elements currently contained in this list. The spliterator is bound to the 
+	 * current size of the list. Splits are performed at the borders of blocks of the underlying array.
+	 * 
+	 * @return a new spliterator
+	 * @since 3.4.0
+	 */
+	public Spliterator.OfLong spliterator() {
+		return new PackedSpliterator(0, size);
+	}
+	
+	
+	/**
+	 * Returns a sequential stream of all elements of this list. A parallel stream can be obtained by calling
+	 * {@link LongStream#parallel()} on the result.
+	 * 
+	 * @return a new stream using {@link #spliterator()}
+	 * @since 3.4.0
+	 */
+	public LongStream longStream() {
+		return StreamSupport.longStream(spliterator(), false);
+	}
+	
+	
 	/**
 	 * Returns the number of elements currently contained in this list. (This is not equal to the size
 	 * of the underlying {@code long} array.
@@ -432,4 +1228,50 @@ public class PackedIntegerArrayList {
 	public long size() {
 		return size;
 	}
+	
+	
+	/**
+	 * Returns the store containing the blocks of this list.
+	 * 
+	 * @return the store specified in the constructor or a {@link HeapBlockStore}
+	 * @since 3.4.0
+	 */
+	public PackedBlockStore getBlockStore() {
+		return blocks;
+	}
+	
+	
+	/**
+	 * Writes all changes of this list to the storage device of the underlying block store. For lists created with 
+	 * {@link #createMapped(File, int, long)} or {@link #openMapped(File)} the current size and format are also stored in 
+	 * the header of the file. The header of a {@link MappedFileBlockStore} passed to the constructor is not modified.
+	 * 
+	 * @throws IOException if an I/O error occurs while writing
+	 * @since 3.4.0
+	 */
+	public void flush() throws IOException {
+		if (ownsHeader) {
+			MappedFileBlockStore store = (MappedFileBlockStore)blocks;
+			store.setHeader(HEADER_BITS_PER_VALUE, bitsPerValue);  // May have been changed if the list is adaptive.
+			store.setHeader(HEADER_MIN_VALUE, minValue);
+			store.setHeader(HEADER_SIZE, size);
+		}
+		blocks.flush();
+	}
+	
+	
+	/**
+	 * Flushes this list and closes the underlying block store. The list cannot be used anymore afterwards.
+	 * 
+	 * @throws IOException if an I/O error occurs while writing or releasing the block store
+	 * @since 3.4.0
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			blocks.close();
+		}
+	}
 }
@@ -0,0 +1,185 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+
+
+/**
+ * Abstract implementation of a {@link PackedBlockStore} that stores its blocks in a sequence of {@link LongBuffer}s 
+ * (segments) of equal capacity. Since each segment is addressed by an {@code int} index, the store can contain far
+ * more than {@link Integer#MAX_VALUE} blocks.
+ * <p>
+ * All segments except the last always have the full segment length. When the store is enlarged, only the last 
+ * segment is replaced by a larger one and new segments are added behind it. Inheriting classes create the segments
+ * by implementing {@link #createSegment(int, int, LongBuffer)}.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public abstract class SegmentedBlockStore implements PackedBlockStore {
+	/** The binary logarithm of the default number of blocks per segment (2^24 blocks or 128 MiB). */
+	public static final int DEFAULT_SEGMENT_BITS = 24;
+	
+	/** The binary logarithm of the maximum number of blocks per segment, so that a segment has less than 2 GiB. */
+	public static final int MAX_SEGMENT_BITS = 27;
+	
+	
+	private final int segmentBits;
+	private final int segmentMask;
+	private LongBuffer[] segments = new LongBuffer[0];
+	private long blockCount = 0;
+	
+	
+	/**
+	 * Creates a new instance of this class that initially contains no blocks.
+	 * 
+	 * @param segmentBits the binary logarithm of the number of blocks per segment
+	 * @throws IllegalArgumentException if {@code segmentBits} is lower than 0 or greater than {@link #MAX_SEGMENT_BITS}
+	 */
+	protected SegmentedBlockStore(int segmentBits) {
+		super();
+		if ((segmentBits < 0) || (segmentBits > MAX_SEGMENT_BITS)) {
+			throw new IllegalArgumentException("The number of segment bits must be between 0 and " + MAX_SEGMENT_BITS + 
+					", but was " + segmentBits + ".");
+		}
+		else {
+			this.segmentBits = segmentBits;
+			segmentMask = (1 << segmentBits) - 1;
+		}
+	}
+	
+	
+	/**
+	 * Creates a new segment that replaces a previous one or is appended to the store.
+	 * 
+	 * @param segmentIndex the index of the new segment
+	 * @param blockCount the number of blocks the new segment must take up
+	 * @param oldSegment the segment to be replaced (Its contents need to be present in the new segment.) or 
+	 *        {@code null} if a segment is appended
+	 * @return the new segment (Its absolute {@code get} and {@code put} methods are used to access blocks.)
+	 * @throws java.io.UncheckedIOException if an I/O error occurs while creating the segment
+	 */
+	protected abstract LongBuffer createSegment(int segmentIndex, int blockCount, LongBuffer oldSegment);
+	
+	
+	/**
+	 * Returns the binary logarithm of the number of blocks per segment.
+	 * 
+	 * @return the value specified in the constructor
+	 */
+	public int getSegmentBits() {
+		return segmentBits;
+	}
+	
+	
+	/**
+	 * Returns the number of blocks a full segment contains.
+	 * 
+	 * @return {@code 2^getSegmentBits()}
+	 */
+	public int getSegmentLength() {
+		return 1 << segmentBits;
+	}
+	
+	
+	/**
+	 * Returns the number of segments currently used by this store.
+	 * 
+	 * @return the number of segments
+	 */
+	public int getSegmentCount() {
+		return segments.length;
+	}
+	
+	
+	@Override
+	public long getBlockCount() {
+		return blockCount;
+	}
+	
+	
+	@Override
+	public long getMaxBlockCount() {
+		return Math.min(Long.MAX_VALUE >>> PackedIntegerArrayList.BLOCK_BITS,  // Bit positions must be representable by a long value. 
+				(long)PackedIntegerArrayList.MAX_ARRAY_LENGTH << segmentBits);
+	}
+	
+	
+	@Override
+	public long getBlock(long index) {
+		return segments[(int)(index >>> segmentBits)].get((int)index & segmentMask);
+	}
+	
+	
+	@Override
+	public void setBlock(long index, long block) {
+		segments[(int)(index >>> segmentBits)].put((int)index & segmentMask, block);
+	}
+	
+	
+	@Override
+	public void ensureCapacity(long blockCount) {
+		if (blockCount > this.blockCount) {
+			if (blockCount > getMaxBlockCount()) {
+				throw new IllegalArgumentException("This store cannot contain " + blockCount + " blocks.");
+			}
+			int segmentCount = (int)((blockCount + segmentMask) >>> segmentBits);
+			int firstChanged = Math.max(0, segments.length - 1);
+			segments = Arrays.copyOf(segments, segmentCount);
+			for (int segmentIndex = firstChanged; segmentIndex < segmentCount; segmentIndex++) {
+				int length = (int)Math.min(getSegmentLength(), blockCount - ((long)segmentIndex << segmentBits));
+				LongBuffer oldSegment = segments[segmentIndex];
+				if ((oldSegment == null) || (oldSegment.capacity() < length)) {
+					segments[segmentIndex] = createSegment(segmentIndex, length, oldSegment);
+				}
+			}
+			this.blockCount = blockCount;
+		}
+	}
+	
+	
+	/**
+	 * Releases all segments that are not needed anymore to store the specified number of blocks. The last remaining
+	 * segment is not reduced.
+	 * 
+	 * @param blockCount the number of blocks that must remain accessible
+	 */
+	@Override
+	public void trimToSize(long blockCount) {
+		if (blockCount < this.blockCount) {
+			segments = Arrays.copyOf(segments, (int)((Math.max(0, blockCount) + segmentMask) >>> segmentBits));
+			this.blockCount = Math.max(0, blockCount);
+		}
+	}
+	
+	
+	/**
+	 * Releases the references to all segments. The store contains no blocks afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		segments = new LongBuffer[0];
+		blockCount = 0;
+	}
+}
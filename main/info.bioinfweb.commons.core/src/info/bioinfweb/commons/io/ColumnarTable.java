@@ -0,0 +1,344 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import info.bioinfweb.commons.Math2;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+
+/**
+ * A table of text cells that stores each column in a single character array.
+ * <p>
+ * In contrast to an array of strings for each row (as returned by {@link TableRowReader}), no object is created per
+ * cell. The contents of all cells of a column are stored one after another in a {@code char[]} and an additional
+ * {@code int[]} stores where each cell ends. Columns can be converted to {@code int} or {@code double} arrays
+ * without creating strings, and several columns can be converted in parallel (e.g. using
+ * {@link #getIntColumns(int...)}).
+ * <p>
+ * Rows with fewer cells than the table has columns are filled with empty cells. Instances are created using
+ * {@link #read(Reader, char, boolean)} or {@link TableReader#readColumnarTable(java.io.InputStream, java.nio.charset.Charset, char, boolean)}.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class ColumnarTable {
+	private static class Column {
+		private char[] chars = new char[64];
+		private int length = 0;
+		private int[] cellEnds = new int[16];
+		private int cellCount = 0;
+
+		public void addCell(CharSequence content) {
+			if (length + content.length() > chars.length) {
+				if ((long)length + content.length() > Integer.MAX_VALUE) {
+					throw new IllegalStateException("The content of a column cannot exceed " + Integer.MAX_VALUE + " characters.");
+				}
+				chars = Arrays.copyOf(chars, (int)Math.min(Integer.MAX_VALUE, Math.max(2L * chars.length, length + content.length())));
+			}
+			if (content instanceof StringBuilder) {
+				((StringBuilder)content).getChars(0, content.length(), chars, length);
+				length += content.length();
+			}
+			else {
+				for (int i = 0; i < content.length(); i++) {
+					chars[length] = content.charAt(i);
+					length++;
+				}
+			}
+
+			if (cellCount == cellEnds.length) {
+				cellEnds = Arrays.copyOf(cellEnds, 2 * cellEnds.length);
+			}
+			cellEnds[cellCount] = length;
+			cellCount++;
+		}
+
+		public int getCellStart(int row) {
+			return (row == 0) ? 0 : cellEnds[row - 1];
+		}
+
+		public void trimToSize() {
+			chars = Arrays.copyOf(chars, length);
+			cellEnds = Arrays.copyOf(cellEnds, cellCount);
+		}
+	}
+
+
+	/**
+	 * A reusable view on a cell of a column used to parse numbers without creating strings.
+	 */
+	private static class CellSequence implements CharSequence {
+		private char[] chars;
+		private int start;
+		private int length;
+
+		public CellSequence(char[] chars) {
+			super();
+			this.chars = chars;
+		}
+
+		public void setCell(int start, int end) {
+			this.start = start;
+			this.length = end - start;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return chars[start + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(chars, this.start + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, start, length);
+		}
+	}
+
+
+	private List<Column> columns = new ArrayList<Column>();
+	private int rowCount = 0;
+
+
+	private ColumnarTable() {
+		super();
+	}
+
+
+	/**
+	 * Reads a whole table from the specified reader.
+	 * 
+	 * @param reader the reader to read the table from (It will be closed after reading.)
+	 * @param separator the character separating two cells of a row
+	 * @param quoting Specify {@code true} here, if cells starting with {@code '"'} shall be treated as quoted or
+	 *        {@code false} if quotes shall be treated as normal characters.
+	 * @return the table containing all rows of the reader
+	 * @throws IOException if an I/O error occurs while reading or a quoted cell is not terminated
+	 * @see TableRowReader
+	 */
+	public static ColumnarTable read(Reader reader, char separator, boolean quoting) throws IOException {
+		final ColumnarTable result = new ColumnarTable();
+		TableRowReader rowReader = new TableRowReader(reader, separator, quoting);
+		try {
+			TableRowReader.CellHandler handler = new TableRowReader.CellHandler() {
+				@Override
+				public void addCell(int column, StringBuilder content) {
+					while (column >= result.columns.size()) {
+						Column newColumn = new Column();
+						for (int row = 0; row < result.rowCount; row++) {  // Fill previous rows.
+							newColumn.addCell("");
+						}
+						result.columns.add(newColumn);
+					}
+					result.columns.get(column).addCell(content);
+				}
+
+				@Override
+				public void endRow(int cellCount) {
+					for (int column = cellCount; column < result.columns.size(); column++) {
+						result.columns.get(column).addCell("");
+					}
+					result.rowCount++;
+				}
+			};
+			while (rowReader.readRow(handler)) {}
+		}
+		finally {
+			rowReader.close();
+		}
+
+		for (Column column : result.columns) {
+			column.trimToSize();
+		}
+		return result;
+	}
+
+
+	/**
+	 * Returns the number of columns of this table.
+	 * 
+	 * @return the maximum number of cells found in a row
+	 */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+
+	/**
+	 * Returns the number of rows of this table.
+	 * 
+	 * @return the number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+
+	private Column getColumn(int column) {
+		if ((column < 0) || (column >= columns.size())) {
+			throw new IndexOutOfBoundsException("There is no column with the index " + column + ".");
+		}
+		else {
+			return columns.get(column);
+		}
+	}
+
+
+	private static void checkRow(int row, Column column) {
+		if ((row < 0) || (row >= column.cellCount)) {
+			throw new IndexOutOfBoundsException("There is no row with the index " + row + ".");
+		}
+	}
+
+
+	/**
+	 * Returns the length of the specified cell.
+	 * 
+	 * @param column the column index of the cell
+	 * @param row the row index of the cell
+	 * @return the number of characters of the cell
+	 * @throws IndexOutOfBoundsException if {@code column} or {@code row} is outside the table
+	 */
+	public int getLength(int column, int row) {
+		Column columnData = getColumn(column);
+		checkRow(row, columnData);
+		return columnData.cellEnds[row] - columnData.getCellStart(row);
+	}
+
+
+	/**
+	 * Returns the content of the specified cell as a new string.
+	 * 
+	 * @param column the column index of the cell
+	 * @param row the row index of the cell
+	 * @return the content of the cell
+	 * @throws IndexOutOfBoundsException if {@code column} or {@code row} is outside the table
+	 */
+	public String getString(int column, int row) {
+		Column columnData = getColumn(column);
+		checkRow(row, columnData);
+		int start = columnData.getCellStart(row);
+		return new String(columnData.chars, start, columnData.cellEnds[row] - start);
+	}
+
+
+	/**
+	 * Returns the contents of all cells of a column as new strings.
+	 * 
+	 * @param column the index of the column
+	 * @return an array with an element for each row
+	 * @throws IndexOutOfBoundsException if {@code column} is outside the table
+	 */
+	public String[] getStringColumn(int column) {
+		Column columnData = getColumn(column);
+		String[] result = new String[rowCount];
+		int start = 0;
+		for (int row = 0; row < rowCount; row++) {
+			result[row] = new String(columnData.chars, start, columnData.cellEnds[row] - start);
+			start = columnData.cellEnds[row];
+		}
+		return result;
+	}
+
+
+	/**
+	 * Parses all cells of a column as {@code int} values using {@link Math2#parseInt(CharSequence)}.
+	 * 
+	 * @param column the index of the column
+	 * @return an array with an element for each row
+	 * @throws IndexOutOfBoundsException if {@code column} is outside the table
+	 * @throws NumberFormatException if a cell does not contain a valid {@code int} value
+	 */
+	public int[] getIntColumn(int column) {
+		Column columnData = getColumn(column);
+		CellSequence cell = new CellSequence(columnData.chars);
+		int[] result = new int[rowCount];
+		int start = 0;
+		for (int row = 0; row < rowCount; row++) {
+			cell.setCell(start, columnData.cellEnds[row]);
+			result[row] = Math2.parseInt(cell);
+			start = columnData.cellEnds[row];
+		}
+		return result;
+	}
+
+
+	/**
+	 * Parses all cells of a column as {@code double} values using {@link Math2#parseDouble(CharSequence)}. (Both
+	 * {@code '.'} and {@code ','} are therefore accepted as decimal separators.)
+	 * 
+	 * @param column the index of the column
+	 * @return an array with an element for each row
+	 * @throws IndexOutOfBoundsException if {@code column} is outside the table
+	 * @throws NumberFormatException if a cell does not contain a valid decimal value
+	 */
+	public double[] getDoubleColumn(int column) {
+		Column columnData = getColumn(column);
+		CellSequence cell = new CellSequence(columnData.chars);
+		double[] result = new double[rowCount];
+		int start = 0;
+		for (int row = 0; row < rowCount; row++) {
+			cell.setCell(start, columnData.cellEnds[row]);
+			result[row] = Math2.parseDouble(cell);
+			start = columnData.cellEnds[row];
+		}
+		return result;
+	}
+
+
+	/**
+	 * Parses several columns as {@code int} values in parallel using the common fork join pool.
+	 * 
+	 * @param columns the indices of the columns to be parsed
+	 * @return an array containing the result of {@link #getIntColumn(int)} for each specified column
+	 * @throws IndexOutOfBoundsException if a column index is outside the table
+	 * @throws NumberFormatException if a cell does not contain a valid {@code int} value
+	 */
+	public int[][] getIntColumns(int... columns) {
+		return Arrays.stream(columns).parallel().mapToObj(this::getIntColumn).toArray(int[][]::new);
+	}
+
+
+	/**
+	 * Parses several columns as {@code double} values in parallel using the common fork join pool.
+	 * 
+	 * @param columns the indices of the columns to be parsed
+	 * @return an array containing the result of {@link #getDoubleColumn(int)} for each specified column
+	 * @throws IndexOutOfBoundsException if a column index is outside the table
+	 * @throws NumberFormatException if a cell does not contain a valid decimal value
+	 */
+	public double[][] getDoubleColumns(int... columns) {
+		return Arrays.stream(columns).parallel().mapToObj(this::getDoubleColumn).toArray(double[][]::new);
+	}
+}
@@ -23,12 +23,27 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 
 /**
  * An abstract file filter that allows to test the content of a file to determine whether it is accepted by this filter.
  * The way a file is tested is determined by {@link #getTestStrategy()} and can be changed during runtime.
+ * <p>
+ * Each instance stores the results of its content tests in a cache, which contains the last 
+ * {@link #CONTENT_CACHE_SIZE} tested files. A cached result is reused as long as the size and the modification time of 
+ * the file remain unchanged. This avoids opening all files again each time e.g. a file chooser is repainted. 
+ * <p>
+ * Several files can be tested in parallel using {@link #filterFiles(File[])} or {@link #listFiles(File)}. These 
+ * methods call {@link #accept(File)} from multiple threads of the common fork join pool at the same time. Inherited 
+ * classes that override {@link #acceptContent(FileInputStream)} or {@link #accept(File)} and whose instances are used 
+ * with these methods must therefore make sure that their implementations are thread-safe (e.g. by not sharing mutable
+ * state between calls). {@link File#listFiles(java.io.FileFilter)} can be used instead, if an implementation is not
+ * thread-safe.
  * 
  * @author Ben St&ouml;ver
  * @since 2.0.0
@@ -71,9 +86,45 @@ public abstract class ContentExtensionFileFilter extends ExtensionFileFilter {
 	}
 	
 	
+	/** 
+	 * The maximum number of content test results stored in the cache of each instance.
+	 * 
+	 * @since 3.4.0 
+	 */
+	public static final int CONTENT_CACHE_SIZE = 4096;
+	
+	
+	/**
+	 * Stores the result of a content test together with the properties of the tested file. 
+	 */
+	private static class ContentCacheEntry {
+		public long size;
+		public long lastModified;
+		public Boolean accepted;  // null indicates that an exception was thrown.
+		
+		public ContentCacheEntry(long size, long lastModified, Boolean accepted) {
+			super();
+			this.size = size;
+			this.lastModified = lastModified;
+			this.accepted = accepted;
+		}
+	}
+	
+	
 	private TestStrategy testStrategy;
 	private boolean acceptFilesWithExceptions;
 	
+	/** Maps canonical paths of tested files to the test results. */
+	private final Map<String, ContentCacheEntry> contentCache = Collections.synchronizedMap(
+			new LinkedHashMap<String, ContentCacheEntry>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, ContentCacheEntry> eldest) {
+					return size() > CONTENT_CACHE_SIZE;
+				}
+			});
+	
 	
 	/**
 	 * Creates a new instance of this class.
@@ -169,8 +220,29 @@ public abstract class ContentExtensionFileFilter extends ExtensionFileFilter {
 
 
 	/**
-	 * Tests the contents of the specified file. It calls {@link #acceptContent(BufferedInputStream)} internally, if the specified
-	 * file is not a directory.
+	 * Removes all content test results of this instance from its cache. Calling this method is only necessary, if the 
+	 * content of a file may have been changed without changing its size or modification time.
+	 * 
+	 * @since 3.4.0
+	 */
+	public void clearContentCache() {
+		contentCache.clear();
+	}
+	
+	
+	private static String getCachePath(File file) {
+		try {
+			return file.getCanonicalPath();
+		}
+		catch (IOException e) {
+			return file.getAbsolutePath();
+		}
+	}
+	
+	
+	/**
+	 * Tests the contents of the specified file. It calls {@link #acceptContent(FileInputStream)} internally, if the specified
+	 * file is not a directory and no valid result for it is contained in the content cache.
 	 * <p>
 	 * Inherited classes can overwrite this method, if additional checks shall be performed on the file. In some cases it may
 	 * be useful to check in here, if the file extension is unique or not before calling 
@@ -186,19 +258,33 @@ public abstract class ContentExtensionFileFilter extends ExtensionFileFilter {
 			return true;  //TODO Does this make sense for save dialogs?
 		}
 		else {
-			try {
-				boolean result;
-				FileInputStream stream = new FileInputStream(file);
+			String key = getCachePath(file);
+			long size = file.length();
+			long lastModified = file.lastModified();
+			ContentCacheEntry entry = contentCache.get(key);
+			if ((entry == null) || (entry.size != size) || (entry.lastModified != lastModified)) {
+				Boolean accepted;
 				try {
-					result = acceptContent(stream);
+					FileInputStream stream = new FileInputStream(file);
+					try {
+						accepted = acceptContent(stream);
+					}
+					finally {
+						stream.close();
+					}
 				}
-				finally {
-					stream.close();
+				catch (Exception e) {
+					accepted = null;
 				}
-				return result;
+				entry = new ContentCacheEntry(size, lastModified, accepted);
+				contentCache.put(key, entry);
+			}
+			
+			if (entry.accepted == null) {
+				return isAcceptFilesWithExceptions();  // Evaluated here, since the property may have changed since the test.
 			}
-			catch (Exception e) {
-				return isAcceptFilesWithExceptions();
+			else {
+				return entry.accepted;
 			}
 		}
 	}
@@ -208,6 +294,8 @@ public abstract class ContentExtensionFileFilter extends ExtensionFileFilter {
 	 * Inherited classes must implement this method to test the content of a file. Note that buffering this stream (e.g. using
 	 * an instance of {@link BufferedInputStream} way significantly speed up testing, which may be relevant in folders containing
 	 * many files or folders on slow (network) resources.
+	 * <p>
+	 * Implementations must be thread-safe, if {@link #filterFiles(File[])} or {@link #listFiles(File)} are used.
 	 * 
 	 * @param stream the input stream providing the content of the file to be tested
 	 * @return {@code true} if the specified content is accepted or {@code false} otherwise
@@ -228,4 +316,40 @@ public abstract class ContentExtensionFileFilter extends ExtensionFileFilter {
 				throw new InternalError("Unsupported test strategy " + getTestStrategy() + ".");
 		}
 	}
+	
+	
+	/**
+	 * Tests the specified files in parallel using {@link #accept(File)} and returns the accepted ones. Testing is done 
+	 * using the common fork join pool, which is especially useful with {@link TestStrategy#CONTENT} or 
+	 * {@link TestStrategy#BOTH} on large folders or slow resources. Note that {@link #accept(File)} is called from 
+	 * multiple threads concurrently and must therefore be thread-safe (which is the case for the default implementation,
+	 * if {@link #acceptContent(FileInputStream)} is thread-safe).
+	 * 
+	 * @param files the files to be tested
+	 * @return a new array containing all accepted files in the order they were specified
+	 * @since 3.4.0
+	 */
+	public File[] filterFiles(File[] files) {
+		return Arrays.stream(files).parallel().filter(this::accept).toArray(File[]::new);
+	}
+	
+	
+	/**
+	 * Returns all files in the specified directory which are accepted by this filter. This method behaves like 
+	 * {@link File#listFiles(java.io.FileFilter)} but tests the files in parallel using {@link #filterFiles(File[])}.
+	 * 
+	 * @param directory the directory to list the contents of
+	 * @return an array containing all accepted files and directories or {@code null} if {@code directory} does not denote 
+	 *         a directory or an I/O error occurred 
+	 * @since 3.4.0
+	 */
+	public File[] listFiles(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return null;
+		}
+		else {
+			return filterFiles(files);
+		}
+	}
 }
@@ -26,8 +26,11 @@ import java.io.FileFilter;
 import java.io.FilenameFilter;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import javax.swing.filechooser.FileNameExtensionFilter;
 
@@ -38,6 +41,9 @@ import javax.swing.filechooser.FileNameExtensionFilter;
  * both the Java I/O interfaces {@link FileFilter} and {@link FilenameFilter}. It implements functionality similar 
  * to that of {@link FileNameExtensionFilter} but offers more features and allows extending this class, which is 
  * prohibited by {@link FileNameExtensionFilter}.
+ * <p>
+ * Extensions are compared case sensitively by default. Unlike {@link FileNameExtensionFilter}, which always ignores
+ * the case, this can be changed using {@link #setCaseSensitive(boolean)}.
  * 
  * @author Ben St&ouml;ver
  * @since 1.2.0
@@ -51,6 +57,8 @@ public class ExtensionFileFilter extends javax.swing.filechooser.FileFilter impl
 	
 	private String description;
 	private List<String> extensionsList;
+	private boolean caseSensitive = true;
+	private Set<String> extensionSet;
 	
 	
 	/**
@@ -95,11 +103,51 @@ public class ExtensionFileFilter extends javax.swing.filechooser.FileFilter impl
 			}
 			
 			extensionsList = Collections.unmodifiableList(extensions);
+			extensionSet = createExtensionSet();
 			this.description = processDescription(description, addExtensionListToDescription);
 		}
 	}
 	
 	
+	private Set<String> createExtensionSet() {
+		Set<String> result = new HashSet<String>();
+		for (String extension : extensionsList) {
+			if (caseSensitive) {
+				result.add(extension);
+			}
+			else {
+				result.add(extension.toLowerCase(Locale.ROOT));
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Determines whether file extensions are compared case sensitively by {@link #accept(File)}.
+	 * 
+	 * @return {@code true} if the case of file extensions is considered (default) or {@code false} if it is ignored
+	 * @since 3.4.0
+	 */
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+
+	/**
+	 * Specifies whether file extensions shall be compared case sensitively by {@link #accept(File)}. If {@code false}
+	 * is specified, e.g. a file named {@code "a.FASTA"} would be accepted by a filter with the extension {@code "fasta"}.
+	 * 
+	 * @param caseSensitive Specify {@code true} here, if the case of file extensions shall be considered or 
+	 *        {@code false} if it shall be ignored.
+	 * @since 3.4.0
+	 */
+	public void setCaseSensitive(boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+		extensionSet = createExtensionSet();
+	}
+	
+	
 	/**
 	 * Returns all extensions stored in this filter as a single string.
 	 * <p>
@@ -142,6 +190,8 @@ public class ExtensionFileFilter extends javax.swing.filechooser.FileFilter impl
 
 	/**
 	 * This default implementation accepts all files that are directories or that end with one of the defined extensions.
+	 * Extensions are looked up in a precomputed set, so that the performance does not depend on the number of 
+	 * extensions. Whether the case of extensions is considered depends on {@link #isCaseSensitive()}.
 	 * <p>
 	 * Inherited classes may add additional functionality to this method by overwriting, if the specified file 
 	 * extensions are ambiguous. 
@@ -155,10 +205,17 @@ public class ExtensionFileFilter extends javax.swing.filechooser.FileFilter impl
 			return true;
 		}
 		else {
-			for (String extension : extensionsList) {
-				if (f.getName().endsWith(EXTENSION_SEPARATOR + extension)) {
+			String name = f.getName();
+			int pos = name.indexOf(EXTENSION_SEPARATOR);
+			while (pos != -1) {  // Test all suffixes, since extensions may contain separators themselves (e.g. "tar.gz").
+				String suffix = name.substring(pos + 1);
+				if (!caseSensitive) {
+					suffix = suffix.toLowerCase(Locale.ROOT);
+				}
+				if (extensionSet.contains(suffix)) {
 					return true;
 				}
+				pos = name.indexOf(EXTENSION_SEPARATOR, pos + 1);
 			}
 			return false;
 		}
@@ -0,0 +1,387 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+
+
+/**
+ * Reader implementation that decodes characters directly from memory mapped regions of a {@link FileChannel}.
+ * <p>
+ * In contrast to a chain of a {@link java.io.FileInputStream}, an {@link InputStreamReader} and possibly a
+ * {@link java.io.BufferedReader}, the bytes of the file are not copied into intermediate buffers but decoded from
+ * the mapped file directly into the array passed to {@link #read(char[], int, int)}. If an instance of this class
+ * is used as the underlying reader of a {@link PeekReader}, characters are therefore decoded directly into its
+ * peek buffer. The file is mapped in consecutive windows of a specified size, so files larger than 2 GB are
+ * supported.
+ * <p>
+ * Additionally this reader keeps track of the number of bytes that have been decoded (see {@link #getByteOffset()})
+ * and allows to continue reading at any byte offset (see {@link #seek(long)}). {@link PeekReader} makes use of
+ * this in {@link PeekReader#getByteOffset()} and {@link PeekReader#seek(long, StreamLocationProvider)}.
+ * <p>
+ * Malformed or unmappable input is reported as an exception instead of being replaced, since replacement characters
+ * would make byte offsets calculated from the decoded characters incorrect.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class FileChannelReader extends Reader {
+	/** The default number of bytes that is mapped into memory at once. */
+	public static final int DEFAULT_MAPPING_SIZE = 16 * 1024 * 1024;
+
+
+	private FileChannel channel;
+	private Charset charset;
+	private int mappingSize;
+	private long endOffset;
+	private CharsetDecoder decoder;
+	private CharsetEncoder encoder = null;  // Only created if needed by getEncodedLength().
+	private ByteBuffer encoderBuffer = null;
+	private ByteBuffer window = null;
+	private long windowStart;
+	private boolean endOfInputDecoded = false;
+	private int pendingChar = -1;
+	private char[] wrappedArray = null;
+	private CharBuffer wrappedBuffer = null;
+
+
+	/**
+	 * Creates a new instance of this class that starts reading at the current position of the specified channel and
+	 * stops reading at the specified byte offset.
+	 * 
+	 * @param channel the channel to read the bytes from (This channel will be closed if this reader is closed.)
+	 * @param charset the character set used to decode the bytes of the channel
+	 * @param mappingSize the number of bytes that shall be mapped into memory at once
+	 * @param endOffset the byte offset where this reader shall treat the file as ended (It is the responsibility of 
+	 *        the caller that this is the start of an encoded character. If this offset is greater than the size of 
+	 *        the file, reading stops at the end of the file.)
+	 * @throws IOException if the current position of the channel cannot be determined
+	 * @throws IllegalArgumentException if {@code mappingSize} is lower than 16
+	 * @since 3.4.0
+	 */
+	public FileChannelReader(FileChannel channel, Charset charset, int mappingSize, long endOffset) throws IOException {
+		super();
+		if (channel == null) {
+			throw new NullPointerException("The channel must not be null.");
+		}
+		else if (mappingSize < 16) {
+			throw new IllegalArgumentException("The mapping size must not be lower than 16, but was " + mappingSize + ".");
+		}
+		else {
+			this.channel = channel;
+			this.charset = charset;
+			this.mappingSize = mappingSize;
+			this.endOffset = endOffset;
+			decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(
+					CodingErrorAction.REPORT);
+			windowStart = channel.position();
+		}
+	}
+
+
+	/**
+	 * Creates a new instance of this class that starts reading at the current position of the specified channel
+	 * and uses {@link #DEFAULT_MAPPING_SIZE}.
+	 * 
+	 * @param channel the channel to read the bytes from (This channel will be closed if this reader is closed.)
+	 * @param charset the character set used to decode the bytes of the channel
+	 * @throws IOException if the current position of the channel cannot be determined
+	 */
+	public FileChannelReader(FileChannel channel, Charset charset) throws IOException {
+		this(channel, charset, DEFAULT_MAPPING_SIZE);
+	}
+
+
+	/**
+	 * Creates a new instance of this class that starts reading at the current position of the specified channel.
+	 * 
+	 * @param channel the channel to read the bytes from (This channel will be closed if this reader is closed.)
+	 * @param charset the character set used to decode the bytes of the channel
+	 * @param mappingSize the number of bytes that shall be mapped into memory at once
+	 * @throws IOException if the current position of the channel cannot be determined
+	 * @throws IllegalArgumentException if {@code mappingSize} is lower than 16
+	 */
+	public FileChannelReader(FileChannel channel, Charset charset, int mappingSize) throws IOException {
+		this(channel, charset, mappingSize, Long.MAX_VALUE);
+	}
+
+
+	/**
+	 * Creates a new instance of this class reading from the specified file using {@link #DEFAULT_MAPPING_SIZE}.
+	 * 
+	 * @param file the file to be read
+	 * @param charset the character set used to decode the bytes of the file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public FileChannelReader(File file, Charset charset) throws IOException {
+		this(FileChannel.open(file.toPath(), StandardOpenOption.READ), charset);
+	}
+
+
+	/**
+	 * Returns the character set used by this reader to decode the underlying bytes.
+	 * 
+	 * @return the character set
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+
+	/**
+	 * Returns the number of bytes from the beginning of the file that have been decoded into characters returned
+	 * by this reader.
+	 * 
+	 * @return the byte offset of the next character to be returned by this reader
+	 */
+	public long getByteOffset() {
+		long result = windowStart;
+		if (window != null) {
+			result += window.position();
+		}
+		if (pendingChar != -1) {  // The bytes of a pending low surrogate have already been consumed by the decoder.
+			result -= getEncodedLength((char)pendingChar);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Moves the position of this reader to the specified byte offset. The next character returned will be
+	 * decoded starting from this offset. It is the responsibility of the caller to specify an offset that
+	 * is the start of an encoded character.
+	 * 
+	 * @param byteOffset the new byte offset from the beginning of the file
+	 * @throws IllegalArgumentException if {@code byteOffset} is negative
+	 */
+	public void seek(long byteOffset) {
+		if (byteOffset < 0) {
+			throw new IllegalArgumentException("The byte offset must not be negative, but was " + byteOffset + ".");
+		}
+		else {
+			windowStart = byteOffset;
+			window = null;
+			decoder.reset();
+			endOfInputDecoded = false;
+			pendingChar = -1;
+		}
+	}
+
+
+	private int getEncodedLength(char c) {
+		return (int)getEncodedLength(new char[]{c}, 0, 1);
+	}
+
+
+	/**
+	 * Calculates the number of bytes the specified characters occupy in the underlying file.
+	 * <p>
+	 * The result is calculated arithmetically for <i>UTF-8</i>, <i>UTF-16</i> and single byte character sets.
+	 * For all other character sets the characters are encoded again. Note that this may lead to invalid results
+	 * for stateful encodings.
+	 * 
+	 * @param chars the array containing the characters
+	 * @param offset the index of the first character in {@code chars}
+	 * @param length the number of characters to be measured
+	 * @return the number of bytes that encode the specified characters
+	 */
+	public long getEncodedLength(char[] chars, int offset, int length) {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			long result = 0;
+			int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				char c = chars[i];
+				if (c < 0x80) {
+					result += 1;
+				}
+				else if ((c < 0x800) || Character.isSurrogate(c)) {  // A surrogate pair is encoded with 4 bytes.
+					result += 2;
+				}
+				else {
+					result += 3;
+				}
+			}
+			return result;
+		}
+		else if (StandardCharsets.UTF_16.equals(charset) || StandardCharsets.UTF_16BE.equals(charset) ||
+				StandardCharsets.UTF_16LE.equals(charset)) {
+
+			return 2l * length;
+		}
+		else {
+			if (encoder == null) {
+				encoder = charset.newEncoder();
+				encoderBuffer = ByteBuffer.allocate((int)Math.ceil(encoder.maxBytesPerChar()) * 256);
+			}
+			if (encoder.maxBytesPerChar() == 1f) {
+				return length;
+			}
+			else {
+				long result = 0;
+				CharBuffer in = CharBuffer.wrap(chars, offset, length);
+				encoder.reset();
+				CoderResult coderResult;
+				do {
+					encoderBuffer.clear();
+					coderResult = encoder.encode(in, encoderBuffer, true);
+					result += encoderBuffer.position();
+				} while (coderResult.isOverflow());
+				encoderBuffer.clear();
+				encoder.flush(encoderBuffer);
+				return result + encoderBuffer.position();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the byte offset where reading ends.
+	 * 
+	 * @return the minimum of the file size and the end offset specified in the constructor
+	 * @throws IOException if the size of the file cannot be determined
+	 */
+	private long getEnd() throws IOException {
+		return Math.min(channel.size(), endOffset);
+	}
+	
+	
+	/**
+	 * Maps the next window of the underlying file starting at the first byte that was not yet decoded.
+	 * 
+	 * @return {@code true} if the mapped window contains all remaining bytes of the file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private boolean mapNextWindow() throws IOException {
+		if (window != null) {
+			windowStart += window.position();
+		}
+		long end = getEnd();
+		long size = Math.max(0, Math.min(end - windowStart, mappingSize));
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+		return windowStart + size >= end;
+	}
+
+
+	private CharBuffer wrap(char[] cbuf, int off, int len) {
+		if (cbuf != wrappedArray) {  // Reuse the buffer, since the same array is usually passed again (e.g. the peek buffer of PeekReader).
+			wrappedArray = cbuf;
+			wrappedBuffer = CharBuffer.wrap(cbuf);
+		}
+		wrappedBuffer.limit(off + len);
+		wrappedBuffer.position(off);
+		return wrappedBuffer;
+	}
+
+
+	/**
+	 * Decodes characters directly from the mapped file into the specified array. This method tries to fill the
+	 * whole specified range unless the end of the file is reached.
+	 * 
+	 * @param cbuf the destination buffer
+	 * @param off the offset at which to start storing characters
+	 * @param len the maximum number of characters to read
+	 * @return the number of characters that have been read or -1 if the end of the file has been reached before
+	 * @throws IOException if an I/O exception occurs or the input cannot be decoded
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if ((off < 0) || (len < 0) || (len > cbuf.length - off)) {
+			throw new IndexOutOfBoundsException("Invalid offset (" + off + ") or length (" + len + ") for an array of length " +
+					cbuf.length + ".");
+		}
+		else if (len == 0) {
+			return 0;
+		}
+		else {
+			int charsRead = 0;
+			if (pendingChar != -1) {
+				cbuf[off] = (char)pendingChar;
+				pendingChar = -1;
+				charsRead = 1;
+			}
+
+			CharBuffer out = wrap(cbuf, off + charsRead, len - charsRead);
+			boolean lastWindow = false;
+			if (window == null) {
+				lastWindow = mapNextWindow();
+			}
+			else {
+				lastWindow = windowStart + window.limit() >= getEnd();
+			}
+
+			while (out.hasRemaining() && !endOfInputDecoded) {
+				CoderResult result = decoder.decode(window, out, lastWindow);
+				if (result.isError()) {
+					result.throwException();
+				}
+				else if (result.isOverflow()) {
+					if (out.position() == off) {  // Only one position left in cbuf, but the next character is encoded as a surrogate pair.
+						char[] pair = new char[2];
+						CharBuffer pairBuffer = CharBuffer.wrap(pair);
+						decoder.decode(window, pairBuffer, lastWindow);
+						cbuf[off] = pair[0];
+						pendingChar = pair[1];
+						out.position(off + 1);
+					}
+					break;
+				}
+				else if (lastWindow) {  // Underflow in the last window means that all bytes were decoded.
+					decoder.flush(out);
+					endOfInputDecoded = true;
+				}
+				else {
+					lastWindow = mapNextWindow();
+				}
+			}
+
+			charsRead = out.position() - off;
+			if (charsRead == 0) {
+				return -1;
+			}
+			else {
+				return charsRead;
+			}
+		}
+	}
+
+
+	/**
+	 * Closes the underlying channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+		window = null;
+	}
+}
@@ -25,7 +25,16 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -38,6 +47,78 @@ import java.util.zip.ZipFile;
 public class IOUtils {
 	public static final int EOF = -1;
 	
+	/** 
+	 * The minimal number of bytes that have to be copied before {@link IOProgressListener#ioProgress(long)} is 
+	 * called again, unless {@link #PROGRESS_TIME_INTERVAL} has passed.
+	 * 
+	 * @since 3.4.0 
+	 */
+	public static final long PROGRESS_BYTE_INTERVAL = 8 * 1024 * 1024;
+	
+	/** 
+	 * The minimal number of milliseconds that have to pass before {@link IOProgressListener#ioProgress(long)} is 
+	 * called again, unless {@link #PROGRESS_BYTE_INTERVAL} bytes have been copied.
+	 * 
+	 * @since 3.4.0 
+	 */
+	public static final long PROGRESS_TIME_INTERVAL = 100;
+	
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+	private static final ThreadLocal<byte[]> COPY_BUFFER = new ThreadLocal<byte[]>();
+	
+	
+	/**
+	 * Informs an optional progress listener in a throttled way. All methods are synchronized, so that an instance can
+	 * aggregate the progress of several threads.
+	 */
+	private static class ProgressReporter {
+		private IOProgressListener listener;
+		private long bytes = 0;
+		private long reportedBytes = 0;
+		private long reportTime;
+		
+		public ProgressReporter(IOProgressListener listener) {
+			super();
+			this.listener = listener;
+			reportTime = System.currentTimeMillis();
+			if (listener != null) {
+				listener.ioStarts();
+			}
+		}
+		
+		public synchronized void newFile(String sourceName, String destName, long size) {
+			if (listener != null) {
+				listener.newFile(sourceName, destName, size);
+			}
+		}
+		
+		public synchronized void add(long length) {
+			bytes += length;
+			if ((listener != null) && ((bytes - reportedBytes >= PROGRESS_BYTE_INTERVAL) || 
+					(System.currentTimeMillis() - reportTime >= PROGRESS_TIME_INTERVAL))) {
+				
+				report();
+			}
+		}
+		
+		private void report() {
+			if (listener != null) {
+				reportedBytes = bytes;
+				reportTime = System.currentTimeMillis();
+				listener.ioProgress(bytes);
+			}
+		}
+		
+		public synchronized void finish() {
+			if (listener != null) {
+				if (bytes > reportedBytes) {
+					report();
+				}
+				listener.ioFinished();
+			}
+		}
+	}
+	
 	
 	/**
 	 * Returns either the path to the class file of the specified class without the package path or 
@@ -129,6 +210,17 @@ public class IOUtils {
 
 	/**
 	 * Copies data from an {@link InputStream} to an {@link OutputStream}.
+	 * <p>
+	 * If both streams are instances of {@link FileInputStream} and {@link FileOutputStream} (and not of subclasses, 
+	 * which may override their read or write methods), the data is transferred between their channels using 
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which allows the operating 
+	 * system to copy without passing the data through the Java heap. Since the size of files like pipes or files in 
+	 * {@code /proc} is not known in advance, all bytes behind the reported size of the input file are copied using a 
+	 * buffer afterwards. For all other streams, a buffer which is reused by later calls on the same thread is used.
+	 * <p>
+	 * The progress listener is informed at most every {@link #PROGRESS_TIME_INTERVAL} milliseconds, unless
+	 * {@link #PROGRESS_BYTE_INTERVAL} bytes have been copied in between, and once with the total number of bytes
+	 * at the end.
 	 * 
 	 * @param in the stream to read from
 	 * @param out the stream to write to
@@ -139,47 +231,82 @@ public class IOUtils {
 	public static void copy(InputStream in, OutputStream out, boolean close, IOProgressListener progressListener) 
 	    throws IOException {
 		
-    try
-    {
-      long bytes = 0;
-      if (progressListener != null) {
-      	progressListener.ioStarts();
-      }
-      
-      byte[] buffer = new byte[0xFFFF];
-      for (int len; (len = in.read(buffer)) != -1; ) {
-      	out.write(buffer, 0, len);
-      	
-        if (progressListener != null) {
-        	bytes += len;
-        	progressListener.ioProgress(bytes);
-        }
-      }
-    }
-    finally {
-    	if (close) {
-	      if (in != null) {
-	      	in.close(); 
-	      }
-	      if (out != null) {
-	      	out.close(); 
-	      }
-    	}
-
-      if (progressListener != null) {
-      	progressListener.ioFinished();
-      }
-    }
-  }
+		ProgressReporter reporter = new ProgressReporter(progressListener);
+		try {
+			if ((in.getClass() == FileInputStream.class) && (out.getClass() == FileOutputStream.class)) {
+				FileChannel inChannel = ((FileInputStream)in).getChannel();
+				if (inChannel.size() > 0) {  // Pipes or files in /proc report a size of 0.
+					transfer(inChannel, ((FileOutputStream)out).getChannel(), reporter);
+				}
+			}
+			copyWithBuffer(in, out, reporter);  // Copies the remaining bytes, if the size of the file was not known or has changed.
+		}
+		finally {
+			if (close) {
+				if (in != null) {
+					in.close(); 
+				}
+				if (out != null) {
+					out.close(); 
+				}
+			}
+			reporter.finish();
+		}
+	}
 	
 	
 	/**
-	 * Copies a file.
+	 * Copies all remaining bytes of {@code in} to {@code out} using the buffer of the current thread.
+	 */
+	private static void copyWithBuffer(InputStream in, OutputStream out, ProgressReporter reporter) throws IOException {
+		byte[] buffer = COPY_BUFFER.get();
+		if (buffer == null) {
+			buffer = new byte[COPY_BUFFER_SIZE];
+		}
+		else {
+			COPY_BUFFER.set(null);  // Avoid sharing the buffer with nested calls from a progress listener.
+		}
+		
+		try {
+			for (int len; (len = in.read(buffer)) != -1; ) {
+				out.write(buffer, 0, len);
+				reporter.add(len);
+			}
+		}
+		finally {
+			COPY_BUFFER.set(buffer);
+		}
+	}
+	
+	
+	/**
+	 * Transfers the remaining bytes of {@code in} up to its current size to {@code out} in portions of 
+	 * {@link #PROGRESS_BYTE_INTERVAL} bytes.
+	 */
+	private static void transfer(FileChannel in, FileChannel out, ProgressReporter reporter) throws IOException {
+		long position = in.position();
+		long size = in.size();
+		while (position < size) {
+			long length = in.transferTo(position, Math.min(size - position, PROGRESS_BYTE_INTERVAL), out);
+			if (length == 0) {  // The file was truncated in the meantime.
+				break;
+			}
+			position += length;
+			reporter.add(length);
+		}
+		in.position(position);
+	}
+	
+	
+	/**
+	 * Copies a file. The data is transferred between the channels of both files, which allows the operating system
+	 * to copy without passing the data through the Java heap.
 	 * 
 	 * @param src - the source file
 	 * @param dest - the destination file
 	 * @param progressListener - the progress listener which is informed about the ongoing progress
 	 * @throws IOException if an I/O error occurs
+	 * @see #copy(InputStream, OutputStream, boolean, IOProgressListener)
 	 */
 	public static void copy(File src, File dest, IOProgressListener progressListener) 
 	    throws IOException {
@@ -342,6 +469,150 @@ public class IOUtils {
 	}
 	
 	
+	/**
+	 * Extracts the contents of a directory from an archive (e.g. ZIP or JAR) using several threads.
+	 * <p>
+	 * The matching entries and their overall size are determined in a single pass over the entries of the archive and 
+	 * all necessary directories are created before the extraction starts. The files are then extracted concurrently
+	 * by a pool of {@code threadCount} threads. 
+	 * <p>
+	 * In contrast to {@link #extractDir(ZipFile, String, String, IOProgressListener)}, the progress listener is 
+	 * informed about the progress of the whole operation: {@link IOProgressListener#ioStarts()} and 
+	 * {@link IOProgressListener#ioFinished()} are called only once and {@link IOProgressListener#ioProgress(long)} 
+	 * receives the number of bytes extracted from all files until yet. {@link IOProgressListener#newFile(String, String, long)} 
+	 * is called before each file is extracted. All calls of the listener are synchronized, but may come from 
+	 * different threads.
+	 * <p>
+	 * If the extraction of a file fails, no further files are extracted and this method waits until the files that are 
+	 * currently extracted by other threads are complete before {@link IOProgressListener#ioFinished()} is called and 
+	 * the exception is rethrown. The listener is therefore not called anymore after this method returned or threw an 
+	 * exception.
+	 * 
+	 * @param file the source archive file
+	 * @param sourcePath the path of the source directory inside the archive (must not start with a "/")
+	 * @param destPath the path of the destination directory where the extracted files should be stored
+	 * @param progressListener the progress listener which is informed about the ongoing progress (Can be {@code null}.)
+	 * @param threadCount the maximum number of files to be extracted concurrently
+	 * @return the sum of the uncompressed sizes of all extracted files as specified in the archive (which is the 
+	 *         value {@link #dirSize(ZipFile, String)} would return)
+	 * @throws IOException if an I/O error occurs or an entry would be extracted outside the destination directory
+	 * @throws IllegalArgumentException if {@code threadCount} is lower than 1
+	 * @since 3.4.0
+	 */
+	public static long extractDir(ZipFile file, String sourcePath, String destPath, IOProgressListener progressListener,
+			int threadCount) throws IOException {
+		
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("At least one thread is necessary.");
+		}
+		
+		File destDir = new File(destPath).getCanonicalFile();
+		String destDirPath = destDir.getPath() + File.separator;
+		List<ZipEntry> entries = new ArrayList<ZipEntry>();
+		List<File> destFiles = new ArrayList<File>();
+		TreeSet<File> directories = new TreeSet<File>();
+		long size = 0;
+		
+		Enumeration<? extends ZipEntry> enumeration = file.entries();
+		while (enumeration.hasMoreElements()) {
+			ZipEntry entry = enumeration.nextElement();
+			if (entry.getName().startsWith(sourcePath) && !entry.isDirectory()) {
+				File dest = new File(destDir, entry.getName().substring(sourcePath.length())).getCanonicalFile();
+				if (!dest.getPath().startsWith(destDirPath)) {
+					throw new IOException("The archive entry \"" + entry.getName() + 
+							"\" would be extracted outside the destination directory.");
+				}
+				entries.add(entry);
+				destFiles.add(dest);
+				directories.add(dest.getParentFile());
+				if (entry.getSize() > 0) {
+					size += entry.getSize();
+				}
+			}
+		}
+		
+		for (File directory : directories) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("The directory \"" + directory.getAbsolutePath() + "\" could not be created.");
+			}
+		}
+		
+		final ProgressReporter reporter = new ProgressReporter(progressListener);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, Math.max(1, entries.size())));
+		List<Future<?>> futures = new ArrayList<Future<?>>(entries.size());
+		try {
+			for (int i = 0; i < entries.size(); i++) {
+				final ZipEntry entry = entries.get(i);
+				final File dest = destFiles.get(i);
+				futures.add(executor.submit(() -> {
+					reporter.newFile(entry.getName(), dest.getAbsolutePath(), entry.getSize());
+					InputStream in = file.getInputStream(entry);
+					try {
+						OutputStream out = new FileOutputStream(dest);
+						try {
+							copyWithBuffer(in, out, reporter);
+						}
+						finally {
+							out.close();
+						}
+					}
+					finally {
+						in.close();
+					}
+					return null;
+				}));
+			}
+			
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while extracting files.", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			else {
+				throw new IOException(e.getCause());
+			}
+		}
+		finally {
+			for (Future<?> future : futures) {
+				future.cancel(true);  // Tasks that did not start yet will not be executed anymore.
+			}
+			executor.shutdownNow();
+			awaitTermination(executor);  // Running tasks must not inform the listener anymore after finish() was called.
+			reporter.finish();
+		}
+		return size;
+	}
+	
+	
+	/**
+	 * Waits until all tasks of the specified executor have terminated. If the current thread is interrupted while
+	 * waiting, its interrupted status is restored after all tasks have terminated.
+	 * 
+	 * @param executor the executor that has already been shut down
+	 */
+	private static void awaitTermination(ExecutorService executor) {
+		boolean interrupted = Thread.interrupted();
+		while (!executor.isTerminated()) {
+			try {
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	
 	/**
 	 * Calculates the overall uncompressed size of all files included in the specified directory of
 	 * an archive.
@@ -0,0 +1,301 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+
+
+/**
+ * Provides read access to a region of a file (e.g. a document embedded in a container file) as a
+ * {@link ReadableByteChannel}.
+ * <p>
+ * In contrast to {@link LimitedInputStream}, this class reads directly from a {@link FileChannel} using positional reads.
+ * The position of the underlying channel is therefore never changed and several instances can read different regions of
+ * the same channel concurrently. The region can be transferred to another channel without passing the data through the
+ * Java heap using {@link #transferTo(WritableByteChannel)} or mapped into memory using {@link #map()}.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * @see LimitedInputStream
+ */
+public class LimitedFileChannel implements ReadableByteChannel {
+	private static final int TRANSFER_BUFFER_SIZE = 8192;
+	
+	private FileChannel channel;
+	private long start;
+	private long length;
+	private long position = 0;
+	private boolean open = true;
+	private boolean allowClose = true;
+
+
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param channel the channel of the file containing the region
+	 * @param start the byte offset of the first byte of the region in the file
+	 * @param length the number of bytes of the region (If the file ends before, the region ends with the file.)
+	 * @throws IllegalArgumentException if {@code start} or {@code length} are lower than 0
+	 */
+	public LimitedFileChannel(FileChannel channel, long start, long length) {
+		super();
+		if (channel == null) {
+			throw new NullPointerException("The channel must not be null.");
+		}
+		else if (start < 0) {
+			throw new IllegalArgumentException("The start offset must not be lower than 0, but was " + start + ".");
+		}
+		else if (length < 0) {
+			throw new IllegalArgumentException("The length must not be lower than 0, but was " + length + ".");
+		}
+		else {
+			this.channel = channel;
+			this.start = start;
+			this.length = length;
+		}
+	}
+
+
+	/**
+	 * Returns the byte offset of the region in the file.
+	 * 
+	 * @return the offset of the first byte of the region
+	 */
+	public long getStart() {
+		return start;
+	}
+
+
+	/**
+	 * Returns the length of the region specified in the constructor.
+	 * 
+	 * @return the maximum number of bytes that can be read from this channel
+	 */
+	public long getLength() {
+		return length;
+	}
+
+
+	/**
+	 * Returns the number of bytes that have been read from this channel.
+	 * 
+	 * @return the current position relative to the start of the region
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+
+	/**
+	 * Moves the current position of this channel. The position of the underlying channel remains unchanged.
+	 * 
+	 * @param position the new position relative to the start of the region
+	 * @throws IllegalArgumentException if {@code position} is lower than 0 or greater than the length of the region
+	 */
+	public void setPosition(long position) {
+		if ((position < 0) || (position > length)) {
+			throw new IllegalArgumentException("The position " + position + " is outside the region.");
+		}
+		else {
+			this.position = position;
+		}
+	}
+
+
+	/**
+	 * Returns the number of bytes between the current position and the end of the region.
+	 * 
+	 * @return the number of remaining bytes (Note that the file may end before.)
+	 */
+	public long remaining() {
+		return length - position;
+	}
+
+
+	private void checkOpen() throws ClosedChannelException {
+		if (!isOpen()) {
+			throw new ClosedChannelException();
+		}
+	}
+
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		checkOpen();
+		if (remaining() == 0) {
+			return -1;
+		}
+		else {
+			int result;
+			if (dst.remaining() > remaining()) {
+				ByteBuffer limited = dst.duplicate();
+				limited.limit(limited.position() + (int)remaining());  // Cast is possible, since remaining() is lower than an int value here.
+				result = channel.read(limited, start + position);
+				if (result > 0) {
+					dst.position(dst.position() + result);
+				}
+			}
+			else {
+				result = channel.read(dst, start + position);
+			}
+
+			if (result > 0) {
+				position += result;
+			}
+			return result;
+		}
+	}
+
+
+	/**
+	 * Transfers all remaining bytes of the region to the specified channel using
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which allows the operating system to copy without
+	 * passing the data through the Java heap.
+	 * <p>
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)} only transfers bytes that are contained in the file
+	 * according to {@link FileChannel#size()}. All bytes of the region behind that (e.g. of files in {@code /proc}, 
+	 * which report a size of 0, or of files that grow during the transfer) are copied using positional reads afterwards.
+	 * 
+	 * @param target the channel to write the bytes to
+	 * @return the number of bytes that have been transferred
+	 * @throws IOException if an I/O error occurs while reading or writing
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		checkOpen();
+		long result = 0;
+		long end = Math.min(length, Math.max(0, channel.size() - start));
+		while (position < end) {
+			long count = channel.transferTo(start + position, end - position, target);
+			if (count == 0) {  // The file was truncated in the meantime.
+				break;
+			}
+			position += count;
+			result += count;
+		}
+		
+		ByteBuffer buffer = null;
+		while (remaining() > 0) {  // Copy bytes not covered by the size of the file.
+			if (buffer == null) {
+				buffer = ByteBuffer.allocate((int)Math.min(TRANSFER_BUFFER_SIZE, remaining()));  // Cast is possible, since the value is not greater than TRANSFER_BUFFER_SIZE.
+			}
+			buffer.clear();
+			int count = read(buffer);
+			if (count == -1) {
+				break;
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				target.write(buffer);
+			}
+			result += count;
+		}
+		return result;
+	}
+
+
+	/**
+	 * Maps the whole region into memory. The position of this channel is not changed.
+	 * <p>
+	 * Only the part of the region that is contained in the file according to {@link FileChannel#size()} is mapped. 
+	 * Files that report no or a wrong size (e.g. files in {@code /proc} or named pipes) cannot be mapped and an empty
+	 * or truncated buffer is returned for them. Use {@link #read(ByteBuffer)} or {@link #transferTo(WritableByteChannel)}
+	 * to access such files.
+	 * 
+	 * @return a read only buffer containing the bytes of the region (or the bytes until the end of the file, if it ends
+	 *         before the region)
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if the region is larger than {@link Integer#MAX_VALUE} bytes
+	 */
+	public MappedByteBuffer map() throws IOException {
+		checkOpen();
+		long size = Math.min(length, Math.max(0, channel.size() - start));
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Regions larger than " + Integer.MAX_VALUE + " bytes cannot be mapped.");
+		}
+		else {
+			return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		}
+	}
+
+
+	/**
+	 * Returns an input stream reading from this channel. (Note that closing the stream will also close this channel.)
+	 * 
+	 * @return a new input stream
+	 */
+	public InputStream newInputStream() {
+		return Channels.newInputStream(this);
+	}
+
+
+	@Override
+	public boolean isOpen() {
+		return open && channel.isOpen();
+	}
+
+
+	/**
+	 * Determines whether closing this channel is currently allowed. If not, calls of {@link #close()} will throw
+	 * a {@link ClosingNotAllowedException}.
+	 * 
+	 * @return {@code true}, if closing this channel is currently allowed or {@code false} if it will be prevented
+	 */
+	public boolean isAllowClose() {
+		return allowClose;
+	}
+
+
+	/**
+	 * Allows to specify whether closing this channel is currently allowed. If not, calls of {@link #close()} will throw
+	 * a {@link ClosingNotAllowedException}.
+	 * 
+	 * @param allowClose Specify {@code true} here, if closing shall be allowed from now on or {@code false} if it shall
+	 *        be prevented.
+	 */
+	public void setAllowClose(boolean allowClose) {
+		this.allowClose = allowClose;
+	}
+
+
+	/**
+	 * Closes this channel, if that is currently allowed. The underlying file channel is not closed, since it may be shared
+	 * with other instances.
+	 * 
+	 * @throws ClosingNotAllowedException if {@link #isAllowClose()} currently returns {@code false}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (allowClose) {
+			open = false;
+		}
+		else {
+			throw new ClosingNotAllowedException();
+		}
+	}
+}
@@ -20,8 +20,12 @@ package info.bioinfweb.commons.io;
 
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 
 
@@ -32,6 +36,11 @@ import java.io.InputStream;
  * The focus of this class is to make sure that not more characters than specified can be read from the underlying reader. It can 
  * e.g. be used to ensure that reading beyond the read ahead limit of a call of {@link #mark(int)} is not possible.
  * 
+ * <p>
+ * Bulk reads, skipping and {@link #transferTo(OutputStream)} are directly delegated to the decorated stream with a
+ * length clamped to the limit. If the limited region of a file shall be read, {@link LimitedFileChannel} can be used
+ * alternatively, which does not need an input stream.
+ * 
  * @author Ben St&ouml;ver
  * @since 2.0.0
  * @see LimitedReader
@@ -163,6 +172,83 @@ public class LimitedInputStream extends InputStream {
 	}
 	
 
+	/**
+	 * Reads up to {@code len} bytes from the decorated stream with a single call of its bulk read method. Less bytes are
+	 * read, if the limit of this stream would otherwise be exceeded.
+	 * 
+	 * @return the number of bytes read or -1 if either the end of the decorated stream or the limit specified to this stream
+	 *         have been reached
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if ((off < 0) || (len < 0) || (len > b.length - off)) {
+			throw new IndexOutOfBoundsException();
+		}
+		else if (len == 0) {
+			return 0;
+		}
+		else if (isLimitReached()) {
+			return -1;
+		}
+		else {
+			int result = decoratedStream.read(b, off, (int)Math.min(len, availableCharacters()));  // The minimum can always be cast to int.
+			if (result > 0) {
+				position += result;
+			}
+			return result;
+		}
+	}
+	
+	
+	/**
+	 * Writes all remaining bytes until the limit or the end of the decorated stream to the specified output stream.
+	 * <p>
+	 * If the decorated stream is a {@link FileInputStream} and {@code out} is a {@link FileOutputStream} (and not 
+	 * instances of subclasses, which may override their read or write methods), the bytes are transferred between the 
+	 * channels of both streams using 
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which allows the operating system to 
+	 * copy without passing the data through the Java heap. (Note that the current position of a {@link FileInputStream} is 
+	 * always the position of its channel.) Since the size of files like pipes or files in {@code /proc} is not known in 
+	 * advance, all bytes behind the reported size of the file are copied using a buffer afterwards.
+	 * 
+	 * @param out the stream to write the bytes to
+	 * @return the number of bytes that have been transferred
+	 * @throws IOException if an I/O error occurs while reading or writing
+	 * @since 3.4.0
+	 */
+	public long transferTo(OutputStream out) throws IOException {
+		long result = 0;
+		if ((decoratedStream.getClass() == FileInputStream.class) && (out.getClass() == FileOutputStream.class) && 
+				(((FileInputStream)decoratedStream).getChannel().size() > 0)) {  // Pipes or files in /proc report a size of 0.
+			
+			FileChannel inChannel = ((FileInputStream)decoratedStream).getChannel();
+			FileChannel outChannel = ((FileOutputStream)out).getChannel();
+			long start = inChannel.position();
+			long length = Math.min(availableCharacters(), Math.max(0, inChannel.size() - start));
+			while (result < length) {
+				long count = inChannel.transferTo(start + result, length - result, outChannel);
+				if (count == 0) {  // The file was truncated in the meantime.
+					break;
+				}
+				result += count;
+			}
+			inChannel.position(start + result);
+			position += result;
+		}
+		
+		if (availableCharacters() > 0) {  // Copy bytes that were not covered by the size of the file.
+			byte[] buffer = new byte[(int)Math.min(8 * 1024, availableCharacters())];
+			int count = read(buffer, 0, buffer.length);
+			while (count != -1) {
+				out.write(buffer, 0, count);
+				result += count;
+				count = read(buffer, 0, buffer.length);
+			}
+		}
+		return result;
+	}
+	
+
 	@Override
 	public boolean markSupported() {
 		return decoratedStream.markSupported();
@@ -22,6 +22,7 @@ package info.bioinfweb.commons.io;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.Writer;
 
 
 
@@ -149,10 +150,34 @@ public class LimitedReader extends Reader {
 		else {
 			length = (int)Math.min(length, availableCharacters());  // The minimum will always be lower than Integer.MIN_VALUE.
 			int result = decoratedReader.read(buffer, offset, length);
-			position += result;
+			if (result > 0) {
+				position += result;
+			}
 			return result;
 		}
 	}
+	
+	
+	/**
+	 * Writes all remaining characters until the limit or the end of the decorated reader to the specified writer. The 
+	 * characters are read from the decorated reader in bulk.
+	 * 
+	 * @param out the writer to write the characters to
+	 * @return the number of characters that have been transferred
+	 * @throws IOException if an I/O error occurs while reading or writing
+	 * @since 3.4.0
+	 */
+	public long transferTo(Writer out) throws IOException {
+		long result = 0;
+		char[] buffer = new char[(int)Math.min(8 * 1024, Math.max(1, availableCharacters()))];
+		int count = read(buffer, 0, buffer.length);
+		while (count != -1) {
+			out.write(buffer, 0, count);
+			result += count;
+			count = read(buffer, 0, buffer.length);
+		}
+		return result;
+	}
 
 
 	@Override
@@ -0,0 +1,459 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import info.bioinfweb.commons.collections.PackedIntegerArrayList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+
+
+/**
+ * Index of the positions of the lines of a text file, which allows to position a {@link PeekReader} at any line or
+ * character offset of the file without reading it from its beginning.
+ * <p>
+ * The index is created in a single pass over the file. It stores the byte and character offset of the start of every
+ * <i>n</i>-th line (where <i>n</i> is the interval specified on creation) in instances of
+ * {@link PackedIntegerArrayList}, which only use as many bits per entry as are needed to represent the file size.
+ * To position a reader on a line between two entries, the reader is positioned at the previous entry and the
+ * remaining lines are read. Larger intervals therefore lead to smaller indices but to slower positioning.
+ * <p>
+ * Line breaks are recognized in the same way as by {@link PeekReader} ({@code '\n'}, {@code '\r'} or
+ * {@code '\r\n'}), so lines and character offsets of the index are consistent with the locations provided by a
+ * reader. The readers to be positioned must use a {@link FileChannelReader} with the same character set as their
+ * underlying reader (see {@link #createReader(File)}).
+ * <p>
+ * Indices can be stored in a file (e.g. next to the indexed file, see {@link #loadOrCreate(File, Charset)}).
+ * The size and modification time of the indexed file are stored in the index to detect outdated indices.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class LineIndex {
+	/** The default number of lines between two entries of the index. */
+	public static final int DEFAULT_INTERVAL = 16;
+
+	/** The extension that is appended to the name of an indexed file to determine the name of its index file. */
+	public static final String INDEX_FILE_EXTENSION = ".lineindex";
+
+	private static final int FORMAT_ID = 0x4C494458;  // "LIDX"
+	private static final int FORMAT_VERSION = 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+
+	private Charset charset;
+	private int interval;
+	private long fileSize;
+	private long lastModified;
+	private long lineCount = 1;
+	private long characterCount = 0;
+	private PackedIntegerArrayList byteOffsets;
+	private PackedIntegerArrayList characterOffsets;
+
+
+	private LineIndex(Charset charset, int interval, long fileSize, long lastModified, long entryCount) {
+		super();
+		this.charset = charset;
+		this.interval = interval;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		int bitsPerValue = Math.max(1, Long.SIZE - Long.numberOfLeadingZeros(fileSize));  // Character offsets are never greater than byte offsets.
+		byteOffsets = new PackedIntegerArrayList(bitsPerValue, 0, entryCount);
+		characterOffsets = new PackedIntegerArrayList(bitsPerValue, 0, entryCount);
+	}
+
+
+	/**
+	 * Creates a new index by reading the specified file.
+	 * 
+	 * @param file the text file to be indexed
+	 * @param charset the character set used to decode the file
+	 * @param interval the number of lines between two entries of the index
+	 * @return the new index
+	 * @throws IOException if an I/O error occurs while reading the file
+	 * @throws IllegalArgumentException if {@code interval} is lower than 1
+	 */
+	public static LineIndex create(File file, Charset charset, int interval) throws IOException {
+		return create(file, charset, interval, BUFFER_SIZE);
+	}
+
+
+	/**
+	 * Implementation of {@link #create(File, Charset, int)} that allows to specify the size of the buffer used to
+	 * read the file. (This method is package visible for testing buffer boundaries.)
+	 */
+	static LineIndex create(File file, Charset charset, int interval, int bufferSize) throws IOException {
+		if (interval < 1) {
+			throw new IllegalArgumentException("The interval must be at least 1, but was " + interval + ".");
+		}
+
+		long lastModified = file.lastModified();  // Determined before reading to detect modifications during reading later on.
+		FileChannelReader reader = new FileChannelReader(file, charset);
+		try {
+			long fileSize = file.length();
+			LineIndex result = new LineIndex(charset, interval, fileSize, lastModified,
+					Math.max(16, fileSize / (64l * interval)));  // Estimate assuming an average line length of 64 bytes.
+			result.addEntry(0, 0);
+
+			char[] buffer = new char[bufferSize];
+			long lineNumber = 0;
+			long characterOffset = 0;
+			boolean pendingCarriageReturn = false;  // Determines whether the previous buffer ended with a '\r'.
+			long bufferByteOffset = reader.getByteOffset();
+			int charsRead = reader.read(buffer, 0, buffer.length);
+			while (charsRead != -1) {
+				long byteOffset = bufferByteOffset;  // The byte offset of the character at measuredPos
+				int measuredPos = 0;
+
+				if (pendingCarriageReturn && (buffer[0] != '\n')) {  // The previous line ended with '\r' at the end of the last buffer.
+					lineNumber++;
+					if (lineNumber % interval == 0) {
+						result.addEntry(byteOffset, characterOffset);
+					}
+				}
+				pendingCarriageReturn = false;
+
+				for (int pos = 0; pos < charsRead; pos++) {
+					char c = buffer[pos];
+					if (c <= '\r') {  // Single comparison for all characters that cannot be line separators.
+						boolean lineEnd = false;
+						if (c == '\n') {
+							lineEnd = true;
+						}
+						else if (c == '\r') {
+							if (pos + 1 == charsRead) {
+								pendingCarriageReturn = true;  // Decided with the next buffer.
+							}
+							else {
+								lineEnd = (buffer[pos + 1] != '\n');
+							}
+						}
+
+						if (lineEnd) {
+							lineNumber++;
+							if (lineNumber % interval == 0) {
+								byteOffset += reader.getEncodedLength(buffer, measuredPos, pos + 1 - measuredPos);
+								measuredPos = pos + 1;
+								result.addEntry(byteOffset, characterOffset + pos + 1);
+							}
+						}
+					}
+				}
+
+				characterOffset += charsRead;
+				bufferByteOffset = reader.getByteOffset();
+				charsRead = reader.read(buffer, 0, buffer.length);
+			}
+
+			if (pendingCarriageReturn) {  // The file ends with '\r'.
+				lineNumber++;
+				if (lineNumber % interval == 0) {
+					result.addEntry(bufferByteOffset, characterOffset);
+				}
+			}
+			result.lineCount = lineNumber + 1;
+			result.characterCount = characterOffset;
+			return result;
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	/**
+	 * Creates a new index by reading the specified file using {@link #DEFAULT_INTERVAL}.
+	 * 
+	 * @param file the text file to be indexed
+	 * @param charset the character set used to decode the file
+	 * @return the new index
+	 * @throws IOException if an I/O error occurs while reading the file
+	 */
+	public static LineIndex create(File file, Charset charset) throws IOException {
+		return create(file, charset, DEFAULT_INTERVAL);
+	}
+
+
+	private void addEntry(long byteOffset, long characterOffset) {
+		byteOffsets.add(byteOffset);
+		characterOffsets.add(characterOffset);
+	}
+
+
+	/**
+	 * Returns the file the index of the specified file is stored in by {@link #loadOrCreate(File, Charset)}.
+	 * 
+	 * @param file the indexed file
+	 * @return a file in the same directory with {@link #INDEX_FILE_EXTENSION} appended to the name of {@code file}
+	 */
+	public static File getIndexFile(File file) {
+		return new File(file.getPath() + INDEX_FILE_EXTENSION);
+	}
+
+
+	/**
+	 * Loads the index of the specified file from its index file (see {@link #getIndexFile(File)}), if it exists
+	 * and is up to date. Otherwise a new index is created and stored in the index file. If the index file cannot
+	 * be written (e.g. because the directory is write protected), the new index is only returned.
+	 * 
+	 * @param file the text file to be indexed
+	 * @param charset the character set used to decode the file
+	 * @return the loaded or new index
+	 * @throws IOException if an I/O error occurs while reading {@code file}
+	 */
+	public static LineIndex loadOrCreate(File file, Charset charset) throws IOException {
+		File indexFile = getIndexFile(file);
+		if (indexFile.isFile()) {
+			try {
+				LineIndex result = load(indexFile);
+				if (result.getCharset().equals(charset) && result.isUpToDate(file)) {
+					return result;
+				}
+			}
+			catch (IOException e) {}  // Invalid index files are replaced.
+		}
+
+		LineIndex result = create(file, charset);
+		try {
+			result.save(indexFile);
+		}
+		catch (IOException e) {}  // The index can still be used in memory.
+		return result;
+	}
+
+
+	/**
+	 * Loads an index from the specified file.
+	 * 
+	 * @param indexFile the file containing the index (previously written by {@link #save(File)})
+	 * @return the loaded index
+	 * @throws IOException if an I/O error occurs or the file does not contain a valid index
+	 */
+	public static LineIndex load(File indexFile) throws IOException {
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try {
+			if (stream.readInt() != FORMAT_ID) {
+				throw new IOException("The file \"" + indexFile.getAbsolutePath() + "\" does not contain a line index.");
+			}
+			else if (stream.readInt() != FORMAT_VERSION) {
+				throw new IOException("The line index in \"" + indexFile.getAbsolutePath() +
+						"\" has an unsupported format version.");
+			}
+
+			Charset charset = Charset.forName(stream.readUTF());
+			int interval = stream.readInt();
+			long fileSize = stream.readLong();
+			long lastModified = stream.readLong();
+			long entryCount = stream.readLong();
+			LineIndex result = new LineIndex(charset, interval, fileSize, lastModified, entryCount);
+			result.lineCount = stream.readLong();
+			result.characterCount = stream.readLong();
+			for (long i = 0; i < entryCount; i++) {
+				result.addEntry(stream.readLong(), stream.readLong());
+			}
+			return result;
+		}
+		catch (IllegalArgumentException e) {  // Thrown by Charset.forName() or PackedIntegerArrayList.
+			throw new IOException("The file \"" + indexFile.getAbsolutePath() + "\" contains an invalid line index.", e);
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+
+	/**
+	 * Writes this index to the specified file.
+	 * 
+	 * @param indexFile the file to write the index to
+	 * @throws IOException if an I/O error occurs while writing
+	 */
+	public void save(File indexFile) throws IOException {
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		try {
+			stream.writeInt(FORMAT_ID);
+			stream.writeInt(FORMAT_VERSION);
+			stream.writeUTF(charset.name());
+			stream.writeInt(interval);
+			stream.writeLong(fileSize);
+			stream.writeLong(lastModified);
+			stream.writeLong(getEntryCount());
+			stream.writeLong(lineCount);
+			stream.writeLong(characterCount);
+			for (long i = 0; i < getEntryCount(); i++) {
+				stream.writeLong(byteOffsets.get(i));
+				stream.writeLong(characterOffsets.get(i));
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+
+	/**
+	 * Checks whether this index still describes the specified file by comparing its current size and modification
+	 * time with the values determined when this index was created.
+	 * 
+	 * @param file the indexed file
+	 * @return {@code true} if the file seems to be unchanged or {@code false} if the index is outdated
+	 */
+	public boolean isUpToDate(File file) {
+		return (file.length() == fileSize) && (file.lastModified() == lastModified);
+	}
+
+
+	/**
+	 * Returns the character set used to decode the indexed file.
+	 * 
+	 * @return the character set
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+
+	/**
+	 * Returns the number of lines between two entries of this index.
+	 * 
+	 * @return the interval specified on creation
+	 */
+	public int getInterval() {
+		return interval;
+	}
+
+
+	/**
+	 * Returns the number of lines of the indexed file. (A line break at the end of the file is followed by an
+	 * additional empty line.)
+	 * 
+	 * @return the number of lines
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+
+	/**
+	 * Returns the number of characters in the indexed file.
+	 * 
+	 * @return the number of characters
+	 */
+	public long getCharacterCount() {
+		return characterCount;
+	}
+
+
+	/**
+	 * Returns the number of entries in this index.
+	 * 
+	 * @return the number of stored line positions
+	 */
+	public long getEntryCount() {
+		return byteOffsets.size();
+	}
+
+
+	/**
+	 * Creates a new reader for the indexed file that can be positioned by this index.
+	 * 
+	 * @param file the indexed file
+	 * @return a new reader positioned at the beginning of the file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public PeekReader createReader(File file) throws IOException {
+		return new PeekReader(new FileChannelReader(file, charset));
+	}
+
+
+	private void seekToEntry(PeekReader reader, long entryIndex) throws IOException {
+		reader.seek(byteOffsets.get(entryIndex), new StreamLocation(characterOffsets.get(entryIndex), entryIndex * interval, 0));
+	}
+
+
+	/**
+	 * Moves the specified reader to the beginning of the specified line.
+	 * 
+	 * @param reader the reader to be moved (Its underlying reader must be a {@link FileChannelReader} reading the
+	 *        indexed file with the character set of this index.)
+	 * @param lineNumber the index of the line (The first line has the index 0.)
+	 * @throws IOException if an I/O error occurs while reading from the file
+	 * @throws IndexOutOfBoundsException if {@code lineNumber} is negative or not lower than {@link #getLineCount()}
+	 * @throws UnsupportedOperationException if the underlying reader of {@code reader} is not a
+	 *         {@link FileChannelReader}
+	 */
+	public void seekLine(PeekReader reader, long lineNumber) throws IOException {
+		if ((lineNumber < 0) || (lineNumber >= lineCount)) {
+			throw new IndexOutOfBoundsException("The line " + lineNumber + " does not exist in a file with " + lineCount +
+					" lines.");
+		}
+		else {
+			long entryIndex = lineNumber / interval;
+			seekToEntry(reader, entryIndex);
+			for (long line = entryIndex * interval; line < lineNumber; line++) {
+				reader.readLine();
+			}
+		}
+	}
+
+
+	/**
+	 * Moves the specified reader to the specified character offset.
+	 * 
+	 * @param reader the reader to be moved (Its underlying reader must be a {@link FileChannelReader} reading the
+	 *        indexed file with the character set of this index.)
+	 * @param characterOffset the number of characters in front of the new reader position
+	 * @throws IOException if an I/O error occurs while reading from the file
+	 * @throws IndexOutOfBoundsException if {@code characterOffset} is negative or greater than
+	 *         {@link #getCharacterCount()}
+	 * @throws UnsupportedOperationException if the underlying reader of {@code reader} is not a
+	 *         {@link FileChannelReader}
+	 */
+	public void seekCharacterOffset(PeekReader reader, long characterOffset) throws IOException {
+		if ((characterOffset < 0) || (characterOffset > characterCount)) {
+			throw new IndexOutOfBoundsException("The character offset " + characterOffset +
+					" does not exist in a file with " + characterCount + " characters.");
+		}
+		else {
+			long low = 0;  // Binary search for the last entry not behind characterOffset
+			long high = getEntryCount() - 1;
+			while (low < high) {
+				long middle = (low + high + 1) >>> 1;
+				if (characterOffsets.get(middle) <= characterOffset) {
+					low = middle;
+				}
+				else {
+					high = middle - 1;
+				}
+			}
+
+			seekToEntry(reader, low);
+			reader.skip(characterOffset - characterOffsets.get(low));
+		}
+	}
+}
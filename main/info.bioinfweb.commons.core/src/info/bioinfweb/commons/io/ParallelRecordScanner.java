@@ -0,0 +1,540 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+
+
+/**
+ * Reads the records of a record-oriented text file (e.g. FASTA or line-based tables) in parallel.
+ * <p>
+ * The file is cut into chunks of approximately {@link #getChunkSize()} bytes. The borders of the chunks are moved
+ * forward to the next occurrence of a record delimiter (e.g. {@code "\n>"} for FASTA), so that no record is split
+ * between two chunks. Each chunk is then read by an own {@link PeekReader} on a thread pool using the specified
+ * {@link RecordParser} and the resulting records are passed to the consumer in the order of the file on the calling
+ * thread. At most {@link #getMaxPendingChunks()} chunks are processed in advance of the chunk which is currently
+ * passed to the consumer, which limits the memory needed for buffered records.
+ * <p>
+ * The readers of all chunks report globally correct locations (character offset, line and column numbers relative
+ * to the beginning of the file), so that e.g. error messages of parsers can be used unchanged. To achieve that, the
+ * number of characters and line breaks of each chunk are counted in a fast pass over the raw bytes, which also
+ * runs in parallel, before the reader of a chunk is started. Since this pass and the search for record delimiters
+ * work on the bytes of the file, only character sets which encode the line break characters and all other
+ * ASCII characters with single bytes that cannot occur inside other encoded characters are supported. This includes
+ * UTF-8 and all single byte ASCII based character sets (e.g. ISO-8859-1), but not UTF-16.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * 
+ * @param <R> the type of records read from the file
+ */
+public class ParallelRecordScanner<R> {
+	/**
+	 * Reads records from a chunk of a file.
+	 * 
+	 * @author Ben St&ouml;ver
+	 * @since 3.4.0
+	 * 
+	 * @param <R> the type of records read from the file
+	 */
+	public static interface RecordParser<R> {
+		/**
+		 * Reads the next record from the specified reader. This method is called for each chunk until the end of the
+		 * chunk is reached and must therefore consume at least one character per call. Implementations are called
+		 * from different threads at the same time and must therefore not share mutable state.
+		 * 
+		 * @param reader the reader of the chunk positioned at the first character that was not consumed by previous
+		 *        calls (Its locations are relative to the beginning of the whole file.)
+		 * @return the record that was read or {@code null} if the consumed characters did not contain a record
+		 *         (e.g. an empty line)
+		 * @throws IOException if an I/O exception occurs while reading or the record is invalid
+		 */
+		public R readRecord(PeekReader reader) throws IOException;
+	}
+
+
+	/**
+	 * Stores the numbers of characters and line breaks of a chunk.
+	 */
+	private static class ChunkStatistics {
+		public long characterCount = 0;
+		public long lineBreakCount = 0;
+		public long charactersAfterLastLineBreak = 0;
+	}
+
+
+	/** The default number of bytes of a chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+
+	private File file;
+	private Charset charset;
+	private byte[] delimiter;
+	private int splitIndex;
+	private RecordParser<R> parser;
+	private long chunkSize = DEFAULT_CHUNK_SIZE;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private int maxPendingChunks = 2 * threadCount;
+	private int peekLength = PeekReader.DEFAULT_PEEK_BUFFER_SIZE;
+	private boolean utf8;
+
+
+	/**
+	 * Creates a new instance of this class.
+	 * <p>
+	 * Chunks are split inside the first occurrence of {@code delimiter} behind the nominal chunk border, so that the
+	 * first {@code splitIndex} characters of the delimiter belong to the previous and the remaining characters belong
+	 * to the next chunk. For FASTA files {@code ("\n>", 1)} would e.g. be an appropriate combination, for line-based
+	 * tables {@code ("\n", 1)}.
+	 * 
+	 * @param file the file to be read
+	 * @param charset the character set of the file (See the class documentation for restrictions.)
+	 * @param delimiter the character sequence separating two records
+	 * @param splitIndex the index in {@code delimiter} where chunks shall be split
+	 * @param parser the parser to be used to read the records from each chunk
+	 * @throws IllegalArgumentException if {@code delimiter} is empty, {@code splitIndex} is not between 0 and the
+	 *         length of {@code delimiter} or the specified character set is not supported
+	 */
+	public ParallelRecordScanner(File file, Charset charset, String delimiter, int splitIndex, RecordParser<R> parser) {
+		super();
+		if (delimiter.isEmpty()) {
+			throw new IllegalArgumentException("The delimiter must not be empty.");
+		}
+		else if ((splitIndex < 0) || (splitIndex > delimiter.length())) {
+			throw new IllegalArgumentException("The split index " + splitIndex + " is outside the delimiter \"" + delimiter +
+					"\".");
+		}
+		else {
+			utf8 = charset.equals(StandardCharsets.UTF_8);
+			if (!utf8 && ((charset.newEncoder().maxBytesPerChar() > 1) ||
+					!Arrays.equals(new byte[]{'\r', '\n', 'A'}, "\r\nA".getBytes(charset)))) {
+
+				throw new IllegalArgumentException("The character set " + charset + " is not supported.");
+			}
+			this.file = file;
+			this.charset = charset;
+			this.delimiter = delimiter.getBytes(charset);
+			this.splitIndex = delimiter.substring(0, splitIndex).getBytes(charset).length;
+			this.parser = parser;
+		}
+	}
+
+
+	/**
+	 * Returns the approximate number of bytes of each chunk.
+	 * 
+	 * @return the nominal chunk size (Actual chunks are longer, if no delimiter is found at the nominal border.)
+	 */
+	public long getChunkSize() {
+		return chunkSize;
+	}
+
+
+	/**
+	 * Sets the approximate number of bytes of each chunk. The default value is {@link #DEFAULT_CHUNK_SIZE}.
+	 * 
+	 * @param chunkSize the new nominal chunk size
+	 * @throws IllegalArgumentException if {@code chunkSize} is lower than 1
+	 */
+	public void setChunkSize(long chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("The chunk size must be at least 1.");
+		}
+		else {
+			this.chunkSize = chunkSize;
+		}
+	}
+
+
+	/**
+	 * Returns the number of threads used to read chunks, if no executor is specified in
+	 * {@link #scan(Consumer, ExecutorService)}.
+	 * 
+	 * @return the number of threads (The default is the number of available processors.)
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+
+	/**
+	 * Sets the number of threads used to read chunks, if no executor is specified in
+	 * {@link #scan(Consumer, ExecutorService)}.
+	 * 
+	 * @param threadCount the new number of threads
+	 * @throws IllegalArgumentException if {@code threadCount} is lower than 1
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("At least one thread is necessary.");
+		}
+		else {
+			this.threadCount = threadCount;
+		}
+	}
+
+
+	/**
+	 * Returns the maximum number of chunks that are read in advance of the chunk whose records are currently passed
+	 * to the consumer.
+	 * 
+	 * @return the maximum number of pending chunks (The default is twice the number of available processors.)
+	 */
+	public int getMaxPendingChunks() {
+		return maxPendingChunks;
+	}
+
+
+	/**
+	 * Sets the maximum number of chunks that are read in advance of the chunk whose records are currently passed
+	 * to the consumer. The records of pending chunks are kept in memory.
+	 * 
+	 * @param maxPendingChunks the new maximum number of pending chunks
+	 * @throws IllegalArgumentException if {@code maxPendingChunks} is lower than 1
+	 */
+	public void setMaxPendingChunks(int maxPendingChunks) {
+		if (maxPendingChunks < 1) {
+			throw new IllegalArgumentException("At least one pending chunk is necessary.");
+		}
+		else {
+			this.maxPendingChunks = maxPendingChunks;
+		}
+	}
+
+
+	/**
+	 * Returns the peek length of the readers created for each chunk.
+	 * 
+	 * @return the peek length (The default is {@link PeekReader#DEFAULT_PEEK_BUFFER_SIZE}.)
+	 */
+	public int getPeekLength() {
+		return peekLength;
+	}
+
+
+	/**
+	 * Sets the peek length of the readers created for each chunk.
+	 * 
+	 * @param peekLength the new peek length
+	 */
+	public void setPeekLength(int peekLength) {
+		this.peekLength = peekLength;
+	}
+
+
+	/**
+	 * Determines the byte offsets of the borders of all chunks.
+	 * 
+	 * @param channel the channel of the file
+	 * @return a list containing 0, the start offsets of all following chunks and the file size
+	 * @throws IOException if an I/O error occurs while searching for delimiters
+	 */
+	List<Long> findChunkBorders(FileChannel channel) throws IOException {
+		long size = channel.size();
+		List<Long> result = new ArrayList<Long>();
+		result.add(0L);
+
+		ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 2 * delimiter.length));
+		long border = chunkSize;
+		while (border < size) {
+			long delimiterStart = findDelimiter(channel, buffer, Math.max(result.get(result.size() - 1), border - splitIndex), size);
+			if (delimiterStart == -1) {
+				break;
+			}
+			else {
+				long chunkStart = delimiterStart + splitIndex;
+				if ((chunkStart > result.get(result.size() - 1)) && (chunkStart < size)) {
+					result.add(chunkStart);
+				}
+				border = Math.max(chunkStart, border) + chunkSize;
+			}
+		}
+		result.add(size);
+		return result;
+	}
+
+
+	private long findDelimiter(FileChannel channel, ByteBuffer buffer, long start, long size) throws IOException {
+		while (start + delimiter.length <= size) {
+			buffer.clear();
+			while (buffer.hasRemaining() && (start + buffer.position() < size)) {
+				if (channel.read(buffer, start + buffer.position()) == -1) {
+					size = start + buffer.position();  // The file was shortened. The remaining data belongs to the last chunk.
+				}
+			}
+			byte[] bytes = buffer.array();
+			int end = buffer.position() - delimiter.length;
+			for (int i = 0; i <= end; i++) {
+				int j = 0;
+				while ((j < delimiter.length) && (bytes[i + j] == delimiter[j])) {
+					j++;
+				}
+				if (j == delimiter.length) {
+					return start + i;
+				}
+			}
+			start += end + 1;  // Delimiters overlapping with the end of the buffer are found in the next iteration.
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Counts the characters and line breaks of a chunk in the same way as {@link PeekReader} does. (A {@code '\r'} at
+	 * the end of a chunk is only counted as a line break, if it is not followed by {@code '\n'} in the next chunk.)
+	 */
+	private ChunkStatistics countChunk(long start, long end) throws IOException {
+		ChunkStatistics result = new ChunkStatistics();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			byte[] bytes = buffer.array();
+			boolean carriageReturn = false;
+			long pos = start;
+			while (pos < end) {
+				buffer.clear();
+				buffer.limit((int)Math.min(BUFFER_SIZE, end - pos));
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, pos + buffer.position()) == -1) {
+						throw new IOException("The file " + file.getAbsolutePath() + " was shortened while it was read.");
+					}
+				}
+				int length = buffer.position();
+				for (int i = 0; i < length; i++) {
+					byte b = bytes[i];
+					if (b == '\n') {
+						result.characterCount++;
+						result.lineBreakCount++;
+						result.charactersAfterLastLineBreak = 0;
+						carriageReturn = false;
+					}
+					else {
+						if (carriageReturn) {  // '\r' not followed by '\n'
+							result.lineBreakCount++;
+							result.charactersAfterLastLineBreak = 0;
+						}
+						carriageReturn = (b == '\r');
+						int characters = 1;
+						if (utf8) {
+							if ((b & 0xC0) == 0x80) {  // Continuation bytes are not counted.
+								characters = 0;
+							}
+							else if ((b & 0xF8) == 0xF0) {  // Characters with four bytes are decoded as surrogate pairs.
+								characters = 2;
+							}
+						}
+						result.characterCount += characters;
+						result.charactersAfterLastLineBreak += characters;
+					}
+				}
+				pos += length;
+			}
+
+			if (carriageReturn) {  // '\r' at the end of the chunk
+				ByteBuffer next = ByteBuffer.allocate(1);
+				if ((channel.read(next, end) < 1) || (next.get(0) != '\n')) {
+					result.lineBreakCount++;
+					result.charactersAfterLastLineBreak = 0;
+				}
+			}
+		}
+		finally {
+			channel.close();
+		}
+		return result;
+	}
+
+
+	private static StreamLocation addChunk(StreamLocation location, ChunkStatistics statistics) {
+		if (statistics.lineBreakCount > 0) {
+			return new StreamLocation(location.getCharacterOffset() + statistics.characterCount,
+					location.getLineNumber() + statistics.lineBreakCount, statistics.charactersAfterLastLineBreak);
+		}
+		else {
+			return new StreamLocation(location.getCharacterOffset() + statistics.characterCount,
+					location.getLineNumber(), location.getColumnNumber() + statistics.characterCount);
+		}
+	}
+
+
+	private List<R> readChunk(long start, long end, StreamLocation location) throws IOException {
+		List<R> result = new ArrayList<R>();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		channel.position(start);  // The reader starts at the current position of the channel.
+		PeekReader reader = new PeekReader(new FileChannelReader(channel, charset, FileChannelReader.DEFAULT_MAPPING_SIZE, end),
+				peekLength);
+		try {
+			reader.setLocation(location);
+			while (reader.peek() != -1) {
+				long offset = reader.getCharacterOffset();
+				R record = parser.readRecord(reader);
+				if (record != null) {
+					result.add(record);
+				}
+				if (offset == reader.getCharacterOffset()) {
+					throw new IllegalStateException("The record parser did not consume any characters at " +
+							new StreamLocation(reader) + ".");
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return result;
+	}
+
+
+	/**
+	 * Reads all records from the file using a new thread pool with {@link #getThreadCount()} threads, which is
+	 * shut down afterwards.
+	 * 
+	 * @param consumer the consumer to be called with all records in the order of the file
+	 * @throws IOException if an I/O error occurs or the parser throws an exception
+	 */
+	public void scan(Consumer<? super R> consumer) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+					Thread result = new Thread(runnable, ParallelRecordScanner.class.getSimpleName());
+					result.setDaemon(true);
+					return result;
+				});
+		try {
+			scan(consumer, executor);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * Reads all records from the file using the specified executor. The consumer is always called on the calling
+	 * thread.
+	 * 
+	 * @param consumer the consumer to be called with all records in the order of the file
+	 * @param executor the executor to read chunks with (It will not be shut down by this method.)
+	 * @throws IOException if an I/O error occurs or the parser throws an exception
+	 */
+	public void scan(Consumer<? super R> consumer, ExecutorService executor) throws IOException {
+		List<Long> borders;
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			borders = findChunkBorders(channel);
+		}
+		finally {
+			channel.close();
+		}
+
+		Deque<CompletableFuture<List<R>>> pendingChunks = new ArrayDeque<CompletableFuture<List<R>>>(maxPendingChunks);
+		CompletableFuture<StreamLocation> location = CompletableFuture.completedFuture(new StreamLocation(0, 0, 0));
+		int nextChunk = 0;
+		try {
+			while (!pendingChunks.isEmpty() || (nextChunk < borders.size() - 1)) {
+				while ((pendingChunks.size() < maxPendingChunks) && (nextChunk < borders.size() - 1)) {
+					final long start = borders.get(nextChunk);
+					final long end = borders.get(nextChunk + 1);
+					pendingChunks.add(location.thenApplyAsync(chunkLocation -> {
+								try {
+									return readChunk(start, end, chunkLocation);
+								}
+								catch (IOException e) {
+									throw new UncheckedIOException(e);
+								}
+							}, executor));
+					location = location.thenCombine(CompletableFuture.supplyAsync(() -> {
+								try {
+									return countChunk(start, end);
+								}
+								catch (IOException e) {
+									throw new UncheckedIOException(e);
+								}
+							}, executor), ParallelRecordScanner::addChunk);
+					nextChunk++;
+				}
+
+				List<R> records = pendingChunks.poll().get();
+				for (R record : records) {
+					consumer.accept(record);
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the records of a chunk.", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CompletionException) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException)cause).getCause();
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			else {
+				throw new IOException(cause);
+			}
+		}
+		finally {
+			for (CompletableFuture<List<R>> future : pendingChunks) {
+				future.cancel(true);
+			}
+		}
+	}
+
+
+	/**
+	 * Reads all records from the file and returns them in a list.
+	 * 
+	 * @return an unmodifiable list of all records in the order of the file
+	 * @throws IOException if an I/O error occurs or the parser throws an exception
+	 */
+	public List<R> readAll() throws IOException {
+		List<R> result = new ArrayList<R>();
+		scan(result::add);
+		return Collections.unmodifiableList(result);
+	}
+}
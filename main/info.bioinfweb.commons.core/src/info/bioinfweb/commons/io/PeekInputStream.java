@@ -0,0 +1,710 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+
+/**
+ * Input stream implementation that allows to peek upcoming bytes from the underlying stream. It is the byte based
+ * counterpart of {@link PeekReader} and uses the same design: A specified number of bytes is precached in a ring
+ * buffer, which is refilled by bulk read operations directly from the underlying stream.
+ * <p>
+ * Except for the creation of the result buffer of {@link #readUntil(int, PeekReader.TerminatorSet)} (which only
+ * grows if a longer sequence is read), no objects are created by the read and peek operations of this class.
+ * <p>
+ * As a {@link StreamLocationProvider}, instances of this class provide the number of bytes read as the character
+ * offset. Line and column numbers are not tracked for binary data and are always returned as -1.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class PeekInputStream extends InputStream implements StreamLocationProvider {
+	public static final int DEFAULT_PEEK_BUFFER_SIZE = 8192;
+
+
+	/**
+	 * Stores the bytes read by {@link PeekInputStream#readUntil(int, PeekReader.TerminatorSet)}.
+	 * <p>
+	 * Each stream uses only one instance of this class, which is returned by each call of a {@code readUntil()}
+	 * method. Its contents are only valid until the next call of such a method. Callers that need to keep the result
+	 * must copy it, e.g. by calling {@link #toByteArray()}.
+	 * 
+	 * @author Ben St&ouml;ver
+	 * @since 3.4.0
+	 */
+	public static class ReadResult {
+		private byte[] bytes = new byte[64];
+		private int length = 0;
+		private boolean completelyRead = false;
+
+
+		private ReadResult() {
+			super();
+		}
+
+
+		private void append(byte[] source, int offset, int length) {
+			if (this.length + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, this.length + length));
+			}
+			System.arraycopy(source, offset, bytes, this.length, length);
+			this.length += length;
+		}
+
+
+		/**
+		 * Returns the internal buffer containing the bytes that were read. Only the first {@link #getLength()} bytes
+		 * of the returned array are defined.
+		 * 
+		 * @return the internal buffer of this instance
+		 */
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+
+		/**
+		 * Returns the number of bytes that have been read.
+		 * 
+		 * @return the number of defined bytes in {@link #getBytes()}
+		 */
+		public int getLength() {
+			return length;
+		}
+
+
+		/**
+		 * Returns a copy of the bytes that were read.
+		 * 
+		 * @return a new array with the length {@link #getLength()}
+		 */
+		public byte[] toByteArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+
+
+		/**
+		 * Allows to determine whether the specified maximum number of bytes were read or all bytes were read as
+		 * intended.
+		 * 
+		 * @return {@code true} if the result contains all bytes that should have been read or {@code false} if
+		 *         reading was aborted because the maximum number of bytes was reached
+		 */
+		public boolean isCompletelyRead() {
+			return completelyRead;
+		}
+	}
+
+
+	private InputStream underlyingStream;
+	private int peekLength;
+	private byte[] peekBuffer;
+	private int bufferStartPos = -1;
+	private int bufferContentLength = -1;
+	private boolean underlyingStreamEndReached = false;
+	private final byte[] singleByteBuffer = new byte[1];
+	private final ReadResult readResult = new ReadResult();
+	private byte[][] lastTerminationSequences = null;
+	private PeekReader.TerminatorSet lastTerminatorSet = null;
+	private final TerminatorScanner terminatorScanner = new TerminatorScanner();
+
+	private long byteOffset = 0;
+
+
+	/**
+	 * Creates a new instance of this class and fills the initial peek buffer.
+	 * 
+	 * @param underlyingStream the stream to read the data from
+	 * @param peekLength the number of bytes to keep available for peek operations in in front of the actual stream
+	 *        position
+	 * @throws IOException if an I/O exception occurs while filling the initial peek buffer
+	 */
+	public PeekInputStream(InputStream underlyingStream, int peekLength) throws IOException {
+		super();
+
+		this.underlyingStream = underlyingStream;
+		this.peekLength = peekLength;
+
+		bufferStartPos = 0;
+		bufferContentLength = 0;
+		peekBuffer = new byte[peekLength];
+		fillPeekBuffer();
+	}
+
+
+	/**
+	 * Creates a new instance of this class with the default peek buffer size ({@link #DEFAULT_PEEK_BUFFER_SIZE})
+	 * and fills the initial peek buffer.
+	 * 
+	 * @param underlyingStream the stream to read the data from
+	 * @throws IOException if an I/O exception occurs while filling the initial peek buffer
+	 */
+	public PeekInputStream(InputStream underlyingStream) throws IOException {
+		this(underlyingStream, DEFAULT_PEEK_BUFFER_SIZE);
+	}
+
+
+	/**
+	 * Creates a set of termination sequences that can be used with {@link #readUntil(int, PeekReader.TerminatorSet)}.
+	 * <p>
+	 * Each byte is represented by a character with the same unsigned value in the returned set.
+	 * 
+	 * @param sequences the byte sequences to be contained in the set
+	 * @return the new set
+	 */
+	public static PeekReader.TerminatorSet createTerminatorSet(byte[]... sequences) {
+		String[] strings = new String[sequences.length];
+		for (int i = 0; i < sequences.length; i++) {
+			strings[i] = new String(sequences[i], StandardCharsets.ISO_8859_1);
+		}
+		return new PeekReader.TerminatorSet(strings);
+	}
+
+
+	/**
+	 * Returns the number of bytes that have been read from this stream since the beginning of the underlying stream.
+	 * 
+	 * @return the number of bytes that have currently been read from this instance
+	 */
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+
+	/**
+	 * Returns the number of bytes that have been read from this stream since the beginning of the underlying stream.
+	 * 
+	 * @return the same value as {@link #getByteOffset()}
+	 */
+	@Override
+	public long getCharacterOffset() {
+		return byteOffset;
+	}
+
+
+	/**
+	 * Line numbers are not tracked by this class.
+	 * 
+	 * @return always -1
+	 */
+	@Override
+	public long getLineNumber() {
+		return -1;
+	}
+
+
+	/**
+	 * Column numbers are not tracked by this class.
+	 * 
+	 * @return always -1
+	 */
+	@Override
+	public long getColumnNumber() {
+		return -1;
+	}
+
+
+	/**
+	 * Returns the number of bytes that can be previewed in front of the current position in the stream.
+	 * <p>
+	 * The return value will be equal to the buffer size specified in the constructor unless the end of the
+	 * underlying stream is enclosed.
+	 * 
+	 * @return the number of currently buffered bytes
+	 */
+	public int getAvailablePeek() {
+		return bufferContentLength;
+	}
+
+
+	/**
+	 * Returns the number of bytes that can be read without blocking, which are the buffered bytes and the bytes
+	 * available from the underlying stream.
+	 * 
+	 * @return an estimate of the number of bytes that can be read without blocking
+	 * @throws IOException if an I/O exception occurs in the underlying stream
+	 */
+	@Override
+	public int available() throws IOException {
+		if (underlyingStreamEndReached) {
+			return bufferContentLength;
+		}
+		else {
+			return (int)Math.min(Integer.MAX_VALUE, (long)bufferContentLength + underlyingStream.available());
+		}
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		underlyingStream.close();
+	}
+
+
+	/**
+	 * Fills the free space of the peek buffer with bytes read directly from the underlying stream. After this method
+	 * returns, the buffer is completely filled, unless the end of the underlying stream was reached.
+	 * 
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 */
+	private void fillPeekBuffer() throws IOException {
+		while (!underlyingStreamEndReached && (bufferContentLength < peekLength)) {
+			int writePos = bufferStartPos + bufferContentLength;
+			if (writePos >= peekLength) {
+				writePos -= peekLength;
+			}
+			int lengthToRead;
+			if (writePos >= bufferStartPos) {  // Free space reaches until the end of the array (and possibly continues at its beginning).
+				lengthToRead = peekLength - writePos;
+			}
+			else {  // Free space lies between the end of the content and bufferStartPos.
+				lengthToRead = bufferStartPos - writePos;
+			}
+
+			int bytesRead = underlyingStream.read(peekBuffer, writePos, lengthToRead);
+			if (bytesRead == -1) {
+				underlyingStreamEndReached = true;
+			}
+			else {
+				bufferContentLength += bytesRead;
+			}
+		}
+	}
+
+
+	/**
+	 * Removes the specified number of bytes from the beginning of the peek buffer. The buffer is not refilled
+	 * by this method.
+	 * 
+	 * @param length the number of bytes to be removed (Must not be greater than {@link #bufferContentLength}.)
+	 */
+	private void removeFromPeekBuffer(int length) {
+		bufferContentLength -= length;
+		byteOffset += length;
+		if (bufferContentLength == 0) {
+			bufferStartPos = 0;  // Allows the next refill to be performed in a single read operation.
+		}
+		else {
+			bufferStartPos += length;
+			if (bufferStartPos >= peekLength) {
+				bufferStartPos -= peekLength;
+			}
+		}
+	}
+
+
+	/**
+	 * Consumes the specified number of bytes from the peek buffer, appends them to the specified result (if
+	 * provided) and refills the peek buffer.
+	 * 
+	 * @param length the number of bytes to consume (Must not be greater than {@link #getAvailablePeek()}.)
+	 * @param target the result to append the consumed bytes to or {@code null} if they shall be discarded
+	 * @throws IOException if an I/O exception occurs while refilling the peek buffer
+	 */
+	private void consume(int length, ReadResult target) throws IOException {
+		if (length > 0) {
+			if (target != null) {
+				int firstLength = Math.min(length, peekLength - bufferStartPos);
+				target.append(peekBuffer, bufferStartPos, firstLength);
+				if (firstLength < length) {
+					target.append(peekBuffer, 0, length - firstLength);
+				}
+			}
+			removeFromPeekBuffer(length);
+			fillPeekBuffer();
+		}
+	}
+
+
+	/**
+	 * Copies as many bytes from the peek buffer to the specified array as fit into it. If the array is longer than the 
+	 * current buffer content, all bytes in the buffer are copied.
+	 * 
+	 * @param buffer the array to copy the buffer contents to
+	 * @return the number of bytes that have been copied (This will never be greater than the length of {@code buffer} 
+	 *         or the current buffer content length.)
+	 */
+	public int peek(byte[] buffer) {
+		return peek(buffer, 0, buffer.length);
+	}
+
+
+	/**
+	 * Copies the specified number of positions from the peek buffer to the specified array. If more bytes are requested
+	 * than are contained in the buffer, all bytes in the buffer are copied.
+	 * 
+	 * @param buffer the array to copy the buffer contents to
+	 * @param off the target offset in {@code buffer}
+	 * @param len the maximum number of bytes that shall be copied
+	 * @return the number of bytes that have been copied (This will never be greater than {@code len} or the current
+	 *         buffer content length.)
+	 */
+	public int peek(byte[] buffer, int off, int len) {
+		int lengthToCopy = Math.min(len, bufferContentLength);
+		int firstLengthToCopy = Math.min(lengthToCopy, peekLength - bufferStartPos);  // The number of positions to be copied between bufferStartPos and the end of the buffer
+		System.arraycopy(peekBuffer, bufferStartPos, buffer, off, firstLengthToCopy);
+
+		int secondLengthToCopy = lengthToCopy - firstLengthToCopy;  // The number of positions to copy between the beginning of the buffer and bufferStartPos
+		if (secondLengthToCopy > 0) {
+			System.arraycopy(peekBuffer, 0, buffer, off + firstLengthToCopy, secondLengthToCopy);
+		}
+
+		return lengthToCopy;
+	}
+
+
+	/**
+	 * Returns the next byte of this stream without moving forward in the stream.
+	 * 
+	 * @return the next byte as an unsigned value between 0 and 255 or -1 if the end of the stream has been reached
+	 */
+	public int peek() {
+		if (bufferContentLength > 0) {
+			return peekBuffer[bufferStartPos] & 0xFF;
+		}
+		else {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Returns the byte that would be returned after {@code offset} calls of {@link #read()}.
+	 * 
+	 * @param offset the index of the byte relative to the current stream position (The byte at the current
+	 *        position (that would be returned by the next call of {@link #read()}) would have the index 0.)
+	 * @return the peeked byte
+	 * @throws IndexOutOfBoundsException if the specified index lies further away from the current stream position
+	 *         than the number of precached bytes allows
+	 * @throws EOFException if this stream already knows that the specified offset lies behind the end of the
+	 *         underlying stream. (This is only possible for offsets below the buffer size, specified in the
+	 *         constructor.)
+	 * @see #getAvailablePeek()
+	 */
+	public byte peekByte(int offset) throws IndexOutOfBoundsException, EOFException {
+		if ((offset >= 0) && (bufferContentLength > offset)) {
+			int index = bufferStartPos + offset;
+			if (index >= peekLength) {
+				index -= peekLength;
+			}
+			return peekBuffer[index];
+		}
+		else if ((offset >= 0) && (bufferContentLength < peekLength) && (peekLength > offset)) {
+			throw new EOFException("The specified offset lies behind the end of the stream.");
+		}
+		else {
+			throw new IndexOutOfBoundsException("The specified offset (" + offset + ") is outside the current buffer range.");
+		}
+	}
+
+
+	/**
+	 * Returns the byte that would be returned after {@code offset} calls of {@link #read()} as an unsigned value.
+	 * 
+	 * @param offset the index of the byte relative to the current stream position (The byte at the current
+	 *        position (that would be returned by the next call of {@link #read()}) would have the index 0.)
+	 * @return the byte at the specified offset as an unsigned value between 0 and 255 or -1 if this stream already
+	 *         knows that the specified offset lies behind the end of the underlying stream. (This is only possible for
+	 *         offsets below the buffer size, specified in the constructor.)
+	 * @throws IndexOutOfBoundsException if the specified index lies further away from the current stream position
+	 *         than the number of precached bytes allows
+	 * @see #getAvailablePeek()
+	 */
+	public int peek(int offset) throws IndexOutOfBoundsException {
+		try {
+			return peekByte(offset) & 0xFF;
+		}
+		catch (EOFException e) {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Tests if the specified bytes are contained in the underlying stream at the current position.
+	 * 
+	 * @param sequence the bytes to search for
+	 * @return {@code true} if the specified sequence is found, {@code false} otherwise
+	 * @throws IllegalArgumentException if the specified sequence is longer than the peek length
+	 */
+	public boolean isNext(byte[] sequence) throws IllegalArgumentException {
+		if (sequence.length > peekLength) {
+			throw new IllegalArgumentException("The specified sequence is longer than the peek length (" +
+					sequence.length + " > " + peekLength + ")");
+		}
+		else if (sequence.length > bufferContentLength) {
+			return false;
+		}
+		else {
+			int index = bufferStartPos;
+			for (int i = 0; i < sequence.length; i++) {
+				if (peekBuffer[index] != sequence[i]) {
+					return false;
+				}
+				index++;
+				if (index == peekLength) {
+					index = 0;
+				}
+			}
+			return true;
+		}
+	}
+
+
+	/**
+	 * Determines which of the specified byte sequences is located at the current position of this stream.
+	 * 
+	 * @param sequences the sequences to check for
+	 * @return the index of the sequence in {@code sequences} that was found or -1 if none of the sequences was found
+	 * @throws IllegalArgumentException if one of the specified sequences is longer than the peek length
+	 */
+	public int whichIsNext(byte[]... sequences) throws IllegalArgumentException {
+		for (int i = 0; i < sequences.length; i++) {
+			if (isNext(sequences[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Copies the specified number of bytes into the specified array. The bytes are taken from the peek buffer
+	 * (and additional bytes are read from the underlying stream directly into {@code buffer} if necessary) and the
+	 * peek buffer is refilled by data read from the underlying stream, if possible.
+	 * 
+	 * @param buffer the destination buffer
+	 * @param off the offset at which to start storing bytes
+	 * @param len the maximum number of bytes to read
+	 * @return the number of bytes that have been read or -1 if the end of the stream has been reached before
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 */
+	@Override
+	public int read(byte[] buffer, int off, int len) throws IOException {
+		if ((off < 0) || (len < 0) || (len > buffer.length - off)) {
+			throw new IndexOutOfBoundsException("Invalid offset (" + off + ") or length (" + len + ") for an array of length " +
+					buffer.length + ".");
+		}
+		else if (len == 0) {
+			return 0;
+		}
+		else if (bufferContentLength == 0) {  // The buffer is only empty, if the end of the underlying stream was reached.
+			return -1;
+		}
+		else {
+			int positionsCopied = peek(buffer, off, len);
+			removeFromPeekBuffer(positionsCopied);
+
+			while ((positionsCopied < len) && !underlyingStreamEndReached) {  // Copy bytes behind the peek buffer directly from the underlying stream.
+				int bytesRead = underlyingStream.read(buffer, off + positionsCopied, len - positionsCopied);
+				if (bytesRead == -1) {
+					underlyingStreamEndReached = true;
+				}
+				else {
+					positionsCopied += bytesRead;
+					byteOffset += bytesRead;
+				}
+			}
+
+			fillPeekBuffer();
+			return positionsCopied;
+		}
+	}
+
+
+	/**
+	 * Reads a single byte. In contrast to the inherited implementation, no array is created on each call.
+	 * 
+	 * @return the byte read as an unsigned value between 0 and 255 or -1 if the end of the stream has been reached
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 */
+	@Override
+	public int read() throws IOException {
+		if (read(singleByteBuffer, 0, 1) == -1) {
+			return -1;
+		}
+		else {
+			return singleByteBuffer[0] & 0xFF;
+		}
+	}
+
+
+	/**
+	 * Skips the specified number of bytes. In contrast to the inherited implementation, no array is created and
+	 * the bytes are only skipped through the peek buffer.
+	 * 
+	 * @param n the number of bytes to skip
+	 * @return the number of bytes that have actually been skipped (This is only lower than {@code n}, if the end of
+	 *         the stream was reached.)
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while ((skipped < n) && (bufferContentLength > 0)) {
+			int length = (int)Math.min(n - skipped, bufferContentLength);
+			consume(length, null);
+			skipped += length;
+		}
+		return skipped;
+	}
+
+
+	/**
+	 * Reads bytes until one of the specified termination sequences is found or the end of the stream is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence, if it was found, although these bytes have been
+	 * consumed. The length of the read sequence is not limited.
+	 * 
+	 * @param terminationSequences the termination sequences (If more than one sequence starts at the same position,
+	 *        the one with the lowest index is consumed.)
+	 * @return the bytes read from the underlying stream (The returned instance is reused by subsequent calls.)
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than the peek length
+	 * @see #readUntil(int, byte[]...)
+	 */
+	public ReadResult readUntil(byte[]... terminationSequences) throws IOException {
+		return readUntil(Integer.MAX_VALUE, terminationSequences);
+	}
+
+
+	/**
+	 * Reads bytes until one of the specified termination sequences is found, the maximum length was reached or the
+	 * end of the stream is reached.
+	 * <p>
+	 * Internally a {@link PeekReader.TerminatorSet} is created from the specified sequences. It is cached until this
+	 * method is called with different array instances as sequences. (Therefore the contents of the sequence arrays must
+	 * not be modified by the caller after they have been passed to this method. New arrays need to be used instead.) 
+	 * Performance critical callers should create the set once using {@link #createTerminatorSet(byte[]...)} and call 
+	 * {@link #readUntil(int, PeekReader.TerminatorSet)} directly.
+	 * 
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param terminationSequences the termination sequences (If more than one sequence starts at the same position,
+	 *        the one with the lowest index is consumed.)
+	 * @return the bytes read from the underlying stream (The returned instance is reused by subsequent calls.)
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or
+	 *         longer than the peek length
+	 */
+	public ReadResult readUntil(int maxLength, byte[]... terminationSequences) throws IOException {
+		if ((lastTerminatorSet == null) || !containsSameSequences(terminationSequences)) {
+			lastTerminatorSet = createTerminatorSet(terminationSequences);
+			lastTerminationSequences = terminationSequences.clone();  // The varargs array may be reused by the caller.
+		}
+		return readUntil(maxLength, lastTerminatorSet);
+	}
+	
+	
+	/**
+	 * Tests whether the specified sequences are the same instances as the ones {@link #lastTerminatorSet} was created 
+	 * from. Comparing the identities avoids comparing the contents of all sequences on each call.
+	 */
+	private boolean containsSameSequences(byte[][] terminationSequences) {
+		if (terminationSequences.length != lastTerminationSequences.length) {
+			return false;
+		}
+		else {
+			for (int i = 0; i < terminationSequences.length; i++) {
+				if (terminationSequences[i] != lastTerminationSequences[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+
+	/**
+	 * Reads bytes until one of the termination sequences in the specified set is found or the end of the stream is 
+	 * reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence, if it was found, although these bytes have been
+	 * consumed. The length of the read sequence is not limited.
+	 * 
+	 * @param terminators the set of termination sequences (see {@link #createTerminatorSet(byte[]...)})
+	 * @return the bytes read from the underlying stream (The returned instance is reused by subsequent calls.)
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than the peek length
+	 * @see #readUntil(int, PeekReader.TerminatorSet)
+	 */
+	public ReadResult readUntil(PeekReader.TerminatorSet terminators) throws IOException {
+		return readUntil(Integer.MAX_VALUE, terminators);
+	}
+
+
+	/**
+	 * Reads bytes until one of the termination sequences in the specified set is found, the maximum length was
+	 * reached or the end of the stream is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence, if it was found, although these bytes have been
+	 * consumed. If more than one sequence starts at the same position, the one with the lowest index is consumed.
+	 * <p>
+	 * The stream is scanned in a single linear pass using the automaton of {@code terminators}. Bytes that cannot be
+	 * the start of a termination sequence anymore are consumed during the scan, so the length of the read sequence is
+	 * not limited by the peek length. The scan follows the same rules as {@link PeekReader#readUntil(int, PeekReader.TerminatorSet)}.
+	 * 
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param terminators the set of termination sequences (see {@link #createTerminatorSet(byte[]...)})
+	 * @return the bytes read from the underlying stream (The returned instance is reused by subsequent calls.)
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or
+	 *         longer than the peek length
+	 */
+	public ReadResult readUntil(int maxLength, PeekReader.TerminatorSet terminators) throws IOException {
+		TerminatorScanner scanner = terminatorScanner;
+		scanner.start(terminators, maxLength, peekLength);
+		ReadResult result = readResult;
+		result.length = 0;
+
+		while (true) {
+			while ((scanner.getScanned() - result.length < bufferContentLength) && scanner.needsMore()) {
+				int bufferIndex = bufferStartPos + (int)(scanner.getScanned() - result.length);
+				if (bufferIndex >= peekLength) {
+					bufferIndex -= peekLength;
+				}
+				scanner.next((char)(peekBuffer[bufferIndex] & 0xFF));
+			}
+
+			if (!scanner.needsMore() || 
+					((scanner.getScanned() - result.length == bufferContentLength) && underlyingStreamEndReached)) {
+				
+				// Consume the result and the termination sequence:
+				consume((int)(scanner.getResultEnd() - result.length), result);
+				if (scanner.isTerminated()) {
+					consume(scanner.getTerminatorLength(), null);
+					result.completelyRead = true;
+				}
+				else {
+					result.completelyRead = (peek() == -1);  // Check if the end of the stream is reached at the same time as the maximum length
+				}
+				return result;
+			}
+			else {  // Consume bytes that cannot be the start of a termination sequence to make space for further scanning.
+				consume((int)(scanner.getConsumableEnd() - result.length), result);
+			}
+		}
+	}
+}
@@ -24,6 +24,9 @@ import info.bioinfweb.commons.text.StringUtils;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
@@ -69,6 +72,9 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 
 		/**
 		 * The character sequence that was read from the underlying data source.
+		 * <p>
+		 * If this result was returned by a reader with {@link PeekReader#isReturnSequenceViews()} set to {@code true}, 
+		 * the returned sequence is a view that is only valid until the next read operation of that reader.
 		 * 
 		 * @return the read characters
 		 */
@@ -90,15 +96,274 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	}
 	
 	
+	/**
+	 * A precompiled set of termination sequences to be used with the {@code readUntil()} methods of {@link PeekReader}
+	 * and {@link PeekInputStream}.
+	 * <p>
+	 * The sequences are compiled into an Aho-Corasick automaton, which allows {@link PeekReader} to find the first
+	 * occurrence of any of the sequences in a single linear pass over the stream, independent of the number of sequences.
+	 * Instances are immutable and can therefore be created once (e.g. as constants of a parser) and be reused for any 
+	 * number of calls on any number of readers.
+	 * 
+	 * @author Ben St&ouml;ver
+	 * @since 3.4.0
+	 */
+	public static class TerminatorSet {
+		private static final int ASCII_LENGTH = 128;
+		
+		private String[] sequences;
+		private int maxLength = 0;
+		int emptySequenceIndex = -1;  // Package visible to be used by PeekInputStream.
+		private char[] alphabet;
+		private int[] asciiIndices;
+		private int[] transitions;
+		private int[] matches;
+		
+		
+		/**
+		 * Creates a new instance of this class and compiles the automaton for the specified sequences.
+		 * 
+		 * @param sequences the termination sequences (If one sequence is contained more than once, the first index is
+		 *        reported in matches.)
+		 */
+		public TerminatorSet(String... sequences) {
+			super();
+			this.sequences = sequences.clone();
+			createAlphabet();
+			createAutomaton();
+		}
+		
+		
+		private void createAlphabet() {
+			TreeSet<Character> characters = new TreeSet<Character>();
+			for (String sequence : sequences) {
+				maxLength = Math.max(maxLength, sequence.length());
+				for (int i = 0; i < sequence.length(); i++) {
+					characters.add(sequence.charAt(i));
+				}
+			}
+			
+			alphabet = new char[characters.size()];
+			asciiIndices = new int[ASCII_LENGTH];
+			Arrays.fill(asciiIndices, -1);
+			int index = 0;
+			for (Character c : characters) {
+				alphabet[index] = c;
+				if (c < ASCII_LENGTH) {
+					asciiIndices[c] = index;
+				}
+				index++;
+			}
+		}
+		
+		
+		private void createAutomaton() {
+			int maxStateCount = 1;
+			for (String sequence : sequences) {
+				maxStateCount += sequence.length();
+			}
+			transitions = new int[maxStateCount * alphabet.length];
+			Arrays.fill(transitions, -1);
+			matches = new int[maxStateCount];
+			Arrays.fill(matches, -1);
+			
+			// Create trie:
+			int stateCount = 1;
+			for (int i = 0; i < sequences.length; i++) {
+				int state = 0;
+				for (int j = 0; j < sequences[i].length(); j++) {
+					int transitionIndex = state * alphabet.length + getCharIndex(sequences[i].charAt(j));
+					if (transitions[transitionIndex] == -1) {
+						transitions[transitionIndex] = stateCount;
+						stateCount++;
+					}
+					state = transitions[transitionIndex];
+				}
+				if (state == 0) {
+					if (emptySequenceIndex == -1) {
+						emptySequenceIndex = i;
+					}
+				}
+				else if (matches[state] == -1) {  // Keep the first index of duplicate sequences.
+					matches[state] = i;
+				}
+			}
+			
+			// Add failure transitions in breadth first order:
+			int[] failures = new int[stateCount];
+			int[] queue = new int[stateCount];
+			int queueStart = 0;
+			int queueEnd = 0;
+			for (int c = 0; c < alphabet.length; c++) {
+				if (transitions[c] == -1) {
+					transitions[c] = 0;
+				}
+				else {
+					failures[transitions[c]] = 0;
+					queue[queueEnd] = transitions[c];
+					queueEnd++;
+				}
+			}
+			while (queueStart < queueEnd) {
+				int state = queue[queueStart];
+				queueStart++;
+				if (matches[state] == -1) {  // A sequence ending in this state would always be longer than any sequence ending in the failure state.
+					matches[state] = matches[failures[state]];
+				}
+				for (int c = 0; c < alphabet.length; c++) {
+					int transitionIndex = state * alphabet.length + c;
+					int failureTarget = transitions[failures[state] * alphabet.length + c];
+					if (transitions[transitionIndex] == -1) {
+						transitions[transitionIndex] = failureTarget;
+					}
+					else {
+						failures[transitions[transitionIndex]] = failureTarget;
+						queue[queueEnd] = transitions[transitionIndex];
+						queueEnd++;
+					}
+				}
+			}
+			
+			transitions = Arrays.copyOf(transitions, stateCount * alphabet.length);
+			matches = Arrays.copyOf(matches, stateCount);
+		}
+		
+		
+		private int getCharIndex(char c) {
+			if (c < ASCII_LENGTH) {
+				return asciiIndices[c];
+			}
+			else {
+				int result = Arrays.binarySearch(alphabet, c);
+				if (result < 0) {
+					result = -1;
+				}
+				return result;
+			}
+		}
+		
+		
+		/**
+		 * Returns the state of the automaton after the specified character was processed.
+		 * 
+		 * @param state the current state (0 is the initial state)
+		 * @param c the next character in the stream
+		 * @return the new state
+		 */
+		int nextState(int state, char c) {
+			int charIndex = getCharIndex(c);
+			if (charIndex == -1) {  // Characters not contained in any sequence always lead back to the initial state.
+				return 0;
+			}
+			else {
+				return transitions[state * alphabet.length + charIndex];
+			}
+		}
+		
+		
+		/**
+		 * Returns the longest sequence that ends at the current position of the stream, if the automaton is in the 
+		 * specified state. 
+		 * 
+		 * @param state the current state
+		 * @return the index of the sequence or -1 if no sequence ends in this state
+		 */
+		int getMatch(int state) {
+			return matches[state];
+		}
+		
+		
+		/**
+		 * Returns the number of termination sequences in this set.
+		 * 
+		 * @return the number of sequences
+		 */
+		public int size() {
+			return sequences.length;
+		}
+		
+		
+		/**
+		 * Returns the termination sequence with the specified index.
+		 * 
+		 * @param index the index of the sequence as it was specified in the constructor
+		 * @return the termination sequence
+		 * @throws IndexOutOfBoundsException if {@code index} is not valid
+		 */
+		public String getSequence(int index) {
+			return sequences[index];
+		}
+		
+		
+		/**
+		 * Returns the length of the longest termination sequence in this set.
+		 * 
+		 * @return the maximum sequence length
+		 */
+		public int getMaxLength() {
+			return maxLength;
+		}
+		
+		
+		private boolean containsSequences(String[] sequences) {
+			return Arrays.equals(this.sequences, sequences);
+		}
+	}
+	
+	
+	/**
+	 * Read-only view of the characters of the last read operation that is returned by the read methods if
+	 * {@link PeekReader#isReturnSequenceViews()} is {@code true}. Only one instance exists per reader and its contents
+	 * change with each read operation.
+	 * 
+	 * @author Ben St&ouml;ver
+	 * @since 3.4.0
+	 */
+	private class SequenceView implements CharSequence {
+		@Override
+		public int length() {
+			return readBuilder.length();
+		}
+		
+		
+		@Override
+		public char charAt(int index) {
+			return readBuilder.charAt(index);
+		}
+		
+		
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return readBuilder.substring(start, end);
+		}
+		
+		
+		@Override
+		public String toString() {
+			return readBuilder.toString();
+		}
+	}
+	
+	
 	private Reader underlyingReader;
 	private int peekLength;
 	private char[] peekBuffer;
 	private int bufferStartPos = -1;
 	private int bufferContentLength = -1;
+	private boolean underlyingStreamEndReached = false;
+	private final char[] singleCharBuffer = new char[1];
+	private final StringBuilder readBuilder = new StringBuilder();
+	private final ReadResult viewResult = new ReadResult(new SequenceView(), false);
+	private boolean returnSequenceViews = false;
+	private TerminatorSet lastTerminatorSet = null;
+	private final TerminatorScanner terminatorScanner = new TerminatorScanner();
+	private Pattern lastPattern = null;
+	private RegExpAutomaton lastAutomaton = null;
 	
 	private long characterOffset = 0;
 	private long lineNumber = 0;
 	private long columnNumber = 0;
+	private boolean lineTracking = true;
 	
 	
 	/**
@@ -119,6 +384,29 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	}
 
 	
+	/**
+	 * Creates a new instance of this class and fills the initial peek buffer. Optionally, characters can be read from
+	 * the underlying reader in a background thread, while the characters read before are processed.
+	 * <p>
+	 * Reading ahead is useful if the underlying reader performs expensive operations, e.g. decompressing the data of a
+	 * {@link java.util.zip.GZIPInputStream}. The behavior of all methods of this class (including 
+	 * {@link #getAvailablePeek()}) remains the same in both modes, except that {@link #getByteOffset()} and
+	 * {@link #seek(long, StreamLocationProvider)} are not supported if reading ahead is enabled.
+	 * 
+	 * @param underlyingReader the reader to read the data from
+	 * @param peekLength the number of characters to keep available for peek operations in in front of
+	 *        the actual reader position 
+	 * @param readAhead Specify {@code true} here, if characters shall be read ahead in a background thread using a 
+	 *        {@link ReadAheadReader} with its default settings or {@code false} if they shall be read directly in the 
+	 *        calling thread.
+	 * @throws IOException if an I/O exception occurs while filling the initial peek buffer 
+	 * @since 3.4.0
+	 */
+	public PeekReader(Reader underlyingReader, int peekLength, boolean readAhead) throws IOException {
+		this(readAhead ? new ReadAheadReader(underlyingReader) : underlyingReader, peekLength);
+	}
+
+	
 	/**
 	 * Creates a new instance of this class with the default peek buffer size ({@link #DEFAULT_PEEK_BUFFER_SIZE})
 	 * and fills the initial peek buffer.
@@ -152,26 +440,162 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	 * This reader keeps track of the line number by monitoring each line separator that is read. Supported
 	 * line separators are {@code '\n'}, {@code '\r'} or {@code '\r\n'}. 
 	 * 
-	 * @return the current line number
+	 * @return the current line number or -1 if line tracking is disabled
+	 * @see #setLineTracking(boolean)
 	 */
 	@Override
 	public long getLineNumber() {
-		return lineNumber;
+		if (lineTracking) {
+			return lineNumber;
+		}
+		else {
+			return -1;
+		}
 	}
 
 
 	/**
 	 * Returns the column of the current line, where the cursor of this reader is currently located.
 	 * 
-	 * @return the current column number in the current line
+	 * @return the current column number in the current line or -1 if line tracking is disabled
 	 * @see #getLineNumber() 
+	 * @see #setLineTracking(boolean)
 	 */
 	@Override
 	public long getColumnNumber() {
-		return columnNumber;
+		if (lineTracking) {
+			return columnNumber;
+		}
+		else {
+			return -1;
+		}
+	}
+	
+	
+	/**
+	 * Determines whether this reader keeps track of the current line and column number.
+	 * 
+	 * @return {@code true} if line and column numbers are tracked or {@code false} otherwise
+	 * @see #setLineTracking(boolean)
+	 * @since 3.4.0
+	 */
+	public boolean isLineTracking() {
+		return lineTracking;
+	}
+
+
+	/**
+	 * Specifies whether this reader shall keep track of the current line and column number. (The default is 
+	 * {@code true}.)
+	 * <p>
+	 * Applications that only need {@link #getCharacterOffset()} can disable line tracking to avoid scanning all read 
+	 * characters for line separators. While line tracking is disabled, {@link #getLineNumber()} and 
+	 * {@link #getColumnNumber()} return -1 (as specified for unknown values by {@link javax.xml.stream.Location}). 
+	 * If line tracking is enabled again, counting continues from the values present when it was disabled, unless a new 
+	 * location was specified using {@link #seek(long, StreamLocationProvider)} in between.
+	 * 
+	 * @param lineTracking {@code true} if line and column numbers shall be tracked or {@code false} otherwise
+	 * @since 3.4.0
+	 */
+	public void setLineTracking(boolean lineTracking) {
+		this.lineTracking = lineTracking;
+	}
+
+
+	/**
+	 * Appends the current location of this reader to the specified log. This is equivalent to calling 
+	 * {@link StreamLocationLog#add(StreamLocationProvider)} but avoids the interface calls. Parsers can use this method to 
+	 * record the location of each token without creating a {@link StreamLocation} object for it.
+	 * 
+	 * @param log the log to add the location to
+	 * @return the index of the new location in {@code log}
+	 * @since 3.4.0
+	 */
+	public int logLocation(StreamLocationLog log) {
+		if (lineTracking) {
+			return log.add(characterOffset, lineNumber, columnNumber);
+		}
+		else {
+			return log.add(characterOffset, -1, -1);
+		}
 	}
 
 
+	/**
+	 * Returns the number of bytes from the beginning of the underlying file that encode the characters that have
+	 * been read from this reader.
+	 * <p>
+	 * This information is only available, if the underlying reader is a {@link FileChannelReader}. In contrast to 
+	 * {@link #getCharacterOffset()} the returned value is calculated on demand from the contents of the peek buffer
+	 * and therefore takes time linear to the peek length for variable length encodings.
+	 * 
+	 * @return the byte offset of the character that would be returned by the next call of {@link #read()}
+	 * @throws UnsupportedOperationException if the underlying reader is not an instance of {@link FileChannelReader}
+	 * @since 3.4.0
+	 */
+	public long getByteOffset() throws UnsupportedOperationException {
+		FileChannelReader channelReader = getFileChannelReader();
+		long result = channelReader.getByteOffset();
+		if (bufferContentLength > 0) {
+			int firstLength = Math.min(bufferContentLength, peekLength - bufferStartPos);
+			result -= channelReader.getEncodedLength(peekBuffer, bufferStartPos, firstLength);
+			if (firstLength < bufferContentLength) {
+				result -= channelReader.getEncodedLength(peekBuffer, 0, bufferContentLength - firstLength);
+			}
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Moves this reader to the specified byte offset of the underlying file. The peek buffer is cleared and refilled
+	 * starting from the new position.
+	 * <p>
+	 * Since the character offset, line and column of an arbitrary byte offset cannot be determined without reading 
+	 * the file from its beginning, the location belonging to {@code byteOffset} must be specified by the caller 
+	 * (e.g. from a location that was stored together with a previous result of {@link #getByteOffset()}).
+	 * 
+	 * @param byteOffset the byte offset of the first character to be read after this call (It is the responsibility of
+	 *        the caller that this is the start of an encoded character.)
+	 * @param location the location in the character stream belonging to {@code byteOffset}
+	 * @throws IOException if an I/O exception occurs while refilling the peek buffer
+	 * @throws UnsupportedOperationException if the underlying reader is not an instance of {@link FileChannelReader}
+	 * @since 3.4.0
+	 */
+	public void seek(long byteOffset, StreamLocationProvider location) throws IOException, UnsupportedOperationException {
+		getFileChannelReader().seek(byteOffset);
+		bufferStartPos = 0;
+		bufferContentLength = 0;
+		underlyingStreamEndReached = false;
+		fillPeekBuffer();
+		setLocation(location);
+	}
+	
+	
+	/**
+	 * Sets the character offset, line and column number of the current position without moving this reader. This is 
+	 * useful if the underlying reader does not start at the beginning of a stream.
+	 * 
+	 * @param location the location in the character stream belonging to the current position of this reader
+	 */
+	void setLocation(StreamLocationProvider location) {
+		characterOffset = location.getCharacterOffset();
+		lineNumber = location.getLineNumber();
+		columnNumber = location.getColumnNumber();
+	}
+	
+	
+	private FileChannelReader getFileChannelReader() throws UnsupportedOperationException {
+		if (underlyingReader instanceof FileChannelReader) {
+			return (FileChannelReader)underlyingReader;
+		}
+		else {
+			throw new UnsupportedOperationException("Byte offsets are only supported if the underlying reader is an instance of " + 
+					FileChannelReader.class.getName() + ".");
+		}
+	}
+	
+	
 	/**
 	 * Returns the last index (with the character which is closest to the end of the underlying stream)
 	 * in the peek buffer containing a defined value.
@@ -205,6 +629,55 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	public int getAvailablePeek() {
 		return bufferContentLength;
 	}
+	
+	
+	/**
+	 * Determines whether {@link #readLine()}, {@link #peekLine()}, the {@code readUntil()} and the {@code readRegExp()} 
+	 * methods return views of an internal buffer instead of newly created strings.
+	 * 
+	 * @return {@code true} if views are returned or {@code false} if independent strings are returned
+	 * @see #setReturnSequenceViews(boolean)
+	 * @since 3.4.0
+	 */
+	public boolean isReturnSequenceViews() {
+		return returnSequenceViews;
+	}
+
+
+	/**
+	 * Specifies whether {@link #readLine()}, {@link #peekLine()}, the {@code readUntil()} and the {@code readRegExp()} 
+	 * methods shall return views of an internal buffer instead of newly created strings. (The default is {@code false}.)
+	 * <p>
+	 * If views are returned, these methods do not allocate any objects per call, except if the internal buffer needs
+	 * to grow. The same {@link ReadResult} instance and the same {@link CharSequence} are returned by each call and
+	 * their contents are overwritten by the next call of one of these methods. Callers that need to keep a result must 
+	 * therefore copy it, e.g. by calling {@link CharSequence#toString()}. Numeric tokens can be parsed from a view 
+	 * without a copy using methods like {@link info.bioinfweb.commons.Math2#parseDouble(CharSequence)}.
+	 * 
+	 * @param returnSequenceViews {@code true} if views shall be returned or {@code false} if independent strings shall 
+	 *        be returned
+	 * @since 3.4.0
+	 */
+	public void setReturnSequenceViews(boolean returnSequenceViews) {
+		this.returnSequenceViews = returnSequenceViews;
+	}
+	
+	
+	/**
+	 * Creates the result of a read operation from the current contents of {@link #readBuilder}.
+	 * 
+	 * @param completelyRead the value to be returned by {@link ReadResult#isCompletelyRead()}
+	 * @return the shared view result or a new result containing a copy of {@link #readBuilder}
+	 */
+	private ReadResult createReadResult(boolean completelyRead) {
+		if (returnSequenceViews) {
+			viewResult.completelyRead = completelyRead;
+			return viewResult;
+		}
+		else {
+			return new ReadResult(readBuilder.toString(), completelyRead);
+		}
+	}
 
 
 	@Override
@@ -227,8 +700,9 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	
 	private void initPeekBuffer() throws IOException {
 		bufferStartPos = 0;
+		bufferContentLength = 0;
 		peekBuffer = new char[peekLength];
-		bufferContentLength = underlyingReader.read(peekBuffer);
+		fillPeekBuffer();
 	}
 	
 	
@@ -248,7 +722,7 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	 *         buffer content length.)
 	 */
 	public int peek(char[] cbuf, int off, int len) {
-		int lengthToCopy = Math.min(len, bufferContentLength);  //TODO Problem: bufferContentLength ist -1 => In Debugmodus schauen, wo es so gesetzt wird.
+		int lengthToCopy = Math.min(len, bufferContentLength);
 		int firstLengthToCopy = Math.min(lengthToCopy, peekLength - bufferStartPos);  // The number of positions to be copied between bufferStartPos and the end of the buffer
 		System.arraycopy(peekBuffer, bufferStartPos, cbuf, off, firstLengthToCopy);
 		
@@ -307,119 +781,213 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	
 	
 	/**
-	 * Writes the specified characters into the peek buffer. 
+	 * Fills the free space of the peek buffer with characters read directly from the underlying reader. 
 	 * <p>
-	 * If {@code charsRequested} is lower than the size of {@code newChars} only the first elements 
-	 * of {@code newChars} used as source data. If the length of {@code newChars} is greater than 
-	 * {@link #getPeekLength()}, only the last elements of {@code newChars} are copied. If 
-	 * {@code newCharsRead} is lower than {@link #getPeekLength()}, {@link #bufferContentLength} 
-	 * will be set accordingly. If {@code newCharsRead}  is -1, not characters are written to the 
-	 * peek buffer.
-	 * 
-	 * @param newChars the characters that have just been read from the underlying reader
-	 * @param newCharsRead the number of characters that have just been read from the underlying reader
-	 */
-	private void writeToPeekBuffer(char[] newChars, int newCharsRead) {
-		if (newCharsRead == -1) {  // end of stream was reached
-			newCharsRead = 0;
-		}
-		if (newCharsRead > 0) {
-			if (newCharsRead >= peekLength) {  // In this case the whole buffer is overwritten with the end of newChars.
-				System.arraycopy(newChars, newChars.length - peekLength, peekBuffer, 0, peekLength);
-				bufferContentLength = peekLength;
-				bufferStartPos = 0;
-			}
-			else {  // Only a part of the buffer will be replaced.
-				int firstPartLength = Math.min(peekLength - bufferStartPos, newChars.length/*newCharsRead*/);
-				System.arraycopy(newChars, 0, peekBuffer, bufferStartPos, firstPartLength);
-				if (firstPartLength < newChars.length) {
-					int secondPartLength = newChars.length - firstPartLength;
-					System.arraycopy(newChars, firstPartLength, peekBuffer, 0, secondPartLength);
-					bufferStartPos = secondPartLength;
-				}
-				else {
-					bufferStartPos += firstPartLength;
-					if (bufferStartPos >= peekLength) {
-						bufferStartPos -= peekLength;  // Otherwise bufferStartPos could be equal to peekLength. 
-					}
-				}
+	 * Since the buffer is used as a ring, the free space may consist of two parts (one between the end of the current 
+	 * content and the end of the array and one at the beginning of the array). Each part is filled by a bulk read 
+	 * operation. Additional reads are only performed, if the underlying reader returns fewer characters than requested
+	 * without having reached the end of its stream. After this method returns, the buffer is completely filled, unless 
+	 * the end of the underlying stream was reached.
+	 * 
+	 * @throws IOException if an I/O exception occurs while reading from the underlying reader
+	 */
+	private void fillPeekBuffer() throws IOException {
+		while (!underlyingStreamEndReached && (bufferContentLength < peekLength)) {
+			int writePos = bufferStartPos + bufferContentLength;
+			if (writePos >= peekLength) {
+				writePos -= peekLength;
+			}
+			int lengthToRead;
+			if (writePos >= bufferStartPos) {  // Free space reaches until the end of the array (and possibly continues at its beginning).
+				lengthToRead = peekLength - writePos;
+			}
+			else {  // Free space lies between the end of the content and bufferStartPos.
+				lengthToRead = bufferStartPos - writePos;
+			}
+			
+			int charsRead = underlyingReader.read(peekBuffer, writePos, lengthToRead);
+			if (charsRead == -1) {
+				underlyingStreamEndReached = true;
 			}
-			bufferContentLength = Math.max(0, bufferContentLength - (newChars.length - newCharsRead));  // If the same number of new characters could be read from the underlying reader as were requested from this reader, bufferContentLength will not be changed here.
+			else {
+				bufferContentLength += charsRead;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Removes the specified number of characters from the beginning of the peek buffer. The buffer is not refilled
+	 * by this method.
+	 * 
+	 * @param length the number of characters to be removed (Must not be greater than {@link #bufferContentLength}.)
+	 */
+	private void removeFromPeekBuffer(int length) {
+		bufferContentLength -= length;
+		if (bufferContentLength == 0) {
+			bufferStartPos = 0;  // Allows the next refill to be performed in a single read operation.
 		}
 		else {
-			bufferStartPos += newChars.length;
+			bufferStartPos += length;
 			if (bufferStartPos >= peekLength) {
 				bufferStartPos -= peekLength;
 			}
-			bufferContentLength = Math.max(0, bufferContentLength - newChars.length);
 		}
 	}
 	
 	
-	private boolean isCharNextInBuffer(char c, char[] cbuf, int pos, int end) {
-		if (pos + 1 < end) {
-			return cbuf[pos + 1] == c;
+	/**
+	 * Updates the character offset, line and column number according to the specified characters that have just been
+	 * read.
+	 * 
+	 * @param cbuf the array containing the characters that have been read
+	 * @param offset the index of the first character that was read in {@code cbuf}
+	 * @param copiedLength the number of characters that have been read
+	 * @param nextChar the character following the characters that have been read in the stream or -1 if the end of the
+	 *        stream follows (This is necessary to handle {@code '\r\n'} correctly.)
+	 */
+	private void countPositionChange(char[] cbuf, int offset, int copiedLength, int nextChar) {
+		characterOffset += copiedLength;
+		
+		if (lineTracking) {
+			int end = offset + copiedLength;
+			int lineStart = -1;  // The index behind the last line separator in the specified range
+			for (int pos = offset; pos < end; pos++) {
+				char c = cbuf[pos];
+				if (c <= '\r') {  // Single comparison for all characters that cannot be line separators ('\n' < '\r'). 
+					if ((c == '\n') || ((c == '\r') && (((pos + 1 < end) ? cbuf[pos + 1] : nextChar) != '\n'))) {  // '\r' before '\n' will be counted with the '\n' in the next loop cycle or method call.
+						lineNumber++;
+						lineStart = pos + 1;
+					}
+				}
+			}
+			
+			if (lineStart == -1) {
+				columnNumber += copiedLength;
+			}
+			else {
+				columnNumber = end - lineStart;  // The column is only calculated once from the last line separator.
+			}
 		}
-		else {
-			int code = peek();
-			return (code != -1) && ((char)code == c);
+	}
+	
+	
+	/**
+	 * Appends the specified number of characters from the beginning of the peek buffer to the specified builder 
+	 * without consuming them.
+	 * 
+	 * @param length the number of characters to append (Must not be greater than {@link #getAvailablePeek()}.)
+	 * @param target the builder to append the characters to
+	 */
+	private void appendPeekBuffer(int length, StringBuilder target) {
+		int firstLength = Math.min(length, peekLength - bufferStartPos);
+		target.append(peekBuffer, bufferStartPos, firstLength);
+		if (firstLength < length) {
+			target.append(peekBuffer, 0, length - firstLength);
 		}
 	}
 	
 	
-	private void countPositionChange(char[] cbuf, int offset, int copiedLength) {
-		characterOffset += copiedLength;
-		
-		int end = offset + copiedLength;
-		for (int pos = offset; pos < end; pos++) {
-			if (((cbuf[pos] == '\r') && !isCharNextInBuffer('\n', cbuf, pos, end))  // Line number will be increased in the next loop cycle or method call.
-					|| (cbuf[pos] == '\n')) {
-				
-				lineNumber++;
-				columnNumber = 0;
+	/**
+	 * Consumes the specified number of characters from the peek buffer, appends them to the specified builder (if 
+	 * provided), updates the stream location and refills the peek buffer. No temporary arrays are created.
+	 * 
+	 * @param length the number of characters to consume (Must not be greater than {@link #getAvailablePeek()}.)
+	 * @param target the builder to append the consumed characters to or {@code null} if they shall be discarded
+	 * @throws IOException if an I/O exception occurs while refilling the peek buffer
+	 */
+	private void consume(int length, StringBuilder target) throws IOException {
+		if (length > 0) {
+			int firstLength = Math.min(length, peekLength - bufferStartPos);
+			int secondLength = length - firstLength;
+			if (target != null) {
+				appendPeekBuffer(length, target);
+			}
+			
+			// Count all characters but the last one, since the character following the last one may not yet be in the buffer:
+			int lastIndex = (secondLength > 0) ? secondLength - 1 : bufferStartPos + firstLength - 1;
+			char lastChar = peekBuffer[lastIndex];
+			if (secondLength > 0) {
+				countPositionChange(peekBuffer, bufferStartPos, firstLength, peekBuffer[0]);
+				countPositionChange(peekBuffer, 0, secondLength - 1, lastChar);
 			}
 			else {
-				columnNumber++;
+				countPositionChange(peekBuffer, bufferStartPos, firstLength - 1, lastChar);
 			}
+			
+			removeFromPeekBuffer(length);
+			fillPeekBuffer();
+			singleCharBuffer[0] = lastChar;
+			countPositionChange(singleCharBuffer, 0, 1, peek());
 		}
 	}
 	
-
+	
 	/**
 	 * Copies the specified number of characters into the specified array. The characters are taken from the peek buffer
 	 * (and additional characters are copied from the underlying reader if necessary) and the peek buffer is refilled by
 	 * data read from the underlying reader, if possible.
+	 * <p>
+	 * Characters are copied directly between the peek buffer, the underlying reader and {@code cbuf}. No temporary
+	 * arrays are created by this method. If more characters are requested than the peek buffer can hold, the 
+	 * characters behind the current buffer contents are read from the underlying reader directly into {@code cbuf}.
 	 * 
 	 * @param cbuf the destination buffer
 	 * @param off the offset at which to start storing characters
 	 * @param len the maximum number of characters to read
+	 * @return the number of characters that have been read or -1 if the end of the stream has been reached before
+	 * @throws IOException if an I/O exception occurs while reading from the underlying reader
 	 */
 	@Override
 	public int read(char[] cbuf, int off, int len) throws IOException {  // All inherited read methods seem to call this method.
-		//TODO Check correct minimal size of cbuf?
-		char[] newChars = new char[len];
-		int newCharsRead = underlyingReader.read(newChars);  //TODO Some streams may read only a part of the requested bytes, although the end of the stream is not reached. That would currently result in a smaller peek size.
-		
-		if ((newCharsRead == -1) && (getAvailablePeek() == 0)) {  // End of stream and buffer empty.
+		if ((off < 0) || (len < 0) || (len > cbuf.length - off)) {
+			throw new IndexOutOfBoundsException("Invalid offset (" + off + ") or length (" + len + ") for an array of length " + 
+					cbuf.length + ".");
+		}
+		else if (len == 0) {
+			return 0;
+		}
+		else if (getAvailablePeek() == 0) {  // The buffer is only empty, if the end of the underlying stream was reached.
 			return -1;
 		}
 		else {
 			int positionsCopied = peek(cbuf, off, len);
+			removeFromPeekBuffer(positionsCopied);
 			
-			int additionalPositionsToCopy = Math.min(newCharsRead, len - positionsCopied);
-			if (additionalPositionsToCopy > 0) {
-				System.arraycopy(newChars, 0, cbuf, off + positionsCopied, additionalPositionsToCopy);
-				positionsCopied += additionalPositionsToCopy;
+			while ((positionsCopied < len) && !underlyingStreamEndReached) {  // Copy characters behind the peek buffer directly from the underlying reader.
+				int charsRead = underlyingReader.read(cbuf, off + positionsCopied, len - positionsCopied);
+				if (charsRead == -1) {
+					underlyingStreamEndReached = true;
+				}
+				else {
+					positionsCopied += charsRead;
+				}
 			}
 			
-			writeToPeekBuffer(newChars, newCharsRead);
-			
-			countPositionChange(cbuf, off, positionsCopied);
+			fillPeekBuffer();
+			countPositionChange(cbuf, off, positionsCopied, peek());
 			return positionsCopied;
 		}
 	}
 	
 	
+	/**
+	 * Reads a single character. In contrast to the inherited implementation, no array is created on each call.
+	 * 
+	 * @return the character read or -1 if the end of the stream has been reached
+	 * @throws IOException if an I/O exception occurs while reading from the underlying reader
+	 */
+	@Override
+	public int read() throws IOException {
+		if (read(singleCharBuffer, 0, 1) == -1) {
+			return -1;
+		}
+		else {
+			return singleCharBuffer[0];
+		}
+	}
+	
+	
 	/**
 	 * Reads the next character.
 	 * 
@@ -519,19 +1087,22 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	}
 	
 	
+	/**
+	 * Returns the characters in the peek buffer until the next new line character without consuming them.
+	 * 
+	 * @return the upcoming characters of the current line (The result is marked as not completely read, if the peek 
+	 *         buffer does not contain the end of the line.)
+	 * @see #setReturnSequenceViews(boolean)
+	 */
 	public ReadResult peekLine() {
-		StringBuilder result = new StringBuilder();
-		int c = peek();
-		int pos = 0;
-		while ((pos < getAvailablePeek()) && (c != -1) && !StringUtils.isNewLineChar((char)c)) {
-			result.append((char)c);
-			pos++;
-			if (pos < peekBuffer.length) {
-				c = peek(pos);
-			}		
+		int length = 0;
+		while ((length < bufferContentLength) && !StringUtils.isNewLineChar(peekBuffer[(bufferStartPos + length) % peekLength])) {
+			length++;
 		}
 		
-		return new ReadResult(result, (c == -1) || (pos < getAvailablePeek()));
+		readBuilder.setLength(0);
+		appendPeekBuffer(length, readBuilder);
+		return createReadResult((length < bufferContentLength) || (bufferContentLength < peekLength));  // The buffer is only not full if the end of the stream was reached.
 	}
 	
 	
@@ -660,26 +1231,30 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
 	 */
 	public ReadResult readLine(int maxLength) throws IOException {
-		StringBuffer line = new StringBuffer();
-		boolean endOfStream = false;
-		while ((line.length() < maxLength) && !endOfStream && !isNewLineNext()) {
-			int c = read();
-			if (c == -1) {
-				endOfStream = true;
+		StringBuilder result = readBuilder;
+		result.setLength(0);
+		
+		int scanned = 0;  // The number of characters that will be part of the result
+		while (scanned < maxLength) {
+			if (scanned - result.length() == bufferContentLength) {
+				consume(scanned - result.length(), result);  // Make space for further characters.
+				if (bufferContentLength == 0) {  // End of stream
+					break;
+				}
 			}
-			else {
-				line.append((char)c);
+			
+			int bufferIndex = bufferStartPos + scanned - result.length();
+			if (bufferIndex >= peekLength) {
+				bufferIndex -= peekLength;
 			}
-		}
-		
-		int newLinesConsumed = 1;  // Indicates end of stream that was already reached.
-		if (!endOfStream) {
-			newLinesConsumed = consumeNewLine();
-			if ((newLinesConsumed == 0) && (peek() == -1)) {
-				newLinesConsumed = 1;  // Indicate end of stream that will be reached.
+			if (StringUtils.isNewLineChar(peekBuffer[bufferIndex])) {
+				break;
 			}
+			scanned++;
 		}
-		return new ReadResult(line, newLinesConsumed > 0);
+		consume(scanned - result.length(), result);
+		
+		return createReadResult((consumeNewLine() > 0) || (peek() == -1));
 	}
 	
 	
@@ -741,47 +1316,171 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	}
 	
 	
+	/**
+	 * Reads characters until one of the specified termination sequences is found. 
+	 * <p>
+	 * Internally a {@link TerminatorSet} is created from the specified sequences. It is cached until this method is 
+	 * called with different sequences. Callers using a varying number of termination sequences should create the 
+	 * according {@link TerminatorSet}s once and call {@link #readUntil(int, TerminatorSet, boolean)} directly.
+	 * 
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param terminationSequences the termination sequences (If more than one sequence starts at the same position, 
+	 *        the one with the lowest index is consumed.)
+	 * @param untilWhitespace Specify {@code true} here, if reading shall also stop at the first whitespace, which will 
+	 *        then also be consumed.
+	 * @return the character sequence read from the underlying stream
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or 
+	 *         longer than the peek length 
+	 */
 	protected ReadResult readUntil(int maxLength, String[] terminationSequences, boolean untilWhitespace) throws IOException {
-		for (int i = 0; i < terminationSequences.length; i++) {
-			if (terminationSequences[i].length() > maxLength) {
-				throw new IllegalArgumentException(
-						"The allowed maximal length must be greater of equal to the length of the termination sequence.");
-			}
+		if ((lastTerminatorSet == null) || !lastTerminatorSet.containsSequences(terminationSequences)) {
+			lastTerminatorSet = new TerminatorSet(terminationSequences);
 		}
+		return readUntil(maxLength, lastTerminatorSet, untilWhitespace);
+	}
+	
+	
+	/**
+	 * Reads characters until one of the termination sequences in the specified set is found or the end of the stream 
+	 * is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence, if it was found, although these characters 
+	 * have been consumed. The length of the read sequence is not limited.
+	 * 
+	 * @param terminators the set of termination sequences
+	 * @return the character sequence read from the underlying stream
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than the peek length 
+	 * @since 3.4.0
+	 */
+	public ReadResult readUntil(TerminatorSet terminators) throws IOException {
+		return readUntil(Integer.MAX_VALUE, terminators, false);
+	}
+	
+	
+	/**
+	 * Reads characters until one of the termination sequences in the specified set or a whitespace is found or the 
+	 * end of the stream is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence or the whitespace, although these characters 
+	 * have been consumed. A whitespace has priority over a termination sequence starting at the same position.
+	 * 
+	 * @param terminators the set of termination sequences
+	 * @return the character sequence read from the underlying stream
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than the peek length 
+	 * @since 3.4.0
+	 */
+	public ReadResult readUntilWhitespace(TerminatorSet terminators) throws IOException {
+		return readUntil(Integer.MAX_VALUE, terminators, true);
+	}
+	
+	
+	/**
+	 * Reads characters until one of the termination sequences in the specified set is found, the maximum length was 
+	 * reached or the end of the stream is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence, if it was found, although these characters 
+	 * have been consumed. If reading stops at the maximum length, a following whitespace is not consumed and the 
+	 * result is not marked as completely read. (Versions before 3.4.0 consumed such a whitespace.)
+	 * 
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param terminators the set of termination sequences
+	 * @return the character sequence read from the underlying stream
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or 
+	 *         longer than the peek length 
+	 * @since 3.4.0
+	 */
+	public ReadResult readUntil(int maxLength, TerminatorSet terminators) throws IOException {
+		return readUntil(maxLength, terminators, false);
+	}
+	
+	
+	/**
+	 * Reads characters until one of the termination sequences in the specified set or a whitespace is found, the 
+	 * maximum length was reached or the end of the stream is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence or the whitespace, if one was found, although 
+	 * these characters have been consumed. A whitespace directly behind the maximum length is also consumed and the 
+	 * result is then marked as completely read. 
+	 * 
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param terminators the set of termination sequences
+	 * @return the character sequence read from the underlying stream
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or 
+	 *         longer than the peek length 
+	 * @since 3.4.0
+	 */
+	public ReadResult readUntilWhitespace(int maxLength, TerminatorSet terminators) throws IOException {
+		return readUntil(maxLength, terminators, true);
+	}
+	
+	
+	/**
+	 * Reads characters until one of the termination sequences in the specified set is found, the maximum length was 
+	 * reached or the end of the stream is reached.
+	 * <p>
+	 * The returned result does not contain the termination sequence, if it was found, although these characters 
+	 * have been consumed. If more than one sequence starts at the same position, the one with the lowest index is 
+	 * consumed. 
+	 * <p>
+	 * The peek buffer is scanned in a single linear pass using the automaton of {@code terminators}. Characters that
+	 * cannot be the start of a termination sequence anymore are consumed during the scan, so the length of the read
+	 * sequence is not limited by the peek length.
+	 * 
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param terminators the set of termination sequences
+	 * @param untilWhitespace Specify {@code true} here, if reading shall also stop at the first whitespace, which will 
+	 *        then also be consumed. (A whitespace has priority over a termination sequence starting at the same 
+	 *        position.)
+	 * @return the character sequence read from the underlying stream
+	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or 
+	 *         longer than the peek length 
+	 * @since 3.4.0
+	 */
+	protected ReadResult readUntil(int maxLength, TerminatorSet terminators, boolean untilWhitespace) throws IOException {
+		TerminatorScanner scanner = terminatorScanner;
+		scanner.start(terminators, maxLength, peekLength);
+		StringBuilder result = readBuilder;
+		result.setLength(0);
 		
-		StringBuffer result = new StringBuffer();
-		boolean endOfStream = false;
-		
-		int c = peek();
-		while ((result.length() < maxLength) && !endOfStream && !isNext(terminationSequences) && 
-				(!untilWhitespace || !Character.isWhitespace(c))) {
-			
-			if (c == -1) {
-				endOfStream = true;
-			}
-			else {
-				result.append((char)c);
+		while (true) {
+			while ((scanner.getScanned() - result.length() < bufferContentLength) && scanner.needsMore()) {
+				int bufferIndex = bufferStartPos + (int)(scanner.getScanned() - result.length());
+				if (bufferIndex >= peekLength) {
+					bufferIndex -= peekLength;
+				}
+				char c = peekBuffer[bufferIndex];
+				
+				if (untilWhitespace && Character.isWhitespace(c)) {
+					scanner.addMatch(scanner.getScanned(), 1, -1);  // Whitespace has priority over termination sequences at the same position.
+				}
+				scanner.next(c);
 			}
-			skip(1);
-			c= peek();
-		}
-		
-		boolean completelyRead = endOfStream;
-		if (Character.isWhitespace(c)) {
-			skip(1);
-			completelyRead = true;
-		}
-		else {
-			int index = whichIsNext(terminationSequences);
-			if (!endOfStream && (index != -1)) {
-				skip(terminationSequences[index].length());
-				completelyRead = true;
+			
+			if (!scanner.needsMore() || 
+					((scanner.getScanned() - result.length() == bufferContentLength) && underlyingStreamEndReached)) {
+				
+				// Consume the result and the termination sequence:
+				consume((int)(scanner.getResultEnd() - result.length()), result);
+				boolean completelyRead;
+				if (scanner.isTerminated()) {
+					consume(scanner.getTerminatorLength(), null);
+					completelyRead = true;
+				}
+				else {
+					completelyRead = (peek() == -1);  // Check if the end of the stream is reached at the same time as the maximum length
+				}
+				return createReadResult(completelyRead);
 			}
-			else {
-				completelyRead = completelyRead || (peek() == -1);  // Check if the end of the stream is reached at the same time as the maximum length
+			else {  // Consume characters that cannot be the start of a termination sequence to make space for further scanning.
+				consume((int)(scanner.getConsumableEnd() - result.length()), result);
 			}
 		}
-		return new ReadResult(result, completelyRead);
 	}
 	
 	
@@ -827,7 +1526,11 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
 	 */
 	public ReadResult readRegExp(int maxLength, String regExp, boolean greedy) throws IOException {
-		return readRegExp(maxLength, Pattern.compile(regExp), greedy);
+		Pattern pattern = lastPattern;
+		if ((pattern == null) || (pattern.flags() != 0) || !pattern.pattern().equals(regExp)) {
+			pattern = Pattern.compile(regExp);  // Only compile the expression if it differs from the one used last.
+		}
+		return readRegExp(maxLength, pattern, greedy);
 	}
 	
 	
@@ -862,6 +1565,13 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	 * <p>
 	 * Note that in contrast to {@link #readLine(int)} or {@link #readUntil(int, String)} no defined termination sequence
 	 * will be removed from the returned result, because the whole result is matched against the specified pattern.  
+	 * <p>
+	 * Most patterns (all that do not use flags, anchors, boundaries, back references, lookarounds, possessive quantifiers,
+	 * Unicode properties or nested character classes) are compiled into a deterministic automaton, which processes each 
+	 * character in constant time. Reading a sequence of length <i>n</i> then takes <i>O(n)</i>. Other patterns are matched
+	 * using {@link Matcher#matches()} after each character, which may take <i>O(n&sup2;)</i>. The compiled automaton of the
+	 * pattern used last is cached by this instance, so subsequent calls with the same expression and flags (even if they 
+	 * are represented by different {@link Pattern} objects or strings) do not need to compile it again.
 	 * 
 	 * @param maxLength the maximum length the read sequence may have
 	 * @param pattern the regular expression pattern defining how the returned sequence should look like
@@ -873,16 +1583,88 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 	 * @throws IOException if an I/O exception occurs while reading from the underlying stream
 	 */
 	public ReadResult readRegExp(int maxLength, Pattern pattern, boolean greedy) throws IOException {
-		StringBuffer result = new StringBuffer();
+		if ((lastPattern == null) || ((pattern != lastPattern) && 
+				((pattern.flags() != lastPattern.flags()) || !pattern.pattern().equals(lastPattern.pattern())))) {
+			
+			lastPattern = pattern;
+			try {
+				lastAutomaton = new RegExpAutomaton(pattern);
+			}
+			catch (IllegalArgumentException e) {
+				lastAutomaton = null;  // The pattern contains elements not supported by the automaton.
+			}
+		}
+		
+		if (lastAutomaton != null) {
+			return readRegExp(maxLength, lastAutomaton, greedy);
+		}
+		else {
+			return readRegExpWithMatcher(maxLength, pattern, greedy);
+		}
+	}
+	
+	
+	/**
+	 * Implementation of {@link #readRegExp(int, Pattern, boolean)} for patterns that are supported by 
+	 * {@link RegExpAutomaton}. Each character is processed in constant time, so the time needed is linear to
+	 * the length of the returned sequence.
+	 */
+	private ReadResult readRegExp(int maxLength, RegExpAutomaton automaton, boolean greedy) throws IOException {
+		StringBuilder result = readBuilder;
+		result.setLength(0);
+		
+		RegExpAutomaton.State state = automaton.getInitialState();
+		int scanned = 0;  // The number of characters that will be part of the result
+		while ((scanned < maxLength) && (greedy || !state.isAccepting())) {
+			if (scanned - result.length() == bufferContentLength) {
+				consume(scanned - result.length(), result);  // Make space for further characters.
+				if (bufferContentLength == 0) {  // End of stream
+					break;
+				}
+			}
+			
+			int bufferIndex = bufferStartPos + scanned - result.length();
+			if (bufferIndex >= peekLength) {
+				bufferIndex -= peekLength;
+			}
+			RegExpAutomaton.State nextState = automaton.nextState(state, peekBuffer[bufferIndex]);
+			if (state.isAccepting() && !nextState.isAccepting()) {  // Greedy extension not possible.
+				break;
+			}
+			state = nextState;
+			scanned++;
+		}
+		consume(scanned - result.length(), result);
+		
+		return createReadResult(state.isAccepting() || (peek() == -1));
+	}
+	
+	
+	/**
+	 * Implementation of {@link #readRegExp(int, Pattern, boolean)} for patterns that are not supported by 
+	 * {@link RegExpAutomaton}. Matching is performed on the whole sequence after each character, which leads to a 
+	 * quadratic runtime in the worst case. Matching is skipped as soon as the matcher determines that no extension of 
+	 * the current sequence can match.
+	 */
+	private ReadResult readRegExpWithMatcher(int maxLength, Pattern pattern, boolean greedy) throws IOException {
+		StringBuilder result = readBuilder;
+		result.setLength(0);
+		Matcher matcher = pattern.matcher(result);
+		boolean matchPossible = true;
+		boolean matches = matcher.matches();
 		boolean endOfStream = false;
 		
-		while ((result.length() < maxLength) && !endOfStream && !pattern.matcher(result).matches()) {
+		while ((result.length() < maxLength) && !endOfStream && !matches) {
 			int c = read();
 			if (c == -1) {
 				endOfStream = true;
 			}
 			else {
 				result.append((char)c);
+				if (matchPossible) {
+					matchPossible = matcher.hitEnd();  // If the end was not hit, no extension of the sequence can match. 
+					matches = matcher.reset().matches();
+				}
 			}
 		}
 		
@@ -895,17 +1677,17 @@ public class PeekReader extends Reader implements StreamLocationProvider {
 				}
 				else {
 					result.append((char)c);
-					if (pattern.matcher(result).matches()) {
+					if (matcher.reset().matches()) {
 						read();  // Consume character
 					}
 					else {
-						result.delete(result.length() - 1, result.length());
+						result.setLength(result.length() - 1);
 						break;
 					}
 				}
 			}
 		}
 		
-		return new ReadResult(result, endOfStream || pattern.matcher(result).matches() || (peek() == -1));
+		return createReadResult(endOfStream || matcher.reset().matches() || (peek() == -1));
 	}
 }
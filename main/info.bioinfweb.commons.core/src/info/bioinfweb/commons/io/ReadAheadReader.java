@@ -0,0 +1,343 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+
+
+/**
+ * Reader implementation that reads characters from an underlying reader in a background thread, while the characters
+ * read before are processed by the thread using this reader.
+ * <p>
+ * This is useful if reading from the underlying reader is expensive, e.g. if it decompresses the data of a
+ * {@link java.util.zip.GZIPInputStream}. In such cases, decompression and parsing can run in parallel on two cores.
+ * The characters are transferred in chunks of a specified size using double buffering: One chunk is filled by the
+ * background thread, while the other one is read by the consumer. Therefore at most two chunks are kept in memory,
+ * independent of the speed of both threads.
+ * <p>
+ * Exceptions and errors that occur in the background thread are rethrown by the next call of a read method in the
+ * consuming thread, after all characters read before the exception occurred have been returned. {@link IOException}s,
+ * {@link RuntimeException}s and {@link Error}s are rethrown unchanged, while other throwables are wrapped in an
+ * {@link IOException}.
+ * <p>
+ * The background thread is created by a {@link ThreadFactory}, which allows to use e.g. virtual threads on runtimes
+ * that support them. By default a daemon thread is created. It terminates when the end of the underlying stream is
+ * reached, an exception occurs or this reader is closed.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * @see PeekReader#PeekReader(Reader, int, boolean)
+ */
+public class ReadAheadReader extends Reader {
+	/** The default number of characters that are read ahead in one chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private static final int CHUNK_COUNT = 2;
+
+
+	private static class Chunk {
+		public final char[] chars;
+		public int length = 0;  // -1 indicates the end of the stream
+		public Throwable exception = null;
+
+
+		public Chunk(int size) {
+			super();
+			chars = new char[size];
+		}
+	}
+
+
+	private final Reader underlyingReader;
+	private final BlockingQueue<Chunk> emptyChunks = new ArrayBlockingQueue<Chunk>(CHUNK_COUNT);
+	private final BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<Chunk>(CHUNK_COUNT);
+	private final Thread thread;
+	private Chunk currentChunk = null;
+	private int currentPos = 0;
+	private Throwable exception = null;
+	private boolean endReached = false;
+	private volatile boolean closed = false;
+
+
+	/**
+	 * Creates a new instance of this class and starts the background thread.
+	 * 
+	 * @param underlyingReader the reader to read the characters from in the background (This reader should not be used
+	 *        by any other thread anymore.)
+	 * @param chunkSize the number of characters to be read ahead in one chunk
+	 * @param threadFactory the factory to create the background thread
+	 * @throws IllegalArgumentException if {@code chunkSize} is lower than 1
+	 */
+	public ReadAheadReader(Reader underlyingReader, int chunkSize, ThreadFactory threadFactory) {
+		super();
+		if (underlyingReader == null) {
+			throw new NullPointerException("The underlying reader must not be null.");
+		}
+		else if (chunkSize < 1) {
+			throw new IllegalArgumentException("The chunk size must be at least 1, but was " + chunkSize + ".");
+		}
+		else {
+			this.underlyingReader = underlyingReader;
+			for (int i = 0; i < CHUNK_COUNT; i++) {
+				emptyChunks.add(new Chunk(chunkSize));
+			}
+			thread = threadFactory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					readAhead();
+				}
+			});
+			thread.start();
+		}
+	}
+
+
+	/**
+	 * Creates a new instance of this class that reads in the background using a daemon thread.
+	 * 
+	 * @param underlyingReader the reader to read the characters from in the background (This reader should not be used
+	 *        by any other thread anymore.)
+	 * @param chunkSize the number of characters to be read ahead in one chunk
+	 * @throws IllegalArgumentException if {@code chunkSize} is lower than 1
+	 */
+	public ReadAheadReader(Reader underlyingReader, int chunkSize) {
+		this(underlyingReader, chunkSize, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread result = new Thread(runnable, ReadAheadReader.class.getSimpleName());
+				result.setDaemon(true);
+				return result;
+			}
+		});
+	}
+
+
+	/**
+	 * Creates a new instance of this class that reads in the background using a daemon thread and
+	 * {@link #DEFAULT_CHUNK_SIZE}.
+	 * 
+	 * @param underlyingReader the reader to read the characters from in the background (This reader should not be used
+	 *        by any other thread anymore.)
+	 */
+	public ReadAheadReader(Reader underlyingReader) {
+		this(underlyingReader, DEFAULT_CHUNK_SIZE);
+	}
+
+
+	/**
+	 * Fills empty chunks with characters from the underlying reader until the end of its stream is reached, an
+	 * exception occurs or this reader is closed. This method is executed in the background thread.
+	 */
+	private void readAhead() {
+		try {
+			boolean finished = false;
+			while (!finished && !closed) {
+				Chunk chunk = emptyChunks.take();  // Blocks until the consumer has processed a chunk.
+				chunk.length = 0;
+				try {
+					while (chunk.length < chunk.chars.length) {
+						int charsRead = underlyingReader.read(chunk.chars, chunk.length, chunk.chars.length - chunk.length);
+						if (charsRead == -1) {
+							if (chunk.length == 0) {  // Otherwise the end will be signaled with the next chunk.
+								chunk.length = -1;
+								finished = true;
+							}
+							break;
+						}
+						else {
+							chunk.length += charsRead;
+						}
+					}
+				}
+				catch (Throwable e) {  // Runtime exceptions and errors must also be passed to the consumer, which would otherwise wait forever.
+					chunk.exception = e;
+					finished = true;
+				}
+				filledChunks.put(chunk);  // Does not block, since the queue can take all chunks.
+			}
+		}
+		catch (InterruptedException e) {}  // Nothing to do. (The thread is interrupted when this reader is closed.)
+	}
+
+
+	/**
+	 * Throws the specified throwable that occurred in the background thread in the consuming thread.
+	 * 
+	 * @param throwable the throwable to be thrown
+	 * @return never returns normally (Allows to use {@code throw rethrow(...)} for the compiler.)
+	 * @throws IOException if {@code throwable} is an {@link IOException} or a checked throwable of another type
+	 */
+	private static IOException rethrow(Throwable throwable) throws IOException {
+		if (throwable instanceof IOException) {
+			throw (IOException)throwable;
+		}
+		else if (throwable instanceof RuntimeException) {
+			throw (RuntimeException)throwable;
+		}
+		else if (throwable instanceof Error) {
+			throw (Error)throwable;
+		}
+		else {
+			throw new IOException("An exception occurred in the read-ahead thread.", throwable);
+		}
+	}
+
+
+	/**
+	 * Makes the next chunk filled by the background thread the current chunk and returns the current chunk to the
+	 * background thread.
+	 * 
+	 * @return {@code true} if the new current chunk contains characters or {@code false} if the end of the stream was
+	 *         reached
+	 * @throws IOException if the background thread encountered an exception or the consuming thread was interrupted
+	 */
+	private boolean nextChunk() throws IOException {
+		if (currentChunk != null) {
+			Throwable chunkException = currentChunk.exception;
+			currentChunk.exception = null;
+			emptyChunks.add(currentChunk);
+			currentChunk = null;
+			if (chunkException != null) {  // Thrown after the characters read before the exception have been returned.
+				exception = chunkException;
+				throw rethrow(exception);
+			}
+		}
+
+		Chunk chunk;
+		try {
+			chunk = filledChunks.take();
+		}
+		catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted while waiting for the read-ahead thread.");
+		}
+
+		if (chunk.length > 0) {
+			currentChunk = chunk;
+			currentPos = 0;
+			return true;
+		}
+		else if (chunk.exception != null) {
+			exception = chunk.exception;
+			throw rethrow(exception);
+		}
+		else {
+			endReached = true;
+			return false;
+		}
+	}
+
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		else if (exception != null) {
+			throw rethrow(exception);
+		}
+	}
+
+
+	/**
+	 * Copies characters from the current chunk to the specified array. If the current chunk has been completely read,
+	 * this method blocks until the background thread has filled the next chunk.
+	 * 
+	 * @param cbuf the destination buffer
+	 * @param off the offset at which to start storing characters
+	 * @param len the maximum number of characters to read
+	 * @return the number of characters that have been read or -1 if the end of the stream has been reached before
+	 * @throws IOException if an I/O exception occurred while reading from the underlying reader in the background, if
+	 *         this reader is closed or if the current thread was interrupted while waiting for the next chunk
+	 * @throws RuntimeException if the underlying reader threw a runtime exception in the background
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if ((off < 0) || (len < 0) || (len > cbuf.length - off)) {
+			throw new IndexOutOfBoundsException("Invalid offset (" + off + ") or length (" + len + ") for an array of length " +
+					cbuf.length + ".");
+		}
+
+		ensureOpen();
+		if (len == 0) {
+			return 0;
+		}
+		else if (endReached || (((currentChunk == null) || (currentPos == currentChunk.length)) && !nextChunk())) {
+			return -1;
+		}
+		else {
+			int lengthToCopy = Math.min(len, currentChunk.length - currentPos);
+			System.arraycopy(currentChunk.chars, currentPos, cbuf, off, lengthToCopy);
+			currentPos += lengthToCopy;
+			return lengthToCopy;
+		}
+	}
+
+
+	/**
+	 * Determines whether characters are available without waiting for the background thread.
+	 * 
+	 * @return {@code true} if the next read operation will not block or {@code false} otherwise
+	 * @throws IOException if this reader is closed or the background thread encountered an exception
+	 */
+	@Override
+	public boolean ready() throws IOException {
+		ensureOpen();
+		return ((currentChunk != null) && (currentPos < currentChunk.length)) || !filledChunks.isEmpty();
+	}
+
+
+	/**
+	 * Stops the background thread, waits until it has terminated and closes the underlying reader afterwards. (If the
+	 * background thread is currently blocked in a read operation of the underlying reader, this method waits until 
+	 * that operation returns.) If the current thread is interrupted while waiting, its interrupted status is restored
+	 * after the underlying reader has been closed.
+	 * 
+	 * @throws IOException if closing the underlying reader fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			thread.interrupt();
+			boolean interrupted = false;
+			while (thread.isAlive()) {  // The underlying reader must not be closed while it is still used by the thread.
+				try {
+					thread.join();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			try {
+				underlyingReader.close();
+			}
+			finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
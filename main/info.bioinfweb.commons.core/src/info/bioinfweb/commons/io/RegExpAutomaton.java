@@ -0,0 +1,754 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+
+/**
+ * Deterministic finite automaton that tests whether a character sequence matches a regular expression as a whole
+ * (as {@link java.util.regex.Matcher#matches()} does), processing one character after another in constant time.
+ * <p>
+ * Only a subset of the syntax of {@link Pattern} is supported: literals, escaped characters, the predefined classes
+ * {@code .}, {@code \d}, {@code \D}, {@code \s}, {@code \S}, {@code \w} and {@code \W}, character classes (with ranges
+ * and negation, but without nesting and intersections), capturing and non-capturing groups, alternatives and greedy
+ * or reluctant quantifiers (which are equivalent for matching a whole sequence). Patterns using flags, anchors,
+ * boundaries, back references, lookarounds, possessive quantifiers or Unicode properties are rejected by the
+ * constructor. Characters are processed as UTF-16 code units, which differs from {@link Pattern} only for patterns
+ * that refer to single supplementary characters.
+ * <p>
+ * The pattern is compiled into a nondeterministic automaton, from which states of the deterministic automaton are
+ * created lazily when they are first reached. Instances are therefore not thread safe.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * @see PeekReader#readRegExp(int, Pattern, boolean)
+ */
+class RegExpAutomaton {
+	private static final int MAX_CHAR = Character.MAX_VALUE;
+	private static final int ASCII_LENGTH = 128;
+	private static final int MAX_REPETITION_COUNT = 1000;
+	private static final int MAX_NFA_STATE_COUNT = 100000;
+	private static final int MAX_CACHED_STATE_COUNT = 10000;
+
+	private static final int[] DIGIT_RANGES = {'0', '9'};
+	private static final int[] WORD_RANGES = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+	private static final int[] WHITESPACE_RANGES = {'\t', '\r', ' ', ' '};  // \t, \n, \u000B, \f, \r
+	private static final int[] LINE_TERMINATOR_RANGES = {'\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029'};
+
+
+	/**
+	 * A state of the deterministic automaton.
+	 */
+	static class State {
+		private int[] nfaStates;
+		private boolean accepting;
+		private State[] asciiTransitions = null;
+		private Map<Character, State> otherTransitions = null;
+
+
+		private State(int[] nfaStates, boolean accepting) {
+			super();
+			this.nfaStates = nfaStates;
+			this.accepting = accepting;
+		}
+
+
+		/**
+		 * Determines whether the characters processed until this state match the pattern.
+		 * 
+		 * @return {@code true} if the sequence matches, {@code false} otherwise
+		 */
+		public boolean isAccepting() {
+			return accepting;
+		}
+
+
+		/**
+		 * Determines whether the automaton can never reach an accepting state again from this state.
+		 * 
+		 * @return {@code true} if no extension of the processed characters can match the pattern
+		 */
+		public boolean isDead() {
+			return nfaStates.length == 0;
+		}
+	}
+
+
+	private static class StateKey {
+		private int[] nfaStates;
+
+
+		public StateKey(int[] nfaStates) {
+			super();
+			this.nfaStates = nfaStates;
+		}
+
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(nfaStates);
+		}
+
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof StateKey) && Arrays.equals(nfaStates, ((StateKey)obj).nfaStates);
+		}
+	}
+
+
+	// Syntax tree:
+
+	private static interface Node {}
+
+
+	private static class CharNode implements Node {
+		private int[] ranges;  // Sorted pairs of inclusive start and end positions
+
+		public CharNode(int[] ranges) {
+			this.ranges = ranges;
+		}
+	}
+
+
+	private static class SequenceNode implements Node {
+		private List<Node> children = new ArrayList<Node>();
+	}
+
+
+	private static class AlternativeNode implements Node {
+		private List<Node> children = new ArrayList<Node>();
+	}
+
+
+	private static class RepetitionNode implements Node {
+		private Node child;
+		private int min;
+		private int max;  // -1 for unlimited repetitions
+
+		public RepetitionNode(Node child, int min, int max) {
+			this.child = child;
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+
+	// Nondeterministic automaton:
+
+	private static final int TYPE_CHAR = 0;
+	private static final int TYPE_SPLIT = 1;
+	private static final int TYPE_MATCH = 2;
+
+	private List<int[]> nfaRanges = new ArrayList<int[]>();  // The ranges of characters leading to nfaNext1 or null for non-character states
+	private int[] nfaTypes = new int[16];
+	private int[] nfaNext1 = new int[16];
+	private int[] nfaNext2 = new int[16];
+	private int nfaStateCount = 0;
+
+	// Deterministic automaton:
+
+	private Map<StateKey, State> states = new HashMap<StateKey, State>();
+	private State initialState;
+	private boolean[] closureVisited;
+	private int[] closureStack;
+
+	// Parser:
+
+	private String regExp;
+	private int parsePos;
+
+
+	/**
+	 * Creates a new instance of this class from the specified pattern.
+	 * 
+	 * @param pattern the pattern to be compiled
+	 * @throws IllegalArgumentException if the pattern uses flags or syntax elements that are not supported by this class
+	 */
+	public RegExpAutomaton(Pattern pattern) throws IllegalArgumentException {
+		super();
+		if (pattern.flags() != 0) {
+			throw new IllegalArgumentException("Pattern flags are not supported.");
+		}
+
+		regExp = pattern.pattern();
+		parsePos = 0;
+		Node root = parseAlternative();
+		if (parsePos < regExp.length()) {  // Unmatched ')'
+			throw new IllegalArgumentException("Unexpected character at " + parsePos + ".");
+		}
+
+		int matchState = addNFAState(TYPE_MATCH, null, -1, -1);
+		int start = buildNFA(root, matchState);
+		closureVisited = new boolean[nfaStateCount];
+		closureStack = new int[nfaStateCount];
+		initialState = getState(closure(new int[]{start}, 1));
+	}
+
+
+	private IllegalArgumentException unsupported(String element) {
+		return new IllegalArgumentException("The element \"" + element + "\" at " + parsePos + " is not supported.");
+	}
+
+
+	private boolean hasNext() {
+		return parsePos < regExp.length();
+	}
+
+
+	private Node parseAlternative() {
+		AlternativeNode result = new AlternativeNode();
+		result.children.add(parseSequence());
+		while (hasNext() && (regExp.charAt(parsePos) == '|')) {
+			parsePos++;
+			result.children.add(parseSequence());
+		}
+
+		if (result.children.size() == 1) {
+			return result.children.get(0);
+		}
+		else {
+			return result;
+		}
+	}
+
+
+	private Node parseSequence() {
+		SequenceNode result = new SequenceNode();
+		while (hasNext() && (regExp.charAt(parsePos) != '|') && (regExp.charAt(parsePos) != ')')) {
+			result.children.add(parseQuantifier(parseAtom()));
+		}
+		return result;
+	}
+
+
+	private int parseNumber() {
+		int start = parsePos;
+		while (hasNext() && Character.isDigit(regExp.charAt(parsePos))) {
+			parsePos++;
+		}
+		if (start == parsePos) {
+			throw unsupported("{");
+		}
+		else {
+			int result = Integer.parseInt(regExp.substring(start, parsePos));
+			if (result > MAX_REPETITION_COUNT) {
+				throw unsupported(regExp.substring(start, parsePos));
+			}
+			return result;
+		}
+	}
+
+
+	private static boolean isQuantifier(char c) {
+		return (c == '*') || (c == '+') || (c == '?') || (c == '{');
+	}
+
+
+	private Node parseQuantifier(Node atom) {
+		if (hasNext()) {
+			int min;
+			int max;
+			switch (regExp.charAt(parsePos)) {
+				case '*':
+					min = 0;
+					max = -1;
+					break;
+				case '+':
+					min = 1;
+					max = -1;
+					break;
+				case '?':
+					min = 0;
+					max = 1;
+					break;
+				case '{':
+					parsePos++;
+					min = parseNumber();
+					max = min;
+					if (hasNext() && (regExp.charAt(parsePos) == ',')) {
+						parsePos++;
+						if (hasNext() && (regExp.charAt(parsePos) == '}')) {
+							max = -1;
+						}
+						else {
+							max = parseNumber();
+						}
+					}
+					if (!hasNext() || (regExp.charAt(parsePos) != '}') || ((max != -1) && (max < min))) {
+						throw unsupported("{");
+					}
+					break;
+				default:
+					return atom;
+			}
+			parsePos++;
+
+			if (hasNext()) {
+				if (regExp.charAt(parsePos) == '?') {  // Reluctant quantifiers have no effect when matching the whole sequence.
+					parsePos++;
+				}
+				else if (regExp.charAt(parsePos) == '+') {
+					throw unsupported("possessive quantifier");
+				}
+			}
+			if (hasNext() && isQuantifier(regExp.charAt(parsePos))) {  // java.util.regex ignores all but the first of stacked quantifiers.
+				throw unsupported("stacked quantifier");
+			}
+			return new RepetitionNode(atom, min, max);
+		}
+		else {
+			return atom;
+		}
+	}
+
+
+	private Node parseAtom() {
+		char c = regExp.charAt(parsePos);
+		parsePos++;
+		switch (c) {
+			case '(':
+				if (hasNext() && (regExp.charAt(parsePos) == '?')) {
+					if (regExp.startsWith("?:", parsePos)) {
+						parsePos += 2;
+					}
+					else if (regExp.startsWith("?<", parsePos) && (parsePos + 2 < regExp.length()) &&
+							Character.isLetter(regExp.charAt(parsePos + 2))) {  // Named group
+
+						parsePos = regExp.indexOf('>', parsePos) + 1;
+						if (parsePos == 0) {
+							throw unsupported("(?<");
+						}
+					}
+					else {
+						throw unsupported("(?");
+					}
+				}
+				Node result = parseAlternative();
+				if (!hasNext() || (regExp.charAt(parsePos) != ')')) {
+					throw unsupported("(");
+				}
+				parsePos++;
+				return result;
+			case '[':
+				return new CharNode(parseCharClass());
+			case '.':
+				return new CharNode(complement(LINE_TERMINATOR_RANGES));
+			case '\\':
+				return new CharNode(parseEscape(false));
+			case '^':
+			case '$':
+			case ')':
+			case '*':
+			case '+':
+			case '?':
+			case '{':
+				throw unsupported(Character.toString(c));
+			default:
+				return new CharNode(new int[]{c, c});
+		}
+	}
+
+
+	private int parseHex(int length) {
+		if (parsePos + length > regExp.length()) {
+			throw unsupported("\\x");
+		}
+		try {
+			int result = Integer.parseInt(regExp.substring(parsePos, parsePos + length), 16);
+			parsePos += length;
+			return result;
+		}
+		catch (NumberFormatException e) {
+			throw unsupported("\\x");
+		}
+	}
+
+
+	private int[] parseEscape(boolean inCharClass) {
+		if (!hasNext()) {
+			throw unsupported("\\");
+		}
+		char c = regExp.charAt(parsePos);
+		parsePos++;
+		switch (c) {
+			case 'd':
+				return DIGIT_RANGES;
+			case 'D':
+				return complement(DIGIT_RANGES);
+			case 's':
+				return WHITESPACE_RANGES;
+			case 'S':
+				return complement(WHITESPACE_RANGES);
+			case 'w':
+				return WORD_RANGES;
+			case 'W':
+				return complement(WORD_RANGES);
+			case 't':
+				return new int[]{'\t', '\t'};
+			case 'n':
+				return new int[]{'\n', '\n'};
+			case 'r':
+				return new int[]{'\r', '\r'};
+			case 'f':
+				return new int[]{'\f', '\f'};
+			case 'a':
+				return new int[]{'\u0007', '\u0007'};
+			case 'e':
+				return new int[]{'\u001B', '\u001B'};
+			case 'x':
+				int x = parseHex(2);
+				return new int[]{x, x};
+			case 'u':
+				int u = parseHex(4);
+				return new int[]{u, u};
+			default:
+				if (Character.isLetterOrDigit(c)) {  // Boundaries, back references, properties, quotations and other escapes
+					throw unsupported("\\" + c);
+				}
+				else {  // Escaped meta character
+					return new int[]{c, c};
+				}
+		}
+	}
+
+
+	private int[] parseCharClass() {
+		boolean negated = false;
+		if (hasNext() && (regExp.charAt(parsePos) == '^')) {
+			negated = true;
+			parsePos++;
+		}
+
+		List<int[]> parts = new ArrayList<int[]>();
+		if (hasNext() && (regExp.charAt(parsePos) == ']')) {
+			throw unsupported("[]");
+		}
+		while (hasNext() && (regExp.charAt(parsePos) != ']')) {
+			char c = regExp.charAt(parsePos);
+			parsePos++;
+			int[] part;
+			if (c == '\\') {
+				part = parseEscape(true);
+			}
+			else if ((c == '[') || ((c == '&') && hasNext() && (regExp.charAt(parsePos) == '&'))) {
+				throw unsupported("nested character class");
+			}
+			else {
+				part = new int[]{c, c};
+			}
+
+			if ((part.length == 2) && (part[0] == part[1]) && (parsePos + 1 < regExp.length()) &&
+					(regExp.charAt(parsePos) == '-') && (regExp.charAt(parsePos + 1) != ']')) {  // Range
+
+				parsePos++;
+				char endChar = regExp.charAt(parsePos);
+				parsePos++;
+				int[] endPart;
+				if (endChar == '\\') {
+					endPart = parseEscape(true);
+				}
+				else {
+					endPart = new int[]{endChar, endChar};
+				}
+				if ((endPart.length != 2) || (endPart[0] != endPart[1]) || (endPart[0] < part[0])) {
+					throw unsupported("-");
+				}
+				part = new int[]{part[0], endPart[0]};
+			}
+			parts.add(part);
+		}
+		if (!hasNext()) {
+			throw unsupported("[");
+		}
+		parsePos++;  // Skip ']'.
+
+		int[] result = union(parts);
+		if (negated) {
+			result = complement(result);
+		}
+		return result;
+	}
+
+
+	private static int[] union(List<int[]> parts) {
+		List<int[]> ranges = new ArrayList<int[]>();
+		for (int[] part : parts) {
+			for (int i = 0; i < part.length; i += 2) {
+				ranges.add(new int[]{part[i], part[i + 1]});
+			}
+		}
+		ranges.sort((r1, r2) -> Integer.compare(r1[0], r2[0]));
+
+		int[] result = new int[ranges.size() * 2];
+		int length = 0;
+		for (int[] range : ranges) {
+			if ((length > 0) && (range[0] <= result[length - 1] + 1)) {  // Overlapping or adjacent ranges are merged.
+				result[length - 1] = Math.max(result[length - 1], range[1]);
+			}
+			else {
+				result[length] = range[0];
+				result[length + 1] = range[1];
+				length += 2;
+			}
+		}
+		return Arrays.copyOf(result, length);
+	}
+
+
+	private static int[] complement(int[] ranges) {
+		int[] result = new int[ranges.length + 2];
+		int length = 0;
+		int start = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (ranges[i] > start) {
+				result[length] = start;
+				result[length + 1] = ranges[i] - 1;
+				length += 2;
+			}
+			start = ranges[i + 1] + 1;
+		}
+		if (start <= MAX_CHAR) {
+			result[length] = start;
+			result[length + 1] = MAX_CHAR;
+			length += 2;
+		}
+		return Arrays.copyOf(result, length);
+	}
+
+
+	private static boolean contains(int[] ranges, char c) {
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (c < ranges[i]) {
+				return false;
+			}
+			else if (c <= ranges[i + 1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private int addNFAState(int type, int[] ranges, int next1, int next2) {
+		if (nfaStateCount == MAX_NFA_STATE_COUNT) {
+			throw new IllegalArgumentException("The pattern is too complex.");
+		}
+		else if (nfaStateCount == nfaTypes.length) {
+			nfaTypes = Arrays.copyOf(nfaTypes, 2 * nfaStateCount);
+			nfaNext1 = Arrays.copyOf(nfaNext1, 2 * nfaStateCount);
+			nfaNext2 = Arrays.copyOf(nfaNext2, 2 * nfaStateCount);
+		}
+		nfaTypes[nfaStateCount] = type;
+		nfaRanges.add(ranges);
+		nfaNext1[nfaStateCount] = next1;
+		nfaNext2[nfaStateCount] = next2;
+		nfaStateCount++;
+		return nfaStateCount - 1;
+	}
+
+
+	/**
+	 * Adds the states for the specified node to the nondeterministic automaton.
+	 * 
+	 * @param node the node to be converted
+	 * @param next the state that shall follow the states of {@code node}
+	 * @return the entry state of the states of {@code node}
+	 */
+	private int buildNFA(Node node, int next) {
+		if (node instanceof CharNode) {
+			return addNFAState(TYPE_CHAR, ((CharNode)node).ranges, next, -1);
+		}
+		else if (node instanceof SequenceNode) {
+			List<Node> children = ((SequenceNode)node).children;
+			for (int i = children.size() - 1; i >= 0; i--) {
+				next = buildNFA(children.get(i), next);
+			}
+			return next;
+		}
+		else if (node instanceof AlternativeNode) {
+			List<Node> children = ((AlternativeNode)node).children;
+			int result = buildNFA(children.get(children.size() - 1), next);
+			for (int i = children.size() - 2; i >= 0; i--) {
+				result = addNFAState(TYPE_SPLIT, null, buildNFA(children.get(i), next), result);
+			}
+			return result;
+		}
+		else {
+			RepetitionNode repetition = (RepetitionNode)node;
+			if (repetition.max == -1) {
+				int loop = addNFAState(TYPE_SPLIT, null, -1, next);
+				int body = buildNFA(repetition.child, loop);  // Must be called before nfaNext1 is accessed, since it may replace the array.
+				nfaNext1[loop] = body;
+				next = loop;
+			}
+			else {
+				for (int i = repetition.min; i < repetition.max; i++) {  // Optional repetitions
+					next = addNFAState(TYPE_SPLIT, null, buildNFA(repetition.child, next), next);
+				}
+			}
+			for (int i = 0; i < repetition.min; i++) {
+				next = buildNFA(repetition.child, next);
+			}
+			return next;
+		}
+	}
+
+
+	/**
+	 * Calculates the sorted set of all character and match states that are reachable from the specified states without
+	 * processing a character.
+	 * 
+	 * @param startStates an array containing the start states
+	 * @param count the number of start states in {@code startStates}
+	 * @return the closure
+	 */
+	private int[] closure(int[] startStates, int count) {
+		Arrays.fill(closureVisited, false);
+		int stackSize = 0;
+		for (int i = 0; i < count; i++) {
+			if (!closureVisited[startStates[i]]) {
+				closureVisited[startStates[i]] = true;
+				closureStack[stackSize] = startStates[i];
+				stackSize++;
+			}
+		}
+
+		while (stackSize > 0) {
+			stackSize--;
+			int state = closureStack[stackSize];
+			if (nfaTypes[state] == TYPE_SPLIT) {
+				for (int next : new int[]{nfaNext1[state], nfaNext2[state]}) {
+					if (!closureVisited[next]) {
+						closureVisited[next] = true;
+						closureStack[stackSize] = next;
+						stackSize++;
+					}
+				}
+			}
+		}
+
+		int length = 0;
+		for (int i = 0; i < nfaStateCount; i++) {
+			if (closureVisited[i] && (nfaTypes[i] != TYPE_SPLIT)) {
+				closureStack[length] = i;
+				length++;
+			}
+		}
+		return Arrays.copyOf(closureStack, length);
+	}
+
+
+	private State getState(int[] nfaStates) {
+		StateKey key = new StateKey(nfaStates);
+		State result = states.get(key);
+		if (result == null) {
+			boolean accepting = false;
+			for (int i = 0; i < nfaStates.length; i++) {
+				accepting = accepting || (nfaTypes[nfaStates[i]] == TYPE_MATCH);
+			}
+			result = new State(nfaStates, accepting);
+			if (states.size() < MAX_CACHED_STATE_COUNT) {
+				states.put(key, result);
+			}
+		}
+		return result;
+	}
+
+
+	private State calculateNextState(State state, char c) {
+		int[] targets = new int[state.nfaStates.length];
+		int count = 0;
+		for (int nfaState : state.nfaStates) {
+			if ((nfaTypes[nfaState] == TYPE_CHAR) && contains(nfaRanges.get(nfaState), c)) {
+				targets[count] = nfaNext1[nfaState];
+				count++;
+			}
+		}
+		return getState(closure(targets, count));
+	}
+
+
+	/**
+	 * Returns the state of the automaton before any character was processed.
+	 * 
+	 * @return the initial state
+	 */
+	public State getInitialState() {
+		return initialState;
+	}
+
+
+	/**
+	 * Returns the state that is reached when the specified character is processed in the specified state.
+	 * 
+	 * @param state the current state
+	 * @param c the next character
+	 * @return the next state
+	 */
+	public State nextState(State state, char c) {
+		State result;
+		if (c < ASCII_LENGTH) {
+			if (state.asciiTransitions == null) {
+				state.asciiTransitions = new State[ASCII_LENGTH];
+			}
+			result = state.asciiTransitions[c];
+			if (result == null) {
+				result = calculateNextState(state, c);
+				state.asciiTransitions[c] = result;
+			}
+		}
+		else {
+			if (state.otherTransitions == null) {
+				state.otherTransitions = new HashMap<Character, State>();
+			}
+			result = state.otherTransitions.get(c);
+			if (result == null) {
+				result = calculateNextState(state, c);
+				if (state.otherTransitions.size() < ASCII_LENGTH) {
+					state.otherTransitions.put(c, result);
+				}
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Tests whether the specified sequence matches the pattern of this automaton.
+	 * 
+	 * @param sequence the sequence to be tested
+	 * @return {@code true} if the whole sequence matches, {@code false} otherwise
+	 */
+	public boolean matches(CharSequence sequence) {
+		State state = initialState;
+		for (int i = 0; (i < sequence.length()) && !state.isDead(); i++) {
+			state = nextState(state, sequence.charAt(i));
+		}
+		return state.isAccepting();
+	}
+}
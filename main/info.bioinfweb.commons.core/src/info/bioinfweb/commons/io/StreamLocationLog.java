@@ -0,0 +1,262 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.util.Arrays;
+
+
+
+/**
+ * An append-only log of stream locations (e.g. the start locations of all tokens read by a parser).
+ * <p>
+ * In contrast to creating a {@link StreamLocation} for each recorded position, character offsets, line and column 
+ * numbers are stored in three primitive arrays, so that recording a location does not create any object (apart from 
+ * occasionally enlarging the arrays). Each location is identified by the index returned by 
+ * {@link #add(long, long, long)}, which is usually the index of the token it belongs to. A {@link StreamLocation} 
+ * object is only created on demand by {@link #getLocation(int)}, e.g. when an error needs to be reported.
+ * <p>
+ * Locations can be recorded directly from a {@link PeekReader} using {@link PeekReader#logLocation(StreamLocationLog)}.
+ * Instances of this class are not thread-safe.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class StreamLocationLog {
+	/** The initial capacity used by {@link #StreamLocationLog()}. */
+	public static final int DEFAULT_INITIAL_CAPACITY = 256;
+	
+	
+	private long[] characterOffsets;
+	private long[] lineNumbers;
+	private long[] columnNumbers;
+	private int size = 0;
+	
+	
+	/**
+	 * Creates a new empty instance with the default initial capacity.
+	 */
+	public StreamLocationLog() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+	
+	
+	/**
+	 * Creates a new empty instance.
+	 * 
+	 * @param initialCapacity the number of locations that can be stored before the internal arrays need to be enlarged
+	 * @throws IllegalArgumentException if {@code initialCapacity} is lower than 0
+	 */
+	public StreamLocationLog(int initialCapacity) {
+		super();
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("The initial capacity must not be lower than 0.");
+		}
+		else {
+			characterOffsets = new long[initialCapacity];
+			lineNumbers = new long[initialCapacity];
+			columnNumbers = new long[initialCapacity];
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of locations stored in this log.
+	 * 
+	 * @return the number of locations
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Determines whether this log contains no locations.
+	 * 
+	 * @return {@code true} if no locations are stored or {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	
+	private void ensureCapacity(int capacity) {
+		if (capacity > characterOffsets.length) {
+			int newCapacity = (int)Math.min(Integer.MAX_VALUE - 8, 
+					Math.max(capacity, characterOffsets.length + (characterOffsets.length >> 1) + 1L));
+			characterOffsets = Arrays.copyOf(characterOffsets, newCapacity);
+			lineNumbers = Arrays.copyOf(lineNumbers, newCapacity);
+			columnNumbers = Arrays.copyOf(columnNumbers, newCapacity);
+		}
+	}
+	
+	
+	/**
+	 * Appends a location to this log.
+	 * 
+	 * @param characterOffset the character offset of the location
+	 * @param lineNumber the line number of the location
+	 * @param columnNumber the column number of the location
+	 * @return the index of the new location
+	 * @throws IllegalStateException if this log already contains the maximum number of locations
+	 */
+	public int add(long characterOffset, long lineNumber, long columnNumber) {
+		if (size == Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("No more locations can be added to this log.");
+		}
+		else {
+			ensureCapacity(size + 1);
+			characterOffsets[size] = characterOffset;
+			lineNumbers[size] = lineNumber;
+			columnNumbers[size] = columnNumber;
+			size++;
+			return size - 1;
+		}
+	}
+	
+	
+	/**
+	 * Appends the current location of the specified provider to this log.
+	 * 
+	 * @param locationProvider the provider of the location to be added
+	 * @return the index of the new location
+	 * @throws IllegalStateException if this log already contains the maximum number of locations
+	 */
+	public int add(StreamLocationProvider locationProvider) {
+		return add(locationProvider.getCharacterOffset(), locationProvider.getLineNumber(), 
+				locationProvider.getColumnNumber());
+	}
+	
+	
+	private void checkIndex(int index) {
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("There is no location with the index " + index + ".");
+		}
+	}
+	
+	
+	/**
+	 * Returns the character offset of the specified location.
+	 * 
+	 * @param index the index of the location
+	 * @return the character offset
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or not lower than {@link #size()}
+	 */
+	public long getCharacterOffset(int index) {
+		checkIndex(index);
+		return characterOffsets[index];
+	}
+	
+	
+	/**
+	 * Returns the line number of the specified location.
+	 * 
+	 * @param index the index of the location
+	 * @return the line number
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or not lower than {@link #size()}
+	 */
+	public long getLineNumber(int index) {
+		checkIndex(index);
+		return lineNumbers[index];
+	}
+	
+	
+	/**
+	 * Returns the column number of the specified location.
+	 * 
+	 * @param index the index of the location
+	 * @return the column number
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or not lower than {@link #size()}
+	 */
+	public long getColumnNumber(int index) {
+		checkIndex(index);
+		return columnNumbers[index];
+	}
+	
+	
+	/**
+	 * Creates a new location object containing the values of the specified location.
+	 * 
+	 * @param index the index of the location
+	 * @return a new location object
+	 * @throws IndexOutOfBoundsException if {@code index} is lower than 0 or not lower than {@link #size()}
+	 */
+	public StreamLocation getLocation(int index) {
+		checkIndex(index);
+		return new StreamLocation(characterOffsets[index], lineNumbers[index], columnNumbers[index]);
+	}
+	
+	
+	/**
+	 * Returns the index of the last location with a character offset lower than or equal to the specified one. This 
+	 * allows e.g. to determine the token containing a character offset. A binary search is performed, which requires
+	 * that locations have been added in the order of their character offsets. 
+	 * 
+	 * @param characterOffset the character offset to search for
+	 * @return the index of the location or -1 if all locations have a greater character offset
+	 */
+	public int indexOfOffset(long characterOffset) {
+		int index = Arrays.binarySearch(characterOffsets, 0, size, characterOffset);
+		if (index < 0) {
+			return -index - 2;  // Index of the previous location
+		}
+		else {
+			while ((index + 1 < size) && (characterOffsets[index + 1] == characterOffset)) {  // Several locations can have the same offset (e.g. empty tokens).
+				index++;
+			}
+			return index;
+		}
+	}
+	
+	
+	/**
+	 * Removes all locations with an index greater than or equal to the specified one.
+	 * 
+	 * @param size the number of locations to be kept
+	 * @throws IndexOutOfBoundsException if {@code size} is lower than 0 or greater than {@link #size()}
+	 */
+	public void truncate(int size) {
+		if ((size < 0) || (size > this.size)) {
+			throw new IndexOutOfBoundsException("The size " + size + " is not between 0 and " + this.size + ".");
+		}
+		else {
+			this.size = size;
+		}
+	}
+	
+	
+	/**
+	 * Removes all locations from this log. The capacity of this log remains unchanged.
+	 */
+	public void clear() {
+		size = 0;
+	}
+	
+	
+	/**
+	 * Reduces the capacity of this log to its current size.
+	 */
+	public void trimToSize() {
+		if (size < characterOffsets.length) {
+			characterOffsets = Arrays.copyOf(characterOffsets, size);
+			lineNumbers = Arrays.copyOf(lineNumbers, size);
+			columnNumbers = Arrays.copyOf(columnNumbers, size);
+		}
+	}
+}
@@ -23,29 +23,39 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 
 
 /**
  * Implements reading a table from a text file two a two dimensional array with {@link String} objects.
+ * <p>
+ * Tables can also be read row by row using {@link #readRows(InputStream, Charset, char, boolean, Consumer)} or 
+ * {@link TableRowReader} or into a compact column based representation using 
+ * {@link #readColumnarTable(InputStream, Charset, char, boolean)}.
  * 
  * @author Ben St&ouml;ver
  */
 public class TableReader {
 	public static String[][] readTable(URL url, char separator) throws IOException {
-		return readTable(url.openStream(), separator);  // Buffering is done by the underlying TextReader later.
+		return readTable(url.openStream(), separator);  // Buffering is done by the underlying TableRowReader later.
 	}
 	
 
 	public static String[][] readTable(File file, char separator) throws IOException {
-		return readTable(new FileInputStream(file), separator);  // Buffering is done by the underlying TextReader later.
+		return readTable(new FileInputStream(file), separator);  // Buffering is done by the underlying TableRowReader later.
 	}
 	
 
 	/**
 	 * Reads text data into a two dimensional array with {@link String} objects. If an empty file is read 
-	 * the returned array has one element containing an empty {@link String}.
+	 * the returned array has one element containing an empty {@link String}. Empty lines at the end of the 
+	 * file are ignored. The platform default character set is used and quotes are not interpreted.
 	 * 
 	 * @param stream - the stream to read the text data from
 	 * @param separator - the column separator
@@ -53,33 +63,90 @@ public class TableReader {
 	 * @throws IOException if an I/O error occurs
 	 */
 	public static String[][] readTable(InputStream stream, char separator) throws IOException {
-		String[] lines = TextReader.readText(stream).split("\r\n|\n|\r");  // Currently unnecessary because TextReader converts all types of line breaks to '\n'
-		
-		// Calculate column count:
-    int maxColCount = 0; 
-		for (int lineIndex = 0; lineIndex < lines.length; lineIndex++) {
-			int colCount = 1;
-			for (int charIndex = 0; charIndex < lines[lineIndex].length(); charIndex++) {
-				if (lines[lineIndex].charAt(charIndex) == separator) {
-					colCount++;
-				}
+		List<String[]> rows = new ArrayList<String[]>();
+		int maxColCount = 1;
+		TableRowReader reader = new TableRowReader(new InputStreamReader(stream), separator, false);
+		try {
+			String[] row = reader.readRow();
+			while (row != null) {
+				rows.add(row);
+				maxColCount = Math.max(maxColCount, row.length);
+				row = reader.readRow();
 			}
-			maxColCount = Math.max(maxColCount, colCount);
+		}
+		finally {
+			reader.close();
+		}
+		
+		int rowCount = rows.size();
+		while ((rowCount > 1) && (rows.get(rowCount - 1).length == 1) && rows.get(rowCount - 1)[0].isEmpty()) {
+			rowCount--;  // Remove empty lines at the end.
 		}
 		
 		// Fill array:
-		String[][] result = new String[maxColCount][lines.length];
-		for (int lineIndex = 0; lineIndex < lines.length; lineIndex++) {
-			String[] cols = lines[lineIndex].split("" + separator);
+		String[][] result = new String[maxColCount][Math.max(1, rowCount)];
+		for (int rowIndex = 0; rowIndex < result[0].length; rowIndex++) {
+			String[] cols = (rowIndex < rowCount) ? rows.get(rowIndex) : new String[0];
 			for (int colIndex = 0; colIndex < maxColCount; colIndex++) {
 				if (colIndex >= cols.length) {
-					result[colIndex][lineIndex] = ""; 
+					result[colIndex][rowIndex] = ""; 
 				}
 				else {
-					result[colIndex][lineIndex] = cols[colIndex];
+					result[colIndex][rowIndex] = cols[colIndex];
 				}
 			}
 		}
 		return result;
 	}
+	
+	
+	/**
+	 * Reads a table row by row and passes each row to the specified consumer without keeping the whole table in 
+	 * memory.
+	 * 
+	 * @param stream the stream to read the table from (It will be closed after reading.)
+	 * @param charset the character set of the stream
+	 * @param separator the column separator
+	 * @param quoting Specify {@code true} here, if cells starting with {@code '"'} shall be treated as quoted or
+	 *        {@code false} if quotes shall be treated as normal characters.
+	 * @param consumer the consumer to be called with the cells of each row
+	 * @throws IOException if an I/O error occurs or a quoted cell is not terminated
+	 * @since 3.4.0
+	 * @see TableRowReader
+	 */
+	public static void readRows(InputStream stream, Charset charset, char separator, boolean quoting, 
+			Consumer<String[]> consumer) throws IOException {
+		
+		TableRowReader reader = new TableRowReader(new InputStreamReader(stream, charset), separator, quoting);
+		try {
+			String[] row = reader.readRow();
+			while (row != null) {
+				consumer.accept(row);
+				row = reader.readRow();
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	
+	/**
+	 * Reads a table into a column based representation that stores the contents of each column in a single 
+	 * character array.
+	 * 
+	 * @param stream the stream to read the table from (It will be closed after reading.)
+	 * @param charset the character set of the stream
+	 * @param separator the column separator
+	 * @param quoting Specify {@code true} here, if cells starting with {@code '"'} shall be treated as quoted or
+	 *        {@code false} if quotes shall be treated as normal characters.
+	 * @return the table
+	 * @throws IOException if an I/O error occurs or a quoted cell is not terminated
+	 * @since 3.4.0
+	 */
+	public static ColumnarTable readColumnarTable(InputStream stream, Charset charset, char separator, boolean quoting) 
+			throws IOException {
+		
+		return ColumnarTable.read(new InputStreamReader(stream, charset), separator, quoting);
+	}
 }
@@ -0,0 +1,354 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+
+/**
+ * Reads the rows of a table (e.g. in TSV or CSV format) one by one from a character stream.
+ * <p>
+ * Each line of the stream is one row, where {@code '\n'}, {@code '\r'} and {@code '\r\n'} are recognized as line
+ * breaks. Cells are separated by a separator character. If quoting is enabled, cells starting with {@code '"'} may
+ * contain separators and line breaks. A quote inside such a cell is represented by two consecutive quotes
+ * ({@code ""}) as defined in RFC 4180.
+ * <p>
+ * The stream is read in blocks and characters between two special characters are appended to the current cell in
+ * bulk. Rows can be read using {@link #readRow()} or using the {@link Iterator} interface, which allows to pass all
+ * rows to a callback using {@link #forEachRemaining(java.util.function.Consumer)}. For reading whole tables into
+ * memory, {@link ColumnarTable} uses a more compact representation than an array of rows.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+public class TableRowReader implements Iterator<String[]>, Closeable {
+	/**
+	 * Receives the cells read by {@link TableRowReader#readRow(CellHandler)}.
+	 */
+	static interface CellHandler {
+		/**
+		 * Called for each cell of a row.
+		 * 
+		 * @param column the index of the column of the cell
+		 * @param content the content of the cell (The builder is reused for the next cell.)
+		 */
+		public void addCell(int column, StringBuilder content);
+
+		/**
+		 * Called after the last cell of a row was passed to {@link #addCell(int, StringBuilder)}.
+		 * 
+		 * @param cellCount the number of cells of the row
+		 */
+		public void endRow(int cellCount);
+	}
+
+
+	/** The default number of characters read from the underlying reader at once. */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	/** The quote character used if quoting is enabled. */
+	public static final char QUOTE = '"';
+
+
+	private Reader reader;
+	private char separator;
+	private boolean quoting;
+	private char[] buffer;
+	private int bufferPos = 0;
+	private int bufferEnd = 0;
+	private boolean endReached = false;
+	private long rowIndex = 0;
+	private StringBuilder cell = new StringBuilder();
+	private List<String> rowCells = new ArrayList<String>();
+	private String[] nextRow = null;
+	private CellHandler rowBuilder = new CellHandler() {
+		@Override
+		public void addCell(int column, StringBuilder content) {
+			rowCells.add(content.toString());
+		}
+
+		@Override
+		public void endRow(int cellCount) {}
+	};
+
+
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param reader the reader to read the table from
+	 * @param separator the character separating two cells of a row
+	 * @param quoting Specify {@code true} here, if cells starting with {@code '"'} shall be treated as quoted or
+	 *        {@code false} if quotes shall be treated as normal characters.
+	 * @throws IllegalArgumentException if {@code separator} is a line break character or a quote while quoting is
+	 *         enabled
+	 */
+	public TableRowReader(Reader reader, char separator, boolean quoting) {
+		super();
+		if ((separator == '\n') || (separator == '\r') || (quoting && (separator == QUOTE))) {
+			throw new IllegalArgumentException("The character '" + separator + "' cannot be used as a separator.");
+		}
+		else {
+			this.reader = reader;
+			this.separator = separator;
+			this.quoting = quoting;
+			buffer = new char[DEFAULT_BUFFER_SIZE];
+		}
+	}
+
+
+	/**
+	 * Returns the separator character of this reader.
+	 * 
+	 * @return the character separating two cells of a row
+	 */
+	public char getSeparator() {
+		return separator;
+	}
+
+
+	/**
+	 * Determines whether quoted cells are recognized by this reader.
+	 * 
+	 * @return {@code true} if quoting is enabled or {@code false} otherwise
+	 */
+	public boolean isQuoting() {
+		return quoting;
+	}
+
+
+	/**
+	 * Returns the number of rows that have been read by this reader.
+	 * 
+	 * @return the index of the next row to be read
+	 */
+	public long getRowIndex() {
+		return rowIndex;
+	}
+
+
+	private boolean fillBuffer() throws IOException {
+		if (!endReached) {
+			int charsRead = reader.read(buffer, 0, buffer.length);
+			while (charsRead == 0) {
+				charsRead = reader.read(buffer, 0, buffer.length);
+			}
+			if (charsRead == -1) {
+				endReached = true;
+				bufferPos = 0;
+				bufferEnd = 0;
+			}
+			else {
+				bufferPos = 0;
+				bufferEnd = charsRead;
+			}
+		}
+		return !endReached;
+	}
+
+
+	private int readChar() throws IOException {
+		if ((bufferPos < bufferEnd) || fillBuffer()) {
+			return buffer[bufferPos++];
+		}
+		else {
+			return -1;
+		}
+	}
+
+
+	private int peekChar() throws IOException {
+		if ((bufferPos < bufferEnd) || fillBuffer()) {
+			return buffer[bufferPos];
+		}
+		else {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Reads the content of a quoted cell behind its opening quote and appends it to {@link #cell}.
+	 */
+	private void readQuotedCell() throws IOException {
+		while (true) {
+			int start = bufferPos;
+			while ((bufferPos < bufferEnd) && (buffer[bufferPos] != QUOTE)) {
+				bufferPos++;
+			}
+			cell.append(buffer, start, bufferPos - start);
+
+			int c = readChar();
+			if (c == -1) {
+				throw new IOException("Unterminated quoted cell in row " + rowIndex + ".");
+			}
+			else if (c == QUOTE) {
+				if (peekChar() == QUOTE) {
+					cell.append(QUOTE);
+					bufferPos++;
+				}
+				else {
+					return;
+				}
+			}
+			else {
+				cell.append((char)c);
+			}
+		}
+	}
+
+
+	/**
+	 * Reads the next row and passes its cells to the specified handler.
+	 * 
+	 * @param handler the handler to receive the cells
+	 * @return {@code true} if a row was read or {@code false} if the end of the stream was already reached
+	 * @throws IOException if an I/O error occurs while reading or a quoted cell is not terminated
+	 */
+	boolean readRow(CellHandler handler) throws IOException {
+		if (peekChar() == -1) {
+			return false;
+		}
+		else {
+			int column = 0;
+			cell.setLength(0);
+			while (true) {
+				int start = bufferPos;
+				char c = 0;
+				while (bufferPos < bufferEnd) {
+					c = buffer[bufferPos];
+					if ((c == separator) || (c == '\n') || (c == '\r') || (quoting && (c == QUOTE))) {
+						break;
+					}
+					bufferPos++;
+				}
+				cell.append(buffer, start, bufferPos - start);
+
+				if (bufferPos == bufferEnd) {
+					if (!fillBuffer()) {  // Last row without line break
+						handler.addCell(column, cell);
+						break;
+					}
+				}
+				else {
+					bufferPos++;
+					if (c == separator) {
+						handler.addCell(column, cell);
+						column++;
+						cell.setLength(0);
+					}
+					else if (c == QUOTE) {
+						if (cell.length() == 0) {
+							readQuotedCell();
+						}
+						else {
+							cell.append(QUOTE);  // Quotes inside unquoted cells are treated as normal characters.
+						}
+					}
+					else {  // Line break
+						if ((c == '\r') && (peekChar() == '\n')) {
+							bufferPos++;
+						}
+						handler.addCell(column, cell);
+						break;
+					}
+				}
+			}
+			handler.endRow(column + 1);
+			rowIndex++;
+			return true;
+		}
+	}
+
+
+	/**
+	 * Reads the next row from the underlying reader. If {@link #hasNext()} was called before, the row that was
+	 * read by that call is returned.
+	 * 
+	 * @return an array containing the cells of the row or {@code null} if the end of the stream was reached
+	 * @throws IOException if an I/O error occurs while reading or a quoted cell is not terminated
+	 */
+	public String[] readRow() throws IOException {
+		if (nextRow != null) {
+			String[] result = nextRow;
+			nextRow = null;
+			return result;
+		}
+		else {
+			rowCells.clear();
+			if (readRow(rowBuilder)) {
+				return rowCells.toArray(new String[rowCells.size()]);
+			}
+			else {
+				return null;
+			}
+		}
+	}
+
+
+	/**
+	 * Determines whether another row is available.
+	 * 
+	 * @throws UncheckedIOException if an {@link IOException} occurs while reading the next row
+	 */
+	@Override
+	public boolean hasNext() {
+		if (nextRow == null) {
+			try {
+				nextRow = readRow();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return nextRow != null;
+	}
+
+
+	/**
+	 * Returns the next row.
+	 * 
+	 * @throws UncheckedIOException if an {@link IOException} occurs while reading the row
+	 */
+	@Override
+	public String[] next() {
+		if (hasNext()) {
+			String[] result = nextRow;
+			nextRow = null;
+			return result;
+		}
+		else {
+			throw new NoSuchElementException("The end of the table was already reached.");
+		}
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * bioinfweb.commons - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+
+/**
+ * Keeps track of the termination sequences found while the {@code readUntil()} methods of {@link PeekReader} and 
+ * {@link PeekInputStream} scan their peek buffers. Both classes only differ in the type of their buffers and results, 
+ * while the decisions which elements are part of the result, which may be consumed during the scan and which 
+ * termination sequence is found are made by this class.
+ * <p>
+ * Positions are specified relative to the stream position at the beginning of the scan. Each reader uses only one
+ * instance, which is reset by {@link #start(PeekReader.TerminatorSet, int, int)} for each call.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ */
+class TerminatorScanner {
+	private PeekReader.TerminatorSet terminators;
+	private int maxLength;
+	private int scanWindow;
+	private long bestStart;
+	private int bestLength;
+	private int bestIndex;
+	private long scanned;
+	private int state;
+	
+	
+	/**
+	 * Starts a new scan.
+	 * 
+	 * @param terminators the set of termination sequences
+	 * @param maxLength the maximum length the read sequence (not including the termination sequence) may have
+	 * @param peekLength the peek length of the calling reader
+	 * @throws IllegalArgumentException if one of the termination sequences is longer than {@code maxLength} or 
+	 *         longer than the peek length
+	 */
+	public void start(PeekReader.TerminatorSet terminators, int maxLength, int peekLength) {
+		if (terminators.getMaxLength() > maxLength) {
+			throw new IllegalArgumentException(
+					"The allowed maximal length must be greater of equal to the length of the termination sequence.");
+		}
+		else if (terminators.getMaxLength() > peekLength) {
+			throw new IllegalArgumentException("The longest termination sequence is longer than the peek length (" + 
+					terminators.getMaxLength() + " > " + peekLength + ")");
+		}
+		
+		this.terminators = terminators;
+		this.maxLength = maxLength;
+		scanWindow = Math.max(1, terminators.getMaxLength());  // A sequence ending at a scanned position may start scanWindow - 1 positions before.
+		bestStart = Long.MAX_VALUE;
+		bestLength = 0;
+		bestIndex = Integer.MAX_VALUE;
+		if (terminators.emptySequenceIndex != -1) {
+			bestStart = 0;
+			bestIndex = terminators.emptySequenceIndex;
+		}
+		scanned = 0;
+		state = 0;
+	}
+	
+	
+	/**
+	 * Returns the number of elements that have been scanned.
+	 * 
+	 * @return the position of the next element to be scanned
+	 */
+	public long getScanned() {
+		return scanned;
+	}
+	
+	
+	/**
+	 * Returns the end of the result according to the elements scanned so far. No element behind this position will be 
+	 * part of the result.
+	 * 
+	 * @return the exclusive end position
+	 */
+	public long getEnd() {
+		return Math.min(bestStart, maxLength);
+	}
+	
+	
+	/**
+	 * Determines whether further elements need to be scanned, because a termination sequence starting in front of 
+	 * {@link #getEnd()} may still be found.
+	 * 
+	 * @return {@code true} if the scan needs to be continued or {@code false} if the result is determined
+	 */
+	public boolean needsMore() {
+		return scanned < getEnd() + scanWindow;
+	}
+	
+	
+	/**
+	 * Returns the position up to which elements can be consumed while the scan continues, because they cannot be part 
+	 * of a termination sequence anymore.
+	 * 
+	 * @return the exclusive end of the consumable elements
+	 */
+	public long getConsumableEnd() {
+		return Math.min(getEnd(), scanned - scanWindow + 1);
+	}
+	
+	
+	/**
+	 * Returns the end of the result after the scan has been finished, either because {@link #needsMore()} returned 
+	 * {@code false} or the end of the stream was reached.
+	 * 
+	 * @return the exclusive end of the result
+	 */
+	public long getResultEnd() {
+		return Math.min(getEnd(), scanned);
+	}
+	
+	
+	/**
+	 * Determines whether the result ends with a termination sequence (or a separator reported by 
+	 * {@link #addMatch(long, int, int)}).
+	 * 
+	 * @return {@code true} if a termination sequence directly follows the result or {@code false} if the result was 
+	 *         limited by the maximum length or the end of the stream
+	 */
+	public boolean isTerminated() {
+		return getResultEnd() == bestStart;
+	}
+	
+	
+	/**
+	 * Returns the length of the termination sequence that follows the result, if {@link #isTerminated()} returns 
+	 * {@code true}.
+	 * 
+	 * @return the number of elements to be consumed after the result
+	 */
+	public int getTerminatorLength() {
+		return bestLength;
+	}
+	
+	
+	/**
+	 * Reports a match that is not part of the termination set, e.g. a whitespace. Matches starting in front of the 
+	 * current best match or at the same position with a lower index replace it.
+	 * 
+	 * @param start the start position of the match
+	 * @param length the length of the match
+	 * @param index the priority of the match (Termination sequences have their index in the set. Negative values 
+	 *        can be used to prefer the match over termination sequences starting at the same position.)
+	 */
+	public void addMatch(long start, int length, int index) {
+		if ((start < bestStart) || ((start == bestStart) && (index < bestIndex))) {
+			bestStart = start;
+			bestLength = length;
+			bestIndex = index;
+		}
+	}
+	
+	
+	/**
+	 * Processes the next element of the stream.
+	 * 
+	 * @param c the element at the position {@link #getScanned()} (Bytes are represented by characters with the same 
+	 *        unsigned value.)
+	 */
+	public void next(char c) {
+		state = terminators.nextState(state, c);
+		int index = terminators.getMatch(state);
+		if (index != -1) {
+			int length = terminators.getSequence(index).length();
+			addMatch(scanned - length + 1, length, index);
+		}
+		scanned++;
+	}
+}
@@ -19,81 +19,185 @@
 package info.bioinfweb.commons.io;
 
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 
 
 /**
  * Offers methods that read the whole content of a text file and return it as a string.
+ * <p>
+ * The methods that take a {@link Charset} read the text in a single pass into a character array (which is sized
+ * from the file length if it is known) and return it unchanged. The methods without a character set use the
+ * platform default character set, convert all line breaks to {@code '\n'} and terminate the last line with
+ * {@code '\n'}.
  * 
  * @author Ben St&ouml;ver
  */
 public class TextReader {
+	/** The initial buffer size used if the length of the text is unknown. */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+
 	public static String readText(URL url) throws IOException {
 		return readText(url.openStream());
 	}
-	
-	
+
+
 	public static String readText(File file) throws IOException {
-		if (file.length() > Integer.MAX_VALUE) {
+		return toNormalizedString(readCharBuffer(file, Charset.defaultCharset()));
+	}
+
+
+	public static String readText(InputStream stream) throws IOException {
+		return readText(stream, DEFAULT_BUFFER_SIZE);
+	}
+
+
+	public static String readText(InputStream stream, int bufferSize) throws IOException {
+		return toNormalizedString(readCharBuffer(stream, Charset.defaultCharset(), bufferSize));
+	}
+
+
+	/**
+	 * Reads the whole content of the specified URL.
+	 * 
+	 * @param url the URL to read from
+	 * @param charset the character set of the content
+	 * @return the unchanged text
+	 * @throws IOException if an I/O error occurs while reading
+	 * @since 3.4.0
+	 */
+	public static String readText(URL url, Charset charset) throws IOException {
+		return readText(url.openStream(), charset);
+	}
+
+
+	/**
+	 * Reads the whole content of the specified file. The returned string is created from a character array sized from
+	 * the file length, so that no intermediate copies are necessary.
+	 * 
+	 * @param file the file to read from
+	 * @param charset the character set of the file
+	 * @return the unchanged text
+	 * @throws IOException if an I/O error occurs while reading or the file is too large to be represented as a string
+	 * @since 3.4.0
+	 */
+	public static String readText(File file, Charset charset) throws IOException {
+		return readCharBuffer(file, charset).toString();
+	}
+
+
+	/**
+	 * Reads the whole content of the specified stream. The stream is closed afterwards.
+	 * 
+	 * @param stream the stream to read from
+	 * @param charset the character set of the stream
+	 * @return the unchanged text
+	 * @throws IOException if an I/O error occurs while reading
+	 * @since 3.4.0
+	 */
+	public static String readText(InputStream stream, Charset charset) throws IOException {
+		return readCharBuffer(stream, charset, DEFAULT_BUFFER_SIZE).toString();
+	}
+
+
+	/**
+	 * Reads the whole content of the specified file into a character buffer. In contrast to
+	 * {@link #readText(File, Charset)} the characters are not copied into a string afterwards, which halves the
+	 * memory needed for very large files.
+	 * 
+	 * @param file the file to read from
+	 * @param charset the character set of the file
+	 * @return a buffer wrapping the character array the text was read into (Its position is 0 and its limit is the
+	 *         length of the text.)
+	 * @throws IOException if an I/O error occurs while reading or the file is too large to be represented in a buffer
+	 * @since 3.4.0
+	 */
+	public static CharBuffer readCharBuffer(File file, Charset charset) throws IOException {
+		double maxLength = file.length() * (double)charset.newDecoder().maxCharsPerByte();  // Exact upper bound for most character sets (e.g. UTF-8)
+		if (maxLength >= Integer.MAX_VALUE) {
 			throw new IOException("The file \"" + file.getAbsolutePath() + "\" is too large to " +
 					"be loaded to a string.");
 		}
 		else {
-			return readText(new FileInputStream(file), (int)file.length());
+			return readCharBuffer(new FileInputStream(file), charset, (int)maxLength);
 		}
 	}
-	
-	
-	public static String readText(InputStream stream) throws IOException {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-		
-		ArrayList<String> bufferList = new ArrayList<String>();
-		int length = 0;
+
+
+	/**
+	 * Reads the whole content of the specified stream into a character buffer. The stream is closed afterwards.
+	 * 
+	 * @param stream the stream to read from
+	 * @param charset the character set of the stream
+	 * @param expectedLength the expected number of characters (Specifying the exact length or an upper bound avoids
+	 *        enlarging the internal array during reading.)
+	 * @return a buffer wrapping the character array the text was read into (Its position is 0 and its limit is the
+	 *         length of the text.)
+	 * @throws IOException if an I/O error occurs while reading or the text is too large to be represented in a buffer
+	 * @since 3.4.0
+	 */
+	public static CharBuffer readCharBuffer(InputStream stream, Charset charset, int expectedLength) throws IOException {
+		Reader reader = new InputStreamReader(stream, charset);
 		try {
-			String line = reader.readLine(); 
-			while (line != null) {
-				bufferList.add(line);
-				length += line.length() + 1;  // + 1 für Zeilenumbruch
-				line = reader.readLine(); 
+			char[] buffer = new char[Math.max(16, expectedLength + 1)];  // One additional character allows to detect the end without enlarging the array.
+			int length = 0;
+			int charsRead = reader.read(buffer, 0, buffer.length);
+			while (charsRead != -1) {
+				length += charsRead;
+				if (length == buffer.length) {
+					if (buffer.length == Integer.MAX_VALUE) {
+						throw new IOException("The text is too large to be represented in a buffer.");
+					}
+					buffer = Arrays.copyOf(buffer, (int)Math.min(Integer.MAX_VALUE, 2L * buffer.length));
+				}
+				charsRead = reader.read(buffer, length, buffer.length - length);
 			}
+			return CharBuffer.wrap(buffer, 0, length);
 		}
 		finally {
 			reader.close();
 		}
-		
-		StringBuilder builder = new StringBuilder(length);
-		for (int i = 0; i < bufferList.size(); i++) {
-			builder.append(bufferList.get(i) + "\n");
-		}
-		bufferList.clear();
-		
-		return builder.toString();
 	}
-	
-	
-	public static String readText(InputStream stream, int bufferSize) throws IOException {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-		StringBuilder result = new StringBuilder(bufferSize);
-		
-		try {
-			String line = reader.readLine(); 
-			while (line != null) {
-				result.append(line + "\n");
-				line = reader.readLine(); 
+
+
+	/**
+	 * Converts all line breaks of the specified text to {@code '\n'} and terminates the last line with {@code '\n'},
+	 * as it was done by previous versions using {@link java.io.BufferedReader#readLine()}. The conversion is done in
+	 * the backing array of {@code text}.
+	 * 
+	 * @param text the buffer returned by {@link #readCharBuffer(InputStream, Charset, int)}
+	 * @return the converted text
+	 */
+	private static String toNormalizedString(CharBuffer text) {
+		char[] chars = text.array();
+		int length = text.limit();
+		int targetPos = 0;
+		for (int sourcePos = 0; sourcePos < length; sourcePos++) {
+			char c = chars[sourcePos];
+			if (c == '\r') {
+				c = '\n';
+				if ((sourcePos + 1 < length) && (chars[sourcePos + 1] == '\n')) {
+					sourcePos++;
+				}
 			}
+			chars[targetPos] = c;
+			targetPos++;
 		}
-		finally {
-			reader.close();
-		}		
-		
-		return result.toString();
+
+		if ((targetPos > 0) && (chars[targetPos - 1] != '\n')) {
+			chars[targetPos] = '\n';  // The array always contains at least one additional element. (See readCharBuffer().)
+			targetPos++;
+		}
+		return new String(chars, 0, targetPos);
 	}
 }
@@ -19,16 +19,25 @@
 package info.bioinfweb.commons.io;
 
 
+import info.bioinfweb.commons.Math2;
+
 import java.awt.Color;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -36,6 +45,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
@@ -55,6 +65,210 @@ public class XMLUtils {
 	
 	public static final Pattern XSD_FILE_NAME_PATTERN = Pattern.compile(".+/(.+)\\.xsd\\s*", Pattern.CASE_INSENSITIVE);
 	
+	/** 
+	 * The default maximum number of bytes read by {@link #readRootElement(InputStream)} to find the root element.
+	 * 
+	 * @since 3.4.0 
+	 */
+	public static final int DEFAULT_ROOT_ELEMENT_SEARCH_LENGTH = 1024 * 1024;
+	
+	/** 
+	 * The maximum number of files for which the results of {@link #extractFormatVersion(File)} are cached. 
+	 * 
+	 * @since 3.4.0 
+	 */
+	public static final int FORMAT_VERSION_CACHE_SIZE = 256;
+	
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+	private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+	
+	
+	/**
+	 * Stores a format version together with the properties of the file it was extracted from.
+	 */
+	private static class FormatVersionCacheEntry {
+		public long size;
+		public long lastModified;
+		public FormatVersion version;
+		
+		public FormatVersionCacheEntry(long size, long lastModified, FormatVersion version) {
+			super();
+			this.size = size;
+			this.lastModified = lastModified;
+			this.version = version;
+		}
+	}
+	
+	
+	private static final Map<String, FormatVersionCacheEntry> FORMAT_VERSION_CACHE = Collections.synchronizedMap(
+			new LinkedHashMap<String, FormatVersionCacheEntry>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, FormatVersionCacheEntry> eldest) {
+					return size() > FORMAT_VERSION_CACHE_SIZE;
+				}
+			});
+	
+	
+	/**
+	 * Collects the characters of consecutive character events and provides views on parts of them, which can be passed to
+	 * the parsing methods of {@link Math2} without creating strings.
+	 */
+	private static class TextBuffer implements CharSequence {
+		private static final int INITIAL_CAPACITY = 64;
+		private static final int MAX_RETAINED_CAPACITY = 1024;
+		
+		private char[] chars = new char[INITIAL_CAPACITY];
+		private int textLength = 0;
+		private int start = 0;
+		private int length = 0;
+		private int eventPosition = -1;
+		
+		public void clear() {
+			textLength = 0;
+			start = 0;
+			length = 0;
+		}
+		
+		/**
+		 * Clears this buffer and replaces its array by a smaller one, if it was enlarged beyond 
+		 * {@link #MAX_RETAINED_CAPACITY} to hold a long text. That way no large arrays remain referenced by the thread 
+		 * local instances.
+		 */
+		public void release() {
+			clear();
+			eventPosition = -1;
+			if (chars.length > MAX_RETAINED_CAPACITY) {
+				chars = new char[INITIAL_CAPACITY];
+			}
+		}
+		
+		public void append(char[] source, int sourceStart, int sourceLength) {
+			if (textLength + sourceLength > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(2 * chars.length, textLength + sourceLength));
+			}
+			System.arraycopy(source, sourceStart, chars, textLength, sourceLength);
+			textLength += sourceLength;
+		}
+		
+		/**
+		 * Sets the view of this sequence to the whole text.
+		 */
+		public void viewAll() {
+			start = 0;
+			length = textLength;
+		}
+		
+		/**
+		 * Sets the view of this sequence to the whole text without leading and trailing whitespace.
+		 */
+		public void viewTrimmed() {
+			start = 0;
+			int end = textLength;
+			while ((start < end) && (chars[start] <= ' ')) {
+				start++;
+			}
+			while ((end > start) && (chars[end - 1] <= ' ')) {
+				end--;
+			}
+			length = end - start;
+		}
+		
+		/**
+		 * Sets the view of this sequence to the next whitespace separated token behind the current view.
+		 * 
+		 * @return {@code true} if another token was found or {@code false} otherwise
+		 */
+		public boolean viewNextToken() {
+			int pos = start + length;
+			while ((pos < textLength) && (chars[pos] <= ' ')) {
+				pos++;
+			}
+			start = pos;
+			while ((pos < textLength) && (chars[pos] > ' ')) {
+				pos++;
+			}
+			length = pos - start;
+			return length > 0;
+		}
+		
+		/**
+		 * Parses the current view using {@link Math2#parseDouble(CharSequence)} without accepting {@code ','} as a 
+		 * decimal separator (as {@link Double#parseDouble(String)} does). 
+		 */
+		public double parseDouble() {
+			for (int i = start; i < start + length; i++) {
+				if (chars[i] == ',') {
+					return Double.parseDouble(toString());  // Throws the same exception as before.
+				}
+			}
+			return Math2.parseDouble(this);
+		}
+		
+		@Override
+		public int length() {
+			return length;
+		}
+		
+		@Override
+		public char charAt(int index) {
+			return chars[start + index];
+		}
+		
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(chars, this.start + start, end - start);
+		}
+		
+		@Override
+		public String toString() {
+			return new String(chars, start, length);
+		}
+	}
+	
+	
+	private static final ThreadLocal<TextBuffer> TEXT_BUFFER = new ThreadLocal<TextBuffer>() {
+		@Override
+		protected TextBuffer initialValue() {
+			return new TextBuffer();
+		}
+	};
+	
+	
+	/**
+	 * Creates a new {@link XMLStreamReader} using an {@link XMLInputFactory} which is shared by all calls of this method. 
+	 * This avoids the service lookup performed by {@link XMLInputFactory#newInstance()}. Since the factory itself is not
+	 * guaranteed to be thread-safe, the creation of readers is synchronized, but the returned readers can be used in 
+	 * parallel.
+	 * 
+	 * @param stream the stream to read the XML data from
+	 * @return the new reader
+	 * @throws XMLStreamException if the reader cannot be created
+	 * @since 3.4.0
+	 */
+	public static XMLStreamReader createXMLStreamReader(InputStream stream) throws XMLStreamException {
+		synchronized (INPUT_FACTORY) {
+			return INPUT_FACTORY.createXMLStreamReader(stream);
+		}
+	}
+	
+	
+	/**
+	 * Creates a new {@link XMLEventReader} using an {@link XMLInputFactory} which is shared by all calls of this method.
+	 * 
+	 * @param stream the stream to read the XML data from
+	 * @return the new reader
+	 * @throws XMLStreamException if the reader cannot be created
+	 * @since 3.4.0
+	 * @see #createXMLStreamReader(InputStream)
+	 */
+	public static XMLEventReader createXMLEventReader(InputStream stream) throws XMLStreamException {
+		synchronized (INPUT_FACTORY) {
+			return INPUT_FACTORY.createXMLEventReader(stream);
+		}
+	}
+	
 	
   /**
    * Reads all events from the {@link XMLEventReader} until one more end element than start elements is found.
@@ -286,6 +500,8 @@ public class XMLUtils {
 	/**
 	 * Reads the characters from the next event of the {@link XMLStreamReader} a parses them as a {@code int} value.
 	 * <p>
+	 * The characters are parsed directly from {@link XMLStreamReader#getTextCharacters()} without creating a string.
+	 * <p>
 	 * After calling this method {@code reader} will be positioned at the first non-character event after the cursor's position 
 	 * before calling this method.
 	 * 
@@ -295,7 +511,17 @@ public class XMLUtils {
 	 * @throws NumberFormatException if no {@code int} can be parsed from the current characters
 	 */
 	public static int readCharactersAsInt(XMLStreamReader reader) throws XMLStreamException {
-		return Integer.parseInt(readCharactersAsString(reader));
+		TextBuffer text = readCharactersToBuffer(reader);
+		try {
+			text.viewNextToken();  // Integer.parseInt() does not accept whitespace.
+			if (text.length() < text.textLength) {
+				throw new NumberFormatException("For input string: \"" + new String(text.chars, 0, text.textLength) + "\"");
+			}
+			return Math2.parseInt(text);
+		}
+		finally {
+			text.release();
+		}
 	}
 	
 	
@@ -318,6 +544,8 @@ public class XMLUtils {
 	/**
 	 * Reads the characters from the next event of the {@link XMLStreamReader} a parses them as a {@code long} value.
 	 * <p>
+	 * The characters are parsed directly from {@link XMLStreamReader#getTextCharacters()} without creating a string.
+	 * <p>
 	 * After calling this method {@code reader} will be positioned at the first non-character event after the cursor's position 
 	 * before calling this method.
 	 * 
@@ -327,7 +555,17 @@ public class XMLUtils {
 	 * @throws NumberFormatException if no {@code long} can be parsed from the current characters
 	 */
 	public static long readCharactersAsLong(XMLStreamReader reader) throws XMLStreamException {
-		return Long.parseLong(readCharactersAsString(reader));
+		TextBuffer text = readCharactersToBuffer(reader);
+		try {
+			text.viewNextToken();  // Long.parseLong() does not accept whitespace.
+			if (text.length() < text.textLength) {
+				throw new NumberFormatException("For input string: \"" + new String(text.chars, 0, text.textLength) + "\"");
+			}
+			return Math2.parseLong(text);
+		}
+		finally {
+			text.release();
+		}
 	}
 	
 	
@@ -382,6 +620,8 @@ public class XMLUtils {
 	/**
 	 * Reads the characters from the next event of the {@link XMLStreamReader} a parses them as a {@code double} value.
 	 * <p>
+	 * The characters are parsed directly from {@link XMLStreamReader#getTextCharacters()} without creating a string.
+	 * <p>
 	 * After calling this method {@code reader} will be positioned at the first non-character event after the cursor's position 
 	 * before calling this method.
 	 * 
@@ -391,36 +631,232 @@ public class XMLUtils {
 	 * @throws NumberFormatException if no {@code double} can be parsed from the current characters
 	 */
 	public static double readCharactersAsDouble(XMLStreamReader reader) throws XMLStreamException {
-		return Double.parseDouble(readCharactersAsString(reader));
+		TextBuffer text = readCharactersToBuffer(reader);
+		try {
+			text.viewTrimmed();  // Double.parseDouble() ignores leading and trailing whitespace.
+			return text.parseDouble();
+		}
+		finally {
+			text.release();
+		}
+	}
+	
+	
+	/**
+	 * Reads the characters from the next event of the {@link XMLStreamReader} and parses them as a whitespace separated 
+	 * list of {@code int} values.
+	 * <p>
+	 * The characters of all consecutive character events are parsed directly from the character arrays provided by 
+	 * {@link XMLStreamReader#getTextCharacters()}, so that no string is created for the content or for single values.
+	 * Values are parsed while the events are processed and only the characters of the current value are buffered, so 
+	 * the whole content of the element is never copied. Values may be split between several character events (e.g. if 
+	 * {@code reader} does not coalesce them).
+	 * <p>
+	 * After calling this method {@code reader} will be positioned at the first non-character event after the cursor's 
+	 * position before calling this method.
+	 * 
+	 * @param reader the reader to read the next element from
+	 * @return an array containing all parsed values (empty if no values were found)
+	 * @throws XMLStreamException if thrown by {@code reader}
+	 * @throws NumberFormatException if a token is not a valid {@code int} value
+	 * @since 3.4.0
+	 */
+	public static int[] readCharactersAsIntArray(XMLStreamReader reader) throws XMLStreamException {
+		TextBuffer token = TEXT_BUFFER.get();
+		try {
+			int[] result = new int[16];
+			int count = 0;
+			while (readNextToken(reader, token)) {
+				if (count == result.length) {
+					result = Arrays.copyOf(result, 2 * result.length);
+				}
+				result[count] = Math2.parseInt(token);
+				count++;
+			}
+			return Arrays.copyOf(result, count);
+		}
+		finally {
+			token.release();
+		}
+	}
+	
+	
+	/**
+	 * Reads the characters from the next event of the {@link XMLStreamReader} and parses them as a whitespace separated 
+	 * list of {@code double} values. Values are parsed as it is done by {@link #readCharactersAsDouble(XMLStreamReader)}.
+	 * <p>
+	 * After calling this method {@code reader} will be positioned at the first non-character event after the cursor's 
+	 * position before calling this method.
+	 * 
+	 * @param reader the reader to read the next element from
+	 * @return an array containing all parsed values (empty if no values were found)
+	 * @throws XMLStreamException if thrown by {@code reader}
+	 * @throws NumberFormatException if a token is not a valid {@code double} value
+	 * @since 3.4.0
+	 * @see #readCharactersAsIntArray(XMLStreamReader)
+	 */
+	public static double[] readCharactersAsDoubleArray(XMLStreamReader reader) throws XMLStreamException {
+		TextBuffer token = TEXT_BUFFER.get();
+		try {
+			double[] result = new double[16];
+			int count = 0;
+			while (readNextToken(reader, token)) {
+				if (count == result.length) {
+					result = Arrays.copyOf(result, 2 * result.length);
+				}
+				result[count] = token.parseDouble();
+				count++;
+			}
+			return Arrays.copyOf(result, count);
+		}
+		finally {
+			token.release();
+		}
+	}
+	
+	
+	/**
+	 * Copies the next whitespace separated token from the current and following character events into {@code token}, 
+	 * skipping comments as it is done by {@link #readCharactersAsString(XMLStreamReader)}. The position behind the token 
+	 * in the current event is stored in {@code token}, so that the next call continues from there. {@code reader} is only
+	 * moved to the next event, if the current one contains no further characters.
+	 * 
+	 * @param reader the reader to read the events from
+	 * @param token the buffer to copy the characters of the token to (which must have been released before the first 
+	 *        call for an element)
+	 * @return {@code true} if another token was found or {@code false} if the first non-character event was reached
+	 * @throws XMLStreamException if thrown by {@code reader}
+	 */
+	private static boolean readNextToken(XMLStreamReader reader, TextBuffer token) throws XMLStreamException {
+		token.clear();
+		while (isCharacterType(reader.getEventType()) || (reader.getEventType() == XMLStreamConstants.COMMENT)) {
+			if (isCharacterType(reader.getEventType())) {
+				char[] chars = reader.getTextCharacters();
+				int end = reader.getTextStart() + reader.getTextLength();
+				int pos = (token.eventPosition == -1) ? reader.getTextStart() : token.eventPosition;
+				if (token.textLength == 0) {
+					while ((pos < end) && (chars[pos] <= ' ')) {
+						pos++;
+					}
+				}
+				int tokenStart = pos;
+				while ((pos < end) && (chars[pos] > ' ')) {
+					pos++;
+				}
+				token.append(chars, tokenStart, pos - tokenStart);
+				if (pos < end) {  // The token is terminated by whitespace in this event.
+					token.eventPosition = pos;
+					token.viewAll();
+					return true;
+				}
+			}
+			token.eventPosition = -1;
+			reader.next();
+		}
+		token.viewAll();
+		return token.textLength > 0;
+	}
+	
+	
+	/**
+	 * Copies the characters of all consecutive character events into the buffer of the current thread, skipping comments,
+	 * as it is done by {@link #readCharactersAsString(XMLStreamReader)}.
+	 * 
+	 * @param reader the reader to read the events from
+	 * @return the buffer with an empty view on the characters (which must be released after use)
+	 * @throws XMLStreamException if thrown by {@code reader}
+	 */
+	private static TextBuffer readCharactersToBuffer(XMLStreamReader reader) throws XMLStreamException {
+		TextBuffer result = TEXT_BUFFER.get();
+		result.clear();
+		while (isCharacterType(reader.getEventType()) || (reader.getEventType() == XMLStreamConstants.COMMENT)) {
+			if (isCharacterType(reader.getEventType())) {
+				result.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+			}
+			reader.next();
+		}
+		return result;
 	}
 	
 	
 	/**
 	 * Returns the root element of the XML file that can be read from the specified stream and closes it.
+	 * <p>
+	 * At most {@link #DEFAULT_ROOT_ELEMENT_SEARCH_LENGTH} bytes are read to find the root element.
 	 * 
 	 * @param stream the stream to read from (closed after the execution of this method)
 	 * @return the root element of the XML data
 	 * @throws IOException if the stream cannot be closed
-	 * @throws XMLStreamException if the XML format is invalid
+	 * @throws XMLStreamException if the XML format is invalid or the root element is not contained in the searched prefix
+	 * @see #readRootElement(InputStream, long)
 	 */
 	public static StartElement readRootElement(InputStream stream) throws IOException, XMLStreamException {
-		XMLEventReader reader = XMLInputFactory.newInstance().createXMLEventReader(stream);
-		
-		StartElement result = null;
+		return readRootElement(stream, DEFAULT_ROOT_ELEMENT_SEARCH_LENGTH);
+	}
+	
+	
+	/**
+	 * Returns the root element of the XML file that can be read from the specified stream and closes it.
+	 * <p>
+	 * The stream is read using an {@link XMLStreamReader} from the shared factory (see 
+	 * {@link #createXMLStreamReader(InputStream)}) and reading stops at the root element. Only the event for the root 
+	 * element is created. Not more than {@code maxLength} bytes are read from the stream, which allows to reject large
+	 * files that do not contain XML data quickly.
+	 * 
+	 * @param stream the stream to read from (closed after the execution of this method)
+	 * @param maxLength the maximum number of bytes to be read from the stream
+	 * @return the root element of the XML data
+	 * @throws IOException if the stream cannot be closed
+	 * @throws XMLStreamException if the XML format is invalid or the root element is not contained in the first 
+	 *         {@code maxLength} bytes
+	 * @since 3.4.0
+	 */
+	public static StartElement readRootElement(InputStream stream, long maxLength) throws IOException, XMLStreamException {
 		try {
-			XMLEvent event;
-			while (reader.hasNext() && (result == null)) {
-	      event = reader.nextEvent();
-	      if (event.getEventType() == XMLStreamConstants.START_ELEMENT) {
-	      	result = event.asStartElement();
-	      }
-	    }
+			XMLStreamReader reader = createXMLStreamReader(new LimitedInputStream(stream, maxLength));
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+						return createStartElement(reader);
+					}
+				}
+				return null;
+			}
+			finally {
+				reader.close();
+			}
 		}
 		finally {
-	    reader.close();
-	    stream.close();
+			stream.close();
+		}
+	}
+	
+	
+	/**
+	 * Creates a start element event from the current state of the specified reader.
+	 */
+	private static StartElement createStartElement(XMLStreamReader reader) {
+		List<Attribute> attributes = new ArrayList<Attribute>(reader.getAttributeCount());
+		List<Namespace> namespaces = new ArrayList<Namespace>(reader.getNamespaceCount());
+		synchronized (EVENT_FACTORY) {
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				QName name = reader.getAttributeName(i);
+				attributes.add(EVENT_FACTORY.createAttribute(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), 
+						reader.getAttributeValue(i)));
+			}
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				String prefix = reader.getNamespacePrefix(i);
+				if ((prefix == null) || prefix.isEmpty()) {
+					namespaces.add(EVENT_FACTORY.createNamespace(reader.getNamespaceURI(i)));
+				}
+				else {
+					namespaces.add(EVENT_FACTORY.createNamespace(prefix, reader.getNamespaceURI(i)));
+				}
+			}
+			QName name = reader.getName();
+			return EVENT_FACTORY.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), 
+					attributes.iterator(), namespaces.iterator(), reader.getNamespaceContext());
 		}
-		return result;
 	}
 	
 	
@@ -517,6 +953,48 @@ public class XMLUtils {
 	}
 	
 	
+	/**
+	 * Extracts the format version from the <code>xsi:schemaLocation</code> attribute of the root element of the specified 
+	 * file.
+	 * <p>
+	 * Results are cached for the last {@link #FORMAT_VERSION_CACHE_SIZE} files. A cached result is only used if the size 
+	 * and modification time of the file are unchanged. (Exceptions are not cached.)
+	 * 
+	 * @param file the XML file to read the root element from
+	 * @return the format version or <code>null</code> if the root element has no <code>xsi:schemaLocation</code> attribute
+	 *         or the file contains no root element
+	 * @throws IOException if an I/O error occurs while reading the file
+	 * @throws XMLStreamException if the file does not contain valid XML data
+	 * @throws InvalidXSDPathException if the path to the XSD file in malformed
+	 * @since 3.4.0
+	 * @see #extractFormatVersion(StartElement)
+	 */
+	public static FormatVersion extractFormatVersion(File file) throws IOException, XMLStreamException, InvalidXSDPathException {
+		String key = file.getAbsolutePath();
+		long size = file.length();
+		long lastModified = file.lastModified();
+		
+		FormatVersionCacheEntry entry = FORMAT_VERSION_CACHE.get(key);
+		if ((entry == null) || (entry.size != size) || (entry.lastModified != lastModified)) {
+			StartElement rootElement = readRootElement(file);
+			entry = new FormatVersionCacheEntry(size, lastModified, 
+					(rootElement == null) ? null : extractFormatVersion(rootElement));
+			FORMAT_VERSION_CACHE.put(key, entry);
+		}
+		return (entry.version == null) ? null : entry.version.clone();  // Format versions are mutable.
+	}
+	
+	
+	/**
+	 * Removes all results of {@link #extractFormatVersion(File)} from the cache.
+	 * 
+	 * @since 3.4.0
+	 */
+	public static void clearFormatVersionCache() {
+		FORMAT_VERSION_CACHE.clear();
+	}
+	
+	
 	/**
 	 * Writes a start element defined by a {@link QName} to an {@link XMLStreamWriter}.
 	 * 
@@ -0,0 +1,272 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io.streammessage;
+
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+
+
+/**
+ * Reads {@link Message}s from length prefixed frames written by {@link MessageFrameWriter}.
+ * <p>
+ * Bytes are read from the channel in large blocks into a reusable {@link ByteBuffer}, from which all complete frames 
+ * are decoded before the channel is accessed again. Message objects are obtained from a {@link MessageReader}, so that
+ * pooling can be used by passing messages that are no longer needed to {@link #release(Message)}. 
+ * <p>
+ * Since the buffer is enlarged to hold a whole frame, frames longer than {@link #getMaxFrameLength()} are rejected
+ * before any memory is allocated for them. That way a corrupt or malicious length prefix cannot exhaust the heap.
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * 
+ * @param <T> - the message type
+ */
+public class MessageFrameReader<T extends Enum<T>> {
+	/** The initial capacity of the buffer frames are read into. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	
+	/** The default maximum number of bytes a single frame may contain, not counting its length prefix. */
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+	
+	
+	/**
+	 * Reads the current frame from the buffer of the enclosing instance. The limit of the buffer is set to the end of 
+	 * the frame while decoding it.
+	 */
+	private class BufferInputStream extends InputStream {
+		@Override
+		public int read() throws IOException {
+			if (buffer.hasRemaining()) {
+				return buffer.get() & 0xFF;
+			}
+			else {
+				return -1;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			else if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			else {
+				len = Math.min(len, buffer.remaining());
+				buffer.get(b, off, len);
+				return len;
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			return buffer.remaining();
+		}
+	}
+	
+	
+	private ReadableByteChannel channel;
+	private MessageReader<T> messageReader;
+	private ByteBuffer buffer;
+	private DataInputStream dataStream;
+	private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param channel the channel to read the frames from
+	 * @param messageReader the reader used to create the message objects
+	 */
+	public MessageFrameReader(ReadableByteChannel channel, MessageReader<T> messageReader) {
+		this(channel, messageReader, DEFAULT_BUFFER_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param channel the channel to read the frames from
+	 * @param messageReader the reader used to create the message objects
+	 * @param bufferSize the initial capacity of the buffer (It is enlarged if a single frame does not fit.)
+	 * @throws IllegalArgumentException if {@code bufferSize} is lower than {@link MessageFrameWriter#LENGTH_PREFIX_SIZE}
+	 */
+	public MessageFrameReader(ReadableByteChannel channel, MessageReader<T> messageReader, int bufferSize) {
+		super();
+		if (bufferSize < MessageFrameWriter.LENGTH_PREFIX_SIZE) {
+			throw new IllegalArgumentException("The buffer size must be at least " + MessageFrameWriter.LENGTH_PREFIX_SIZE + 
+					".");
+		}
+		else {
+			this.channel = channel;
+			this.messageReader = messageReader;
+			buffer = ByteBuffer.allocate(bufferSize);
+			buffer.flip();  // The buffer is initially empty and always kept in read mode between calls.
+			dataStream = new DataInputStream(new BufferInputStream());
+		}
+	}
+	
+	
+	/**
+	 * Returns the channel this instance reads from.
+	 * 
+	 * @return the underlying channel
+	 */
+	public ReadableByteChannel getChannel() {
+		return channel;
+	}
+
+
+	/**
+	 * Returns the message reader used to create message objects.
+	 * 
+	 * @return the message reader
+	 */
+	public MessageReader<T> getMessageReader() {
+		return messageReader;
+	}
+
+
+	/**
+	 * Returns the maximum length a frame may have to be accepted by {@link #read()}.
+	 * 
+	 * @return the maximum number of bytes of a frame, not counting its length prefix
+	 */
+	public int getMaxFrameLength() {
+		return maxFrameLength;
+	}
+
+
+	/**
+	 * Sets the maximum length a frame may have to be accepted by {@link #read()}. The default is 
+	 * {@link #DEFAULT_MAX_FRAME_LENGTH}.
+	 * 
+	 * @param maxFrameLength the maximum number of bytes of a frame, not counting its length prefix
+	 * @throws IllegalArgumentException if {@code maxFrameLength} is negative
+	 */
+	public void setMaxFrameLength(int maxFrameLength) {
+		if (maxFrameLength < 0) {
+			throw new IllegalArgumentException("The maximum frame length must not be negative.");
+		}
+		else {
+			this.maxFrameLength = maxFrameLength;
+		}
+	}
+
+
+	/**
+	 * Makes sure that at least the specified number of bytes is available in the buffer.
+	 * 
+	 * @param length the number of bytes needed
+	 * @return {@code true} if the bytes are available or {@code false} if the end of the channel was reached before
+	 *         any additional byte was read
+	 * @throws EOFException if the end of the channel was reached after some of the requested bytes were read
+	 */
+	private boolean ensureAvailable(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			if (buffer.capacity() < length) {
+				ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), length));
+				newBuffer.put(buffer);
+				buffer = newBuffer;
+			}
+			else {
+				buffer.compact();
+			}
+			
+			try {
+				while (buffer.position() < length) {
+					if (channel.read(buffer) == -1) {
+						if (buffer.position() == 0) {
+							return false;
+						}
+						else {
+							throw new EOFException("The channel ended inside a frame.");
+						}
+					}
+				}
+			}
+			finally {
+				buffer.flip();
+			}
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Reads the next message from the channel.
+	 * 
+	 * @return the message or {@code null} if the end of the channel was reached 
+	 * @throws IOException if an I/O error occurs, the channel ends inside a frame, the frame is invalid or longer than
+	 *         {@link #getMaxFrameLength()}
+	 * @throws NewerMessageVersionException if the frame contains a message with a newer version than the according class
+	 */
+	public Message<T> read() throws IOException {
+		if (!ensureAvailable(MessageFrameWriter.LENGTH_PREFIX_SIZE)) {
+			return null;
+		}
+		else {
+			int length = buffer.getInt();
+			if (length < 0) {
+				throw new IOException("Invalid frame length " + length + ".");
+			}
+			else if (length > maxFrameLength) {
+				throw new IOException("The frame length " + length + " exceeds the maximum frame length " + maxFrameLength + 
+						".");
+			}
+			else if (!ensureAvailable(length)) {
+				throw new EOFException("The channel ended inside a frame.");
+			}
+			
+			int limit = buffer.limit();
+			int end = buffer.position() + length;
+			buffer.limit(end);
+			try {
+				Message<T> result = messageReader.createMessage(messageReader.getType(dataStream.readInt()));
+				result.read(dataStream);
+				return result;
+			}
+			catch (EOFException e) {
+				throw new IOException("The frame does not contain a complete message.", e);
+			}
+			finally {
+				buffer.limit(limit);
+				buffer.position(end);  // Skips data not read by the message.
+			}
+		}
+	}
+	
+	
+	/**
+	 * Passes a message that is no longer needed to the pool of the message reader. 
+	 * 
+	 * @param message the message object to be reused
+	 * @see MessageReader#release(Message)
+	 */
+	public void release(Message<T> message) {
+		messageReader.release(message);
+	}
+}
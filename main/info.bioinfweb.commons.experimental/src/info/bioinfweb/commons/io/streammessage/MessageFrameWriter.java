@@ -0,0 +1,191 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io.streammessage;
+
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+
+
+/**
+ * Writes {@link Message}s as length prefixed frames to a channel (e.g. a {@link java.nio.channels.SocketChannel}).
+ * <p>
+ * Each frame consists of an {@code int} containing the number of following bytes and the data written by
+ * {@link Message#write(DataOutputStream)}. Messages are encoded into a reusable {@link ByteBuffer}. Several messages 
+ * can be encoded into the same buffer using {@link #write(Iterable)}, so that a whole batch is passed to the channel 
+ * with a single write operation. Frames written by this class can be read using {@link MessageFrameReader}. 
+ * 
+ * @author Ben St&ouml;ver
+ * @since 3.4.0
+ * 
+ * @param <T> - the message type
+ */
+public class MessageFrameWriter<T extends Enum<T>> {
+	/** The initial capacity of the buffer used to encode messages. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	
+	/** The number of bytes used for the length prefix of a frame. */
+	public static final int LENGTH_PREFIX_SIZE = 4;
+	
+	
+	/**
+	 * Writes to the buffer of the enclosing instance and enlarges it if necessary.
+	 */
+	private class BufferOutputStream extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			ensureRemaining(1);
+			buffer.put((byte)b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ensureRemaining(len);
+			buffer.put(b, off, len);
+		}
+	}
+	
+	
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	private DataOutputStream dataStream;
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param channel the channel to write the frames to
+	 */
+	public MessageFrameWriter(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new instance of this class.
+	 * 
+	 * @param channel the channel to write the frames to
+	 * @param bufferSize the initial capacity of the encoding buffer (It is enlarged if a batch does not fit.)
+	 * @throws IllegalArgumentException if {@code bufferSize} is lower than {@link #LENGTH_PREFIX_SIZE}
+	 */
+	public MessageFrameWriter(WritableByteChannel channel, int bufferSize) {
+		super();
+		if (bufferSize < LENGTH_PREFIX_SIZE) {
+			throw new IllegalArgumentException("The buffer size must be at least " + LENGTH_PREFIX_SIZE + ".");
+		}
+		else {
+			this.channel = channel;
+			buffer = ByteBuffer.allocate(bufferSize);
+			dataStream = new DataOutputStream(new BufferOutputStream());
+		}
+	}
+	
+	
+	/**
+	 * Returns the channel this instance writes to.
+	 * 
+	 * @return the underlying channel
+	 */
+	public WritableByteChannel getChannel() {
+		return channel;
+	}
+
+
+	private void ensureRemaining(int length) {
+		if (buffer.remaining() < length) {
+			ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + length));
+			buffer.flip();
+			newBuffer.put(buffer);
+			buffer = newBuffer;
+		}
+	}
+	
+	
+	private void encode(Message<T> message) throws IOException {
+		ensureRemaining(LENGTH_PREFIX_SIZE);
+		int start = buffer.position();
+		buffer.position(start + LENGTH_PREFIX_SIZE);
+		message.write(dataStream);
+		buffer.putInt(start, buffer.position() - start - LENGTH_PREFIX_SIZE);  // The buffer may have been replaced.
+	}
+	
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);  // Non-blocking channels are not supported.
+			}
+		}
+		finally {
+			buffer.clear();
+		}
+	}
+	
+	
+	/**
+	 * Writes a single message as a frame.
+	 * 
+	 * @param message the message to be written
+	 * @throws IOException if an I/O error occurs while writing
+	 * @throws NewerMessageVersionException if thrown by {@link Message#write(DataOutputStream)}
+	 */
+	public void write(Message<T> message) throws IOException {
+		try {
+			encode(message);
+		}
+		catch (IOException | RuntimeException e) {
+			buffer.clear();
+			throw e;
+		}
+		flush();
+	}
+	
+	
+	/**
+	 * Encodes all specified messages as consecutive frames and writes them with a single write operation (or more 
+	 * operations if the channel does not accept all bytes at once).
+	 * 
+	 * @param messages the messages to be written
+	 * @return the number of messages written
+	 * @throws IOException if an I/O error occurs while writing (In this case none or only a part of the batch may have 
+	 *         been written.)
+	 * @throws NewerMessageVersionException if thrown by {@link Message#write(DataOutputStream)} (No message of the batch
+	 *         is written in this case.)
+	 */
+	public int write(Iterable<? extends Message<T>> messages) throws IOException {
+		int count = 0;
+		try {
+			for (Message<T> message : messages) {
+				encode(message);
+				count++;
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			buffer.clear();
+			throw e;
+		}
+		flush();
+		return count;
+	}
+}
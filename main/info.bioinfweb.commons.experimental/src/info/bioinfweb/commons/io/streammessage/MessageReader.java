@@ -21,31 +21,59 @@ package info.bioinfweb.commons.io.streammessage;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 
 
 /**
  * Abstract factory class that provides an {@link EnumMap} to generate and read the according 
  * {@link Message} object when a message is send over the stream.
+ * <p>
+ * Message objects are created by suppliers registered with {@link #register(Enum, Supplier)}. Message classes that
+ * are only added to {@link #getMessages()} are instantiated using a constructor {@link MethodHandle} that is looked up
+ * once per class. If pooling is enabled, message objects passed to {@link #release(Message)} are reused by later calls
+ * of {@link #createMessage(Enum)} for the same type. Note that {@link Message#doRead(DataInputStream, int)} must then
+ * overwrite all properties of a message. Instances of this class are not thread-safe.
  * 
  * @author Ben St&ouml;ver
  * 
  * @param <T> - the message type
  */
 public abstract class MessageReader<T extends Enum<T>> {
+	/** 
+	 * The default maximum number of unused message objects stored per type.
+	 * 
+	 * @since 3.4.0 
+	 */
+	public static final int DEFAULT_MAX_POOL_SIZE = 64;
+	
+	
 	private Class<T> typeClass = null;
+	private T[] types;
 	
 	
 	private Map<T, Class<? extends Message<T>>> messages = 
 		  new HashMap<T, Class<? extends Message<T>>>();
 	
+	private Map<T, Supplier<? extends Message<T>>> suppliers;
+	private Map<T, ArrayDeque<Message<T>>> pools;
+	private boolean pooling = false;
+	private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+	
 	
 	public MessageReader(Class<T> typeClass) {
 		super();
 		this.typeClass = typeClass;
+		types = typeClass.getEnumConstants();  // getEnumConstants() creates a copy each time.
+		suppliers = new EnumMap<T, Supplier<? extends Message<T>>>(typeClass);
+		pools = new EnumMap<T, ArrayDeque<Message<T>>>(typeClass);
 		fillList();
 	}
 	
@@ -58,17 +86,172 @@ public abstract class MessageReader<T extends Enum<T>> {
 	protected abstract void fillList();
 	
 	
-	public Message read(DataInputStream in) throws IOException {
-		try {
-			Message message = messages.get(typeClass.getEnumConstants()[in.readInt()]).newInstance();
-	  	message.read(in);
-			return message;
+	/**
+	 * Registers a supplier to create message objects of the specified type. Registered suppliers are preferred over the 
+	 * classes contained in {@link #getMessages()}.
+	 * 
+	 * @param type the message type
+	 * @param supplier the supplier creating new message objects for {@code type}
+	 * @since 3.4.0
+	 */
+	protected void register(T type, Supplier<? extends Message<T>> supplier) {
+		suppliers.put(type, supplier);
+	}
+	
+	
+	/**
+	 * Determines whether released message objects are reused.
+	 * 
+	 * @return {@code true} if pooling is enabled or {@code false} otherwise
+	 * @since 3.4.0
+	 */
+	public boolean isPooling() {
+		return pooling;
+	}
+
+
+	/**
+	 * Enables or disables reusing message objects passed to {@link #release(Message)}. Disabling pooling removes all
+	 * currently pooled objects.
+	 * 
+	 * @param pooling Specify {@code true} here to enable pooling or {@code false} to disable it.
+	 * @since 3.4.0
+	 */
+	public void setPooling(boolean pooling) {
+		this.pooling = pooling;
+		if (!pooling) {
+			pools.clear();
 		}
-		catch (IllegalAccessException e) {
-			throw new Error(e);  // Passiert wohl nicht
+	}
+
+
+	/**
+	 * Returns the maximum number of unused message objects stored per type.
+	 * 
+	 * @return the maximum pool size
+	 * @since 3.4.0
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+
+	/**
+	 * Sets the maximum number of unused message objects stored per type. Objects released when the pool of their type 
+	 * is full are discarded.
+	 * 
+	 * @param maxPoolSize the new maximum pool size
+	 * @throws IllegalArgumentException if {@code maxPoolSize} is lower than 0
+	 * @since 3.4.0
+	 */
+	public void setMaxPoolSize(int maxPoolSize) {
+		if (maxPoolSize < 0) {
+			throw new IllegalArgumentException("The maximum pool size must not be lower than 0.");
+		}
+		else {
+			this.maxPoolSize = maxPoolSize;
 		}
-		catch (InstantiationException e) {
-			throw new Error(e);  // Passiert wohl nicht
+	}
+
+
+	/**
+	 * Returns the message type with the specified ordinal value.
+	 * 
+	 * @param ordinal the ordinal value read from a stream
+	 * @return the according message type
+	 * @throws IOException if no type with the specified ordinal value exists
+	 * @since 3.4.0
+	 */
+	public T getType(int ordinal) throws IOException {
+		if ((ordinal < 0) || (ordinal >= types.length)) {
+			throw new IOException("The value " + ordinal + " does not denote a constant of " + typeClass.getName() + ".");
 		}
+		else {
+			return types[ordinal];
+		}
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	private Supplier<? extends Message<T>> createSupplier(T type) throws IOException {
+		Class<? extends Message<T>> messageClass = messages.get(type);
+		if (messageClass == null) {
+			throw new IOException("No message class is registered for the type " + type + ".");
+		}
+		else {
+			final MethodHandle constructor;
+			try {
+				constructor = MethodHandles.lookup().findConstructor(messageClass, MethodType.methodType(void.class));
+			}
+			catch (NoSuchMethodException | IllegalAccessException e) {
+				throw new Error(e);  // Message classes must provide an accessible default constructor.
+			}
+			return () -> {
+				try {
+					return (Message<T>)constructor.invoke();
+				}
+				catch (RuntimeException | Error e) {
+					throw e;
+				}
+				catch (Throwable e) {
+					throw new Error(e);
+				}
+			};
+		}
+	}
+	
+	
+	/**
+	 * Returns a message object of the specified type. A pooled object is returned, if pooling is enabled and one is 
+	 * available. Otherwise a new object is created.
+	 * 
+	 * @param type the type of the message
+	 * @return the message object
+	 * @throws IOException if no supplier or message class is registered for {@code type}
+	 * @since 3.4.0
+	 */
+	public Message<T> createMessage(T type) throws IOException {
+		if (pooling) {
+			ArrayDeque<Message<T>> pool = pools.get(type);
+			if ((pool != null) && !pool.isEmpty()) {
+				return pool.pop();
+			}
+		}
+		
+		Supplier<? extends Message<T>> supplier = suppliers.get(type);
+		if (supplier == null) {
+			supplier = createSupplier(type);
+			suppliers.put(type, supplier);
+		}
+		return supplier.get();
+	}
+	
+	
+	/**
+	 * Returns a message object that is no longer used to the pool of its type. This method has no effect if pooling is
+	 * disabled or the pool is full.
+	 * 
+	 * @param message the message object to be reused
+	 * @since 3.4.0
+	 */
+	public void release(Message<T> message) {
+		if (pooling) {
+			ArrayDeque<Message<T>> pool = pools.get(message.getType());
+			if (pool == null) {
+				pool = new ArrayDeque<Message<T>>();
+				pools.put(message.getType(), pool);
+			}
+			if (pool.size() < maxPoolSize) {
+				pool.push(message);
+			}
+		}
+	}
+	
+	
+	@SuppressWarnings("rawtypes")
+	public Message read(DataInputStream in) throws IOException {
+		Message<T> message = createMessage(getType(in.readInt()));
+		message.read(in);
+		return message;
 	}
 }
@@ -20,6 +20,7 @@ package info.bioinfweb.commons;
 
 
 import java.awt.Rectangle;
+import java.util.Random;
 
 import org.junit.* ;
 
@@ -149,4 +150,54 @@ public class Math2Test {
 		assertEquals(1000.2, Math2.parseDouble("1000.2"), 0.0000001);
 		assertEquals(1000.2, Math2.parseDouble("1000,2"), 0.0000001);
 	}
+	
+	
+	@Test
+	public void test_parseDouble_charSequence() {
+		String[] values = {"1000.2", "-0", "+0.000", "0.1", "-17.25e-3", "1E22", "123456789012345", "1234567890123456789", 
+				"3.14159265358979323846", "1e23", "4.9e-324", "1e400", "NaN", "-Infinity", " 12 ", "1.5d", "0x1p3", ".5", "5."};
+		for (String value : values) {
+			assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)), 
+					Double.doubleToLongBits(Math2.parseDouble(new StringBuilder(value))));
+		}
+		assertEquals(1000.2, Math2.parseDouble(new StringBuilder("1000,2")), 0.0);
+		
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			String value = (random.nextInt(100000) - 50000) + "." + random.nextInt(1000000) + "e" + (random.nextInt(40) - 20);
+			assertEquals(value, Double.parseDouble(value), Math2.parseDouble(new StringBuilder(value)), 0.0);
+		}
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void test_parseDouble_charSequenceInvalid() {
+		Math2.parseDouble(new StringBuilder("1.2.3"));
+	}
+	
+	
+	@Test
+	public void test_parseLong_charSequence() {
+		String[] values = {"0", "-0", "+17", "-9223372036854775808", "9223372036854775807", "00012"};
+		for (String value : values) {
+			assertEquals(Long.parseLong(value), Math2.parseLong(new StringBuilder(value)));
+		}
+		assertEquals(-2147483648, Math2.parseInt(new StringBuilder("-2147483648")));
+		
+		String[] invalidValues = {"", "-", "+", "9223372036854775808", "-9223372036854775809", "1.0", "1e2", " 1"};
+		for (String value : invalidValues) {
+			try {
+				Math2.parseLong(new StringBuilder(value));
+				fail("Exception expected for \"" + value + "\".");
+			}
+			catch (NumberFormatException e) {}
+		}
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void test_parseInt_charSequenceOverflow() {
+		Math2.parseInt(new StringBuilder("2147483648"));
+	}
 }
+
@@ -0,0 +1,317 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.collections;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class CompressedIntegerArrayListTest {
+	private static long[] createValues(Random random, int length) {
+		long[] result = new long[length];
+		long value = random.nextLong();
+		for (int i = 0; i < length; i++) {
+			switch ((i / 300) % 6) {  // Change the kind of values every few blocks
+				case 0:
+					value += random.nextInt(10);  // monotone
+					break;
+				case 1:
+					value = random.nextInt(1000) - 500;
+					break;
+				case 2:
+					value = 42;
+					break;
+				case 3:
+					value = random.nextLong();
+					break;
+				case 4:
+					value = random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE;
+					break;
+				default:
+					value -= 1000;  // constant differences
+			}
+			result[i] = value;
+		}
+		return result;
+	}
+	
+	
+	private static void assertListEquals(long[] expected, CompressedIntegerArrayList list) {
+		assertEquals(expected.length, list.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], list.get(i));
+		}
+		long[] values = new long[expected.length];
+		list.get(0, values, 0, values.length);
+		assertArrayEquals(expected, values);
+		assertArrayEquals(expected, list.longStream().toArray());
+	}
+	
+	
+	private static long[] toArray(List<Long> list) {
+		long[] result = new long[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i);
+		}
+		return result;
+	}
+	
+	
+	@Test
+	public void test_add_get() {
+		Random random = new Random(1);
+		long[] values = createValues(random, 5000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		for (long value : values) {
+			list.add(value);
+		}
+		assertListEquals(values, list);
+	}
+	
+	
+	@Test
+	public void test_addAll() {
+		Random random = new Random(2);
+		long[] values = createValues(random, 5000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList(100);
+		int offset = 0;
+		while (offset < values.length) {
+			int length = Math.min(random.nextInt(400), values.length - offset);
+			list.addAll(values, offset, length);
+			offset += length;
+		}
+		assertListEquals(values, list);
+	}
+	
+	
+	@Test
+	public void test_get_range() {
+		Random random = new Random(3);
+		long[] values = createValues(random, 3000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(values);
+		for (int i = 0; i < 200; i++) {
+			int from = random.nextInt(values.length);
+			int length = random.nextInt(values.length - from + 1);
+			long[] result = new long[length + 2];
+			list.get(from, result, 1, length);
+			assertArrayEquals(Arrays.copyOfRange(values, from, from + length), Arrays.copyOfRange(result, 1, length + 1));
+		}
+	}
+	
+	
+	@Test
+	public void test_compression() {
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		for (int i = 0; i < 10 * CompressedIntegerArrayList.BLOCK_LENGTH; i++) {
+			list.add(1000000000L + 3 * i);  // Constant differences need no bits.
+		}
+		assertEquals(0, list.getCompressedLength());
+		
+		list = new CompressedIntegerArrayList();
+		Random random = new Random(4);
+		long value = 0;
+		for (int i = 0; i < 10 * CompressedIntegerArrayList.BLOCK_LENGTH; i++) {
+			value += random.nextInt(16);
+			list.add(value);
+		}
+		assertEquals(10 * 2 * 4, list.getCompressedLength());  // At most 4 bits per value
+		
+		list = new CompressedIntegerArrayList();
+		for (int i = 0; i < 10 * CompressedIntegerArrayList.BLOCK_LENGTH; i++) {
+			list.add(Long.MIN_VALUE + random.nextInt(256));  // Frame of reference encoding
+		}
+		assertEquals(10 * 2 * 8, list.getCompressedLength());
+	}
+	
+	
+	@Test
+	public void test_set() {
+		Random random = new Random(5);
+		long[] values = createValues(random, 2000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(values);
+		long[] replacements = createValues(random, 2000);
+		for (int i = 0; i < 500; i++) {
+			int index = random.nextInt(values.length);
+			values[index] = replacements[random.nextInt(replacements.length)];
+			list.set(index, values[index]);
+		}
+		assertListEquals(values, list);
+	}
+	
+	
+	@Test
+	public void test_set_range() {
+		Random random = new Random(9);
+		long[] values = createValues(random, 2000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(values);
+		long[] replacements = createValues(random, 2000);
+		for (int i = 0; i < 100; i++) {
+			int from = random.nextInt(values.length);
+			int length = random.nextInt(Math.min((i % 2 == 0) ? 200 : 1000, values.length - from) + 1);  // Short ranges are replaced block by block.
+			int offset = random.nextInt(replacements.length - length + 1);
+			System.arraycopy(replacements, offset, values, from, length);
+			list.set(from, replacements, offset, length);
+		}
+		assertListEquals(values, list);
+	}
+	
+	
+	@Test
+	public void test_fill() {
+		Random random = new Random(10);
+		long[] values = createValues(random, 2000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(values);
+		for (int i = 0; i < 100; i++) {
+			int from = random.nextInt(values.length + 1);
+			int to = from + random.nextInt(Math.min((i % 2 == 0) ? 200 : 1000, values.length - from) + 1);
+			long value = values[random.nextInt(values.length)];
+			Arrays.fill(values, from, to, value);
+			list.fill(from, to, value);
+		}
+		assertListEquals(values, list);
+		
+		list.fill(0, values.length, 7);
+		assertEquals(0, list.getCompressedLength());  // All full blocks have a width of 0.
+		Arrays.fill(values, 7);
+		assertListEquals(values, list);
+	}
+	
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void test_set_range_highIndexException() {
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(new long[200]);
+		list.set(150, new long[100], 0, 100);
+	}
+	
+	
+	@Test
+	public void test_spliterator_tryAdvance() {
+		Random random = new Random(11);
+		long[] values = createValues(random, 1000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(values);
+		final List<Long> result = new ArrayList<Long>();
+		Spliterator.OfLong spliterator = list.spliterator();
+		for (int i = 0; i < 300; i++) {
+			assertTrue(spliterator.tryAdvance((long value) -> result.add(value)));
+		}
+		spliterator.forEachRemaining((long value) -> result.add(value));
+		assertFalse(spliterator.tryAdvance((long value) -> result.add(value)));
+		assertArrayEquals(values, toArray(result));
+	}
+	
+	
+	@Test
+	public void test_add_remove_index() {
+		Random random = new Random(6);
+		long[] values = createValues(random, 1000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		List<Long> expected = new ArrayList<Long>();
+		for (int i = 0; i < 300; i++) {
+			if (random.nextInt(3) > 0) {
+				int index = random.nextInt(expected.size() + 1);
+				long value = values[random.nextInt(values.length)];
+				list.add(index, value);
+				expected.add(index, value);
+			}
+			else if (!expected.isEmpty()) {
+				int index = random.nextInt(expected.size());
+				int length = random.nextInt(Math.min(200, expected.size() - index) + 1);
+				list.removeRange(index, length);
+				expected.subList(index, index + length).clear();
+			}
+			if (i % 50 == 0) {
+				assertListEquals(toArray(expected), list);
+			}
+			if (i == 100) {
+				long[] additional = createValues(random, 1000);
+				list.addAll(additional);
+				for (long value : additional) {
+					expected.add(value);
+				}
+			}
+		}
+		assertListEquals(toArray(expected), list);
+		
+		list.remove(0);
+		expected.remove(0);
+		assertListEquals(toArray(expected), list);
+	}
+	
+	
+	@Test
+	public void test_iterator() {
+		Random random = new Random(7);
+		long[] values = createValues(random, 1000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.addAll(values);
+		PrimitiveIterator.OfLong iterator = list.iterator(100);
+		for (int i = 100; i < values.length; i++) {
+			assertTrue(iterator.hasNext());
+			assertEquals(values[i], iterator.nextLong());
+		}
+		assertFalse(iterator.hasNext());
+		assertArrayEquals(values, list.longStream().parallel().toArray());
+	}
+	
+	
+	@Test
+	public void test_trimToSize() {
+		Random random = new Random(8);
+		long[] values = createValues(random, 1000);
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList(100000);
+		list.addAll(values);
+		list.trimToSize();
+		assertListEquals(values, list);
+		list.add(5);
+		list.addAll(values);
+		assertEquals(5, list.get(1000));
+		assertEquals(values[999], list.get(2000));
+	}
+	
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void test_get_highIndexException() {
+		CompressedIntegerArrayList list = new CompressedIntegerArrayList();
+		list.add(1);
+		list.get(1);
+	}
+	
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void test_add_highIndexException() {
+		new CompressedIntegerArrayList().add(1, 1);
+	}
+}
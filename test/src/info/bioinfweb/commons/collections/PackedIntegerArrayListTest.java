@@ -21,6 +21,17 @@ package info.bioinfweb.commons.collections;
 
 import info.bioinfweb.commons.testing.TestTools;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+
 import org.junit.* ;
 
 
@@ -125,6 +136,19 @@ public class PackedIntegerArrayListTest {
   }
   
   
+	@Test
+	public void test_removeRange_allPositions() {
+		final int length = 100;
+		for (int elementLength = 7; elementLength < 64; elementLength++) {  // At least 7 bits are needed to store 0..99.
+			for (int removeStart = 0; removeStart <= length; removeStart += 3) {
+				for (int removeLength = 0; removeStart + removeLength <= length; removeLength += 5) {
+					testRemoveRange(length, removeStart, removeLength, elementLength);
+				}
+			}
+		}
+	}
+	
+	
 	@Test
 	public void test_get_set_signed() {
 		final int minValue = -10;
@@ -266,4 +290,497 @@ public class PackedIntegerArrayListTest {
 		System.out.print(list.get(62) + " ");
 		System.out.print(list.get(99) + " ");
 	}	
+	
+	
+	private static final int[] BULK_TEST_BITS = {1, 2, 3, 4, 7, 8, 13, 16, 31, 32, 33, 63};
+	
+	
+	private static long randomValue(Random random, PackedIntegerArrayList list) {
+		return list.getMinValue() + (random.nextLong() >>> (64 - list.getBitsPerValue()));
+	}
+	
+	
+	private static PackedIntegerArrayList createRandomList(Random random, int bitsPerValue, int size) {
+		PackedIntegerArrayList result = new PackedIntegerArrayList(bitsPerValue, -5, size);
+		for (int i = 0; i < size; i++) {
+			result.add(randomValue(random, result));
+		}
+		return result;
+	}
+	
+	
+	@Test
+	public void test_get_bulk() {
+		Random random = new Random(1);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 300);
+			for (int from = 0; from < 70; from += 3) {
+				for (int length = 0; length < 300 - from; length += 17) {
+					long[] dest = new long[length + 2];
+					list.get(from, dest, 1, length);
+					for (int i = 0; i < length; i++) {
+						assertEquals(list.get(from + i), dest[i + 1]);
+					}
+					assertEquals(0, dest[0]);
+					assertEquals(0, dest[length + 1]);
+				}
+			}
+		}
+	}
+	
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void test_get_bulk_outOfBounds() {
+		PackedIntegerArrayList list = createRandomList(new Random(1), 8, 20);
+		list.get(10, new long[20], 0, 11);
+	}
+	
+	
+	@Test
+	public void test_set_bulk() {
+		Random random = new Random(2);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			for (int from = 0; from < 70; from += 5) {
+				for (int length = 0; length < 300 - from; length += 23) {
+					PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 300);
+					long[] expected = new long[300];
+					for (int i = 0; i < expected.length; i++) {
+						expected[i] = list.get(i);
+					}
+					long[] src = new long[length + 1];
+					for (int i = 1; i < src.length; i++) {
+						src[i] = randomValue(random, list);
+						expected[from + i - 1] = src[i];
+					}
+					list.set(from, src, 1, length);
+					for (int i = 0; i < expected.length; i++) {
+						assertEquals(expected[i], list.get(i));
+					}
+				}
+			}
+		}
+	}
+	
+	
+	@Test
+	public void test_set_bulk_invalidValue() {
+		PackedIntegerArrayList list = new PackedIntegerArrayList(4, 0, 10);
+		for (int i = 0; i < 10; i++) {
+			list.add(1);
+		}
+		try {
+			list.set(0, new long[]{2, 3, 16}, 0, 3);
+			fail("Exception not thrown.");
+		}
+		catch (IllegalArgumentException e) {
+			for (int i = 0; i < 10; i++) {
+				assertEquals(1, list.get(i));  // List must not have been modified.
+			}
+		}
+	}
+	
+	
+	@Test
+	public void test_fill() {
+		Random random = new Random(3);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			for (int from = 0; from < 70; from += 7) {
+				for (int to = from; to <= 300; to += 19) {
+					PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 300);
+					long[] expected = new long[300];
+					list.get(0, expected, 0, 300);
+					long value = randomValue(random, list);
+					for (int i = from; i < to; i++) {
+						expected[i] = value;
+					}
+					list.fill(from, to, value);
+					for (int i = 0; i < expected.length; i++) {
+						assertEquals(expected[i], list.get(i));
+					}
+				}
+			}
+		}
+	}
+	
+	
+	@Test
+	public void test_addAll() {
+		Random random = new Random(4);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 37);
+			long[] expected = new long[37 + 500];
+			list.get(0, expected, 0, 37);
+			list.removeRange(30, 7);  // Leaves bits of removed values in the array.
+			int size = 30;
+			for (int length = 0; length <= 150; length += 50) {
+				long[] values = new long[length];
+				for (int i = 0; i < length; i++) {
+					values[i] = randomValue(random, list);
+					expected[size + i] = values[i];
+				}
+				list.addAll(values);
+				size += length;
+				assertEquals(size, list.size());
+			}
+			for (int i = 0; i < size; i++) {
+				assertEquals(expected[i], list.get(i));
+			}
+		}
+	}
+	
+	
+	@Test
+	public void test_iterator() {
+		Random random = new Random(5);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 200);
+			PrimitiveIterator.OfLong iterator = list.iterator();
+			for (int i = 0; i < 100; i++) {
+				assertTrue(iterator.hasNext());
+				assertEquals(list.get(i), iterator.nextLong());
+			}
+			final int[] index = {100};
+			iterator.forEachRemaining((long value) -> {
+				assertEquals(list.get(index[0]), value);
+				index[0]++;
+			});
+			assertEquals(200, index[0]);
+			assertFalse(iterator.hasNext());
+			
+			iterator = list.iterator(150);
+			assertEquals(list.get(150), iterator.nextLong());
+		}
+	}
+	
+	
+	@Test(expected=NoSuchElementException.class)
+	public void test_iterator_end() {
+		PackedIntegerArrayList list = createRandomList(new Random(6), 5, 1);
+		PrimitiveIterator.OfLong iterator = list.iterator();
+		iterator.nextLong();
+		iterator.nextLong();
+	}
+	
+	
+	@Test
+	public void test_spliterator_split() {
+		Random random = new Random(7);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 1000);
+			Spliterator.OfLong second = list.spliterator();
+			Spliterator.OfLong first = second.trySplit();
+			assertNotNull(first);
+			assertEquals(1000, first.estimateSize() + second.estimateSize());
+			assertEquals(0, first.estimateSize() * bitsPerValue % PackedIntegerArrayList.BLOCK_SIZE);  // Split at a block border
+			
+			final int[] index = {0};
+			first.forEachRemaining((long value) -> {
+				assertEquals(list.get(index[0]), value);
+				index[0]++;
+			});
+			while (second.tryAdvance((long value) -> {
+				assertEquals(list.get(index[0]), value);
+				index[0]++;
+			})) {}
+			assertEquals(1000, index[0]);
+		}
+	}
+	
+	
+	@Test
+	public void test_longStream() {
+		Random random = new Random(8);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 10000);
+			long[] expected = new long[10000];
+			list.get(0, expected, 0, expected.length);
+			assertArrayEquals(expected, list.longStream().toArray());
+			assertArrayEquals(expected, list.longStream().parallel().toArray());
+			assertEquals(Arrays.stream(expected).sum(), list.longStream().parallel().sum());
+		}
+	}
+	
+	
+	private static void assertListEquals(List<Long> expected, PackedIntegerArrayList list) {
+		assertEquals(expected.size(), list.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).longValue(), list.get(i));
+		}
+	}
+	
+	
+	private static void testBlockStore(int bitsPerValue, PackedBlockStore store, long seed) throws IOException {
+		Random random = new Random(seed);
+		PackedIntegerArrayList list = new PackedIntegerArrayList(bitsPerValue, -3, 0, store);
+		List<Long> expected = new ArrayList<Long>();
+		for (int i = 0; i < 2000; i++) {
+			long value = randomValue(random, list);
+			switch (random.nextInt(5)) {
+				case 0:
+					int index = random.nextInt(expected.size() + 1);
+					list.add(index, value);
+					expected.add(index, value);
+					break;
+				case 1:
+					if (!expected.isEmpty()) {
+						int from = random.nextInt(expected.size());
+						int length = random.nextInt(Math.min(20, expected.size() - from) + 1);
+						list.removeRange(from, length);
+						expected.subList(from, from + length).clear();
+					}
+					break;
+				case 2:
+					if (!expected.isEmpty()) {
+						index = random.nextInt(expected.size());
+						list.set(index, value);
+						expected.set(index, value);
+					}
+					break;
+				default:
+					long[] values = new long[random.nextInt(30)];
+					for (int j = 0; j < values.length; j++) {
+						values[j] = randomValue(random, list);
+						expected.add(values[j]);
+					}
+					list.addAll(values);
+			}
+		}
+		assertListEquals(expected, list);
+		if (!expected.isEmpty()) {
+			list.fill(0, expected.size() / 2, list.getMaxValue());
+			for (int i = 0; i < expected.size() / 2; i++) {
+				expected.set(i, list.getMaxValue());
+			}
+		}
+		assertListEquals(expected, list);
+		list.close();
+	}
+	
+	
+	@Test
+	public void test_blockStores() throws IOException {
+		File file = File.createTempFile("PackedIntegerArrayListTest", ".bin");
+		file.deleteOnExit();
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			testBlockStore(bitsPerValue, new HeapBlockStore(0), bitsPerValue);
+			testBlockStore(bitsPerValue, new DirectBlockStore(0, 2), bitsPerValue);  // Small segments to test values spanning two segments
+			testBlockStore(bitsPerValue, new MappedFileBlockStore(file, true, 3), bitsPerValue);
+		}
+	}
+	
+	
+	@Test
+	public void test_segmentedBlockStore_ensureCapacity() {
+		DirectBlockStore store = new DirectBlockStore(5, 2);
+		assertEquals(5, store.getBlockCount());
+		assertEquals(2, store.getSegmentCount());
+		for (int i = 0; i < 5; i++) {
+			store.setBlock(i, i + 1);
+		}
+		store.ensureCapacity(11);
+		assertEquals(11, store.getBlockCount());
+		assertEquals(3, store.getSegmentCount());
+		for (int i = 0; i < 11; i++) {
+			assertEquals((i < 5) ? i + 1 : 0, store.getBlock(i));
+		}
+	}
+	
+	
+	@Test
+	public void test_createMapped_openMapped() throws IOException {
+		File file = File.createTempFile("PackedIntegerArrayListTest", ".bin");
+		file.deleteOnExit();
+		Random random = new Random(9);
+		PackedIntegerArrayList list = PackedIntegerArrayList.createMapped(file, 13, -100);
+		long[] values = new long[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = randomValue(random, list);
+		}
+		list.addAll(values, 0, 3000);
+		list.close();
+		
+		list = PackedIntegerArrayList.openMapped(file);
+		assertEquals(13, list.getBitsPerValue());
+		assertEquals(-100, list.getMinValue());
+		assertEquals(3000, list.size());
+		list.addAll(values, 3000, 2000);
+		list.flush();
+		
+		PackedIntegerArrayList reopened = PackedIntegerArrayList.openMapped(file);
+		long[] result = new long[values.length];
+		reopened.get(0, result, 0, result.length);
+		assertArrayEquals(values, result);
+		reopened.close();
+		list.close();
+	}
+	
+	
+	@Test
+	public void test_flush_foreignHeader() throws IOException {
+		File file = File.createTempFile("PackedIntegerArrayListTest", ".bin");
+		file.deleteOnExit();
+		MappedFileBlockStore store = new MappedFileBlockStore(file, true);
+		for (int i = 0; i < MappedFileBlockStore.HEADER_LENGTH; i++) {
+			store.setHeader(i, -i);
+		}
+		PackedIntegerArrayList list = new PackedIntegerArrayList(7, 0, 0, store);
+		list.add(100);
+		list.close();
+		
+		store = new MappedFileBlockStore(file, false);
+		try {
+			for (int i = 0; i < MappedFileBlockStore.HEADER_LENGTH; i++) {
+				assertEquals(-i, store.getHeader(i));  // The header belongs to the creator of the store.
+			}
+		}
+		finally {
+			store.close();
+		}
+	}
+	
+	
+	@Test(expected=IOException.class)
+	public void test_openMapped_invalidFile() throws IOException {
+		File file = File.createTempFile("PackedIntegerArrayListTest", ".bin");
+		file.deleteOnExit();
+		Files.write(file.toPath(), new byte[MappedFileBlockStore.HEADER_BYTES]);
+		PackedIntegerArrayList.openMapped(file);
+	}
+	
+	
+	private static void testAdaptive(PackedBlockStore store, long seed) throws IOException {
+		Random random = new Random(seed);
+		PackedIntegerArrayList list = new PackedIntegerArrayList(1, 0, 0, store);
+		list.setAdaptive(true);
+		List<Long> expected = new ArrayList<Long>();
+		for (int bits = 1; bits < 40; bits++) {
+			for (int i = 0; i < 100; i++) {
+				long value = random.nextLong() >> (64 - bits);  // Values with growing absolute values, also negative
+				if (random.nextBoolean()) {
+					int index = random.nextInt(expected.size() + 1);
+					list.add(index, value);
+					expected.add(index, value);
+				}
+				else if (!expected.isEmpty()) {
+					int index = random.nextInt(expected.size());
+					list.set(index, value);
+					expected.set(index, value);
+				}
+			}
+			assertListEquals(expected, list);
+			assertTrue(list.getBitsPerValue() <= bits + 2);
+		}
+		list.close();
+	}
+	
+	
+	@Test
+	public void test_adaptive() throws IOException {
+		File file = File.createTempFile("PackedIntegerArrayListTest", ".bin");
+		file.deleteOnExit();
+		testAdaptive(new HeapBlockStore(0), 10);
+		testAdaptive(new DirectBlockStore(0, 2), 11);
+		testAdaptive(new MappedFileBlockStore(file, true, 3), 12);
+	}
+	
+	
+	@Test
+	public void test_adaptive_upwards() {
+		PackedIntegerArrayList list = new PackedIntegerArrayList(1, 5, 0);
+		list.setAdaptive(true);
+		long[] values = new long[10000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 5 + i;
+			list.add(values[i]);
+		}
+		assertEquals(14, list.getBitsPerValue());
+		assertEquals(5, list.getMinValue());
+		assertArrayEquals(values, list.longStream().toArray());
+	}
+	
+	
+	@Test
+	public void test_adaptive_bulk() {
+		Random random = new Random(13);
+		for (int bitsPerValue : BULK_TEST_BITS) {
+			if (bitsPerValue == 63) {
+				continue;  // Cannot be widened.
+			}
+			PackedIntegerArrayList list = createRandomList(random, bitsPerValue, 5000);
+			long[] expected = list.longStream().toArray();
+			list.setAdaptive(true);
+			long[] values = {list.getMinValue() - 1, list.getMaxValue() / 2 + 1, 0};
+			list.addAll(values);
+			list.set(10, values, 0, 2);
+			expected = Arrays.copyOf(expected, expected.length + 3);
+			System.arraycopy(values, 0, expected, expected.length - 3, 3);
+			System.arraycopy(values, 0, expected, 10, 2);
+			assertArrayEquals(expected, list.longStream().toArray());
+			
+			list.fill(100, 4000, Long.MAX_VALUE / 4);
+			Arrays.fill(expected, 100, 4000, Long.MAX_VALUE / 4);
+			assertArrayEquals(expected, list.longStream().toArray());
+		}
+	}
+	
+	
+	@Test
+	public void test_adaptive_outOfRange() {
+		PackedIntegerArrayList list = new PackedIntegerArrayList(1, 0, 0);
+		list.setAdaptive(true);
+		list.add(Long.MIN_VALUE);  // An empty list does not need to keep its range.
+		assertEquals(1, list.getBitsPerValue());
+		list.add(-1);
+		assertEquals(63, list.getBitsPerValue());
+		try {
+			list.add(0);
+			fail("Exception not thrown.");
+		}
+		catch (IllegalArgumentException e) {}
+		assertArrayEquals(new long[]{Long.MIN_VALUE, -1}, list.longStream().toArray());
+	}
+	
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void test_notAdaptive() {
+		PackedIntegerArrayList list = new PackedIntegerArrayList(4, 0, 0);
+		list.add(16);
+	}
+	
+	
+	@Test
+	public void test_shrink() {
+		PackedIntegerArrayList list = new PackedIntegerArrayList(40, -1000, 10000);
+		long[] values = new long[5000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 200 + i % 100;
+		}
+		list.addAll(values);
+		list.shrink();
+		assertEquals(7, list.getBitsPerValue());
+		assertEquals(200, list.getMinValue());
+		assertEquals((5000 * 7 + 63) / 64, list.getBlockStore().getBlockCount());
+		assertArrayEquals(values, list.longStream().toArray());
+		
+		list.setAdaptive(true);
+		list.add(0);
+		assertEquals(0, list.get(5000));
+		assertEquals(299, list.get(4999));
+	}
+	
+	
+	@Test
+	public void test_adaptive_mapped() throws IOException {
+		File file = File.createTempFile("PackedIntegerArrayListTest", ".bin");
+		file.deleteOnExit();
+		PackedIntegerArrayList list = PackedIntegerArrayList.createMapped(file, 1, 0);
+		list.setAdaptive(true);
+		long[] values = {1, 100000, -7, 3};
+		list.addAll(values);
+		list.close();
+		
+		list = PackedIntegerArrayList.openMapped(file);
+		assertArrayEquals(values, list.longStream().toArray());
+		list.close();
+	}
 }
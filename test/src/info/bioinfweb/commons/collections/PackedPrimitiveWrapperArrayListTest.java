@@ -32,13 +32,13 @@ public class PackedPrimitiveWrapperArrayListTest {
   @Test
   public void testInteger() {
   	PackedPrimitiveWrapperArrayList<Integer> list = PackedPrimitiveWrapperArrayList.newIntegerInstance(15, -10, 32);
-  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.array[0]));
+  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.blocks.getBlock(0)));
   	list.add(0);
-  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.array[0]));
+  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.blocks.getBlock(0)));
   	list.add(-10);
-  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.array[0]));
+  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.blocks.getBlock(0)));
   	list.add(32757);
-  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.array[0]));
+  	//System.out.println(TestTools.toBinaryRepresentation(list.packedList.blocks.getBlock(0)));
   	
   	assertEquals(0, list.get(0).intValue());
   	assertEquals(-10, list.get(1).intValue());
@@ -0,0 +1,80 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class ColumnarTableTest {
+	@Test
+	public void testRead() throws IOException {
+		ColumnarTable table = ColumnarTable.read(new StringReader("A\t1\n\"B\tC\"\t2\t2.5\nD"), '\t', true);
+		assertEquals(3, table.getColumnCount());
+		assertEquals(3, table.getRowCount());
+		assertArrayEquals(new String[]{"A", "B\tC", "D"}, table.getStringColumn(0));
+		assertArrayEquals(new String[]{"1", "2", ""}, table.getStringColumn(1));
+		assertArrayEquals(new String[]{"", "2.5", ""}, table.getStringColumn(2));
+		assertEquals("B\tC", table.getString(0, 1));
+		assertEquals(3, table.getLength(2, 1));
+		assertEquals(0, table.getLength(2, 2));
+	}
+
+
+	@Test
+	public void testParseColumns() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int row = 0; row < 1000; row++) {
+			text.append(row + ";" + (-row) + ";" + row + ",5\n");
+		}
+		ColumnarTable table = TableReader.readColumnarTable(new ByteArrayInputStream(
+				text.toString().getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, ';', false);
+		assertEquals(1000, table.getRowCount());
+
+		int[][] intColumns = table.getIntColumns(0, 1);
+		double[][] doubleColumns = table.getDoubleColumns(2, 0);
+		for (int row = 0; row < 1000; row++) {
+			assertEquals(row, intColumns[0][row]);
+			assertEquals(-row, intColumns[1][row]);
+			assertEquals(row + 0.5, doubleColumns[0][row], 0.0);
+			assertEquals(row, doubleColumns[1][row], 0.0);
+		}
+	}
+
+
+	@Test(expected=NumberFormatException.class)
+	public void testParseColumns_invalid() throws IOException {
+		ColumnarTable.read(new StringReader("1\nA\n3"), '\t', false).getIntColumn(0);
+	}
+
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testGetString_outOfBounds() throws IOException {
+		ColumnarTable.read(new StringReader("1\n2"), '\t', false).getString(0, 2);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class ContentExtensionFileFilterTest {
+	/**
+	 * Accepts files starting with {@code '>'} and counts the number of tested files.
+	 */
+	private static class TestFilter extends ContentExtensionFileFilter {
+		public AtomicInteger testCount = new AtomicInteger();
+		
+		public TestFilter(TestStrategy testStrategy) {
+			super("FASTA", false, testStrategy, false, "fasta");
+		}
+
+		@Override
+		protected boolean acceptContent(FileInputStream stream) throws Exception {
+			testCount.incrementAndGet();
+			int c = stream.read();
+			if (c == 'E') {
+				throw new IOException("Test exception");
+			}
+			return c == '>';
+		}
+	}
+	
+	
+	private static File createFile(File directory, String name, String content) throws IOException {
+		File result = new File(directory, name);
+		Files.write(result.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		result.deleteOnExit();
+		return result;
+	}
+	
+	
+	@Test
+	public void testContentCache() throws IOException {
+		File file = File.createTempFile("ContentExtensionFileFilterTest", ".fasta");
+		file.deleteOnExit();
+		Files.write(file.toPath(), ">seq\nACGT\n".getBytes(StandardCharsets.UTF_8));
+		
+		TestFilter filter = new TestFilter(ContentExtensionFileFilter.TestStrategy.CONTENT);
+		assertTrue(filter.accept(file));
+		assertTrue(filter.accept(file));
+		assertTrue(filter.accept(new File(file.getParentFile(), "." + File.separator + file.getName())));  // Same canonical path
+		assertEquals(1, filter.testCount.get());
+		
+		TestFilter otherFilter = new TestFilter(ContentExtensionFileFilter.TestStrategy.CONTENT);
+		assertTrue(otherFilter.accept(file));  // Results of other instances are not used.
+		assertEquals(1, otherFilter.testCount.get());
+		
+		Files.write(file.toPath(), "seq\n".getBytes(StandardCharsets.UTF_8));  // Changes the size
+		assertFalse(filter.accept(file));
+		assertEquals(2, filter.testCount.get());
+		
+		filter.clearContentCache();
+		assertFalse(filter.accept(file));
+		assertEquals(3, filter.testCount.get());
+	}
+	
+	
+	@Test
+	public void testContentCache_exception() throws IOException {
+		File file = File.createTempFile("ContentExtensionFileFilterTest", ".fasta");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "E".getBytes(StandardCharsets.UTF_8));
+		
+		TestFilter filter = new TestFilter(ContentExtensionFileFilter.TestStrategy.CONTENT);
+		assertFalse(filter.accept(file));
+		filter.setAcceptFilesWithExceptions(true);
+		assertTrue(filter.accept(file));
+		assertEquals(1, filter.testCount.get());
+	}
+	
+	
+	@Test
+	public void testListFiles() throws IOException {
+		File directory = Files.createTempDirectory("ContentExtensionFileFilterTest").toFile();
+		directory.deleteOnExit();
+		File subdirectory = new File(directory, "sub");
+		subdirectory.mkdir();
+		subdirectory.deleteOnExit();
+		
+		File[] accepted = new File[100];
+		for (int i = 0; i < 200; i++) {
+			File file = createFile(directory, "file" + i + ((i % 3 == 0) ? ".txt" : ".fasta"), (i % 2 == 0) ? ">seq" : "seq");
+			if ((i % 3 != 0) && (i % 2 == 0)) {
+				accepted[i / 2] = file;
+			}
+		}
+		
+		TestFilter filter = new TestFilter(ContentExtensionFileFilter.TestStrategy.BOTH);
+		File[] result = filter.listFiles(directory);
+		assertEquals(67, result.length);  // 66 files and the subdirectory
+		for (File file : accepted) {
+			if (file != null) {
+				assertTrue(Arrays.asList(result).contains(file));
+			}
+		}
+		assertTrue(Arrays.asList(result).contains(subdirectory));
+		assertEquals(133, filter.testCount.get());
+		
+		filter.listFiles(directory);
+		assertEquals(133, filter.testCount.get());
+		assertNull(filter.listFiles(new File(directory, "nonexistent")));
+	}
+}
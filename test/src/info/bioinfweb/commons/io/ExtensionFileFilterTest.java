@@ -0,0 +1,67 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class ExtensionFileFilterTest {
+	@Test
+	public void testAccept() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("Test", false, "fasta", "fas", "tar.gz");
+		assertTrue(filter.accept(new File("a.fasta")));
+		assertTrue(filter.accept(new File("a.b.fas")));
+		assertFalse(filter.accept(new File("a.FASTA")));
+		assertTrue(filter.accept(new File("archive.tar.gz")));
+		assertFalse(filter.accept(new File("a.gz")));
+		assertFalse(filter.accept(new File("a.fasta.txt")));
+		assertFalse(filter.accept(new File("fasta")));
+		assertFalse(filter.accept(new File("afasta")));
+	}
+	
+	
+	@Test
+	public void testAccept_caseInsensitive() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("Test", false, "Fasta", "tar.gz");
+		assertTrue(filter.isCaseSensitive());
+		assertTrue(filter.accept(new File("a.Fasta")));
+		assertFalse(filter.accept(new File("a.fasta")));
+		
+		filter.setCaseSensitive(false);
+		assertTrue(filter.accept(new File("a.fasta")));
+		assertTrue(filter.accept(new File("a.FASTA")));
+		assertTrue(filter.accept(new File("archive.TAR.gz")));
+		assertFalse(filter.accept(new File("a.fas")));
+	}
+	
+	
+	@Test
+	public void testGetExtensions() {
+		ExtensionFileFilter filter = new ExtensionFileFilter("Test", true, "Fasta", "fas");
+		assertEquals("Fasta", filter.getDefaultExtension());
+		assertEquals("Test (*.Fasta" + File.pathSeparatorChar + " *.fas)", filter.getDescription());
+	}
+}
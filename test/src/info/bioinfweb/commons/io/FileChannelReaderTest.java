@@ -0,0 +1,181 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class FileChannelReaderTest {
+	public static final String TEST_CONTENT = "Line 1\r\näöü €\nLine 😀 3\rLine 4";
+
+
+	private static File createFile(String content, Charset charset) throws IOException {
+		return IOTestTools.createTempFile("FileChannelReaderTest", ".txt", content, charset);
+	}
+
+
+	private static FileChannelReader createReader(File file, Charset charset, int mappingSize) throws IOException {
+		return new FileChannelReader(FileChannel.open(file.toPath(), StandardOpenOption.READ), charset, mappingSize);
+	}
+
+
+	private static String readAll(PeekReader reader) throws IOException {
+		StringBuilder result = new StringBuilder();
+		int c = reader.read();
+		while (c != -1) {
+			result.append((char)c);
+			c = reader.read();
+		}
+		return result.toString();
+	}
+
+
+	private void testReadContent(Charset charset) throws IOException {
+		File file = createFile(TEST_CONTENT, charset);
+		for (int mappingSize = 16; mappingSize <= 64; mappingSize += 7) {  // Test different positions of window borders.
+			for (int peekLength = 1; peekLength <= 12; peekLength += 5) {
+				PeekReader reader = new PeekReader(createReader(file, charset, mappingSize), peekLength);
+				try {
+					assertEquals(TEST_CONTENT, readAll(reader));
+				}
+				finally {
+					reader.close();
+				}
+			}
+		}
+	}
+
+
+	@Test
+	public void testRead_UTF8() throws IOException {
+		testReadContent(StandardCharsets.UTF_8);
+	}
+
+
+	@Test
+	public void testRead_UTF16() throws IOException {
+		testReadContent(StandardCharsets.UTF_16);
+	}
+
+
+	@Test
+	public void testRead_ISO8859() throws IOException {
+		File file = createFile("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZä", StandardCharsets.ISO_8859_1);
+		PeekReader reader = new PeekReader(createReader(file, StandardCharsets.ISO_8859_1, 16), 10);
+		try {
+			assertEquals("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZä", reader.readString(100));
+			assertEquals(37, reader.getByteOffset());
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test
+	public void testRead_empty() throws IOException {
+		PeekReader reader = new PeekReader(createReader(createFile("", StandardCharsets.UTF_8), StandardCharsets.UTF_8, 16));
+		try {
+			assertEquals(0, reader.getAvailablePeek());
+			assertEquals(-1, reader.read());
+			assertEquals(0, reader.getByteOffset());
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	private void testByteOffset(Charset charset) throws IOException {
+		File file = createFile(TEST_CONTENT, charset);
+		PeekReader reader = new PeekReader(createReader(file, charset, 16), 5);
+		try {
+			for (int i = 0; i < TEST_CONTENT.length(); i++) {
+				if (!Character.isLowSurrogate(TEST_CONTENT.charAt(i))) {  // Byte offsets between the two characters of a surrogate pair are not defined.
+					assertEquals(TEST_CONTENT.substring(0, i).getBytes(charset).length, reader.getByteOffset());
+				}
+				reader.read();
+			}
+			assertEquals(TEST_CONTENT.getBytes(charset).length, reader.getByteOffset());
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test
+	public void testByteOffset_UTF8() throws IOException {
+		testByteOffset(StandardCharsets.UTF_8);
+	}
+
+
+	@Test
+	public void testByteOffset_UTF16BE() throws IOException {
+		testByteOffset(StandardCharsets.UTF_16BE);
+	}
+
+
+	@Test
+	public void testSeek() throws IOException {
+		File file = createFile(TEST_CONTENT, StandardCharsets.UTF_8);
+		PeekReader reader = new PeekReader(createReader(file, StandardCharsets.UTF_8, 16), 5);
+		try {
+			reader.readLine();
+			reader.readLine();
+			StreamLocation location = new StreamLocation(reader);
+			long byteOffset = reader.getByteOffset();
+			assertEquals("Line 😀 3", reader.readLine().getSequence().toString());
+			assertEquals("Line 4", reader.readLine().getSequence().toString());
+			assertEquals(-1, reader.read());
+
+			reader.seek(byteOffset, location);
+			assertEquals(location, new StreamLocation(reader));
+			assertEquals(byteOffset, reader.getByteOffset());
+			assertEquals("Line 😀 3", reader.readLine().getSequence().toString());
+			assertEquals(3, reader.getLineNumber());
+			assertEquals("Line 4", reader.readLine().getSequence().toString());
+
+			reader.seek(0, new StreamLocation(0, 0, 0));
+			assertEquals(TEST_CONTENT, readAll(reader));
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testByteOffset_unsupported() throws IOException {
+		new PeekReader(new StringReader(TEST_CONTENT)).getByteOffset();
+	}
+}
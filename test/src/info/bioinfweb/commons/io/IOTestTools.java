@@ -0,0 +1,52 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+
+
+/**
+ * Tools shared by the tests of this package.
+ * 
+ * @author Ben St&ouml;ver
+ */
+class IOTestTools {
+	/**
+	 * Creates a temporary file with the specified content that will be deleted when the virtual machine
+	 * terminates.
+	 * 
+	 * @param prefix the prefix of the file name (e.g. the name of the calling test class)
+	 * @param suffix the suffix of the file name (e.g. {@code ".txt"})
+	 * @param content the text to be written into the file
+	 * @param charset the character set used to encode {@code content}
+	 * @return the new file
+	 * @throws IOException if the file cannot be created or written
+	 */
+	public static File createTempFile(String prefix, String suffix, String content, Charset charset) throws IOException {
+		File result = File.createTempFile(prefix, suffix);
+		result.deleteOnExit();
+		Files.write(result.toPath(), content.getBytes(charset));
+		return result;
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class IOUtilsTest {
+	private static class RecordingListener implements IOProgressListener {
+		public boolean started = false;
+		public boolean finished = false;
+		public List<Long> progress = new ArrayList<Long>();
+
+		@Override
+		public void ioStarts() {
+			started = true;
+		}
+
+		@Override
+		public void ioProgress(long bytes) {
+			progress.add(bytes);
+		}
+
+		@Override
+		public void newFile(String sourceName, String destName, long size) {}
+
+		@Override
+		public void ioFinished() {
+			finished = true;
+		}
+	}
+
+
+	private static byte[] createContent(int length) {
+		byte[] result = new byte[length];
+		new Random(length).nextBytes(result);
+		return result;
+	}
+
+
+	@Test
+	public void testCopy_files() throws IOException {
+		byte[] content = createContent((int)IOUtils.PROGRESS_BYTE_INTERVAL * 2 + 12345);
+		File src = File.createTempFile("IOUtilsTest", ".src");
+		src.deleteOnExit();
+		File dest = File.createTempFile("IOUtilsTest", ".dest");
+		dest.deleteOnExit();
+		Files.write(src.toPath(), content);
+
+		RecordingListener listener = new RecordingListener();
+		IOUtils.copy(src, dest, listener);
+		assertArrayEquals(content, Files.readAllBytes(dest.toPath()));
+		assertTrue(listener.started);
+		assertTrue(listener.finished);
+		assertTrue(listener.progress.size() <= 3);  // At most one report per byte interval
+		assertEquals(content.length, listener.progress.get(listener.progress.size() - 1).longValue());
+	}
+
+
+	@Test
+	public void testCopy_unknownSize() throws IOException {
+		File src = new File("/proc/self/status");  // Reports a size of 0 although it has content.
+		Assume.assumeTrue(src.exists());
+		File dest = File.createTempFile("IOUtilsTest", ".dest");
+		dest.deleteOnExit();
+		
+		FileInputStream in = new FileInputStream(src);
+		try {
+			FileOutputStream out = new FileOutputStream(dest);
+			try {
+				IOUtils.copy(in, out);
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+		assertTrue(dest.length() > 0);
+	}
+
+
+	@Test
+	public void testCopy_fileStreamSubclass() throws IOException {
+		File src = File.createTempFile("IOUtilsTest", ".src");
+		src.deleteOnExit();
+		File dest = File.createTempFile("IOUtilsTest", ".dest");
+		dest.deleteOnExit();
+		Files.write(src.toPath(), "abcdef".getBytes());
+		
+		FileInputStream in = new FileInputStream(src) {  // Overridden methods must not be bypassed by the channel transfer.
+					@Override
+					public int read(byte[] b) throws IOException {
+						return read(b, 0, b.length);
+					}
+					
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						int result = super.read(b, off, len);
+						for (int i = off; i < off + result; i++) {
+							b[i] = (byte)Character.toUpperCase(b[i]);
+						}
+						return result;
+					}
+				};
+		try {
+			FileOutputStream out = new FileOutputStream(dest);
+			try {
+				IOUtils.copy(in, out);
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+		assertEquals("ABCDEF", new String(Files.readAllBytes(dest.toPath())));
+	}
+
+
+	@Test
+	public void testCopy_streams() throws IOException {
+		byte[] content = createContent(1000000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RecordingListener listener = new RecordingListener();
+		IOUtils.copy(new ByteArrayInputStream(content), out, true, listener);
+		assertArrayEquals(content, out.toByteArray());
+		assertTrue(listener.progress.size() < 1000000 / (64 * 1024));  // Reports are throttled.
+		assertEquals(content.length, listener.progress.get(listener.progress.size() - 1).longValue());
+
+		out = new ByteArrayOutputStream();
+		IOUtils.copy(new ByteArrayInputStream(new byte[0]), out);  // Reuses the buffer.
+		assertEquals(0, out.size());
+	}
+
+
+	private static File createZip(String... names) throws IOException {
+		File result = File.createTempFile("IOUtilsTest", ".zip");
+		result.deleteOnExit();
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(result));
+		try {
+			for (int i = 0; i < names.length; i++) {
+				out.putNextEntry(new ZipEntry(names[i]));
+				out.write(createContent(i * 1000));
+				out.closeEntry();
+			}
+		}
+		finally {
+			out.close();
+		}
+		return result;
+	}
+
+
+	private static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteRecursively(child);
+			}
+		}
+		file.delete();
+	}
+
+
+	@Test
+	public void testExtractDir_parallel() throws IOException {
+		String[] names = new String[100];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "res/dir" + (i % 7) + "/sub" + (i % 3) + "/file" + i + ".bin";
+		}
+		names[0] = "other/file0.bin";
+		ZipFile zipFile = new ZipFile(createZip(names));
+		File destDir = Files.createTempDirectory("IOUtilsTest").toFile();
+		try {
+			RecordingListener listener = new RecordingListener();
+			long size = IOUtils.extractDir(zipFile, "res/", destDir.getAbsolutePath(), listener, 4);
+			assertEquals(IOUtils.dirSize(zipFile, "res/"), size);
+			assertEquals(size, listener.progress.get(listener.progress.size() - 1).longValue());
+			assertTrue(listener.started);
+			assertTrue(listener.finished);
+
+			assertFalse(new File(destDir, "file0.bin").exists());
+			for (int i = 1; i < names.length; i++) {
+				assertArrayEquals(createContent(i * 1000), Files.readAllBytes(new File(destDir, names[i].substring(4)).toPath()));
+			}
+		}
+		finally {
+			zipFile.close();
+			deleteRecursively(destDir);
+		}
+	}
+
+
+	@Test
+	public void testExtractDir_failingEntry() throws IOException, InterruptedException {
+		File zip = File.createTempFile("IOUtilsTest", ".zip");
+		zip.deleteOnExit();
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+		try {
+			out.putNextEntry(new ZipEntry("res/fail.bin"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("res/big.bin"));
+			out.write(new byte[(int)(3 * IOUtils.PROGRESS_BYTE_INTERVAL)]);
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+		
+		final List<String> lateCalls = Collections.synchronizedList(new ArrayList<String>());
+		IOProgressListener listener = new RecordingListener() {
+			@Override
+			public void ioProgress(long bytes) {
+				checkFinished("ioProgress");
+			}
+
+			@Override
+			public void newFile(String sourceName, String destName, long size) {
+				checkFinished("newFile");
+				if (sourceName.endsWith("big.bin")) {
+					try {
+						Thread.sleep(300);  // Make sure that the failing entry is processed while this one is still running.
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+			
+			private void checkFinished(String method) {
+				if (finished) {
+					lateCalls.add(method);
+				}
+			}
+		};
+		
+		ZipFile zipFile = new ZipFile(zip);
+		File destDir = Files.createTempDirectory("IOUtilsTest").toFile();
+		try {
+			assertTrue(new File(destDir, "fail.bin").mkdir());  // The file cannot be written, since a directory with its name exists.
+			try {
+				IOUtils.extractDir(zipFile, "res/", destDir.getAbsolutePath(), listener, 2);
+				fail("No exception was thrown.");
+			}
+			catch (IOException e) {}  // expected
+			
+			Thread.sleep(500);  // Give remaining tasks the chance to call the listener.
+			assertEquals(Collections.emptyList(), lateCalls);
+		}
+		finally {
+			zipFile.close();
+			deleteRecursively(destDir);
+		}
+	}
+
+
+	@Test(expected=IOException.class)
+	public void testExtractDir_outsideDestination() throws IOException {
+		ZipFile zipFile = new ZipFile(createZip("res/a.bin", "res/../../b.bin"));
+		File destDir = Files.createTempDirectory("IOUtilsTest").toFile();
+		try {
+			IOUtils.extractDir(zipFile, "res/", destDir.getAbsolutePath(), null, 2);
+		}
+		finally {
+			zipFile.close();
+			deleteRecursively(destDir);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class LimitedFileChannelTest {
+	private static FileChannel openChannel(String content) throws IOException {
+		File file = File.createTempFile("LimitedFileChannelTest", ".bin");
+		file.deleteOnExit();
+		Files.write(file.toPath(), content.getBytes());
+		return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+
+	@Test
+	public void testRead() throws IOException {
+		FileChannel channel = openChannel("0123456789");
+		try {
+			LimitedFileChannel region = new LimitedFileChannel(channel, 2, 5);
+			ByteBuffer buffer = ByteBuffer.allocate(3);
+			assertEquals(3, region.read(buffer));
+			assertEquals("234", new String(buffer.array()));
+
+			buffer = ByteBuffer.allocate(10);
+			assertEquals(2, region.read(buffer));
+			assertEquals(2, buffer.position());
+			assertEquals("56", new String(buffer.array(), 0, 2));
+			assertEquals(-1, region.read(buffer));
+			assertEquals(0, channel.position());  // The position of the shared channel is not changed.
+
+			region.setPosition(4);
+			InputStream stream = region.newInputStream();
+			assertEquals('6', stream.read());
+			assertEquals(-1, stream.read());
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+
+	@Test
+	public void testTransferTo() throws IOException {
+		FileChannel channel = openChannel("0123456789");
+		try {
+			LimitedFileChannel region = new LimitedFileChannel(channel, 3, 100);  // Region ends with the file.
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(7, region.transferTo(Channels.newChannel(out)));
+			assertEquals("3456789", out.toString());
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+
+	@Test
+	public void testTransferTo_unknownSize() throws IOException {
+		File file = new File("/proc/self/cmdline");  // Reports a size of 0 although it has content.
+		Assume.assumeTrue(file.exists());
+		byte[] content = Files.readAllBytes(file.toPath());
+		Assume.assumeTrue(content.length > 12);
+		
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			LimitedFileChannel region = new LimitedFileChannel(channel, 2, 10);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(10, region.transferTo(Channels.newChannel(out)));
+			assertArrayEquals(Arrays.copyOfRange(content, 2, 12), out.toByteArray());
+			assertEquals(0, region.remaining());
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+
+	@Test
+	public void testMap() throws IOException {
+		FileChannel channel = openChannel("0123456789");
+		try {
+			MappedByteBuffer buffer = new LimitedFileChannel(channel, 1, 3).map();
+			assertEquals(3, buffer.remaining());
+			assertEquals('1', buffer.get());
+			assertEquals('3', buffer.get(2));
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+
+	@Test
+	public void testClose() throws IOException {
+		FileChannel channel = openChannel("0123456789");
+		try {
+			LimitedFileChannel region = new LimitedFileChannel(channel, 0, 5);
+			region.setAllowClose(false);
+			try {
+				region.close();
+				fail("Exception not thrown.");
+			}
+			catch (ClosingNotAllowedException e) {}
+			region.setAllowClose(true);
+			region.close();
+			assertFalse(region.isOpen());
+			assertTrue(channel.isOpen());
+		}
+		finally {
+			channel.close();
+		}
+	}
+}
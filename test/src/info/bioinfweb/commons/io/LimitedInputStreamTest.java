@@ -22,7 +22,12 @@ package info.bioinfweb.commons.io;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.io.StringReader;
 
 import org.junit.* ;
@@ -93,4 +98,88 @@ public class LimitedInputStreamTest {
 		assertEquals(-1, stream.read(new byte[5], 0, 3));
 		assertEquals('5', underlyingStream.read());
 	}
+	
+	
+	@Test
+	public void test_read_bulk() throws IOException {
+		ByteArrayInputStream underlyingStream = new ByteArrayInputStream("0123456789".getBytes());
+		LimitedInputStream stream = new LimitedInputStream(underlyingStream, 5);
+		
+		byte[] buffer = new byte[10];
+		assertEquals(0, stream.read(buffer, 2, 0));
+		assertEquals(5, stream.read(buffer, 2, 8));
+		assertEquals("01234", new String(buffer, 2, 5));
+		assertEquals(-1, stream.read(buffer, 0, 10));
+		assertTrue(stream.isLimitReached());
+		assertEquals('5', underlyingStream.read());
+	}
+	
+	
+	@Test
+	public void test_transferTo() throws IOException {
+		ByteArrayInputStream underlyingStream = new ByteArrayInputStream("0123456789".getBytes());
+		LimitedInputStream stream = new LimitedInputStream(underlyingStream, 7);
+		assertEquals('0', stream.read());
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(6, stream.transferTo(out));
+		assertEquals("123456", out.toString());
+		assertTrue(stream.isLimitReached());
+		assertEquals('7', underlyingStream.read());
+	}
+	
+	
+	@Test
+	public void test_transferTo_files() throws IOException {
+		File src = File.createTempFile("LimitedInputStreamTest", ".src");
+		src.deleteOnExit();
+		File dest = File.createTempFile("LimitedInputStreamTest", ".dest");
+		dest.deleteOnExit();
+		Files.write(src.toPath(), "0123456789".getBytes());
+		
+		FileInputStream underlyingStream = new FileInputStream(src);
+		try {
+			assertEquals(2, underlyingStream.skip(2));
+			LimitedInputStream stream = new LimitedInputStream(underlyingStream, 5);
+			FileOutputStream out = new FileOutputStream(dest);
+			try {
+				assertEquals(5, stream.transferTo(out));
+			}
+			finally {
+				out.close();
+			}
+			assertEquals("23456", new String(Files.readAllBytes(dest.toPath())));
+			assertEquals(-1, stream.read());
+			assertEquals('7', underlyingStream.read());
+		}
+		finally {
+			underlyingStream.close();
+		}
+	}
+	
+	
+	@Test
+	public void test_transferTo_unknownSize() throws IOException {
+		File src = new File("/proc/self/status");  // Reports a size of 0 although it has content.
+		Assume.assumeTrue(src.exists());
+		File dest = File.createTempFile("LimitedInputStreamTest", ".dest");
+		dest.deleteOnExit();
+		
+		FileInputStream underlyingStream = new FileInputStream(src);
+		try {
+			LimitedInputStream stream = new LimitedInputStream(underlyingStream, 10);
+			FileOutputStream out = new FileOutputStream(dest);
+			try {
+				assertEquals(10, stream.transferTo(out));
+			}
+			finally {
+				out.close();
+			}
+			assertEquals(10, dest.length());
+			assertTrue(stream.isLimitReached());
+		}
+		finally {
+			underlyingStream.close();
+		}
+	}
 }
@@ -22,6 +22,7 @@ package info.bioinfweb.commons.io;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
 
 import org.junit.* ;
 
@@ -91,4 +92,18 @@ public class LimitedReaderTest {
 		assertEquals(-1, reader.read(new char[5], 0, 3));
 		assertEquals('5', underlyingReader.read());
 	}
+	
+	
+	@Test
+	public void test_transferTo() throws IOException {
+		StringReader underlyingReader = new StringReader("0123456789");
+		LimitedReader reader = new LimitedReader(underlyingReader, 7);
+		assertEquals('0', reader.read());
+		
+		StringWriter out = new StringWriter();
+		assertEquals(6, reader.transferTo(out));
+		assertEquals("123456", out.toString());
+		assertEquals(-1, reader.read());
+		assertEquals('7', underlyingReader.read());
+	}
 }
@@ -0,0 +1,162 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class LineIndexTest {
+	private static String createContent(int lineCount, long seed) {
+		final String[] separators = {"\n", "\r", "\r\n"};
+		final String[] tokens = {"ACGT", "äöü", "😀", "-", ""};
+		Random random = new Random(seed);
+		StringBuilder result = new StringBuilder();
+		for (int line = 0; line < lineCount; line++) {
+			int tokenCount = random.nextInt(5);
+			for (int i = 0; i < tokenCount; i++) {
+				result.append(tokens[random.nextInt(tokens.length)]);
+			}
+			result.append(separators[random.nextInt(separators.length)]);
+		}
+		result.append("last");
+		return result.toString();
+	}
+
+
+	private static File createFile(String content, Charset charset) throws IOException {
+		File result = IOTestTools.createTempFile("LineIndexTest", ".txt", content, charset);
+		LineIndex.getIndexFile(result).deleteOnExit();
+		return result;
+	}
+
+
+	private void testSeek(Charset charset, int interval, int bufferSize) throws IOException {
+		String content = createContent(200, interval);
+		File file = createFile(content, charset);
+		LineIndex index = LineIndex.create(file, charset, interval, bufferSize);
+		assertEquals(content.length(), index.getCharacterCount());
+		PeekReader referenceReader = new PeekReader(new StringReader(content));
+		referenceReader.skip(content.length());
+		assertEquals(referenceReader.getLineNumber() + 1, index.getLineCount());  // Separators of consecutive lines may form '\r\n'.
+
+		referenceReader = new PeekReader(new StringReader(content));
+		PeekReader reader = index.createReader(file);
+		try {
+			for (long line = 0; line < index.getLineCount(); line++) {
+				StreamLocation location = new StreamLocation(referenceReader);
+				String expectedLine = referenceReader.readLine().getSequence().toString();
+
+				index.seekLine(reader, line);
+				assertEquals(location, new StreamLocation(reader));
+				assertEquals(expectedLine, reader.readLine().getSequence().toString());
+			}
+
+			for (int offset = 0; offset <= content.length(); offset += 7) {
+				referenceReader = new PeekReader(new StringReader(content));
+				referenceReader.skip(offset);
+				index.seekCharacterOffset(reader, offset);
+				assertEquals(new StreamLocation(referenceReader), new StreamLocation(reader));
+				assertEquals(referenceReader.peek(), reader.peek());
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test
+	public void testSeek_UTF8() throws IOException {
+		for (int interval = 1; interval <= 20; interval += 6) {
+			testSeek(StandardCharsets.UTF_8, interval, 1024);
+		}
+	}
+
+
+	@Test
+	public void testSeek_UTF16() throws IOException {
+		testSeek(StandardCharsets.UTF_16BE, 3, 1024);
+	}
+
+
+	@Test
+	public void testSeek_bufferBorders() throws IOException {
+		for (int bufferSize = 1; bufferSize <= 7; bufferSize++) {  // Tests separators and surrogate pairs at different buffer borders.
+			testSeek(StandardCharsets.UTF_8, 2, bufferSize);
+		}
+	}
+
+
+	@Test
+	public void testLoadOrCreate() throws IOException {
+		String content = createContent(100, 1);
+		File file = createFile(content, StandardCharsets.UTF_8);
+		LineIndex index = LineIndex.loadOrCreate(file, StandardCharsets.UTF_8);
+		assertTrue(LineIndex.getIndexFile(file).isFile());
+		assertTrue(index.isUpToDate(file));
+
+		LineIndex loadedIndex = LineIndex.load(LineIndex.getIndexFile(file));
+		assertEquals(index.getLineCount(), loadedIndex.getLineCount());
+		assertEquals(index.getCharacterCount(), loadedIndex.getCharacterCount());
+		assertEquals(index.getEntryCount(), loadedIndex.getEntryCount());
+		assertEquals(index.getInterval(), loadedIndex.getInterval());
+		assertEquals(StandardCharsets.UTF_8, loadedIndex.getCharset());
+		assertTrue(loadedIndex.isUpToDate(file));
+
+		PeekReader reader = loadedIndex.createReader(file);
+		try {
+			loadedIndex.seekLine(reader, loadedIndex.getLineCount() - 1);
+			assertEquals("last", reader.readLine().getSequence().toString());
+		}
+		finally {
+			reader.close();
+		}
+
+		Files.write(file.toPath(), (content + "\nappended").getBytes(StandardCharsets.UTF_8));
+		assertFalse(loadedIndex.isUpToDate(file));
+		assertEquals(index.getLineCount() + 1, LineIndex.loadOrCreate(file, StandardCharsets.UTF_8).getLineCount());
+	}
+
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testSeekLine_outOfBounds() throws IOException {
+		File file = createFile("A\nB", StandardCharsets.UTF_8);
+		LineIndex index = LineIndex.create(file, StandardCharsets.UTF_8);
+		PeekReader reader = index.createReader(file);
+		try {
+			index.seekLine(reader, 2);
+		}
+		finally {
+			reader.close();
+		}
+	}
+}
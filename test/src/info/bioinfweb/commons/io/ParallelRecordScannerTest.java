@@ -0,0 +1,163 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class ParallelRecordScannerTest {
+	private static String createFASTA(int sequenceCount, long seed) {
+		final String[] separators = {"\n", "\r", "\r\n"};
+		final String[] tokens = {"ACGT", "äöü", "😀", "-"};
+		Random random = new Random(seed);
+		StringBuilder result = new StringBuilder();
+		for (int sequence = 0; sequence < sequenceCount; sequence++) {
+			result.append(">seq" + sequence);
+			int lineCount = random.nextInt(4);
+			for (int line = 0; line < lineCount; line++) {
+				result.append(separators[random.nextInt(separators.length)]);
+				int tokenCount = random.nextInt(5);
+				for (int i = 0; i < tokenCount; i++) {
+					result.append(tokens[random.nextInt(tokens.length)]);
+				}
+			}
+			result.append('\n');
+		}
+		return result.toString();
+	}
+
+
+	private static File createFile(String content, Charset charset) throws IOException {
+		return IOTestTools.createTempFile("ParallelRecordScannerTest", ".fasta", content, charset);
+	}
+
+
+	private static String location(PeekReader reader) {
+		return reader.getCharacterOffset() + ":" + reader.getLineNumber() + ":" + reader.getColumnNumber() + " ";
+	}
+
+
+	/**
+	 * Reads a FASTA record and returns its start location and content.
+	 */
+	private static String readRecord(PeekReader reader) throws IOException {
+		StringBuilder result = new StringBuilder(location(reader));
+		if (reader.peek() == '>') {
+			reader.read();
+		}
+		result.append(reader.readLine().getSequence());
+		while ((reader.peek() != -1) && (reader.peek() != '>')) {
+			result.append('|');
+			result.append(reader.readLine().getSequence());
+		}
+		return result.toString();
+	}
+
+
+	private void testScan(Charset charset, long chunkSize, int threadCount, int maxPendingChunks) throws IOException {
+		String content = createFASTA(300, chunkSize);
+		File file = createFile(content, charset);
+		content = new String(content.getBytes(charset), charset);  // Characters that cannot be encoded are replaced.
+
+		List<String> expected = new ArrayList<String>();
+		PeekReader reader = new PeekReader(new StringReader(content));
+		while (reader.peek() != -1) {
+			expected.add(readRecord(reader));
+		}
+
+		ParallelRecordScanner<String> scanner = new ParallelRecordScanner<String>(file, charset, "\n>", 1,
+				r -> readRecord(r));
+		scanner.setChunkSize(chunkSize);
+		scanner.setThreadCount(threadCount);
+		scanner.setMaxPendingChunks(maxPendingChunks);
+		assertEquals(expected, scanner.readAll());
+	}
+
+
+	@Test
+	public void testScan_UTF8() throws IOException {
+		for (long chunkSize = 1; chunkSize <= 10000; chunkSize *= 6) {
+			testScan(StandardCharsets.UTF_8, chunkSize, 3, 2);
+		}
+	}
+
+
+	@Test
+	public void testScan_ISO8859() throws IOException {
+		testScan(StandardCharsets.ISO_8859_1, 50, 4, 8);
+	}
+
+
+	@Test
+	public void testScan_singleThread() throws IOException {
+		testScan(StandardCharsets.UTF_8, 100, 1, 1);
+	}
+
+
+	@Test
+	public void testScan_carriageReturnAtChunkBorder() throws IOException {
+		String content = "A\r\nB\r\rC\nD\r";
+		File file = createFile(content, StandardCharsets.UTF_8);
+		List<String> expected = new ArrayList<String>();
+		PeekReader reader = new PeekReader(new StringReader(content));
+		while (reader.peek() != -1) {
+			expected.add(location(reader) + reader.readChar());
+		}
+
+		ParallelRecordScanner<String> scanner = new ParallelRecordScanner<String>(file, StandardCharsets.UTF_8, "\r", 1,
+				r -> location(r) + r.readChar());  // Chunks are split between '\r' and '\n'.
+		scanner.setChunkSize(1);
+		assertEquals(expected, scanner.readAll());
+	}
+
+
+	@Test(expected=IOException.class)
+	public void testScan_parserException() throws IOException {
+		File file = createFile(createFASTA(100, 1), StandardCharsets.UTF_8);
+		ParallelRecordScanner<String> scanner = new ParallelRecordScanner<String>(file, StandardCharsets.UTF_8, "\n>", 1,
+				r -> {
+					if (r.getLineNumber() > 50) {
+						throw new IOException("Test exception");
+					}
+					return readRecord(r);
+				});
+		scanner.setChunkSize(64);
+		scanner.readAll();
+	}
+
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnsupportedCharset() {
+		new ParallelRecordScanner<String>(new File("test.txt"), StandardCharsets.UTF_16, "\n", 1, r -> null);
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class PeekInputStreamTest {
+	public static final int PEEK_BUFFER_SIZE = 10;
+
+
+	private static byte[] createContent(int length) {
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = (byte)(i * 7);  // Contains negative values.
+		}
+		return result;
+	}
+
+
+	private static PeekInputStream createStream(byte[] content) throws IOException {
+		return new PeekInputStream(new ByteArrayInputStream(content) {
+					@Override
+					public synchronized int read(byte[] b, int off, int len) {
+						return super.read(b, off, Math.min(3, len));  // Simulate a stream that does not always return the requested number of bytes.
+					}
+				}, PEEK_BUFFER_SIZE);
+	}
+
+
+	@Test
+	public void test_peek() throws IOException {
+		byte[] content = createContent(25);
+		PeekInputStream stream = createStream(content);
+		assertEquals(PEEK_BUFFER_SIZE, stream.getAvailablePeek());
+		assertEquals(0, stream.peek());
+		assertEquals(content[9] & 0xFF, stream.peek(9));
+		assertEquals(content[9], stream.peekByte(9));
+
+		stream.skip(20);
+		assertEquals(20, stream.getByteOffset());
+		assertEquals(5, stream.getAvailablePeek());
+		assertEquals(content[24] & 0xFF, stream.peek(4));
+		assertEquals(-1, stream.peek(5));
+		try {
+			stream.peekByte(5);
+			fail("Exception not thrown.");
+		}
+		catch (EOFException e) {}
+
+		byte[] buffer = new byte[8];
+		assertEquals(5, stream.peek(buffer));
+		assertArrayEquals(Arrays.copyOfRange(content, 20, 25), Arrays.copyOf(buffer, 5));
+	}
+
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void test_peek_outOfBounds() throws IOException {
+		createStream(createContent(25)).peek(PEEK_BUFFER_SIZE);
+	}
+
+
+	@Test
+	public void test_read() throws IOException {
+		byte[] content = createContent(100);
+		PeekInputStream stream = createStream(content);
+		assertEquals(0, stream.read());
+		assertEquals(content[1] & 0xFF, stream.read());
+
+		byte[] buffer = new byte[30];
+		assertEquals(30, stream.read(buffer, 0, 30));  // Longer than the peek buffer
+		assertArrayEquals(Arrays.copyOfRange(content, 2, 32), buffer);
+		assertEquals(32, stream.getByteOffset());
+		assertEquals(content[32] & 0xFF, stream.peek());
+
+		assertEquals(68, stream.read(new byte[100], 0, 100));
+		assertEquals(-1, stream.read());
+		assertEquals(-1, stream.read(buffer, 0, 1));
+		assertEquals(100, stream.getCharacterOffset());
+	}
+
+
+	@Test
+	public void test_isNext() throws IOException {
+		PeekInputStream stream = createStream(new byte[]{1, 2, 3, -1, -2});
+		assertTrue(stream.isNext(new byte[]{1, 2}));
+		assertFalse(stream.isNext(new byte[]{1, 3}));
+		assertEquals(1, stream.whichIsNext(new byte[]{2}, new byte[]{1, 2, 3, -1}));
+		stream.skip(3);
+		assertTrue(stream.isNext(new byte[]{-1, -2}));
+		assertFalse(stream.isNext(new byte[]{-1, -2, 0}));
+	}
+
+
+	@Test
+	public void test_readUntil() throws IOException {
+		PeekInputStream stream = createStream(new byte[]{'a', 'b', 0, 0, 'c', -1, 'd', 0, -1, 'e'});
+		PeekInputStream.ReadResult result = stream.readUntil(new byte[]{0, -1}, new byte[]{0});
+		assertArrayEquals(new byte[]{'a', 'b'}, result.toByteArray());
+		assertTrue(result.isCompletelyRead());
+		assertSame(result, stream.readUntil(new byte[]{0, -1}, new byte[]{0}));
+		assertArrayEquals(new byte[]{}, result.toByteArray());
+		assertArrayEquals(new byte[]{'c', -1, 'd'}, stream.readUntil(new byte[]{0, -1}, new byte[]{0}).toByteArray());
+		assertEquals(9, stream.getByteOffset());
+		assertArrayEquals(new byte[]{'e'}, stream.readUntil(new byte[]{0, -1}, new byte[]{0}).toByteArray());
+		assertTrue(result.isCompletelyRead());
+	}
+
+
+	@Test
+	public void test_readUntil_sequenceInstances() throws IOException {
+		byte[] first = {0};
+		byte[] second = {1};
+		PeekInputStream stream = createStream(new byte[]{'a', 0, 'b', 1, 'c', 2, 'd'});
+		assertArrayEquals(new byte[]{'a'}, stream.readUntil(first, second).toByteArray());
+		assertArrayEquals(new byte[]{'b'}, stream.readUntil(first, second).toByteArray());  // Cached set
+		assertArrayEquals(new byte[]{'c'}, stream.readUntil(first, new byte[]{2}).toByteArray());  // New set
+		assertArrayEquals(new byte[]{'d'}, stream.readUntil(first, second).toByteArray());
+	}
+
+
+	@Test(expected=IllegalArgumentException.class)
+	public void test_readUntil_illegalArgument() throws IOException {
+		createStream(createContent(10)).readUntil(2, new byte[]{1, 2, 3});
+	}
+
+
+	private static int indexOf(byte[] content, byte[] sequence, int start) {
+		for (int i = start; i <= content.length - sequence.length; i++) {
+			if (Arrays.equals(sequence, Arrays.copyOfRange(content, i, i + sequence.length))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	@Test
+	public void test_readUntil_random() throws IOException {
+		final byte[][] sequences = {{1, 2}, {2, 1, 2}, {-1}, {1, 1, 1, 1, 1, 1, 1}};
+		PeekReader.TerminatorSet terminators = PeekInputStream.createTerminatorSet(sequences);
+		Random random = new Random(5);
+		for (int run = 0; run < 200; run++) {
+			byte[] content = new byte[random.nextInt(100)];
+			for (int i = 0; i < content.length; i++) {
+				content[i] = (byte)(random.nextInt(4) - 1);
+			}
+
+			PeekInputStream stream = createStream(content);
+			int pos = 0;
+			while (pos < content.length) {
+				int maxLength = 7 + random.nextInt(30);
+
+				// Reference implementation:
+				int end = Math.min(content.length, pos + maxLength);
+				int terminatorLength = 0;
+				for (int i = pos; i <= end; i++) {
+					for (byte[] sequence : sequences) {
+						if (indexOf(content, sequence, i) == i) {
+							end = i;
+							terminatorLength = sequence.length;
+							break;
+						}
+					}
+					if (terminatorLength > 0) {
+						break;
+					}
+				}
+
+				PeekInputStream.ReadResult result = stream.readUntil(maxLength, terminators);
+				String message = Arrays.toString(content) + " at " + pos;
+				assertArrayEquals(message, Arrays.copyOfRange(content, pos, end), result.toByteArray());
+				assertEquals(message, (terminatorLength > 0) || (end == content.length), result.isCompletelyRead());
+				pos = end + terminatorLength;
+				assertEquals(message, pos, stream.getByteOffset());
+			}
+		}
+	}
+
+
+	@Test
+	public void test_readUntil_longerThanPeekBuffer() throws IOException {
+		byte[] content = createContent(1000);
+		content[900] = -128;
+		content[901] = -127;
+		PeekInputStream stream = createStream(content);
+		PeekInputStream.ReadResult result = stream.readUntil(new byte[]{-128, -127});
+		assertEquals(900, result.getLength());
+		assertArrayEquals(Arrays.copyOf(content, 900), result.toByteArray());
+		assertEquals(902, stream.getByteOffset());
+	}
+}
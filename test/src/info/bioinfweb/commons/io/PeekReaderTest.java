@@ -19,12 +19,15 @@
 package info.bioinfweb.commons.io;
 
 
+import info.bioinfweb.commons.Math2;
 import info.bioinfweb.commons.testing.TestTools;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import org.junit.* ;
 
@@ -70,20 +73,6 @@ public class PeekReaderTest {             // 01234567890123456789012345678901234
 	}
 	
 	
-	private char[] getNewChars(int start, int length) {
-		char[] newChars = new char[length];
-		for (int i = 0; i < length; i++) {
-			if (start + i < TEST_CONTENT.length()) {
-				newChars[i] = TEST_CONTENT.charAt(start + i);
-			}
-			else {
-				newChars[i] = ' ';
-			}
-		}
-		return newChars;
-	}
-
-	
 	private static void assertLocation(long expectedCharacterOffset, long expectedLineNumner, long expectedColumnNumber, 
 			PeekReader reader) {
 		
@@ -204,113 +193,94 @@ public class PeekReaderTest {             // 01234567890123456789012345678901234
 	}
 	
 	
+	private void assertPeekBuffer(String expectedContent, int expectedStartPos, int expectedContentLength, PeekReader reader) {
+		char[] peekBuffer = getPeekBuffer(reader);
+		for (int i = 0; i < expectedContent.length(); i++) {
+			if (expectedContent.charAt(i) != '?') {  // Undefined positions are marked by '?'.
+				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
+			}
+		}
+		assertEquals(expectedStartPos, getBufferStartPos(reader));
+		assertEquals(expectedContentLength, getBufferContentLength(reader));
+	}
+	
+	
 	@Test
-	public void test_writeToPeekBuffer() {
+	public void test_fillPeekBuffer() throws IOException {
 		PeekReader reader = createPeekReader(TEST_CONTENT);
-		Method method = TestTools.getPrivateMethod(reader.getClass(), "writeToPeekBuffer", char[].class, int.class);
 		
-		try {
-			// Overwrite first part of the buffer:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE, 5), 5);
-			char[] peekBuffer = getPeekBuffer(reader);
-			String expectedContent = TEST_CONTENT.substring(10, 15) + TEST_CONTENT.substring(5, 10);
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(5, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE, getBufferContentLength(reader));
-			
-			// Overwrite second part of the buffer overlapping to the beginning again:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE + 5, 7), 7);
-			peekBuffer = getPeekBuffer(reader);
-			expectedContent = "KLCDEFGHIJ";
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(2, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE, getBufferContentLength(reader));
+		// Overwrite first part of the buffer:
+		reader.read(new char[5]);
+		assertPeekBuffer(TEST_CONTENT.substring(10, 15) + TEST_CONTENT.substring(5, 10), 5, PEEK_BUFFER_SIZE, reader);
+		
+		// Overwrite second part of the buffer overlapping to the beginning again:
+		reader.read(new char[7]);
+		assertPeekBuffer("KLCDEFGHIJ", 2, PEEK_BUFFER_SIZE, reader);
 
-			// Overwrite middle part of the buffer:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE + 5 + 7, 2), 2);
-			peekBuffer = getPeekBuffer(reader);
-			expectedContent = "KLMNEFGHIJ";
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(4, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE, getBufferContentLength(reader));
+		// Overwrite middle part of the buffer:
+		reader.read(new char[2]);
+		assertPeekBuffer("KLMNEFGHIJ", 4, PEEK_BUFFER_SIZE, reader);
 
-			// Read more characters than elements in the buffer:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE + 14, 15), 15);
-			peekBuffer = getPeekBuffer(reader);
-			expectedContent = "TUVWXYZabc";  // If more characters than elements in the buffer are read, bufferStartPos will always be set to 0 again. That's why "UVWXYZabcT" is not the expected sequence.
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(0, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE, getBufferContentLength(reader));
+		// Read more characters than elements in the buffer:
+		reader.read(new char[15]);
+		assertPeekBuffer("TUVWXYZabc", 0, PEEK_BUFFER_SIZE, reader);  // If the buffer is emptied completely, bufferStartPos is set to 0 again.
 
-			// Request more characters than are available in the underlying reader:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE + 14 + 15, 25), 23);
-			peekBuffer = getPeekBuffer(reader);
-			expectedContent = "stuvwxyz";  // The last two characters are not tested, because their value is undefined.
-			for (int i = 0; i < expectedContent.length(); i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(0, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE - 2, getBufferContentLength(reader));
-		}
-		catch (Exception e) {
-			e.printStackTrace();
-			fail(e.getLocalizedMessage());
-		}
+		// Request more characters than are available in the underlying reader:
+		reader.read(new char[25]);
+		assertPeekBuffer("stuvwxyz", 0, PEEK_BUFFER_SIZE - 2, reader);
 	}	
 
 	
 	/**
 	 * This methods tests the decrease of bufferContentLength, when the last read operation consists of less characters 
-	 * than present in buffer, which is not tested in {@link #test_writeToPeekBuffer()}.
+	 * than present in buffer, which is not tested in {@link #test_fillPeekBuffer()}.
 	 */
 	@Test
-	public void test_writeToPeekBuffer2() {
+	public void test_fillPeekBuffer2() throws IOException {
 		PeekReader reader = createPeekReader(TEST_CONTENT);
-		Method method = TestTools.getPrivateMethod(reader.getClass(), "writeToPeekBuffer", char[].class, int.class);
 		
-		try {
-			// First move further to the end of the stream:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE, 40), 40);
-			char[] peekBuffer = getPeekBuffer(reader);
-			String expectedContent = "efghijklmn";
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(0, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE, getBufferContentLength(reader));
-			
-			// Overwrite second part of the buffer overlapping to the beginning again:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE + 40, 8), 8);
-			peekBuffer = getPeekBuffer(reader);
-			expectedContent = "opqrstuvmn";
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(8, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE, getBufferContentLength(reader));
+		// First move further to the end of the stream:
+		reader.read(new char[40]);
+		assertPeekBuffer("efghijklmn", 0, PEEK_BUFFER_SIZE, reader);
+		
+		// Overwrite second part of the buffer overlapping to the beginning again:
+		reader.read(new char[8]);
+		assertPeekBuffer("opqrstuvmn", 8, PEEK_BUFFER_SIZE, reader);
 
-			// Overwrite second part of the buffer overlapping to the beginning again with an incomplete array:
-			method.invoke(reader, getNewChars(PEEK_BUFFER_SIZE + 48, 5), 4);
-			peekBuffer = getPeekBuffer(reader);
-			expectedContent = "yz rstuvwx";
-			for (int i = 0; i < peekBuffer.length; i++) {
-				assertEquals(expectedContent.charAt(i), peekBuffer[i]);
-			}
-			assertEquals(3, getBufferStartPos(reader));
-			assertEquals(PEEK_BUFFER_SIZE - 1, getBufferContentLength(reader));
-		}
-		catch (Exception e) {
-			e.printStackTrace();
-			fail(e.getLocalizedMessage());
-		}
+		// Overwrite second part of the buffer overlapping to the beginning again with an incomplete fill:
+		reader.read(new char[5]);
+		assertPeekBuffer("yz?rstuvwx", 3, PEEK_BUFFER_SIZE - 1, reader);
+		assertEquals("rstuvwxyz", reader.readString(20));
+		assertEquals(-1, reader.read());
+	}
+	
+	
+	@Test
+	public void test_fillPeekBuffer_incompleteUnderlyingReads() throws IOException {
+		PeekReader reader = new PeekReader(new StringReader(TEST_CONTENT) {
+					@Override
+					public int read(char[] cbuf, int off, int len) throws IOException {
+						return super.read(cbuf, off, Math.min(3, len));  // Simulate a reader that does not always return the requested number of characters.
+					}
+				}, PEEK_BUFFER_SIZE);
+		
+		assertEquals(PEEK_BUFFER_SIZE, reader.getAvailablePeek());
+		assertEquals("0123456789", reader.peekString(PEEK_BUFFER_SIZE));
+		assertEquals("0123456789ABCDEFGHIJ", reader.readString(20));
+		assertEquals(PEEK_BUFFER_SIZE, reader.getAvailablePeek());
+		assertEquals("KLMNOPQRST", reader.peekString(PEEK_BUFFER_SIZE));
+	}
+	
+	
+	@Test
+	public void test_emptyStream() throws IOException {
+		PeekReader reader = createPeekReader("");
+		assertEquals(0, reader.getAvailablePeek());
+		assertEquals(-1, reader.peek());
+		assertEquals(-1, reader.read());
+		assertEquals(-1, reader.read(new char[5], 0, 5));
+		assertEquals("", reader.readString(5));
+		assertLocation(0, 0, 0, reader);
 	}
 	
 	
@@ -551,6 +521,101 @@ public class PeekReaderTest {             // 01234567890123456789012345678901234
 	}
 	
 	
+	@Test
+	public void test_readUntil_terminatorSet() throws IOException {
+		PeekReader.TerminatorSet terminators = new PeekReader.TerminatorSet("ABCD", "C", "BC", "xy", "x");
+		PeekReader reader = createPeekReader("0ABCD1BCD2CD3xyz4x5");
+		assertReadResult("0", true, reader.readUntil(terminators));  // "ABCD" starts before "BC" and "C".
+		assertReadResult("1", true, reader.readUntil(terminators));  // "BC" starts before "C".
+		assertReadResult("D2", true, reader.readUntil(terminators));
+		assertReadResult("D3", true, reader.readUntil(terminators));  // "xy" has a lower index than "x".
+		assertReadResult("z4", true, reader.readUntil(terminators));
+		assertReadResult("5", true, reader.readUntil(terminators));
+		assertEquals(-1, reader.read());
+	}
+	
+	
+	@Test
+	public void test_readUntil_whitespaceBehindMaxLength() throws IOException {
+		PeekReader.TerminatorSet terminators = new PeekReader.TerminatorSet(";");
+		PeekReader reader = createPeekReader("ABC DEF GHI");
+		assertReadResult("ABC", false, reader.readUntil(3, terminators));
+		assertEquals(' ', reader.read());  // Not consumed by the non-whitespace variant
+		assertReadResult("DEF", true, reader.readUntilWhitespace(3, terminators));
+		assertEquals('G', reader.read());
+	}
+	
+	
+	@Test
+	public void test_readUntil_longerThanPeekBuffer() throws IOException {
+		PeekReader reader = createPeekReader("0123456789ABCDEFGHIJ;;KLMNOPQRSTUVWXYZ;abc");
+		final String[] terminationSeqs = new String[]{";;", ";"};
+		assertReadResult("0123456789ABCDEFGHIJ", true, reader.readUntil(terminationSeqs));
+		assertLocation(22, 0, 22, reader);
+		assertReadResult("KLMNOPQRSTUVWXYZ", true, reader.readUntil(terminationSeqs));
+		assertReadResult("abc", true, reader.readUntil(terminationSeqs));
+		assertLocation(42, 0, 42, reader);
+	}
+	
+	
+	private static String[] readUntilReference(String content, int start, int maxLength, String[] sequences, 
+			boolean untilWhitespace) {
+		
+		int pos = start;
+		while (pos < content.length()) {
+			if (untilWhitespace && Character.isWhitespace(content.charAt(pos))) {
+				return new String[]{content.substring(start, pos), Integer.toString(pos + 1), "true"};
+			}
+			for (String sequence : sequences) {
+				if (content.startsWith(sequence, pos)) {
+					return new String[]{content.substring(start, pos), Integer.toString(pos + sequence.length()), "true"};
+				}
+			}
+			if (pos - start == maxLength) {
+				return new String[]{content.substring(start, pos), Integer.toString(pos), "false"};
+			}
+			pos++;
+		}
+		return new String[]{content.substring(start, pos), Integer.toString(pos), "true"};
+	}
+	
+	
+	/**
+	 * Compares the results of the automaton based implementation with a simple reference implementation on random
+	 * input.
+	 */
+	@Test
+	public void test_readUntil_random() throws IOException {
+		final String[] sequences = new String[]{"ab", "bab", "a\r", "\r\n", "abba", "c"};
+		final char[] alphabet = new char[]{'a', 'b', 'c', 'd', ' ', '\r', '\n'};
+		Random random = new Random(17);
+		for (int run = 0; run < 200; run++) {
+			StringBuilder content = new StringBuilder();
+			int length = random.nextInt(60);
+			for (int i = 0; i < length; i++) {
+				content.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			
+			PeekReader reader = createPeekReader(content.toString());
+			boolean untilWhitespace = random.nextBoolean();
+			int pos = 0;
+			while (pos < content.length()) {
+				int maxLength = 4 + random.nextInt(20);
+				String[] expected = readUntilReference(content.toString(), pos, maxLength, sequences, untilWhitespace);
+				PeekReader.ReadResult result = reader.readUntil(maxLength, sequences, untilWhitespace);
+				String message = "\"" + content + "\" at " + pos;
+				assertEquals(message, expected[0], result.getSequence().toString());
+				assertEquals(message, Boolean.parseBoolean(expected[2]), result.isCompletelyRead());
+				pos = Integer.parseInt(expected[1]);
+				
+				PeekReader referenceReader = createPeekReader(content.toString());
+				referenceReader.skip(pos);
+				assertEquals(message, new StreamLocation(referenceReader), new StreamLocation(reader));
+			}
+		}
+	}
+	
+	
 	@Test
 	public void test_readRegExp_maxLength() {
 		// "Line1\tLine2   Line3 \t Line4"
@@ -631,6 +696,58 @@ public class PeekReaderTest {             // 01234567890123456789012345678901234
 	}
 	
 	
+	/**
+	 * Compares the results of the automaton based implementation with the implementation using {@link java.util.regex.Matcher}.
+	 */
+	@Test
+	public void test_readRegExp_automatonAndMatcher() throws Exception {
+		final String[] regExps = {REG_EXP, "a*b", "(ab|a)+c?", "\\w+\\s", "[^\\n]*\\n"};
+		final char[] alphabet = {'a', 'b', 'c', ' ', '\n', '1'};
+		Method method = TestTools.getPrivateMethod(PeekReader.class, "readRegExpWithMatcher", int.class, Pattern.class, 
+				boolean.class);
+		Random random = new Random(11);
+		for (String regExp : regExps) {
+			Pattern pattern = Pattern.compile(regExp);
+			for (int run = 0; run < 100; run++) {
+				StringBuilder content = new StringBuilder();
+				int length = random.nextInt(40);
+				for (int i = 0; i < length; i++) {
+					content.append(alphabet[random.nextInt(alphabet.length)]);
+				}
+				
+				boolean greedy = random.nextBoolean();
+				PeekReader automatonReader = createPeekReader(content.toString());
+				PeekReader matcherReader = createPeekReader(content.toString());
+				while (matcherReader.peek() != -1) {
+					int maxLength = 1 + random.nextInt(15);
+					PeekReader.ReadResult expected = (PeekReader.ReadResult)method.invoke(matcherReader, maxLength, pattern, greedy);
+					String message = "\"" + regExp + "\" on \"" + content + "\"";
+					assertReadResult(expected.getSequence().toString(), expected.isCompletelyRead(), 
+							automatonReader.readRegExp(maxLength, pattern, greedy));
+					assertEquals(message, new StreamLocation(matcherReader), new StreamLocation(automatonReader));
+				}
+			}
+		}
+	}
+	
+	
+	@Test(timeout=5000)
+	public void test_readRegExp_longToken() throws IOException {
+		final int length = 200000;
+		StringBuilder content = new StringBuilder(length + 1);
+		for (int i = 0; i < length; i++) {
+			content.append('A');
+		}
+		content.append(' ');
+		
+		PeekReader reader = createPeekReader(content.toString());
+		PeekReader.ReadResult result = reader.readRegExp(REG_EXP, true);
+		assertEquals(length + 1, result.getSequence().length());
+		assertTrue(result.isCompletelyRead());
+		assertLocation(length + 1, 0, length + 1, reader);
+	}
+	
+	
 	@Test
 	public void test_consumeNewLine() throws IOException {
 		PeekReader reader = createPeekReader("A\nB\rC\r\nD\n\nE");
@@ -687,6 +804,39 @@ public class PeekReaderTest {             // 01234567890123456789012345678901234
 	}
 	
 	
+	@Test
+	public void test_sequenceViews() throws IOException {
+		PeekReader reader = createPeekReader("Line 1\r\nLine 0123456789012345\nA 1ABC2.5 7ABC");
+		reader.setReturnSequenceViews(true);
+		
+		PeekReader.ReadResult result = reader.peekLine();
+		assertReadResult("Line 1", true, result);
+		CharSequence view = result.getSequence();
+		assertSame(result, reader.readLine());
+		assertSame(view, result.getSequence());
+		assertEquals("Line 1", view.toString());
+		assertEquals("ne", view.subSequence(2, 4));
+		
+		assertReadResult("Line 0123456789012345", true, reader.readLine());  // Longer than the peek buffer
+		assertEquals("Line 0123456789012345", view.toString());
+		assertReadResult("A 1", true, reader.readUntil(TERMINATION_SEQ));
+		assertEquals(2.5, Math2.parseDouble(reader.readUntilWhitespace(new String[0]).getSequence()), 0.0);
+		assertEquals(7, Math2.parseInt(reader.readUntil(TERMINATION_SEQ).getSequence()));
+		assertEquals(-1, reader.read());
+		
+		reader = createPeekReader(TEST_CONTENT_LINE_BREAK);
+		reader.setReturnSequenceViews(true);
+		CharSequence line = reader.readLine().getSequence().toString();
+		assertFalse(reader.readLine().getSequence() instanceof String);
+		assertEquals("Line 1", line);  // Copies are not changed by subsequent reads.
+		
+		reader.setReturnSequenceViews(false);
+		result = reader.readLine();
+		assertTrue(result.getSequence() instanceof String);
+		assertNotSame(result, reader.readLine());
+	}
+	
+	
 	@Test
 	public void testLocation() throws IOException {
 		PeekReader reader = createPeekReader("Line 0\nLine 0123456789\r\nLine 2\n\rLine 4\r\nLine 5\r");
@@ -714,6 +864,56 @@ public class PeekReaderTest {             // 01234567890123456789012345678901234
 	}
 	
 	
+	@Test
+	public void testLocation_bulkReads() throws IOException {
+		Random random = new Random(11);
+		char[] alphabet = {'a', 'b', '\r', '\n', '\t'};
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			content.append(alphabet[random.nextInt(alphabet.length)]);
+		}
+		
+		PeekReader reader = createPeekReader(content.toString());
+		char[] buffer = new char[40];
+		int position = 0;
+		while (position < content.length()) {
+			int charsRead = reader.read(buffer, 0, 1 + random.nextInt(buffer.length));
+			assertTrue(charsRead > 0);
+			position += charsRead;
+			
+			long lineNumber = 0;
+			long columnNumber = 0;
+			for (int i = 0; i < position; i++) {  // Reference implementation
+				char c = content.charAt(i);
+				if ((c == '\n') || ((c == '\r') && ((i + 1 == content.length()) || (content.charAt(i + 1) != '\n')))) {
+					lineNumber++;
+					columnNumber = 0;
+				}
+				else {
+					columnNumber++;
+				}
+			}
+			assertLocation(position, lineNumber, columnNumber, reader);
+		}
+	}
+	
+	
+	@Test
+	public void testLocation_lineTrackingDisabled() throws IOException {
+		PeekReader reader = createPeekReader("Line 0\nLine 1\r\nLine 2");
+		reader.readLine();
+		reader.setLineTracking(false);
+		assertFalse(reader.isLineTracking());
+		reader.readLine();
+		assertLocation(15, -1, -1, reader);
+		
+		reader.setLineTracking(true);
+		assertLocation(15, 1, 0, reader);  // Line break while tracking was disabled is ignored.
+		reader.skip(3);
+		assertLocation(18, 1, 3, reader);
+	}
+	
+	
 	@Test
 	public void test_skip() throws IOException {
 		PeekReader reader = createPeekReader("0123456789");
@@ -0,0 +1,242 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class ReadAheadReaderTest {
+	private static String createContent(int length) {
+		StringBuilder result = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			result.append((char)('a' + i % 26));
+			if (i % 50 == 49) {
+				result.append('\n');
+			}
+		}
+		return result.toString();
+	}
+
+
+	private static String readAll(Reader reader, int bufferSize) throws IOException {
+		StringBuilder result = new StringBuilder();
+		char[] buffer = new char[bufferSize];
+		int charsRead = reader.read(buffer);
+		while (charsRead != -1) {
+			result.append(buffer, 0, charsRead);
+			charsRead = reader.read(buffer);
+		}
+		return result.toString();
+	}
+
+
+	@Test
+	public void testRead() throws IOException {
+		String content = createContent(10000);
+		for (int chunkSize = 1; chunkSize <= 1000; chunkSize *= 7) {
+			ReadAheadReader reader = new ReadAheadReader(new StringReader(content), chunkSize);
+			try {
+				assertEquals(content, readAll(reader, 13));
+				assertEquals(-1, reader.read());
+			}
+			finally {
+				reader.close();
+			}
+		}
+	}
+
+
+	@Test
+	public void testRead_empty() throws IOException {
+		ReadAheadReader reader = new ReadAheadReader(new StringReader(""), 16);
+		try {
+			assertEquals(-1, reader.read());
+			assertEquals(-1, reader.read());
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test
+	public void testRead_exception() throws IOException {
+		Reader failingReader = new Reader() {
+			private int count = 0;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				if (count >= 25) {
+					throw new IOException("Test exception");
+				}
+				else {
+					cbuf[off] = 'a';
+					count++;
+					return 1;
+				}
+			}
+
+			@Override
+			public void close() throws IOException {}
+		};
+
+		ReadAheadReader reader = new ReadAheadReader(failingReader, 10);
+		try {
+			char[] buffer = new char[100];
+			int charsRead = 0;
+			try {
+				while (true) {
+					charsRead += reader.read(buffer, 0, buffer.length);
+				}
+			}
+			catch (IOException e) {
+				assertEquals("Test exception", e.getMessage());
+			}
+			assertEquals(25, charsRead);  // All characters before the exception are returned.
+
+			try {
+				reader.read();
+				fail("Exception not thrown again.");
+			}
+			catch (IOException e) {
+				assertEquals("Test exception", e.getMessage());
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test
+	public void testRead_runtimeException() throws IOException {
+		Reader failingReader = new Reader() {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				throw new IllegalStateException("Test exception");
+			}
+
+			@Override
+			public void close() throws IOException {}
+		};
+
+		ReadAheadReader reader = new ReadAheadReader(failingReader, 10);
+		try {
+			for (int i = 0; i < 2; i++) {  // The exception must also be thrown again.
+				try {
+					reader.read();
+					fail("Exception not thrown.");
+				}
+				catch (IllegalStateException e) {
+					assertEquals("Test exception", e.getMessage());
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+
+	@Test
+	public void testClose_waitsForThread() throws IOException {
+		final boolean[] readAfterClose = {false};
+		final boolean[] closed = {false};
+		Reader underlyingReader = new Reader() {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				if (closed[0]) {
+					readAfterClose[0] = true;
+				}
+				try {
+					Thread.sleep(1);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				cbuf[off] = 'a';
+				return 1;
+			}
+
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+
+		ReadAheadReader reader = new ReadAheadReader(underlyingReader, 100);
+		reader.read();
+		reader.close();
+		assertTrue(closed[0]);
+		assertFalse(readAfterClose[0]);
+	}
+
+
+	@Test(expected=IOException.class)
+	public void testClose() throws IOException {
+		ReadAheadReader reader = new ReadAheadReader(new StringReader(createContent(1000)), 10);
+		reader.read();
+		reader.close();
+		reader.read();
+	}
+
+
+	@Test
+	public void testPeekReader_gzip() throws IOException {
+		String content = createContent(100000);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream gzipStream = new GZIPOutputStream(bytes);
+		gzipStream.write(content.getBytes(StandardCharsets.UTF_8));
+		gzipStream.close();
+
+		PeekReader reader = new PeekReader(new InputStreamReader(new GZIPInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())), StandardCharsets.UTF_8), 100, true);
+		try {
+			assertEquals(100, reader.getAvailablePeek());
+			StringBuilder result = new StringBuilder();
+			PeekReader.ReadResult line = reader.readLine();
+			while (line.getSequence().length() > 0) {
+				result.append(line.getSequence());
+				result.append('\n');
+				line = reader.readLine();
+			}
+			assertEquals(content, result.toString());
+			assertEquals(2000, reader.getLineNumber());
+			assertEquals(0, reader.getAvailablePeek());
+		}
+		finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import info.bioinfweb.commons.testing.TestTools;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class RegExpAutomatonTest {
+	private static final String[] SUPPORTED_PATTERNS = {".+\\s+", "a*b", "(ab|a)*c?", "[^a-c\\s]+\\d{2,3}", "(?:a|b\\.){1,2}", 
+			"x?", "[a-c-]+", "\\w+\\W", "(?<name>a+?)b", "[\\]\\\\]*.", "\\x41\\u0042"};
+	private static final String[] UNSUPPORTED_PATTERNS = {"^a", "a$", "a\\b", "(a)\\1", "a++", "(?=a)", "\\p{L}", "[a[b]]", 
+			"[a&&b]", "(?i)a", "\\Qa\\E", "a{2}{3}", "a*{2}", "a?{2}"};
+	private static final char[] ALPHABET = {'a', 'b', 'c', 'x', '1', '2', '.', '-', ' ', '\t', '\n', '\\', ']', 'A', 'B'};
+	
+	
+	@Test
+	public void testMatches() {
+		Random random = new Random(5);
+		for (String regExp : SUPPORTED_PATTERNS) {
+			Pattern pattern = Pattern.compile(regExp);
+			RegExpAutomaton automaton = new RegExpAutomaton(pattern);
+			for (int run = 0; run < 2000; run++) {
+				StringBuilder sequence = new StringBuilder();
+				int length = random.nextInt(8);
+				for (int i = 0; i < length; i++) {
+					sequence.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+				}
+				assertEquals("\"" + regExp + "\" on \"" + sequence + "\"", pattern.matcher(sequence).matches(), 
+						automaton.matches(sequence));
+			}
+		}
+	}
+	
+	
+	@Test
+	public void testMatches_longGroup() {
+		final String group = "ACGTACGTACGTACGT";
+		StringBuilder token = new StringBuilder();
+		while (token.length() <= 10000) {
+			token.append(group);
+		}
+		
+		for (String regExp : new String[]{"(" + group + ")+;", "(" + group + ")*;", "(" + group + "){1,}x?;"}) {
+			Pattern pattern = Pattern.compile(regExp);
+			RegExpAutomaton automaton = new RegExpAutomaton(pattern);  // More states than the initial capacity are created.
+			for (String sequence : new String[]{token + ";", token + "A;", group + ";", ";"}) {
+				assertEquals("\"" + regExp + "\"", pattern.matcher(sequence).matches(), automaton.matches(sequence));
+			}
+		}
+	}
+	
+	
+	@Test
+	public void testReadRegExp_longToken() throws IOException {
+		StringBuilder token = new StringBuilder();
+		while (token.length() <= 10000) {
+			token.append("abcdefghijklmno");
+		}
+		token.append('x');
+		PeekReader reader = new PeekReader(new StringReader(token + ";rest"));
+		assertEquals(token.toString(), reader.readRegExp("(abcdefghijklmno)*x", false).getSequence().toString());
+		assertEquals(';', reader.read());
+		
+		reader = new PeekReader(new StringReader("ACGTACGTACGTACGT;rest"));
+		assertEquals("ACGTACGTACGTACGT;", reader.readRegExp("(ACGTACGTACGTACGT)+;", false).getSequence().toString());
+	}
+	
+	
+	@Test
+	public void testReadRegExp_stackedQuantifiers() throws IOException {
+		assertEquals("aa", new PeekReader(new StringReader("aa;")).readRegExp("a{2}{3}", false).getSequence().toString());
+		assertEquals("aa", new PeekReader(new StringReader("aaaaaa;")).readRegExp("a{2}{3}", false).getSequence().toString());
+	}
+	
+	
+	@Test
+	public void testReadRegExp_automatonCache() throws IOException {
+		PeekReader reader = new PeekReader(new StringReader("ab;ab;ab;"));
+		reader.readRegExp("[a-z]+;", false);
+		Object automaton = TestTools.getPrivateFieldValue(reader, "lastAutomaton");
+		assertNotNull(automaton);
+		reader.readRegExp("[a-z]+;", false);
+		assertSame(automaton, TestTools.getPrivateFieldValue(reader, "lastAutomaton"));
+		reader.readRegExp(Pattern.compile("[a-z]+;"), false);
+		assertSame(automaton, TestTools.getPrivateFieldValue(reader, "lastAutomaton"));
+	}
+	
+	
+	@Test
+	public void testUnsupported() {
+		for (String regExp : UNSUPPORTED_PATTERNS) {
+			try {
+				new RegExpAutomaton(Pattern.compile(regExp));
+				fail("\"" + regExp + "\" was not rejected.");
+			}
+			catch (IllegalArgumentException e) {}  // expected
+		}
+		
+		try {
+			new RegExpAutomaton(Pattern.compile("a", Pattern.CASE_INSENSITIVE));
+			fail("Flags were not rejected.");
+		}
+		catch (IllegalArgumentException e) {}  // expected
+	}
+}
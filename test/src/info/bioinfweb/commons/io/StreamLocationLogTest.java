@@ -0,0 +1,100 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class StreamLocationLogTest {
+	@Test
+	public void testAddGet() {
+		StreamLocationLog log = new StreamLocationLog(2);
+		assertTrue(log.isEmpty());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, log.add(10 * i, i / 3, i % 3));
+		}
+		assertEquals(100, log.size());
+		assertEquals(470, log.getCharacterOffset(47));
+		assertEquals(15, log.getLineNumber(47));
+		assertEquals(2, log.getColumnNumber(47));
+		assertEquals(new StreamLocation(470, 15, 2), log.getLocation(47));
+		
+		log.truncate(50);
+		assertEquals(50, log.size());
+		log.trimToSize();
+		assertEquals(50, log.add(new StreamLocation(1000, 40, 0)));
+		assertEquals(new StreamLocation(1000, 40, 0), log.getLocation(50));
+		
+		log.clear();
+		assertTrue(log.isEmpty());
+	}
+	
+	
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testGet_outOfBounds() {
+		StreamLocationLog log = new StreamLocationLog();
+		log.add(0, 0, 0);
+		log.getLocation(1);
+	}
+	
+	
+	@Test
+	public void testIndexOfOffset() {
+		StreamLocationLog log = new StreamLocationLog();
+		log.add(5, 0, 5);
+		log.add(8, 0, 8);
+		log.add(8, 0, 8);
+		log.add(12, 1, 0);
+		assertEquals(-1, log.indexOfOffset(0));
+		assertEquals(0, log.indexOfOffset(5));
+		assertEquals(0, log.indexOfOffset(7));
+		assertEquals(2, log.indexOfOffset(8));
+		assertEquals(2, log.indexOfOffset(11));
+		assertEquals(3, log.indexOfOffset(100));
+	}
+	
+	
+	@Test
+	public void testLogLocation() throws IOException {
+		PeekReader reader = new PeekReader(new StringReader("AB CD\r\nEF GH"));
+		StreamLocationLog log = new StreamLocationLog();
+		while (reader.peek() != -1) {
+			reader.logLocation(log);
+			reader.readRegExp("\\w+\\s*", true);
+		}
+		assertEquals(4, log.size());
+		assertEquals(new StreamLocation(3, 0, 3), log.getLocation(1));
+		assertEquals(new StreamLocation(7, 1, 0), log.getLocation(2));
+		assertEquals(new StreamLocation(10, 1, 3), log.getLocation(3));
+		
+		reader = new PeekReader(new StringReader("AB"));
+		reader.setLineTracking(false);
+		reader.read();
+		reader.logLocation(log);
+		assertEquals(new StreamLocation(1, -1, -1), log.getLocation(4));
+	}
+}
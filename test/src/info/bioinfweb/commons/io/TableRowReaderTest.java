@@ -0,0 +1,94 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class TableRowReaderTest {
+	private static List<String[]> readAll(String text, char separator, boolean quoting) {
+		TableRowReader reader = new TableRowReader(new StringReader(text), separator, quoting);
+		List<String[]> result = new ArrayList<String[]>();
+		reader.forEachRemaining(result::add);
+		return result;
+	}
+
+
+	@Test
+	public void testReadRow() throws IOException {
+		TableRowReader reader = new TableRowReader(new StringReader("A\tB\r\n\tC\t\rD\n\nE"), '\t', false);
+		assertArrayEquals(new String[]{"A", "B"}, reader.readRow());
+		assertArrayEquals(new String[]{"", "C", ""}, reader.readRow());
+		assertTrue(reader.hasNext());
+		assertArrayEquals(new String[]{"D"}, reader.readRow());
+		assertArrayEquals(new String[]{""}, reader.next());
+		assertArrayEquals(new String[]{"E"}, reader.readRow());
+		assertEquals(5, reader.getRowIndex());
+		assertNull(reader.readRow());
+		assertFalse(reader.hasNext());
+	}
+
+
+	@Test
+	public void testReadRow_terminalBreak() {
+		assertEquals(2, readAll("A|B\nC|D\n", '|', false).size());
+		assertEquals(0, readAll("", '|', false).size());
+	}
+
+
+	@Test
+	public void testReadRow_quoted() {
+		List<String[]> rows = readAll("\"A,1\",\"B\"\"\"\r\n\"multi\nline\",x\"y\"\n\"\",", ',', true);
+		assertEquals(3, rows.size());
+		assertArrayEquals(new String[]{"A,1", "B\""}, rows.get(0));
+		assertArrayEquals(new String[]{"multi\nline", "x\"y\""}, rows.get(1));
+		assertArrayEquals(new String[]{"", ""}, rows.get(2));
+
+		assertArrayEquals(new String[]{"\"A", "1\""}, readAll("\"A,1\"", ',', false).get(0));
+	}
+
+
+	@Test
+	public void testReadRow_longCells() {
+		StringBuilder cell = new StringBuilder();
+		for (int i = 0; i < 3 * TableRowReader.DEFAULT_BUFFER_SIZE; i++) {
+			cell.append((char)('a' + i % 26));
+		}
+		List<String[]> rows = readAll(cell + ";\"" + cell + "\"\n" + cell, ';', true);
+		assertEquals(2, rows.size());
+		assertArrayEquals(new String[]{cell.toString(), cell.toString()}, rows.get(0));
+		assertArrayEquals(new String[]{cell.toString()}, rows.get(1));
+	}
+
+
+	@Test(expected=IOException.class)
+	public void testReadRow_unterminatedQuote() throws IOException {
+		new TableRowReader(new StringReader("A,\"B"), ',', true).readRow();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class TextReaderTest {
+	private static final String TEXT = "äöü\r\nA\rB\n\n😀C";
+
+
+	@Test
+	public void testReadText_normalized() throws IOException {
+		assertEquals("A\nB\nC\n\nD\n", TextReader.readText(new ByteArrayInputStream("A\r\nB\rC\n\nD".getBytes())));
+		assertEquals("A\n", TextReader.readText(new ByteArrayInputStream("A\r".getBytes()), 1));
+		assertEquals("", TextReader.readText(new ByteArrayInputStream(new byte[0])));
+	}
+
+
+	@Test
+	public void testReadText_charset() throws IOException {
+		assertEquals(TEXT, TextReader.readText(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)), 
+				StandardCharsets.UTF_8));
+		assertEquals(TEXT, TextReader.readText(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_16)), 
+				StandardCharsets.UTF_16));
+	}
+
+
+	@Test
+	public void testReadCharBuffer_file() throws IOException {
+		File file = File.createTempFile("TextReaderTest", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), TEXT.getBytes(StandardCharsets.UTF_8));
+		CharBuffer buffer = TextReader.readCharBuffer(file, StandardCharsets.UTF_8);
+		assertEquals(0, buffer.position());
+		assertEquals(TEXT.length(), buffer.limit());
+		assertEquals(TEXT, buffer.toString());
+		assertEquals(TEXT, TextReader.readText(file, StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	public void testReadCharBuffer_enlarge() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			text.append((char)('a' + i % 26));
+		}
+		assertEquals(text.toString(), TextReader.readCharBuffer(new ByteArrayInputStream(
+				text.toString().getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, 0).toString());
+	}
+}
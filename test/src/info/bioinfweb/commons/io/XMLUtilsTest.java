@@ -19,8 +19,23 @@
 package info.bioinfweb.commons.io;
 
 
+import info.bioinfweb.commons.testing.TestTools;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.regex.Matcher;
 
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.StartElement;
+
 import org.junit.* ;
 
 
@@ -39,4 +54,163 @@ public class XMLUtilsTest {
 			assertEquals("Extracted file name invalid", "1.1", matcher.group(1));
 		}
 	}
+	
+	
+	private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment -->\n" +
+			"<x:root xmlns:x=\"http://example.org/x\" xmlns=\"http://example.org/default\" " +
+			"xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " + 
+			"xsi:schemaLocation=\"http://example.org/x http://example.org/x/2.3.xsd\" a=\"1\">" +
+			"<child/></x:root>";
+	
+	
+	private static InputStream createStream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	
+	@Test
+	public void test_readRootElement() throws IOException, XMLStreamException, InvalidXSDPathException {
+		StartElement element = XMLUtils.readRootElement(createStream(XML));
+		assertEquals(new QName("http://example.org/x", "root"), element.getName());
+		assertEquals("x", element.getName().getPrefix());
+		assertEquals("1", element.getAttributeByName(new QName("a")).getValue());
+		assertEquals("http://example.org/x http://example.org/x/2.3.xsd", element.getAttributeByName(
+				new QName(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation")).getValue());
+		assertEquals("http://example.org/default", element.getNamespaceURI(""));
+		assertEquals(new FormatVersion(2, 3), XMLUtils.extractFormatVersion(element));
+	}
+	
+	
+	@Test(expected=XMLStreamException.class)
+	public void test_readRootElement_limit() throws IOException, XMLStreamException {
+		StringBuilder content = new StringBuilder("<?xml version=\"1.0\"?>");
+		for (int i = 0; i < 100; i++) {
+			content.append("<!-- comment -->");
+		}
+		content.append("<root/>");
+		XMLUtils.readRootElement(createStream(content.toString()), 100);
+	}
+	
+	
+	@Test
+	public void test_extractFormatVersion_file() throws IOException, XMLStreamException, InvalidXSDPathException {
+		File file = File.createTempFile("XMLUtilsTest", ".xml");
+		file.deleteOnExit();
+		Files.write(file.toPath(), XML.getBytes(StandardCharsets.UTF_8));
+		
+		FormatVersion version = XMLUtils.extractFormatVersion(file);
+		assertEquals(new FormatVersion(2, 3), version);
+		version.setMajor(5);  // Must not change the cached instance.
+		assertEquals(new FormatVersion(2, 3), XMLUtils.extractFormatVersion(file));
+		
+		Files.write(file.toPath(), XML.replace("2.3.xsd", "10.4.xsd").getBytes(StandardCharsets.UTF_8));  // Size is changed.
+		assertEquals(new FormatVersion(10, 4), XMLUtils.extractFormatVersion(file));
+		
+		XMLUtils.clearFormatVersionCache();
+		assertEquals(new FormatVersion(10, 4), XMLUtils.extractFormatVersion(file));
+	}
+	
+	
+	/**
+	 * Returns a reader positioned at the first event behind the start tag of the root element.
+	 */
+	private static XMLStreamReader createReader(String content) throws XMLStreamException {
+		XMLStreamReader result = XMLUtils.createXMLStreamReader(createStream(content));
+		while (result.next() != XMLStreamConstants.START_ELEMENT) {}
+		result.next();
+		return result;
+	}
+	
+	
+	@Test
+	public void test_readCharactersAsInt_XMLStreamReader() throws XMLStreamException {
+		assertEquals(-123, XMLUtils.readCharactersAsInt(createReader("<v>-123</v>")));
+		assertEquals(123, XMLUtils.readCharactersAsInt(createReader("<v>1<![CDATA[2]]><!-- comment -->3</v>")));
+		
+		XMLStreamReader reader = createReader("<v>12</v>");
+		assertEquals(12, XMLUtils.readCharactersAsInt(reader));
+		assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void test_readCharactersAsInt_XMLStreamReader_whitespace() throws XMLStreamException {
+		XMLUtils.readCharactersAsInt(createReader("<v> 12</v>"));  // Same behavior as Integer.parseInt().
+	}
+	
+	
+	@Test
+	public void test_readCharactersAsLong_XMLStreamReader() throws XMLStreamException {
+		assertEquals(Long.MIN_VALUE, XMLUtils.readCharactersAsLong(createReader("<v>" + Long.MIN_VALUE + "</v>")));
+	}
+	
+	
+	@Test
+	public void test_readCharactersAsDouble_XMLStreamReader() throws XMLStreamException {
+		assertEquals(-1.5e-3, XMLUtils.readCharactersAsDouble(createReader("<v> -1.5e-3\n</v>")), 0.0);
+		assertEquals(0.1, XMLUtils.readCharactersAsDouble(createReader("<v>0<![CDATA[.]]>1</v>")), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, XMLUtils.readCharactersAsDouble(createReader("<v>Infinity</v>")), 0.0);
+	}
+	
+	
+	@Test(expected=NumberFormatException.class)
+	public void test_readCharactersAsDouble_XMLStreamReader_comma() throws XMLStreamException {
+		XMLUtils.readCharactersAsDouble(createReader("<v>1,5</v>"));  // Same behavior as Double.parseDouble().
+	}
+	
+	
+	@Test
+	public void test_readCharactersAsIntArray() throws XMLStreamException {
+		assertArrayEquals(new int[]{1, -2, 34, 5}, 
+				XMLUtils.readCharactersAsIntArray(createReader("<v>\n  1\t-2 3<![CDATA[4 5]]>\n</v>")));
+		assertArrayEquals(new int[0], XMLUtils.readCharactersAsIntArray(createReader("<v> </v>")));
+		
+		StringBuilder content = new StringBuilder("<v>");
+		int[] expected = new int[1000];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = i * 7 - 300;
+			content.append(expected[i]);
+			content.append(' ');
+		}
+		content.append("</v>");
+		assertArrayEquals(expected, XMLUtils.readCharactersAsIntArray(createReader(content.toString())));
+	}
+	
+	
+	@Test
+	public void test_readCharactersAsDoubleArray() throws XMLStreamException {
+		assertArrayEquals(new double[]{1.5, -2.0, 3e10, 0.25}, 
+				XMLUtils.readCharactersAsDoubleArray(createReader("<v>1.5 -2 3e1<!-- comment -->0 0.2<![CDATA[5]]></v>")), 0.0);
+	}
+	
+	
+	private static int getTextBufferCapacity() throws IllegalAccessException {
+		ThreadLocal<?> buffer = (ThreadLocal<?>)TestTools.getPrivateField(XMLUtils.class, "TEXT_BUFFER").get(null);
+		return ((char[])TestTools.getPrivateFieldValue(buffer.get(), "chars")).length;
+	}
+	
+	
+	@Test
+	public void test_readCharactersAsIntArray_largeContent() throws XMLStreamException, IllegalAccessException {
+		StringBuilder content = new StringBuilder("<v>");
+		int[] expected = new int[100000];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = i;
+			content.append(i);
+			content.append((i % 10 == 0) ? "\n" : " ");
+		}
+		content.append("</v>");
+		XMLStreamReader reader = createReader(content.toString());
+		assertArrayEquals(expected, XMLUtils.readCharactersAsIntArray(reader));
+		assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+		assertTrue(getTextBufferCapacity() <= 1024);  // Only single tokens are buffered.
+		
+		content = new StringBuilder("<v>");
+		for (int i = 0; i < 100000; i++) {
+			content.append(' ');
+		}
+		content.append("2.5</v>");
+		assertEquals(2.5, XMLUtils.readCharactersAsDouble(createReader(content.toString())), 0.0);
+		assertTrue(getTextBufferCapacity() <= 1024);  // The large buffer was released.
+	}
 }
@@ -0,0 +1,252 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.io.streammessage;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.* ;
+
+
+import static org.junit.Assert.* ;
+
+
+
+public class MessageFrameTest {
+	public static enum TestType {
+		TEXT, NUMBER;
+	}
+	
+	
+	public static class TextMessage extends Message<TestType> {
+		public String text;
+		
+		public TextMessage() {
+			super(TestType.TEXT, 1);
+		}
+
+		@Override
+		public void write(DataOutputStream stream) throws IOException, NewerMessageVersionException {
+			super.write(stream);
+			stream.writeUTF(text);
+		}
+
+		@Override
+		protected void doRead(DataInputStream stream, int version) throws IOException {
+			text = stream.readUTF();
+		}
+	}
+	
+	
+	public static class NumberMessage extends Message<TestType> {
+		public long number;
+		
+		public NumberMessage() {
+			super(TestType.NUMBER, 2);
+		}
+
+		@Override
+		public void write(DataOutputStream stream) throws IOException, NewerMessageVersionException {
+			super.write(stream);
+			stream.writeLong(number);
+		}
+
+		@Override
+		protected void doRead(DataInputStream stream, int version) throws IOException {
+			number = stream.readLong();
+		}
+	}
+	
+	
+	public static class TestMessageReader extends MessageReader<TestType> {
+		public TestMessageReader(boolean useSupplier) {
+			super(TestType.class);
+			if (useSupplier) {
+				register(TestType.NUMBER, NumberMessage::new);  // Preferred over the class.
+			}
+		}
+
+		@Override
+		protected void fillList() {
+			getMessages().put(TestType.TEXT, TextMessage.class);
+			getMessages().put(TestType.NUMBER, NumberMessage.class);
+		}
+	}
+	
+	
+	private static List<Message<TestType>> createMessages(int count) {
+		List<Message<TestType>> result = new ArrayList<Message<TestType>>();
+		for (int i = 0; i < count; i++) {
+			if (i % 3 == 0) {
+				TextMessage message = new TextMessage();
+				message.text = "Message " + i + " äöü";
+				result.add(message);
+			}
+			else {
+				NumberMessage message = new NumberMessage();
+				message.number = i * 1000000007L;
+				result.add(message);
+			}
+		}
+		return result;
+	}
+	
+	
+	private static void assertMessageEquals(Message<TestType> expected, Message<TestType> actual) {
+		assertEquals(expected.getType(), actual.getType());
+		if (expected instanceof TextMessage) {
+			assertEquals(((TextMessage)expected).text, ((TextMessage)actual).text);
+		}
+		else {
+			assertEquals(((NumberMessage)expected).number, ((NumberMessage)actual).number);
+		}
+	}
+	
+	
+	private void testWriteRead(int writerBufferSize, int readerBufferSize, boolean batch, boolean useSupplier) 
+			throws IOException {
+		
+		List<Message<TestType>> messages = createMessages(500);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MessageFrameWriter<TestType> writer = new MessageFrameWriter<TestType>(Channels.newChannel(out), writerBufferSize);
+		if (batch) {
+			assertEquals(250, writer.write(messages.subList(0, 250)));
+			assertEquals(250, writer.write(messages.subList(250, 500)));
+		}
+		else {
+			for (Message<TestType> message : messages) {
+				writer.write(message);
+			}
+		}
+		
+		MessageFrameReader<TestType> reader = new MessageFrameReader<TestType>(
+				Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), new TestMessageReader(useSupplier), 
+				readerBufferSize);
+		for (Message<TestType> expected : messages) {
+			assertMessageEquals(expected, reader.read());
+		}
+		assertNull(reader.read());
+	}
+	
+	
+	@Test
+	public void testWriteRead() throws IOException {
+		testWriteRead(MessageFrameWriter.DEFAULT_BUFFER_SIZE, MessageFrameReader.DEFAULT_BUFFER_SIZE, false, false);
+		testWriteRead(MessageFrameWriter.DEFAULT_BUFFER_SIZE, MessageFrameReader.DEFAULT_BUFFER_SIZE, true, true);
+	}
+	
+	
+	@Test
+	public void testWriteRead_smallBuffers() throws IOException {
+		testWriteRead(4, 4, true, false);
+		testWriteRead(7, 13, false, true);
+	}
+	
+	
+	@Test
+	public void testPooling() throws IOException {
+		List<Message<TestType>> messages = createMessages(4);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new MessageFrameWriter<TestType>(Channels.newChannel(out)).write(messages);
+		
+		TestMessageReader messageReader = new TestMessageReader(true);
+		messageReader.setPooling(true);
+		MessageFrameReader<TestType> reader = new MessageFrameReader<TestType>(
+				Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), messageReader);
+		
+		Message<TestType> first = reader.read();
+		Message<TestType> second = reader.read();
+		assertMessageEquals(messages.get(1), second);
+		reader.release(second);
+		Message<TestType> third = reader.read();
+		assertSame(second, third);
+		assertMessageEquals(messages.get(2), third);
+		assertNotSame(first, reader.read());  // Different type
+		assertNull(reader.read());
+	}
+	
+	
+	@Test(expected=IOException.class)
+	public void testRead_truncated() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new MessageFrameWriter<TestType>(Channels.newChannel(out)).write(createMessages(3));
+		byte[] bytes = out.toByteArray();
+		MessageFrameReader<TestType> reader = new MessageFrameReader<TestType>(
+				Channels.newChannel(new ByteArrayInputStream(bytes, 0, bytes.length - 1)), new TestMessageReader(false));
+		while (reader.read() != null) {}
+	}
+	
+	
+	@Test
+	public void testRead_maxFrameLength() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream stream = new DataOutputStream(out);
+		stream.writeInt(Integer.MAX_VALUE);  // Length prefix of a frame that does not exist.
+		stream.writeInt(0);
+		
+		MessageFrameReader<TestType> reader = new MessageFrameReader<TestType>(
+				Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), new TestMessageReader(false));
+		assertEquals(MessageFrameReader.DEFAULT_MAX_FRAME_LENGTH, reader.getMaxFrameLength());
+		try {
+			reader.read();
+			fail("Exception not thrown.");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("maximum frame length"));
+		}
+		
+		out = new ByteArrayOutputStream();
+		List<Message<TestType>> messages = createMessages(2);
+		new MessageFrameWriter<TestType>(Channels.newChannel(out)).write(messages);
+		reader = new MessageFrameReader<TestType>(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), 
+				new TestMessageReader(false));
+		reader.setMaxFrameLength(4);
+		try {
+			reader.read();
+			fail("Exception not thrown.");
+		}
+		catch (IOException e) {}  // Expected
+	}
+	
+	
+	@Test
+	public void testMessageReader_stream() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream stream = new DataOutputStream(out);
+		List<Message<TestType>> messages = createMessages(6);
+		for (Message<TestType> message : messages) {
+			message.write(stream);
+		}
+		
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+		TestMessageReader reader = new TestMessageReader(false);
+		for (Message<TestType> expected : messages) {
+			@SuppressWarnings("unchecked")
+			Message<TestType> message = reader.read(in);
+			assertMessageEquals(expected, message);
+		}
+	}
+}
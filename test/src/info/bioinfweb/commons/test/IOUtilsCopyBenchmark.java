@@ -0,0 +1,139 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.test;
+
+
+import info.bioinfweb.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+
+
+/**
+ * Compares the time needed to copy a large file using {@link IOUtils#copy(File, File)}, which uses 
+ * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, to copying it 
+ * with a new 64 KB array (as previous versions did) and to {@link IOUtils#copy(InputStream, OutputStream)} on 
+ * streams that do not allow a channel transfer.
+ * <p>
+ * The size of the file in MB can be specified as the first argument. It defaults to 1024. Note that the results 
+ * depend strongly on the file system cache of the operating system.
+ */
+public class IOUtilsCopyBenchmark {
+	private static final int MB = 1024 * 1024;
+	private static final int ROUNDS = 3;
+	
+	
+	private static File createFile(int sizeInMB) throws IOException {
+		File result = File.createTempFile("IOUtilsCopyBenchmark", ".src");
+		result.deleteOnExit();
+		byte[] buffer = new byte[MB];
+		new Random(1).nextBytes(buffer);
+		OutputStream out = new FileOutputStream(result);
+		try {
+			for (int i = 0; i < sizeInMB; i++) {
+				out.write(buffer);
+			}
+		}
+		finally {
+			out.close();
+		}
+		return result;
+	}
+	
+	
+	private static void copyWithArray(File src, File dest) throws IOException {
+		InputStream in = new FileInputStream(src);
+		try {
+			OutputStream out = new FileOutputStream(dest);
+			try {
+				byte[] buffer = new byte[64 * 1024];
+				for (int len; (len = in.read(buffer)) != -1; ) {
+					out.write(buffer, 0, len);
+				}
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	
+	private static void copyStreams(File src, File dest) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(src));  // Prevents the channel transfer.
+		try {
+			IOUtils.copy(in, new FileOutputStream(dest), true);
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	
+	private static long copy(File src, File dest, int method) throws IOException {
+		long start = System.nanoTime();
+		switch (method) {
+			case 0:
+				IOUtils.copy(src, dest);
+				break;
+			case 1:
+				copyWithArray(src, dest);
+				break;
+			default:
+				copyStreams(src, dest);
+				break;
+		}
+		long result = System.nanoTime() - start;
+		if (dest.length() != src.length()) {
+			throw new IllegalStateException();
+		}
+		return result;
+	}
+	
+	
+	public static void main(String[] args) throws IOException {
+		int sizeInMB = 1024;
+		if (args.length > 0) {
+			sizeInMB = Integer.parseInt(args[0]);
+		}
+		File src = createFile(sizeInMB);
+		File dest = File.createTempFile("IOUtilsCopyBenchmark", ".dest");
+		dest.deleteOnExit();
+		
+		long[] times = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+		for (int round = 0; round < ROUNDS; round++) {  // The first round serves as a warm up.
+			for (int method = 0; method < times.length; method++) {
+				times[method] = Math.min(times[method], copy(src, dest, method));
+			}
+		}
+		System.out.format("%d MB: IOUtils.copy(File, File) %.1f ms, 64 KB array %.1f ms, IOUtils.copy() on streams %.1f ms%n", 
+				sizeInMB, times[0] / 1e6, times[1] / 1e6, times[2] / 1e6);
+		src.delete();
+		dest.delete();
+	}
+}
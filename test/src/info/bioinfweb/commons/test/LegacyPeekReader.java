@@ -0,0 +1,200 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.test;
+
+
+import info.bioinfweb.commons.io.PeekReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+
+/**
+ * Copy of the read engine of {@link PeekReader} in version 3.3.0, which is used by {@link PeekReaderBenchmark} as a
+ * reference. Only the methods necessary for {@link #read(char[], int, int)} are contained. Each call of this method
+ * allocates a temporary array of the requested length, reads into it from the underlying reader and then rotates the
+ * ring buffer.
+ * 
+ * @author Ben St&ouml;ver
+ */
+public class LegacyPeekReader extends Reader {
+	private Reader underlyingReader;
+	private int peekLength;
+	private char[] peekBuffer;
+	private int bufferStartPos = -1;
+	private int bufferContentLength = -1;
+	
+	private long characterOffset = 0;
+	private long lineNumber = 0;
+	private long columnNumber = 0;
+	
+	
+	public LegacyPeekReader(Reader underlyingReader, int peekLength) throws IOException {
+		super(underlyingReader);
+		
+		this.underlyingReader = underlyingReader;
+		this.peekLength = peekLength;
+		
+		bufferStartPos = 0;
+		peekBuffer = new char[peekLength];
+		bufferContentLength = underlyingReader.read(peekBuffer);
+	}
+	
+	
+	public long getCharacterOffset() {
+		return characterOffset;
+	}
+
+
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+
+	public long getColumnNumber() {
+		return columnNumber;
+	}
+
+
+	public int getAvailablePeek() {
+		return bufferContentLength;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		underlyingReader.close();
+	}
+
+
+	public int peek() {
+		if (getAvailablePeek() > 0) {
+			return (int)peekBuffer[bufferStartPos];
+		}
+		else {
+			return -1;
+		}
+	}
+	
+	
+	public int peek(char[] cbuf, int off, int len) {
+		int lengthToCopy = Math.min(len, bufferContentLength);
+		int firstLengthToCopy = Math.min(lengthToCopy, peekLength - bufferStartPos);  // The number of positions to be copied between bufferStartPos and the end of the buffer
+		System.arraycopy(peekBuffer, bufferStartPos, cbuf, off, firstLengthToCopy);
+		
+		int secondLengthToCopy = lengthToCopy - firstLengthToCopy;  // The number of positions to copy between the beginning of the buffer and bufferStartPos
+		if (secondLengthToCopy > 0) {
+			System.arraycopy(peekBuffer, 0, cbuf, off + firstLengthToCopy, secondLengthToCopy);
+		}
+		
+		return lengthToCopy;
+	}
+	
+	
+	private void writeToPeekBuffer(char[] newChars, int newCharsRead) {
+		if (newCharsRead == -1) {  // end of stream was reached
+			newCharsRead = 0;
+		}
+		if (newCharsRead > 0) {
+			if (newCharsRead >= peekLength) {  // In this case the whole buffer is overwritten with the end of newChars.
+				System.arraycopy(newChars, newChars.length - peekLength, peekBuffer, 0, peekLength);
+				bufferContentLength = peekLength;
+				bufferStartPos = 0;
+			}
+			else {  // Only a part of the buffer will be replaced.
+				int firstPartLength = Math.min(peekLength - bufferStartPos, newChars.length);
+				System.arraycopy(newChars, 0, peekBuffer, bufferStartPos, firstPartLength);
+				if (firstPartLength < newChars.length) {
+					int secondPartLength = newChars.length - firstPartLength;
+					System.arraycopy(newChars, firstPartLength, peekBuffer, 0, secondPartLength);
+					bufferStartPos = secondPartLength;
+				}
+				else {
+					bufferStartPos += firstPartLength;
+					if (bufferStartPos >= peekLength) {
+						bufferStartPos -= peekLength;  // Otherwise bufferStartPos could be equal to peekLength. 
+					}
+				}
+			}
+			bufferContentLength = Math.max(0, bufferContentLength - (newChars.length - newCharsRead));
+		}
+		else {
+			bufferStartPos += newChars.length;
+			if (bufferStartPos >= peekLength) {
+				bufferStartPos -= peekLength;
+			}
+			bufferContentLength = Math.max(0, bufferContentLength - newChars.length);
+		}
+	}
+	
+	
+	private boolean isCharNextInBuffer(char c, char[] cbuf, int pos, int end) {
+		if (pos + 1 < end) {
+			return cbuf[pos + 1] == c;
+		}
+		else {
+			int code = peek();
+			return (code != -1) && ((char)code == c);
+		}
+	}
+	
+	
+	private void countPositionChange(char[] cbuf, int offset, int copiedLength) {
+		characterOffset += copiedLength;
+		
+		int end = offset + copiedLength;
+		for (int pos = offset; pos < end; pos++) {
+			if (((cbuf[pos] == '\r') && !isCharNextInBuffer('\n', cbuf, pos, end))  // Line number will be increased in the next loop cycle or method call.
+					|| (cbuf[pos] == '\n')) {
+				
+				lineNumber++;
+				columnNumber = 0;
+			}
+			else {
+				columnNumber++;
+			}
+		}
+	}
+	
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		char[] newChars = new char[len];
+		int newCharsRead = underlyingReader.read(newChars);
+		
+		if ((newCharsRead == -1) && (getAvailablePeek() == 0)) {  // End of stream and buffer empty.
+			return -1;
+		}
+		else {
+			int positionsCopied = peek(cbuf, off, len);
+			
+			int additionalPositionsToCopy = Math.min(newCharsRead, len - positionsCopied);
+			if (additionalPositionsToCopy > 0) {
+				System.arraycopy(newChars, 0, cbuf, off + positionsCopied, additionalPositionsToCopy);
+				positionsCopied += additionalPositionsToCopy;
+			}
+			
+			writeToPeekBuffer(newChars, newCharsRead);
+			
+			countPositionChange(cbuf, off, positionsCopied);
+			return positionsCopied;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.test;
+
+
+import info.bioinfweb.commons.collections.PackedIntegerArrayList;
+
+import java.util.Random;
+
+
+
+/**
+ * Compares the time needed to fill an adaptive {@link PackedIntegerArrayList} starting with one bit per value to the
+ * time needed to fill a list that was created with the final number of bits per value.
+ * <p>
+ * The sequential values cause a re-pack each time the list size reaches the next power of two, which is the worst 
+ * case for adaptive widening. Random values with a fixed maximum cause all widenings to happen while the list is 
+ * still small.
+ */
+public class PackedIntegerArrayListBenchmark {
+	private static final int SIZE = 20000000;
+	private static final int ROUNDS = 5;
+	
+	
+	private static long[] createSequentialValues() {
+		long[] result = new long[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			result[i] = i;
+		}
+		return result;
+	}
+	
+	
+	private static long[] createRandomValues() {
+		Random random = new Random(1);
+		long[] result = new long[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			result[i] = random.nextInt(1 << 20);
+		}
+		return result;
+	}
+	
+	
+	private static long fill(long[] values, boolean adaptive) {
+		long start = System.nanoTime();
+		PackedIntegerArrayList list;
+		if (adaptive) {
+			list = new PackedIntegerArrayList(1, 0, 0);
+			list.setAdaptive(true);
+		}
+		else {
+			list = new PackedIntegerArrayList(PackedIntegerArrayList.calculateBitsPerValue(SIZE), 0, 0);
+		}
+		for (long value : values) {
+			list.add(value);
+		}
+		long result = System.nanoTime() - start;
+		if (list.size() != SIZE) {
+			throw new IllegalStateException();
+		}
+		return result;
+	}
+	
+	
+	private static void run(String name, long[] values) {
+		long adaptiveTime = Long.MAX_VALUE;
+		long fixedTime = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {  // The first rounds serve as a warm up.
+			adaptiveTime = Math.min(adaptiveTime, fill(values, true));
+			fixedTime = Math.min(fixedTime, fill(values, false));
+		}
+		System.out.format("%s: fixed width %.2f ns/value, adaptive %.2f ns/value%n", name, 
+				(double)fixedTime / SIZE, (double)adaptiveTime / SIZE);
+	}
+	
+	
+	public static void main(String[] args) {
+		run("Sequential values", createSequentialValues());
+		run("Random values", createRandomValues());
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * bioinfweb.commons.java - Shared components of bioinfweb projects made available in a Java library
+ * Copyright (C) 2008-2011, 2013-2018 Ben Stöver, Sarah Wiechers
+ * <http://commons.bioinfweb.info/Java>
+ * 
+ * This file is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package info.bioinfweb.commons.test;
+
+
+import info.bioinfweb.commons.io.PeekReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+
+
+/**
+ * Measures the time and the heap allocation of {@link PeekReader#read(char[], int, int)} for reads of 1, 64 and
+ * 8192 characters. The read engine of the previous version (see {@link LegacyPeekReader}) and a {@link BufferedReader} 
+ * with the same buffer size are measured as references.
+ * <p>
+ * Allocated bytes are determined using {@link com.sun.management.ThreadMXBean}, if the JVM provides it. Since the 
+ * peek buffer is refilled directly from the underlying reader, no bytes should be allocated per read call, while the
+ * previous version allocated an array of the requested length on each call.
+ */
+public class PeekReaderBenchmark {
+	private static final int LENGTH = 64 * 1024 * 1024;
+	private static final int[] READ_SIZES = {1, 64, 8192};
+	private static final int ROUNDS = 5;
+	
+	
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		else {
+			return -1;
+		}
+	}
+	
+	
+	private static long[] read(Reader reader, int readSize) throws IOException {
+		char[] buffer = new char[readSize];
+		long allocatedBytes = getAllocatedBytes();
+		long start = System.nanoTime();
+		long count = 0;
+		int calls = 0;
+		for (int length; (length = reader.read(buffer, 0, readSize)) != -1; ) {
+			count += length;
+			calls++;
+		}
+		long time = System.nanoTime() - start;
+		allocatedBytes = getAllocatedBytes() - allocatedBytes;
+		if (count != LENGTH) {
+			throw new IllegalStateException();
+		}
+		return new long[]{time, allocatedBytes / calls};
+	}
+	
+	
+	private static void run(String content, int readSize) throws IOException {
+		long peekTime = Long.MAX_VALUE;
+		long peekAllocation = 0;
+		long legacyTime = Long.MAX_VALUE;
+		long legacyAllocation = 0;
+		long bufferedTime = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {  // The first rounds serve as a warm up.
+			long[] result = read(new PeekReader(new StringReader(content), PeekReader.DEFAULT_PEEK_BUFFER_SIZE), readSize);
+			peekTime = Math.min(peekTime, result[0]);
+			peekAllocation = result[1];
+			result = read(new LegacyPeekReader(new StringReader(content), PeekReader.DEFAULT_PEEK_BUFFER_SIZE), readSize);
+			legacyTime = Math.min(legacyTime, result[0]);
+			legacyAllocation = result[1];
+			bufferedTime = Math.min(bufferedTime, 
+					read(new BufferedReader(new StringReader(content), PeekReader.DEFAULT_PEEK_BUFFER_SIZE), readSize)[0]);
+		}
+		System.out.format("%5d chars per read: PeekReader %.2f ns/char (%d bytes allocated per read), " + 
+				"previous PeekReader %.2f ns/char (%d bytes allocated per read), BufferedReader %.2f ns/char%n", readSize, 
+				(double)peekTime / LENGTH, peekAllocation, (double)legacyTime / LENGTH, legacyAllocation, 
+				(double)bufferedTime / LENGTH);
+	}
+	
+	
+	public static void main(String[] args) throws IOException {
+		char[] chars = new char[LENGTH];
+		Arrays.fill(chars, 'A');
+		String content = new String(chars);
+		for (int readSize : READ_SIZES) {
+			run(content, readSize);
+		}
+	}
+}